@@ -0,0 +1,769 @@
+package fixbench;
+
+import fixbench.bench.BenchmarkRunner;
+import fixbench.bench.CorpusBenchmarks;
+import fixbench.compile.CompileDiagnostic;
+import fixbench.compile.CompileService;
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.CorpusPack;
+import fixbench.corpus.CorpusPackWriter;
+import fixbench.corpus.CorpusTreeWriter;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.InstanceMetadata;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.PairInfoParser;
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import fixbench.detect.BugDetector;
+import fixbench.detect.BugPattern;
+import fixbench.detect.Finding;
+import fixbench.diff.Hunk;
+import fixbench.diff.HunkLocation;
+import fixbench.diff.HunkLocator;
+import fixbench.diff.UnifiedDiffParser;
+import fixbench.eval.EvaluationHarness;
+import fixbench.eval.IdentityTool;
+import fixbench.eval.IncrementalTool;
+import fixbench.eval.InstanceResult;
+import fixbench.eval.LineRewriteTool;
+import fixbench.eval.OracleTool;
+import fixbench.eval.TransformationTool;
+import fixbench.eval.Verdict;
+import fixbench.index.IndexBuilder;
+import fixbench.index.IndexEntry;
+import fixbench.index.InstanceIndex;
+import fixbench.index.Query;
+import fixbench.edit.EditScript;
+import fixbench.edit.EditScriptStore;
+import fixbench.java.CachedSyntaxTree;
+import fixbench.java.Declaration;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.SyntaxTree;
+import fixbench.java.SyntaxTreeCache;
+import fixbench.results.ResultsStore;
+import fixbench.results.ResultsWriter;
+import fixbench.results.RunDiff;
+import fixbench.similar.FixFingerprint;
+import fixbench.similar.FixIndex;
+import fixbench.sites.SiteIndex;
+import fixbench.sites.TokenPattern;
+import fixbench.slice.MethodSliceTable;
+import fixbench.synth.Amplifier;
+import fixbench.synth.Mutation;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/** Command-line entry point of the FixBench tools. */
+public final class Main {
+    /** Tiers opened by {@link #openCorpus}, set with a leading {@code --tiers=} option. */
+    private static Set<Tier> tiers = Tier.clean();
+
+    private Main() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        tiers = Tier.clean();
+        if (args.length > 0 && args[0].startsWith("--tiers=")) {
+            tiers = Tier.parse(args[0].substring("--tiers=".length()));
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        switch (args[0]) {
+            case "pack":
+                require(args, 3);
+                pack(Paths.get(args[1]), Paths.get(args[2]));
+                break;
+            case "amplify":
+                require(args, 4);
+                amplify(Paths.get(args[1]), Paths.get(args[2]), Integer.parseInt(args[3]),
+                        args.length > 4 ? Long.parseLong(args[4]) : 1,
+                        args.length > 5 ? Mutation.parse(args[5]) : EnumSet.allOf(Mutation.class));
+                break;
+            case "ls":
+                require(args, 2);
+                list(Paths.get(args[1]));
+                break;
+            case "meta":
+                require(args, 2);
+                metadata(Paths.get(args[1]));
+                break;
+            case "hunks":
+                require(args, 2);
+                hunks(Paths.get(args[1]));
+                break;
+            case "eval":
+                require(args, 3);
+                evaluate(Paths.get(args[1]), args[2],
+                        args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors(),
+                        Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 60),
+                        args.length > 5 ? Paths.get(args[5]) : null, args.length > 6 ? args[6] : "default");
+                break;
+            case "loo":
+                require(args, 3);
+                leaveOneOut(Paths.get(args[1]), args[2],
+                        args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors(),
+                        Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 60),
+                        args.length > 5 ? Paths.get(args[5]) : null, args.length > 6 ? args[6] : "default");
+                break;
+            case "results":
+                require(args, 2);
+                results(Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+                break;
+            case "rundiff":
+                require(args, 3);
+                runDiff(Paths.get(args[1]), Paths.get(args[2]));
+                break;
+            case "index":
+                require(args, 3);
+                index(Paths.get(args[1]), Paths.get(args[2]));
+                break;
+            case "query":
+                require(args, 2);
+                query(Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+                break;
+            case "slices":
+                require(args, 3);
+                slices(Paths.get(args[1]), Paths.get(args[2]));
+                break;
+            case "bench":
+                require(args, 2);
+                bench(Paths.get(args[1]), args.length > 2 ? Integer.parseInt(args[2]) : 5,
+                        args.length > 3 ? Integer.parseInt(args[3]) : 10);
+                break;
+            case "edits":
+                require(args, 3);
+                editScripts(Paths.get(args[1]), Paths.get(args[2]), args.length > 3 ? Paths.get(args[3]) : null);
+                break;
+            case "script":
+                require(args, 4);
+                editScript(Paths.get(args[1]), Paths.get(args[2]), args[3]);
+                break;
+            case "fixindex":
+                require(args, 4);
+                fixIndex(Paths.get(args[1]), Paths.get(args[2]), Paths.get(args[3]),
+                        args.length > 4 ? Paths.get(args[4]) : null);
+                break;
+            case "similar":
+                require(args, 3);
+                similar(Paths.get(args[1]), args[2], args.length > 3 ? Integer.parseInt(args[3]) : 10);
+                break;
+            case "sites":
+                require(args, 3);
+                sites(Paths.get(args[1]), args[2], args.length > 3 ? Paths.get(args[3]) : null);
+                break;
+            case "detect":
+                require(args, 2);
+                detect(Paths.get(args[1]), args.length > 2 ? args[2] : null);
+                break;
+            case "compile":
+                require(args, 2);
+                compile(Paths.get(args[1]), args.length > 2 ? args[2] : null);
+                break;
+            case "ast":
+                require(args, 3);
+                syntaxTrees(Paths.get(args[1]), Paths.get(args[2]));
+                break;
+            default:
+                usage();
+                System.exit(2);
+        }
+    }
+
+    private static void pack(Path root, Path out) throws IOException {
+        long start = System.nanoTime();
+        try (Corpus corpus = DirectoryCorpus.open(root, EnumSet.allOf(View.class), EnumSet.allOf(Tier.class))) {
+            CorpusPackWriter.Stats stats = CorpusPackWriter.write(corpus, out);
+            System.out.printf("%d instances, %d files, %d blobs, %d -> %d bytes, %d ms%n",
+                    stats.instances, stats.members, stats.blobs, stats.logicalBytes, Files.size(out),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void amplify(Path source, Path out, int count, long seed, Set<Mutation> mutations)
+            throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            Amplifier amplifier = new Amplifier(corpus.instances(), mutations, seed);
+            long start = System.nanoTime();
+            Corpus variants = amplifier.corpus(count);
+            String written;
+            if (out.getFileName().toString().endsWith(".fxpack")) {
+                CorpusPackWriter.Stats stats = CorpusPackWriter.write(variants, out);
+                written = stats.members + " files, " + Files.size(out) + " bytes";
+            } else {
+                CorpusTreeWriter.Stats stats = CorpusTreeWriter.write(variants, out);
+                written = stats.members + " files, " + stats.bytes + " bytes";
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf(Locale.ROOT, "%d variants of %d pairs, %s, %d ms, %.0f variants/s%n", count,
+                    amplifier.sources().size(), written, elapsed / 1_000_000, count / (elapsed / 1e9));
+            for (Mutation mutation : Mutation.values()) {
+                System.out.println(mutation.label() + '\t' + amplifier.applied(mutation));
+            }
+        }
+    }
+
+    private static void list(Path source) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            for (CorpusInstance instance : corpus.instances()) {
+                StringBuilder line = new StringBuilder(instance.key());
+                for (Member member : instance.members()) {
+                    line.append('\t').append(member).append(' ').append(member.size());
+                }
+                System.out.println(line);
+            }
+        }
+    }
+
+    private static void metadata(Path source) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            PairInfoParser parser = new PairInfoParser();
+            List<InstanceMetadata> all = new ArrayList<>(corpus.instances().size());
+            long start = System.nanoTime();
+            for (CorpusInstance instance : corpus.instances()) {
+                all.add(parser.parse(instance));
+            }
+            long elapsed = System.nanoTime() - start;
+            for (int i = 0; i < all.size(); i++) {
+                InstanceMetadata meta = all.get(i);
+                System.out.println(corpus.instances().get(i).key() + '\t' + meta.schema() + '\t'
+                        + meta.repoName() + '\t' + meta.filePath() + '\t' + meta.startLine() + '\t'
+                        + meta.endLine());
+            }
+            System.err.printf("%d pair.info files in %.2f ms%n", all.size(), elapsed / 1e6);
+        }
+    }
+
+    private static void hunks(Path source) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            List<List<HunkLocation>> all = new ArrayList<>(corpus.instances().size());
+            long start = System.nanoTime();
+            for (CorpusInstance instance : corpus.instances()) {
+                all.add(HunkLocator.locate(instance));
+            }
+            long elapsed = System.nanoTime() - start;
+            int count = 0;
+            for (int i = 0; i < all.size(); i++) {
+                for (HunkLocation location : all.get(i)) {
+                    Hunk hunk = location.hunk();
+                    System.out.println(corpus.instances().get(i).key() + '\t' + hunk.oldStart() + '-'
+                            + hunk.oldEnd() + '\t' + hunk.newStart() + '-' + hunk.newEnd() + '\t'
+                            + name(location.oldDeclaration()) + '\t' + name(location.newDeclaration()));
+                    count++;
+                }
+            }
+            System.err.printf("%d hunks of %d instances located in %d ms%n", count, all.size(),
+                    elapsed / 1_000_000);
+        }
+    }
+
+    private static void slices(Path source, Path file) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            long start = System.nanoTime();
+            MethodSliceTable table = MethodSliceTable.build(corpus.instances());
+            long elapsed = System.nanoTime() - start;
+            table.save(file);
+            long within = table.slices().stream()
+                    .filter(slice -> slice.key().startsWith(View.WITHIN_SINGLE_METHOD.folder() + '/'))
+                    .count();
+            System.out.printf("%d of %d instances sliced (%d in %s) in %d ms%n", table.size(),
+                    corpus.instances().size(), within, View.WITHIN_SINGLE_METHOD.folder(),
+                    elapsed / 1_000_000);
+        }
+    }
+
+    private static void bench(Path source, int warmups, int iterations) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner(warmups, iterations);
+        System.out.println("benchmark\tgroup\tops\tcold-ms\twarm-ms\tstddev-ms\tus/op\tMB/s");
+        new CorpusBenchmarks(source, runner).run(System.out::println);
+        System.err.println("checksum " + runner.sink());
+    }
+
+    private static void editScripts(Path source, Path file, Path cacheDir) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            long start = System.nanoTime();
+            EditScriptStore.Stats stats = EditScriptStore.build(corpus, file,
+                    cacheDir == null ? null : new SyntaxTreeCache(cacheDir));
+            System.out.printf("%d instances, %d distinct scripts, %d actions, %d ms%n", stats.instances,
+                    stats.scripts, stats.actions, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void editScript(Path source, Path file, String key) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            EditScriptStore store = EditScriptStore.open(file);
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instance.key().equals(key)) {
+                    EditScript script = store.get(instance);
+                    if (script == null) {
+                        System.err.println("No edit script for " + key);
+                        System.exit(1);
+                    }
+                    SyntaxTree src = SyntaxTree.of(DeclarationIndex.of(instance.oldSource().content()));
+                    SyntaxTree dst = SyntaxTree.of(DeclarationIndex.of(instance.newSource().content()));
+                    for (int i = 0; i < script.size(); i++) {
+                        System.out.println(script.describe(i, src, dst));
+                    }
+                    return;
+                }
+            }
+            System.err.println("No instance " + key);
+            System.exit(1);
+        }
+    }
+
+    private static void fixIndex(Path source, Path scripts, Path file, Path cacheDir) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            long start = System.nanoTime();
+            FixIndex index = FixIndex.build(corpus, EditScriptStore.open(scripts),
+                    cacheDir == null ? null : new SyntaxTreeCache(cacheDir));
+            index.save(file);
+            System.out.printf("%d fixes fingerprinted in %d ms%n", index.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void similar(Path file, String id, int k) throws IOException {
+        FixIndex index = FixIndex.load(file);
+        int slash = id.indexOf('/');
+        FixFingerprint query = slash < 0 ? null : index.get(id.substring(0, slash), id.substring(slash + 1));
+        if (query == null) {
+            System.err.println("No fix " + id + ", expected <category>/<name>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        List<FixIndex.Neighbor> neighbors = index.nearest(query, k, fix -> true);
+        long elapsed = System.nanoTime() - start;
+        for (FixIndex.Neighbor neighbor : neighbors) {
+            System.out.println(neighbor);
+        }
+        System.err.printf("%d neighbours in %.3f ms%n", neighbors.size(), elapsed / 1e6);
+    }
+
+    private static void sites(Path source, String pattern, Path cacheDir) throws IOException {
+        TokenPattern rule = TokenPattern.of(pattern);
+        try (Corpus corpus = openCorpus(source)) {
+            long start = System.nanoTime();
+            SiteIndex index = SiteIndex.build(corpus.instances(),
+                    cacheDir == null ? null : new SyntaxTreeCache(cacheDir));
+            long indexed = System.nanoTime();
+            SiteIndex.Result result = index.search(rule);
+            long searched = System.nanoTime();
+            PairInfoParser parser = new PairInfoParser();
+            int annotated = 0;
+            for (SiteIndex.Site site : result.matches()) {
+                boolean known = false;
+                for (CorpusInstance instance : site.file().instances()) {
+                    InstanceMetadata meta = parser.parse(instance);
+                    known |= meta.startLine() >= 0 && meta.startLine() <= site.endLine()
+                            && site.startLine() <= meta.endLine();
+                }
+                annotated += known ? 1 : 0;
+                System.out.println(site + (known ? "\tannotated" : ""));
+            }
+            System.err.printf("%d files, %d sites indexed in %d ms; %s: %d candidates, %d matches"
+                    + " (%d on an annotated bug line) in %.2f ms%n", index.files().size(), index.sites(),
+                    (indexed - start) / 1_000_000, rule, result.candidates(), result.matches().size(),
+                    annotated, (searched - indexed) / 1e6);
+        }
+    }
+
+    private static void detect(Path source, String category) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            PairInfoParser parser = new PairInfoParser();
+            System.out.println("category\tinstances\tdetected\tcleared");
+            long files = 0;
+            long elapsed = 0;
+            for (BugPattern pattern : BugPattern.values()) {
+                if (category != null && !pattern.category().equals(category)) {
+                    continue;
+                }
+                BugDetector detector = new BugDetector(EnumSet.of(pattern));
+                int instances = 0;
+                int detected = 0;
+                int cleared = 0;
+                for (CorpusInstance instance : corpus.instances()) {
+                    if (instance.view() != View.ALL || !instance.category().equals(pattern.category())
+                            || instance.oldSource() == null || instance.newSource() == null) {
+                        continue;
+                    }
+                    instances++;
+                    long start = System.nanoTime();
+                    List<Finding> before = detector.detect(instance.oldSource().content());
+                    List<Finding> after = detector.detect(instance.newSource().content());
+                    elapsed += System.nanoTime() - start;
+                    files += 2;
+                    InstanceMetadata meta = parser.parse(instance);
+                    List<Hunk> hunks = UnifiedDiffParser.parse(instance.content(MemberKind.DIFF));
+                    boolean hit = false;
+                    for (Finding finding : before) {
+                        hit |= meta.startLine() >= 0 ? finding.overlaps(meta.startLine(), meta.endLine())
+                                : nearHunk(finding, hunks);
+                    }
+                    if (hit) {
+                        detected++;
+                        cleared += after.size() < before.size() ? 1 : 0;
+                    }
+                }
+                System.out.printf("%s\t%d\t%d\t%d%n", pattern.category(), instances, detected, cleared);
+            }
+            System.err.printf("%d files in %d ms, %.0f files/s%n", files, elapsed / 1_000_000,
+                    files / (elapsed / 1e9));
+        }
+    }
+
+    /** Whether a finding lies within two lines of a hunk's old range. */
+    private static boolean nearHunk(Finding finding, List<Hunk> hunks) {
+        for (Hunk hunk : hunks) {
+            if (finding.overlaps(hunk.oldStart() - 2, hunk.oldEnd() + 2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void compile(Path source, String repository) throws IOException {
+        try (Corpus corpus = openCorpus(source); CompileService service = new CompileService()) {
+            PairInfoParser parser = new PairInfoParser();
+            Map<String, List<CorpusInstance>> byRepository = new TreeMap<>();
+            for (CorpusInstance instance : corpus.instances()) {
+                String repo = parser.parse(instance).repoName();
+                if (instance.view() == View.ALL && instance.oldSource() != null && instance.newSource() != null
+                        && repo != null && (repository == null || repo.equals(repository))) {
+                    byRepository.computeIfAbsent(repo, key -> new ArrayList<>()).add(instance);
+                }
+            }
+            System.out.println("repository\tinstances\tstubs\tclean\tstub-only\tintroduced\tprepare-ms\tpair-ms");
+            long start = System.nanoTime();
+            int instances = 0;
+            int regressions = 0;
+            long compileNanos = 0;
+            for (Map.Entry<String, List<CorpusInstance>> entry : byRepository.entrySet()) {
+                String repo = entry.getKey();
+                List<ByteBuffer> sources = new ArrayList<>();
+                for (CorpusInstance instance : entry.getValue()) {
+                    sources.add(instance.oldSource().content());
+                }
+                long prepare = System.nanoTime();
+                int stubs = service.prepare(repo, sources);
+                prepare = System.nanoTime() - prepare;
+                int clean = 0;
+                int stubOnly = 0;
+                int introduced = 0;
+                long compiled = System.nanoTime();
+                for (CorpusInstance instance : entry.getValue()) {
+                    List<CompileDiagnostic> errors = service.check(repo, instance.oldSource().name(),
+                            instance.oldSource().content(), instance.newSource().content());
+                    CompileDiagnostic own = null;
+                    for (CompileDiagnostic error : errors) {
+                        own = own == null && !error.involvesStub() ? error : own;
+                    }
+                    if (errors.isEmpty()) {
+                        clean++;
+                    } else if (own == null) {
+                        stubOnly++;
+                    } else {
+                        introduced++;
+                        System.err.println(instance.key() + "\t" + own);
+                    }
+                }
+                compiled = System.nanoTime() - compiled;
+                compileNanos += compiled;
+                instances += entry.getValue().size();
+                regressions += introduced;
+                System.out.printf("%s\t%d\t%d\t%d\t%d\t%d\t%d\t%.1f%n", repo, entry.getValue().size(), stubs,
+                        clean, stubOnly, introduced, prepare / 1_000_000,
+                        compiled / 1e6 / entry.getValue().size());
+            }
+            System.err.printf("%d repositories, %d instances, %d with introduced errors, %.1f ms per old/new"
+                    + " pair, %d ms stubs, %d ms total%n", byRepository.size(), instances, regressions,
+                    compileNanos / 1e6 / Math.max(1, instances), service.stubNanos() / 1_000_000,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static void syntaxTrees(Path source, Path cacheDir) throws IOException {
+        try (Corpus corpus = openCorpus(source)) {
+            SyntaxTreeCache cache = new SyntaxTreeCache(cacheDir);
+            long start = System.nanoTime();
+            int files = 0;
+            int methods = 0;
+            for (CorpusInstance instance : corpus.instances()) {
+                for (Member member : instance.members()) {
+                    if (member.isJavaSource()) {
+                        CachedSyntaxTree tree = cache.get(member);
+                        tree.skeleton();
+                        for (int m = 0; m < tree.methodCount(); m++) {
+                            tree.method(m);
+                        }
+                        methods += tree.methodCount();
+                        files++;
+                    }
+                }
+            }
+            System.out.printf("%d files, %d methods, %d hits, %d misses, %d ms%n", files, methods,
+                    cache.hits(), cache.misses(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static String name(Declaration declaration) {
+        return declaration == null ? "-" : declaration.kind() + ":" + declaration.qualifiedName();
+    }
+
+    private static void evaluate(Path source, String toolName, int threads, Duration timeout, Path results,
+            String configuration) throws Exception {
+        TransformationTool tool = tool(toolName);
+        try (Corpus corpus = openCorpus(source)) {
+            EvaluationHarness harness = new EvaluationHarness(threads, timeout);
+            ResultsWriter writer = resultsWriter(corpus, results, configuration);
+            EvaluationHarness.Summary summary = harness.run(corpus.instances(), tool, resultSink(writer));
+            System.err.println(summary);
+            System.err.print(harness.metrics().report(10));
+            writeResults(writer, results);
+        }
+    }
+
+    private static void leaveOneOut(Path source, String toolName, int threads, Duration timeout, Path results,
+            String configuration) throws Exception {
+        IncrementalTool<?> tool = incrementalTool(toolName);
+        try (Corpus corpus = openCorpus(source)) {
+            EvaluationHarness harness = new EvaluationHarness(threads, timeout);
+            ResultsWriter writer = resultsWriter(corpus, results, configuration);
+            EvaluationHarness.Summary summary =
+                    harness.runLeaveOneOut(corpus.instances(), tool, resultSink(writer));
+            System.err.println(summary);
+            System.err.print(harness.metrics().report(10));
+            writeResults(writer, results);
+        }
+    }
+
+    /** A writer for {@code results} that starts with the rows already there, or {@code null}. */
+    private static ResultsWriter resultsWriter(Corpus corpus, Path results, String configuration)
+            throws IOException {
+        if (results == null) {
+            return null;
+        }
+        ResultsWriter writer = new ResultsWriter(corpus, configuration);
+        if (Files.exists(results)) {
+            writer.addAll(ResultsStore.open(results));
+        }
+        return writer;
+    }
+
+    private static Consumer<InstanceResult> resultSink(ResultsWriter writer) {
+        if (writer == null) {
+            return System.out::println;
+        }
+        return result -> {
+            System.out.println(result);
+            writer.accept(result);
+        };
+    }
+
+    private static void writeResults(ResultsWriter writer, Path results) throws IOException {
+        if (writer != null) {
+            long bytes = writer.write(results);
+            System.err.printf("%d rows, %d bytes written to %s%n", writer.size(), bytes, results);
+        }
+    }
+
+    private static void results(Path file, String[] columns) throws IOException {
+        ResultsStore store = ResultsStore.open(file);
+        ResultsStore.Column[] by = new ResultsStore.Column[Math.max(1, columns.length)];
+        by[0] = ResultsStore.Column.CATEGORY;
+        for (int i = 0; i < columns.length; i++) {
+            by[i] = ResultsStore.Column.valueOf(columns[i].toUpperCase(Locale.ROOT));
+        }
+        long start = System.nanoTime();
+        Map<String, ResultsStore.Group> groups = store.groupBy(by);
+        long elapsed = System.nanoTime() - start;
+        StringBuilder header = new StringBuilder();
+        for (ResultsStore.Column column : by) {
+            header.append(column.name().toLowerCase(Locale.ROOT)).append('\t');
+        }
+        header.append("rows");
+        for (Verdict verdict : Verdict.values()) {
+            header.append('\t').append(verdict.name().toLowerCase(Locale.ROOT));
+        }
+        System.out.println(header.append("\twall-ms\talloc-mb"));
+        for (ResultsStore.Group group : groups.values()) {
+            StringBuilder line = new StringBuilder(group.name()).append('\t').append(group.rows());
+            for (Verdict verdict : Verdict.values()) {
+                line.append('\t').append(group.count(verdict));
+            }
+            System.out.println(line.append('\t').append(group.wallNanos() / 1_000_000)
+                    .append('\t').append(group.allocatedBytes() >> 20));
+        }
+        System.err.printf("%d rows in %d groups in %.2f ms, read %s (%d bytes inflated)%n", store.size(),
+                groups.size(), elapsed / 1e6, store.loadedColumns(), store.inflatedBytes());
+    }
+
+    private static void runDiff(Path before, Path after) throws IOException {
+        ResultsStore a = ResultsStore.open(before);
+        ResultsStore b = ResultsStore.open(after);
+        long start = System.nanoTime();
+        RunDiff diff = RunDiff.of(a, b);
+        long elapsed = System.nanoTime() - start;
+        for (RunDiff.Change change : diff.changes()) {
+            System.out.println(change);
+        }
+        System.err.printf("%s in %.2f ms, read %s (%d bytes inflated)%n", diff, elapsed / 1e6, b.loadedColumns(),
+                a.inflatedBytes() + b.inflatedBytes());
+    }
+
+    static IncrementalTool<?> incrementalTool(String name) throws ReflectiveOperationException {
+        if (name.equals("line-rewrite")) {
+            return new LineRewriteTool();
+        }
+        return Class.forName(name).asSubclass(IncrementalTool.class).getDeclaredConstructor().newInstance();
+    }
+
+    /** Resolves a built-in tool name, or instantiates a tool class by its fully qualified name. */
+    static TransformationTool tool(String name) throws ReflectiveOperationException {
+        switch (name) {
+            case "identity":
+                return new IdentityTool();
+            case "oracle":
+                return new OracleTool();
+            case "line-rewrite-scratch":
+                return new LineRewriteTool().fromScratch();
+            default:
+                return Class.forName(name).asSubclass(TransformationTool.class)
+                        .getDeclaredConstructor().newInstance();
+        }
+    }
+
+    private static void index(Path root, Path file) throws IOException {
+        long start = System.nanoTime();
+        InstanceIndex previous = Files.exists(file) ? InstanceIndex.load(file) : null;
+        IndexBuilder builder = new IndexBuilder(root);
+        InstanceIndex index = builder.build(previous);
+        index.save(file);
+        System.out.printf("%d entries, %d reused, %d rebuilt, %d ms%n", index.entries().size(),
+                builder.reused(), builder.rebuilt(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void query(Path file, String[] terms) throws IOException {
+        InstanceIndex index = InstanceIndex.load(file);
+        Query query = Query.all();
+        for (String term : terms) {
+            int eq = term.indexOf('=');
+            String value = term.substring(eq + 1);
+            switch (term.substring(0, Math.max(eq, 0))) {
+                case "repo":
+                    query = query.repo(value);
+                    break;
+                case "category":
+                    query = query.category(value);
+                    break;
+                case "path":
+                    query = query.path(value);
+                    break;
+                case "view":
+                    query = query.view(View.fromFolder(value));
+                    break;
+                case "tier":
+                    query = query.tier(Tier.fromLabel(value));
+                    break;
+                case "hunks":
+                    query = query.hunks(lowerBound(value), upperBound(value));
+                    break;
+                case "lines":
+                    query = query.oldLines(lowerBound(value), upperBound(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown query term: " + term);
+            }
+        }
+        long start = System.nanoTime();
+        BitSet hits = index.select(query);
+        long elapsed = System.nanoTime() - start;
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            IndexEntry entry = index.entry(i);
+            System.out.println(entry.key() + '\t' + entry.repoName() + '\t' + entry.hunks() + '\t'
+                    + entry.oldLines() + '\t' + entry.tier().label());
+        }
+        System.err.printf("%d hits in %d us%n", hits.cardinality(), elapsed / 1000);
+    }
+
+    /** Lower bound of a range written as {@code n}, {@code a-b}, {@code a-} or {@code -b}. */
+    private static int lowerBound(String range) {
+        int dash = range.indexOf('-');
+        String low = dash < 0 ? range : range.substring(0, dash);
+        return low.isEmpty() ? 0 : Integer.parseInt(low);
+    }
+
+    private static int upperBound(String range) {
+        int dash = range.indexOf('-');
+        String high = dash < 0 ? range : range.substring(dash + 1);
+        return high.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(high);
+    }
+
+    /** Opens a pack file, or the folder tree if {@code source} is a directory, with the selected tiers. */
+    static Corpus openCorpus(Path source) throws IOException {
+        return Files.isDirectory(source) ? DirectoryCorpus.open(source, EnumSet.allOf(View.class), tiers)
+                : CorpusPack.open(source, tiers);
+    }
+
+    private static void require(String[] args, int count) {
+        if (args.length < count) {
+            usage();
+            System.exit(2);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: fixbench [--tiers=clean,discarded] <command> [args]");
+        System.err.println("  pack <root> <out.fxpack>   pack the benchmark tree into one deduplicated file");
+        System.err.println("  amplify <root|pack> <out> <count> [seed] [mutations]");
+        System.err.println("                             generate mutated variants into a tree, or a pack if out is *.fxpack");
+        System.err.println("  ls <root|pack>             list instances and their members");
+        System.err.println("  meta <root|pack>           parse every pair.info into a table");
+        System.err.println("  hunks <root|pack>          locate every diff hunk in its enclosing declarations");
+        System.err.println("  eval <root|pack> <tool> [threads] [timeout-s] [results [config]]");
+        System.err.println("                             run identity, oracle or a TransformationTool class");
+        System.err.println("  loo <root|pack> <tool> [threads] [timeout-s] [results [config]]");
+        System.err.println("                             leave-one-out run of line-rewrite or an IncrementalTool class");
+        System.err.println("  results <store> [column...]");
+        System.err.println("                             verdict counts grouped by category, repository, tool, ...");
+        System.err.println("  rundiff <before> <after>   rows whose verdict or candidate changed between two stores");
+        System.err.println("  index <root> <index>       build or incrementally refresh the query index");
+        System.err.println("  slices <root|pack> <table> record the method enclosing each instance's changes");
+        System.err.println("  bench <root|pack> [warmups] [iterations]");
+        System.err.println("                             time loading, parsing and identity per bug category");
+        System.err.println("  edits <root|pack> <store> [cache]");
+        System.err.println("                             compute the tree edit script of every instance");
+        System.err.println("  script <root|pack> <store> <key>");
+        System.err.println("                             print the edit script of one instance");
+        System.err.println("  fixindex <root|pack> <store> <index> [cache]");
+        System.err.println("                             fingerprint every edit script for similarity search");
+        System.err.println("  similar <index> <category/name> [k]");
+        System.err.println("                             print the k fixes most similar to one instance");
+        System.err.println("  sites <root|pack> <pattern> [cache]");
+        System.err.println("                             find every buggy-source site matching a token pattern");
+        System.err.println("  detect <root|pack> [category]");
+        System.err.println("                             re-detect each category's bug pattern in old and new");
+        System.err.println("  compile <root|pack> [repo]   compile old and new in memory against per-repository stubs");
+        System.err.println("  ast <root|pack> <cache>    parse every source into the syntax tree cache");
+        System.err.println("  query <index> [term...]    select instances, terms are repo=, category=,");
+        System.err.println("                             path=, view=, tier=, hunks=a-b and lines=a-b");
+    }
+}
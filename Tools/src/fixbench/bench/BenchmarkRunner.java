@@ -0,0 +1,57 @@
+package fixbench.bench;
+
+/**
+ * Minimal benchmark loop: one cold pass, untimed warm-up passes, then timed passes. Each pass
+ * runs the whole workload, so per-operation times are averages over a group of instances.
+ */
+public final class BenchmarkRunner {
+    private final int warmups;
+    private final int iterations;
+    private long sink;
+
+    public BenchmarkRunner(int warmups, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("At least one measured iteration is required");
+        }
+        this.warmups = warmups;
+        this.iterations = iterations;
+    }
+
+    public Measurement measure(String benchmark, String group, long ops, long bytes, Workload workload)
+            throws Exception {
+        return measure(benchmark, group, ops, bytes, workload, true);
+    }
+
+    /**
+     * Like {@link #measure}, for a workload that runs after others have warmed the caches and the
+     * JIT: its first pass is not cold, so it is timed as a warm-up and reported as {@code -1}.
+     */
+    public Measurement measureWarm(String benchmark, String group, long ops, long bytes, Workload workload)
+            throws Exception {
+        return measure(benchmark, group, ops, bytes, workload, false);
+    }
+
+    private Measurement measure(String benchmark, String group, long ops, long bytes, Workload workload,
+            boolean first) throws Exception {
+        long cold = time(workload);
+        for (int i = 0; i < warmups; i++) {
+            time(workload);
+        }
+        long[] warm = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            warm[i] = time(workload);
+        }
+        return new Measurement(benchmark, group, ops, bytes, first ? cold : -1, warm);
+    }
+
+    /** Sum of all workload results, to be printed or otherwise observed by the caller. */
+    public long sink() {
+        return sink;
+    }
+
+    private long time(Workload workload) throws Exception {
+        long start = System.nanoTime();
+        sink += workload.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,175 @@
+package fixbench.bench;
+
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.CorpusPack;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.PairInfoParser;
+import fixbench.corpus.View;
+import fixbench.diff.UnifiedDiffParser;
+import fixbench.eval.IdentityTool;
+import fixbench.eval.TransformationTool;
+import fixbench.eval.Verifier;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Benchmarks of the corpus tooling over the {@code All} view, once for the whole view and once per
+ * bug category: loading every file, parsing {@code diff.diff} and {@code pair.info}, and applying
+ * and verifying the identity transformation per instance.
+ *
+ * <p>Each benchmark runs the whole view first. Only that group reports a cold pass: the categories
+ * that follow find the files in the page cache and the code compiled by the JIT.
+ */
+public final class CorpusBenchmarks {
+    public static final String ALL = "All";
+
+    private final Path source;
+    private final BenchmarkRunner runner;
+
+    public CorpusBenchmarks(Path source, BenchmarkRunner runner) {
+        this.source = source;
+        this.runner = runner;
+    }
+
+    /**
+     * Runs every benchmark, loading first so that the cold pass of {@link #ALL} is the first read
+     * of the files.
+     */
+    public void run(Consumer<Measurement> sink) throws Exception {
+        Map<String, List<CorpusInstance>> groups;
+        try (Corpus corpus = open()) {
+            groups = groups(corpus.instances());
+        }
+        for (Map.Entry<String, List<CorpusInstance>> group : groups.entrySet()) {
+            String category = group.getKey();
+            sink.accept(measure("load", category, group.getValue().size(), 0, () -> load(category)));
+        }
+        try (Corpus corpus = open()) {
+            groups = groups(corpus.instances());
+            for (Map.Entry<String, List<CorpusInstance>> group : groups.entrySet()) {
+                sink.accept(diffs(group.getKey(), group.getValue()));
+            }
+            for (Map.Entry<String, List<CorpusInstance>> group : groups.entrySet()) {
+                sink.accept(metadata(group.getKey(), group.getValue()));
+            }
+            for (Map.Entry<String, List<CorpusInstance>> group : groups.entrySet()) {
+                sink.accept(identity(group.getKey(), group.getValue()));
+            }
+        }
+    }
+
+    /** Opens the corpus and reads every byte of the group's files. */
+    private long load(String group) throws IOException {
+        long checksum = 0;
+        try (Corpus corpus = open()) {
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instance.view() == View.ALL && (group.equals(ALL) || group.equals(instance.category()))) {
+                    for (Member member : instance.members()) {
+                        checksum += member.content().hashCode();
+                    }
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private Measurement diffs(String group, List<CorpusInstance> instances) throws Exception {
+        List<ByteBuffer> diffs = contents(instances, MemberKind.DIFF);
+        long bytes = 0;
+        for (ByteBuffer diff : diffs) {
+            bytes += diff.remaining();
+        }
+        return measure("diff-parse", group, diffs.size(), bytes, () -> {
+            long hunks = 0;
+            for (ByteBuffer diff : diffs) {
+                hunks += UnifiedDiffParser.parse(diff).size();
+            }
+            return hunks;
+        });
+    }
+
+    private Measurement metadata(String group, List<CorpusInstance> instances) throws Exception {
+        List<ByteBuffer> infos = new ArrayList<>(instances.size());
+        List<String> categories = new ArrayList<>(instances.size());
+        long bytes = 0;
+        for (CorpusInstance instance : instances) {
+            ByteBuffer info = instance.content(MemberKind.PAIR_INFO);
+            if (info != null) {
+                infos.add(info);
+                categories.add(instance.category());
+                bytes += info.remaining();
+            }
+        }
+        return measure("pair-info-parse", group, infos.size(), bytes, () -> {
+            PairInfoParser parser = new PairInfoParser();
+            long sum = 0;
+            for (int i = 0; i < infos.size(); i++) {
+                sum += parser.parse(categories.get(i), infos.get(i)).startLine();
+            }
+            return sum;
+        });
+    }
+
+    private Measurement identity(String group, List<CorpusInstance> instances) throws Exception {
+        TransformationTool tool = new IdentityTool();
+        List<CorpusInstance> examples = Collections.emptyList();
+        return measure("identity", group, instances.size(), 0, () -> {
+            long reproduced = 0;
+            for (CorpusInstance instance : instances) {
+                ByteBuffer candidate = tool.apply(instance, examples);
+                if (candidate != null && Verifier.EXACT.reproduces(instance, candidate)) {
+                    reproduced++;
+                }
+            }
+            return reproduced;
+        });
+    }
+
+    /** Measures a group, with a cold pass only for {@link #ALL}, which each benchmark runs first. */
+    private Measurement measure(String benchmark, String group, long ops, long bytes, Workload workload)
+            throws Exception {
+        return group.equals(ALL) ? runner.measure(benchmark, group, ops, bytes, workload)
+                : runner.measureWarm(benchmark, group, ops, bytes, workload);
+    }
+
+    private static List<ByteBuffer> contents(List<CorpusInstance> instances, MemberKind kind) {
+        List<ByteBuffer> result = new ArrayList<>(instances.size());
+        for (CorpusInstance instance : instances) {
+            ByteBuffer content = instance.content(kind);
+            if (content != null) {
+                result.add(content);
+            }
+        }
+        return result;
+    }
+
+    /** Instances of the {@code All} view as a whole and by category. */
+    private static Map<String, List<CorpusInstance>> groups(List<CorpusInstance> instances) {
+        Map<String, List<CorpusInstance>> groups = new LinkedHashMap<>();
+        groups.put(ALL, new ArrayList<>());
+        for (CorpusInstance instance : instances) {
+            if (instance.view() == View.ALL) {
+                groups.get(ALL).add(instance);
+                groups.computeIfAbsent(instance.category(), c -> new ArrayList<>()).add(instance);
+            }
+        }
+        return groups;
+    }
+
+    private Corpus open() throws IOException {
+        return Files.isDirectory(source) ? DirectoryCorpus.open(source, EnumSet.of(View.ALL))
+                : CorpusPack.open(source);
+    }
+}
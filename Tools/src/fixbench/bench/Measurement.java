@@ -0,0 +1,83 @@
+package fixbench.bench;
+
+import java.util.Arrays;
+
+/**
+ * Timings of one benchmark over one group of instances: the first pass of the process, and the
+ * passes after warm-up.
+ */
+public final class Measurement {
+    private final String benchmark;
+    private final String group;
+    private final long ops;
+    private final long bytes;
+    private final long coldNanos;
+    private final long[] warmNanos;
+
+    Measurement(String benchmark, String group, long ops, long bytes, long coldNanos, long[] warmNanos) {
+        this.benchmark = benchmark;
+        this.group = group;
+        this.ops = ops;
+        this.bytes = bytes;
+        this.coldNanos = coldNanos;
+        this.warmNanos = warmNanos.clone();
+    }
+
+    public String benchmark() {
+        return benchmark;
+    }
+
+    /** {@code All} or a bug category. */
+    public String group() {
+        return group;
+    }
+
+    /** Operations per pass, e.g. instances or files. */
+    public long ops() {
+        return ops;
+    }
+
+    /** Bytes processed per pass. */
+    public long bytes() {
+        return bytes;
+    }
+
+    /** Time of the first pass, or {@code -1} if it ran after another group and was not cold. */
+    public long coldNanos() {
+        return coldNanos;
+    }
+
+    public long[] warmNanos() {
+        return warmNanos.clone();
+    }
+
+    public double warmMean() {
+        return Arrays.stream(warmNanos).average().orElse(Double.NaN);
+    }
+
+    public double warmStdDev() {
+        double mean = warmMean();
+        double sum = 0;
+        for (long nanos : warmNanos) {
+            sum += (nanos - mean) * (nanos - mean);
+        }
+        return warmNanos.length < 2 ? 0 : Math.sqrt(sum / (warmNanos.length - 1));
+    }
+
+    /** Warm nanoseconds per operation. */
+    public double nanosPerOp() {
+        return ops == 0 ? Double.NaN : warmMean() / ops;
+    }
+
+    /** Warm throughput in MB/s, or NaN if the benchmark does not process bytes. */
+    public double megabytesPerSecond() {
+        return bytes == 0 ? Double.NaN : bytes / 1e6 / (warmMean() / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s\t%s\t%d\t%s\t%.2f\t%.2f\t%.1f\t%s", benchmark, group, ops,
+                coldNanos < 0 ? "-" : String.format("%.2f", coldNanos / 1e6), warmMean() / 1e6, warmStdDev() / 1e6, nanosPerOp() / 1e3,
+                bytes == 0 ? "-" : String.format("%.1f", megabytesPerSecond()));
+    }
+}
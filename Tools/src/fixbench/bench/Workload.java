@@ -0,0 +1,8 @@
+package fixbench.bench;
+
+/** One timed pass of a benchmark. The returned value is consumed so the work cannot be elided. */
+@FunctionalInterface
+public interface Workload {
+
+    long run() throws Exception;
+}
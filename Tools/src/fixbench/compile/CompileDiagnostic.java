@@ -0,0 +1,66 @@
+package fixbench.compile;
+
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/** One compiler message about a compiled source, detached from the compiler's objects. */
+public final class CompileDiagnostic {
+    private final Diagnostic.Kind kind;
+    private final String code;
+    private final long line;
+    private final String message;
+    private final boolean involvesStub;
+
+    CompileDiagnostic(Diagnostic<? extends JavaFileObject> diagnostic, boolean involvesStub) {
+        this.kind = diagnostic.getKind();
+        this.code = diagnostic.getCode();
+        this.line = diagnostic.getLineNumber();
+        this.message = diagnostic.getMessage(Locale.ROOT);
+        this.involvesStub = involvesStub;
+    }
+
+    public Diagnostic.Kind kind() {
+        return kind;
+    }
+
+    /** The compiler's message key, e.g. {@code compiler.err.cant.resolve.location}. */
+    public String code() {
+        return code;
+    }
+
+    /** One-based line, or {@link Diagnostic#NOPOS}. */
+    public long line() {
+        return line;
+    }
+
+    /** The message in the root locale; may span several lines. */
+    public String message() {
+        return message;
+    }
+
+    /**
+     * Whether the message names a synthesized stub type. Such an error, e.g. a call to a method the
+     * stub lacks, may be an artifact of the stub rather than a fault of the source.
+     */
+    public boolean involvesStub() {
+        return involvesStub;
+    }
+
+    public boolean isError() {
+        return kind == Diagnostic.Kind.ERROR;
+    }
+
+    /**
+     * Kind, code and message without positions and with whitespace collapsed, so that the same
+     * problem matches across a buggy and a fixed source whose lines have shifted.
+     */
+    public String key() {
+        return kind + " " + code + " " + message.trim().replaceAll("\\s+", " ");
+    }
+
+    @Override
+    public String toString() {
+        return line + ": " + key();
+    }
+}
@@ -0,0 +1,55 @@
+package fixbench.compile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Diagnostics of one in-memory compilation. */
+public final class CompileResult {
+    private final List<CompileDiagnostic> diagnostics;
+    private final long nanos;
+
+    CompileResult(List<CompileDiagnostic> diagnostics, long nanos) {
+        this.diagnostics = Collections.unmodifiableList(diagnostics);
+        this.nanos = nanos;
+    }
+
+    public List<CompileDiagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    public int errorCount() {
+        int count = 0;
+        for (CompileDiagnostic diagnostic : diagnostics) {
+            count += diagnostic.isError() ? 1 : 0;
+        }
+        return count;
+    }
+
+    /** Wall time of the compilation, without stub generation. */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * Errors that {@code baseline} does not have, compared by {@link CompileDiagnostic#key()} as a
+     * multiset: a candidate that repeats an existing error once more introduces one error.
+     */
+    public List<CompileDiagnostic> introducedErrors(CompileResult baseline) {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (CompileDiagnostic diagnostic : baseline.diagnostics) {
+            if (diagnostic.isError()) {
+                remaining.merge(diagnostic.key(), 1, Integer::sum);
+            }
+        }
+        List<CompileDiagnostic> introduced = new ArrayList<>();
+        for (CompileDiagnostic diagnostic : diagnostics) {
+            if (diagnostic.isError() && remaining.merge(diagnostic.key(), -1, Integer::sum) < 0) {
+                introduced.add(diagnostic);
+            }
+        }
+        return introduced;
+    }
+}
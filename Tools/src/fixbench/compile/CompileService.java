@@ -0,0 +1,229 @@
+package fixbench.compile;
+
+import com.sun.source.util.JavacTask;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles single benchmark sources in process against synthesized stubs of their repository. One
+ * service keeps one compiler and one file manager, so the JDK's class files are opened and indexed
+ * once for all instances. The stubs of a repository are compiled once into class files that every
+ * later compilation of that repository reads from memory; a source that imports a type the stubs
+ * lack extends and recompiles them.
+ *
+ * <p>The symbol table is not shared: every compilation is a new javac task, which completes the
+ * JDK and stub classes it uses again from the file manager. {@code javax.tools} offers no public
+ * way to keep a javac context between tasks, and a kept context would hold on to the symbols of
+ * stubs that have since been recompiled.
+ *
+ * <p>Sources are only analyzed, not translated to class files. Since stubs have no members, most
+ * sources still fail to compile; what counts is whether a candidate introduces errors that the
+ * buggy source did not have, see {@link #check}. A service is not thread-safe; use one per worker.
+ */
+public final class CompileService implements Closeable {
+    private static final List<String> OPTIONS = List.of("--release", "8", "-proc:none", "-implicit:none",
+            "-nowarn", "-Xlint:none", "-Xmaxerrs", "100000");
+    private static final Pattern SYMBOL = Pattern.compile("symbol:\\s+(class|variable) ([A-Za-z_$][\\w$]*)");
+    private static final Pattern LOCATION = Pattern.compile("location:\\s+(?:class|interface) ([\\w$.]+)");
+
+    private final JavaCompiler compiler;
+    private final MemoryFileManager files;
+    private final Map<String, Repository> repositories = new HashMap<>();
+    private long stubNanos;
+
+    public CompileService() throws IOException {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler; run the tools on a JDK");
+        }
+        StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        standard.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+        files = new MemoryFileManager(standard);
+    }
+
+    /**
+     * Generates the stubs of a repository from its sources. Types the sources use without
+     * importing them are added after one trial compilation of each source, in the package of a
+     * wildcard import or of the source itself. Returns the number of top-level stubs.
+     */
+    public int prepare(String repository, Collection<ByteBuffer> sources) {
+        Repository repo = repository(repository);
+        for (ByteBuffer source : sources) {
+            repo.stubs.add(source);
+        }
+        boolean added = false;
+        for (ByteBuffer source : sources) {
+            String home = StubGenerator.homePackage(source);
+            for (CompileDiagnostic diagnostic : compile(repository, null, source).diagnostics()) {
+                added |= addMissing(repo, home, diagnostic);
+            }
+        }
+        if (added) {
+            refresh(repo);
+        }
+        return repo.stubs.size();
+    }
+
+    /** Compiles a source as {@code fileName} against the repository's stubs. */
+    public CompileResult compile(String repository, String fileName, ByteBuffer source) {
+        Repository repo = repository(repository);
+        repo.stubs.add(source);
+        refresh(repo);
+        return analyze(repo, fileName == null ? "Source.java" : fileName, source);
+    }
+
+    /**
+     * Compiles a buggy source and a candidate fix against the same stubs and returns the errors
+     * that only the candidate has.
+     */
+    public List<CompileDiagnostic> check(String repository, String fileName, ByteBuffer baseline,
+            ByteBuffer candidate) {
+        Repository repo = repository(repository);
+        repo.stubs.add(baseline);
+        repo.stubs.add(candidate);
+        CompileResult compiled = compile(repository, fileName, candidate);
+        // The candidate may use types of its package that the buggy source did not.
+        String home = StubGenerator.homePackage(candidate);
+        boolean added = false;
+        for (CompileDiagnostic diagnostic : compiled.diagnostics()) {
+            added |= addMissing(repo, home, diagnostic);
+        }
+        if (added) {
+            compiled = compile(repository, fileName, candidate);
+        }
+        return compiled.introducedErrors(compile(repository, fileName, baseline));
+    }
+
+    /** Time spent generating and compiling stubs so far. */
+    public long stubNanos() {
+        return stubNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        files.close();
+    }
+
+    private Repository repository(String name) {
+        return repositories.computeIfAbsent(name, key -> new Repository());
+    }
+
+    private boolean addMissing(Repository repo, String home, CompileDiagnostic diagnostic) {
+        if (!diagnostic.code().startsWith("compiler.err.cant.resolve")) {
+            return false;
+        }
+        Matcher symbol = SYMBOL.matcher(diagnostic.message());
+        if (!symbol.find()) {
+            return false;
+        }
+        String name = symbol.group(2);
+        // An unknown capitalized variable is most often a type used as a qualifier, as in Foo.bar().
+        if (symbol.group(1).equals("variable")
+                && (!Character.isUpperCase(name.charAt(0)) || name.equals(name.toUpperCase()))) {
+            return false;
+        }
+        Matcher location = LOCATION.matcher(diagnostic.message());
+        return repo.stubs.addMissing(home, location.find() ? location.group(1) : null, name);
+    }
+
+    /** Recompiles the repository's changed stubs and puts all of them on the class path. */
+    private void refresh(Repository repo) {
+        if (repo.stubs.hasChanges()) {
+            long start = System.nanoTime();
+            compileStubs(repo);
+            stubNanos += System.nanoTime() - start;
+        }
+        files.classPath(repo.classes);
+    }
+
+    /**
+     * Compiles the changed stubs. Stubs the compiler rejects, e.g. a class whose name is also a
+     * package of another stub, are dropped and the rest compiled again.
+     */
+    private void compileStubs(Repository repo) {
+        Map<String, String> pending = repo.stubs.takeChanged();
+        for (String qualified : pending.keySet()) {
+            repo.classes.keySet().removeIf(name -> name.equals(qualified) || name.startsWith(qualified + '$'));
+        }
+        pending.values().removeIf(Objects::isNull);
+        files.classPath(Collections.emptyMap());
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            List<JavaFileObject> units = new ArrayList<>(pending.size());
+            Map<JavaFileObject, String> names = new HashMap<>();
+            for (Map.Entry<String, String> entry : pending.entrySet()) {
+                JavaFileObject unit = new MemoryFileManager.SourceFile(
+                        entry.getKey().replace('.', '/') + ".java", entry.getValue());
+                units.add(unit);
+                names.put(unit, entry.getKey());
+            }
+            DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            boolean ok = compiler.getTask(null, files, collector, OPTIONS, null, units).call();
+            Map<String, byte[]> classes = files.takeOutput();
+            if (ok || attempt == 1) {
+                repo.classes.putAll(classes);
+                break;
+            }
+            for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+                String rejected = names.get(diagnostic.getSource());
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR && rejected != null) {
+                    pending.remove(rejected);
+                    repo.stubs.remove(rejected);
+                }
+            }
+        }
+        repo.stubs.takeChanged();
+    }
+
+    private CompileResult analyze(Repository repo, String fileName, ByteBuffer source) {
+        long start = System.nanoTime();
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        JavaFileObject unit = new MemoryFileManager.SourceFile(fileName,
+                StandardCharsets.UTF_8.decode(source.duplicate()).toString());
+        JavacTask task = (JavacTask) compiler.getTask(null, files, collector, OPTIONS, null, List.of(unit));
+        try {
+            task.analyze();
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory compilation failed", e);
+        }
+        List<CompileDiagnostic> diagnostics = new ArrayList<>();
+        Boolean inherits = null;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            boolean involvesStub = false;
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                involvesStub = repo.stubs.mentions(diagnostic.getMessage(Locale.ROOT));
+                if (!involvesStub && diagnostic.getCode().startsWith("compiler.err.cant.resolve")) {
+                    // An unresolved member of the source's own class may be inherited from a stub.
+                    inherits = inherits == null ? repo.stubs.inheritsStub(source) : inherits;
+                    involvesStub = inherits;
+                }
+            }
+            diagnostics.add(new CompileDiagnostic(diagnostic, involvesStub));
+        }
+        return new CompileResult(diagnostics, System.nanoTime() - start);
+    }
+
+    /** Stubs of one repository and their compiled form. */
+    private static final class Repository {
+        final StubGenerator stubs = new StubGenerator();
+        final Map<String, byte[]> classes = new HashMap<>();
+    }
+}
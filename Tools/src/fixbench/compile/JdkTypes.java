@@ -0,0 +1,20 @@
+package fixbench.compile;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Whether a top-level type is provided by the running JDK, so it must not be stubbed. */
+final class JdkTypes {
+    private static final Map<String, Boolean> KNOWN = new ConcurrentHashMap<>();
+
+    private JdkTypes() {
+    }
+
+    static boolean contains(String qualifiedName) {
+        if (qualifiedName.startsWith("java.")) {
+            return true;
+        }
+        return KNOWN.computeIfAbsent(qualifiedName,
+                name -> ClassLoader.getSystemResource(name.replace('.', '/') + ".class") != null);
+    }
+}
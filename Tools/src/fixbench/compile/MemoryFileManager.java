@@ -0,0 +1,121 @@
+package fixbench.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * Keeps compiler input and output off the disk. The class path is a map of class files, e.g. the
+ * compiled stubs of one repository, and generated classes are collected in memory. Everything else,
+ * notably the JDK's own classes, comes from the wrapped standard file manager, whose caches thus
+ * stay warm across compilations.
+ */
+final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private Map<String, byte[]> classPath = Collections.emptyMap();
+    private final Map<String, byte[]> output = new HashMap<>();
+
+    MemoryFileManager(StandardJavaFileManager standard) {
+        super(standard);
+    }
+
+    /** Replaces the class path by class files keyed by binary name. */
+    void classPath(Map<String, byte[]> classes) {
+        this.classPath = classes;
+    }
+
+    /** Classes generated since the last call, keyed by binary name. */
+    Map<String, byte[]> takeOutput() {
+        Map<String, byte[]> classes = new HashMap<>(output);
+        output.clear();
+        return classes;
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+            boolean recurse) throws IOException {
+        if (location != StandardLocation.CLASS_PATH) {
+            return super.list(location, packageName, kinds, recurse);
+        }
+        List<JavaFileObject> files = new ArrayList<>();
+        if (kinds.contains(JavaFileObject.Kind.CLASS)) {
+            for (Map.Entry<String, byte[]> entry : classPath.entrySet()) {
+                String name = entry.getKey();
+                int dot = name.lastIndexOf('.');
+                String owner = dot < 0 ? "" : name.substring(0, dot);
+                if (owner.equals(packageName) || recurse && owner.startsWith(packageName + '.')) {
+                    files.add(new ClassFile(name, entry.getValue()));
+                }
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        return file instanceof ClassFile ? ((ClassFile) file).binaryName : super.inferBinaryName(location, file);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+            FileObject sibling) {
+        return new ClassFile(className, null);
+    }
+
+    /** A source held as a string. */
+    static final class SourceFile extends SimpleJavaFileObject {
+        private final String content;
+
+        /** A source at {@code path}, e.g. {@code com/example/Foo.java}. */
+        SourceFile(String path, String content) {
+            super(URI.create("string:///" + path), Kind.SOURCE);
+            this.content = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return content;
+        }
+    }
+
+    /** A class file on the class path, or one being generated. */
+    final class ClassFile extends SimpleJavaFileObject {
+        final String binaryName;
+        private final byte[] bytes;
+
+        ClassFile(String binaryName, byte[] bytes) {
+            super(URI.create("bytes:///" + binaryName.replace('.', '/') + ".class"), Kind.CLASS);
+            this.binaryName = binaryName;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    output.put(binaryName, toByteArray());
+                }
+            };
+        }
+    }
+}
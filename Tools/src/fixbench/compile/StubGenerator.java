@@ -0,0 +1,390 @@
+package fixbench.compile;
+
+import fixbench.java.JavaLexer;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Synthesizes empty declarations for the types that the sources of one repository import but that
+ * neither the JDK nor the sources themselves provide. A stub is a class, interface, annotation or
+ * unchecked exception, depending on how the sources use it, with as many type parameters as the
+ * widest use. Members are not synthesized: a call to one stays an error, but the same error in the
+ * buggy and the fixed source, which is all that a comparison of the two needs.
+ */
+final class StubGenerator {
+
+    /** How a type is used; a later constant wins when uses disagree. */
+    enum Role {
+        CLASS,
+        THROWABLE,
+        INTERFACE,
+        ANNOTATION
+    }
+
+    /** A top-level or nested stub type. */
+    static final class Stub {
+        final String name;
+        /** Qualified name of the top-level stub that declares this one, or of itself. */
+        final String topLevel;
+        Role role = Role.CLASS;
+        int arity;
+        final Map<String, Stub> nested = new TreeMap<>();
+
+        Stub(String name, String topLevel) {
+            this.name = name;
+            this.topLevel = topLevel;
+        }
+    }
+
+    /** Top-level stubs by qualified name. */
+    private final Map<String, Stub> stubs = new TreeMap<>();
+    /** Top-level stubs changed since the last {@link #takeChanged()}. */
+    private final Set<String> changed = new HashSet<>();
+
+    /** Number of top-level stubs so far. */
+    int size() {
+        return stubs.size();
+    }
+
+    /** Whether stubs changed since the last {@link #takeChanged()}. */
+    boolean hasChanges() {
+        return !changed.isEmpty();
+    }
+
+    /** Records the non-JDK types that {@code source} imports and how it uses them. */
+    void add(ByteBuffer source) {
+        Tokens tokens = JavaLexer.lex(source);
+        Map<String, Stub> imported = new HashMap<>();
+        int t = 0;
+        while (t < tokens.size() && (tokens.is(t, "package") || tokens.is(t, "import") || tokens.is(t, '@'))) {
+            int end = t;
+            while (end < tokens.size() && !tokens.is(end, ';')) {
+                end++;
+            }
+            if (tokens.is(t, "import")) {
+                addImport(tokens, t + 1, end, imported);
+            } else if (tokens.is(t, '@')) {
+                // A package annotation; the declaration follows.
+                break;
+            }
+            t = end + 1;
+        }
+        if (!imported.isEmpty()) {
+            recordUses(tokens, t, imported);
+        }
+    }
+
+    /**
+     * Records a type that the compiler could not find: nested in {@code outer} if that is a stub,
+     * otherwise in {@code packageName}. Returns whether the type is new.
+     */
+    boolean addMissing(String packageName, String outer, String simpleName) {
+        Stub owner = outer == null ? null : find(outer);
+        if (owner != null) {
+            boolean added = !owner.nested.containsKey(simpleName);
+            nested(owner, simpleName);
+            return added;
+        }
+        String qualified = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+        if (stubs.containsKey(qualified) || JdkTypes.contains(qualified)) {
+            return false;
+        }
+        topLevel(qualified, simpleName);
+        return true;
+    }
+
+    /** Drops a top-level stub, e.g. one the compiler rejected. */
+    void remove(String qualifiedName) {
+        if (stubs.remove(qualifiedName) != null) {
+            changed.add(qualifiedName);
+        }
+    }
+
+    private Stub topLevel(String qualifiedName, String simpleName) {
+        Stub stub = stubs.get(qualifiedName);
+        if (stub == null) {
+            stub = new Stub(simpleName, qualifiedName);
+            stubs.put(qualifiedName, stub);
+            changed.add(qualifiedName);
+        }
+        return stub;
+    }
+
+    private Stub nested(Stub owner, String simpleName) {
+        Stub stub = owner.nested.get(simpleName);
+        if (stub == null) {
+            stub = new Stub(simpleName, owner.topLevel);
+            owner.nested.put(simpleName, stub);
+            changed.add(owner.topLevel);
+        }
+        return stub;
+    }
+
+    /** Whether {@code message} names a top-level stub. */
+    boolean mentions(String message) {
+        for (String qualified : stubs.keySet()) {
+            if (message.contains(qualified)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a type of {@code source} extends or implements a stub by simple name, so that members
+     * it uses without a qualifier may be inherited members the stub lacks.
+     */
+    boolean inheritsStub(ByteBuffer source) {
+        Set<String> names = new HashSet<>();
+        for (Stub stub : stubs.values()) {
+            collectNames(stub, names);
+        }
+        Tokens tokens = JavaLexer.lex(source);
+        boolean header = false;
+        for (int t = 0; t < tokens.size(); t++) {
+            if (tokens.is(t, "extends") || tokens.is(t, "implements")) {
+                header = true;
+            } else if (tokens.is(t, '{') || tokens.is(t, ';')) {
+                header = false;
+            } else if (header && tokens.kind(t) == TokenKind.IDENTIFIER && names.contains(tokens.text(t))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectNames(Stub stub, Set<String> names) {
+        names.add(stub.name);
+        for (Stub nested : stub.nested.values()) {
+            collectNames(nested, names);
+        }
+    }
+
+    /** The stub of a qualified or, if unambiguous, simple top-level name, or {@code null}. */
+    private Stub find(String name) {
+        Stub stub = stubs.get(name);
+        if (stub != null) {
+            return stub;
+        }
+        for (Map.Entry<String, Stub> entry : stubs.entrySet()) {
+            if (entry.getValue().name.equals(name)) {
+                if (stub != null) {
+                    return null;
+                }
+                stub = entry.getValue();
+            }
+        }
+        return stub;
+    }
+
+    /**
+     * Source of every top-level stub that changed since the last call, by qualified name; removed
+     * stubs map to {@code null}. Stubs refer to no other stub, so each compiles on its own.
+     */
+    Map<String, String> takeChanged() {
+        Map<String, String> sources = new TreeMap<>();
+        for (String qualified : changed) {
+            Stub stub = stubs.get(qualified);
+            if (stub == null) {
+                sources.put(qualified, null);
+                continue;
+            }
+            int dot = qualified.lastIndexOf('.');
+            StringBuilder out = new StringBuilder();
+            if (dot > 0) {
+                out.append("package ").append(qualified, 0, dot).append(";\n");
+            }
+            declare(stub, "public ", out);
+            sources.put(qualified, out.toString());
+        }
+        changed.clear();
+        return sources;
+    }
+
+    private static void declare(Stub stub, String modifiers, StringBuilder out) {
+        out.append(modifiers);
+        switch (stub.role) {
+            case ANNOTATION:
+                out.append("@interface ").append(stub.name);
+                break;
+            case INTERFACE:
+                out.append("interface ").append(stub.name);
+                typeParameters(stub.arity, out);
+                break;
+            case THROWABLE:
+                // Exceptions cannot be generic.
+                out.append("class ").append(stub.name).append(" extends RuntimeException");
+                break;
+            default:
+                out.append("class ").append(stub.name);
+                typeParameters(stub.arity, out);
+                break;
+        }
+        out.append(" {\n");
+        if (stub.role == Role.THROWABLE) {
+            // The usual constructors, so that throw sites resolve.
+            out.append("public ").append(stub.name).append("() {}\n")
+                    .append("public ").append(stub.name).append("(String m) { super(m); }\n")
+                    .append("public ").append(stub.name).append("(Throwable c) { super(c); }\n")
+                    .append("public ").append(stub.name).append("(String m, Throwable c) { super(m, c); }\n");
+        }
+        for (Stub nested : stub.nested.values()) {
+            declare(nested, "public static ", out);
+        }
+        out.append("}\n");
+    }
+
+    private static void typeParameters(int arity, StringBuilder out) {
+        for (int i = 0; i < arity; i++) {
+            out.append(i == 0 ? "<" : ", ").append('T').append(i);
+        }
+        out.append(arity > 0 ? ">" : "");
+    }
+
+    private void addImport(Tokens tokens, int from, int end, Map<String, Stub> imported) {
+        if (tokens.is(from, "static")) {
+            from++;
+        }
+        List<String> parts = new ArrayList<>();
+        for (int t = from; t < end; t++) {
+            if (tokens.kind(t) == TokenKind.IDENTIFIER) {
+                parts.add(tokens.text(t));
+            } else if (tokens.is(t, "*")) {
+                parts.add("*");
+            }
+        }
+        // The first capitalized part names the top-level type; a static import ends in a member.
+        int top = -1;
+        for (int i = 0; i < parts.size() && top < 0; i++) {
+            if (Character.isUpperCase(parts.get(i).charAt(0))) {
+                top = i;
+            }
+        }
+        if (top < 0) {
+            return;
+        }
+        String qualified = String.join(".", parts.subList(0, top + 1));
+        if (top == 0 || JdkTypes.contains(qualified)) {
+            return;
+        }
+        Stub stub = topLevel(qualified, parts.get(top));
+        int last = tokens.is(from - 1, "static") ? parts.size() - 1 : parts.size();
+        for (int i = top + 1; i < last && !parts.get(i).equals("*"); i++) {
+            if (!Character.isUpperCase(parts.get(i).charAt(0))) {
+                break;
+            }
+            stub = nested(stub, parts.get(i));
+        }
+        if (last == parts.size() && !parts.get(parts.size() - 1).equals("*")) {
+            imported.put(parts.get(parts.size() - 1), stub);
+        }
+    }
+
+    /**
+     * The package in which a type that {@code source} uses but cannot resolve most likely lives:
+     * the first non-JDK wildcard import, else the source's own package.
+     */
+    static String homePackage(ByteBuffer source) {
+        Tokens tokens = JavaLexer.lex(source);
+        String own = "";
+        for (int t = 0; t < tokens.size() && (tokens.is(t, "package") || tokens.is(t, "import")); ) {
+            StringBuilder name = new StringBuilder();
+            int end = t + 1;
+            for (; end < tokens.size() && !tokens.is(end, ';'); end++) {
+                name.append(tokens.kind(end) == TokenKind.IDENTIFIER || tokens.is(end, '.') || tokens.is(end, "*")
+                        ? tokens.text(end) : "");
+            }
+            String text = name.toString();
+            if (tokens.is(t, "package")) {
+                own = text;
+            } else if (text.endsWith(".*") && !tokens.is(t + 1, "static")) {
+                String pkg = text.substring(0, text.length() - 2);
+                if (!pkg.startsWith("java.") && !pkg.startsWith("javax.")) {
+                    return pkg;
+                }
+            }
+            t = end + 1;
+        }
+        return own;
+    }
+
+    /**
+     * Assigns roles and arities to the imported stubs from their uses after the imports: after
+     * {@code @}, in an {@code implements} list or an interface's {@code extends} list, in a
+     * {@code throws} or {@code catch} clause or after {@code throw new}, and before type arguments.
+     */
+    private void recordUses(Tokens tokens, int from, Map<String, Stub> imported) {
+        Role context = Role.CLASS;
+        boolean interfaceHeader = false;
+        int parens = 0;
+        int catchParens = -1;
+        for (int t = from; t < tokens.size(); t++) {
+            if (tokens.is(t, "interface")) {
+                interfaceHeader = true;
+            } else if (tokens.is(t, "implements") || tokens.is(t, "extends") && interfaceHeader) {
+                context = Role.INTERFACE;
+            } else if (tokens.is(t, "throws")) {
+                context = Role.THROWABLE;
+            } else if (tokens.is(t, "catch")) {
+                catchParens = parens;
+                context = Role.THROWABLE;
+            } else if (tokens.is(t, '(')) {
+                parens++;
+            } else if (tokens.is(t, ')')) {
+                if (--parens == catchParens) {
+                    catchParens = -1;
+                    context = Role.CLASS;
+                }
+            } else if (tokens.is(t, '{') || tokens.is(t, ';')) {
+                context = Role.CLASS;
+                interfaceHeader = false;
+            } else if (tokens.kind(t) == TokenKind.IDENTIFIER && !tokens.is(t - 1, '.')) {
+                Stub stub = imported.get(tokens.text(t));
+                if (stub == null) {
+                    continue;
+                }
+                Role role = tokens.is(t - 1, '@') ? Role.ANNOTATION
+                        : tokens.is(t - 1, "new") && tokens.is(t - 2, "throw") ? Role.THROWABLE : context;
+                if (role.compareTo(stub.role) > 0) {
+                    stub.role = role;
+                    changed.add(stub.topLevel);
+                }
+                int arity = tokens.is(t + 1, "<") ? typeArguments(tokens, t + 1) : 0;
+                if (arity > stub.arity) {
+                    stub.arity = arity;
+                    changed.add(stub.topLevel);
+                }
+            }
+        }
+    }
+
+    /** Number of type arguments in the list opening at {@code open}, 0 for a diamond. */
+    private static int typeArguments(Tokens tokens, int open) {
+        int depth = 0;
+        int count = 1;
+        for (int t = open; t < tokens.size(); t++) {
+            if (tokens.is(t, "<")) {
+                depth++;
+            } else if (tokens.is(t, ">") || tokens.is(t, ">>") || tokens.is(t, ">>>")) {
+                depth -= tokens.length(t);
+                if (depth <= 0) {
+                    return t == open + 1 ? 0 : count;
+                }
+            } else if (tokens.is(t, ',') && depth == 1) {
+                count++;
+            } else if (tokens.is(t, ';') || tokens.is(t, '{') || tokens.is(t, ')') && depth == 1) {
+                // A less-than comparison rather than type arguments.
+                return 0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,96 @@
+package fixbench.corpus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The instances removed from the benchmark according to {@code data_clean.log}. The log is free
+ * text: a {@code Comment n.m: reason} line opens a section, category lines such as
+ * {@code Genesis-NP:} group it, and every line that starts with a view folder is the key of a
+ * removed instance. Only "Comment 1.2", several warnings fixed by one commit, exists today; keys
+ * under a future comment would be excluded the same way.
+ *
+ * <p>A removed instance is excluded from every view, since the split views and {@code All} hold
+ * the same change.
+ */
+public final class CleaningLog {
+    public static final String FILE = "data_clean.log";
+
+    private static final CleaningLog EMPTY = new CleaningLog(Collections.emptyMap());
+
+    /** Comment of each logged key, in log order. */
+    private final Map<String, String> comments;
+    /** {@code category/name} of each logged key. */
+    private final Set<String> instances = new HashSet<>();
+
+    private CleaningLog(Map<String, String> comments) {
+        this.comments = Collections.unmodifiableMap(comments);
+        for (String key : comments.keySet()) {
+            int name = key.lastIndexOf('/');
+            int category = key.lastIndexOf('/', name - 1);
+            instances.add(key.substring(category + 1));
+        }
+    }
+
+    /** Reads {@code data_clean.log} under {@code root}; a missing log excludes nothing. */
+    public static CleaningLog read(Path root) throws IOException {
+        Path file = root.resolve(FILE);
+        if (!Files.isRegularFile(file)) {
+            return EMPTY;
+        }
+        return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    public static CleaningLog parse(String log) {
+        Map<String, String> comments = new LinkedHashMap<>();
+        String comment = null;
+        for (String line : log.split("\r?\n")) {
+            line = line.trim();
+            if (line.startsWith("Comment ")) {
+                int colon = line.indexOf(':');
+                comment = colon < 0 ? line : line.substring(0, colon);
+            } else if (isKey(line)) {
+                comments.put(line, comment);
+            }
+        }
+        return new CleaningLog(comments);
+    }
+
+    private static boolean isKey(String line) {
+        for (View view : View.values()) {
+            if (line.startsWith(view.folder() + '/') && line.indexOf('/', view.folder().length() + 1) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Logged keys, each with the comment it was listed under, e.g. {@code Comment 1.2}. */
+    public Map<String, String> excluded() {
+        return comments;
+    }
+
+    /** Whether the instance folder {@code name} of {@code category} was removed, in any view. */
+    public boolean isExcluded(String category, String name) {
+        return instances.contains(category + '/' + name);
+    }
+
+    /** Tier of an instance of the given view, category and folder name. */
+    public Tier tier(View view, String category, String name) {
+        if (view == View.DISCARDED) {
+            return Tier.DISCARDED;
+        }
+        return isExcluded(category, name) ? Tier.EXCLUDED_MULTI_FIX : Tier.CLEAN;
+    }
+
+    public int size() {
+        return comments.size();
+    }
+}
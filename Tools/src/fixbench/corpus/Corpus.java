@@ -0,0 +1,15 @@
+package fixbench.corpus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/** A set of benchmark instances, read either from the folder tree or from a pack file. */
+public interface Corpus extends Closeable {
+
+    List<CorpusInstance> instances();
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,74 @@
+package fixbench.corpus;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * One code change of the benchmark, e.g. {@code All/Genesis-NP/Genesis#242}. Implementations are
+ * backed either by the instance folder or by a slice of a {@link CorpusPack}.
+ */
+public interface CorpusInstance {
+
+    View view();
+
+    /** Bug folder, e.g. {@code Genesis-NP} or {@code FindBugs-DM_CONVERT_CASE}. */
+    String category();
+
+    /** Instance folder name, e.g. {@code Genesis#242} or {@code FBViolation#10070}. */
+    String name();
+
+    /** Standing after cleaning; derived from the view unless the corpus knows better. */
+    default Tier tier() {
+        return view() == View.DISCARDED ? Tier.DISCARDED : Tier.CLEAN;
+    }
+
+    /** Members in a stable order: top-level files first, then {@code old/} and {@code new/}. */
+    List<Member> members();
+
+    /** Path of the instance relative to the benchmark root. */
+    default String key() {
+        return view().folder() + '/' + category() + '/' + name();
+    }
+
+    /** Returns the first member of the given kind, or {@code null} if there is none. */
+    default Member member(MemberKind kind) {
+        for (Member member : members()) {
+            if (member.kind() == kind) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /** Content of the first member of the given kind, or {@code null} if there is none. */
+    default ByteBuffer content(MemberKind kind) {
+        Member member = member(kind);
+        return member == null ? null : member.content();
+    }
+
+    /** The buggy Java source. Some instances also carry a changelog next to it in {@code old/}. */
+    default Member oldSource() {
+        return javaSource(MemberKind.OLD);
+    }
+
+    /** The fixed Java source. */
+    default Member newSource() {
+        return javaSource(MemberKind.NEW);
+    }
+
+    private Member javaSource(MemberKind kind) {
+        Member fallback = null;
+        for (Member member : members()) {
+            if (member.kind() != kind) {
+                continue;
+            }
+            if (member.isJavaSource()) {
+                return member;
+            }
+            if (fallback == null) {
+                fallback = member;
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,176 @@
+package fixbench.corpus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read-only corpus backed by one memory-mapped pack file written by {@link CorpusPackWriter}.
+ * Member contents are slices of the mapping, so loading an instance neither opens files nor copies
+ * bytes. Only the string table is decoded on open. Members with equal content share one blob.
+ */
+public final class CorpusPack implements Corpus {
+    private static final View[] VIEWS = View.values();
+    private static final Tier[] TIERS = Tier.values();
+    private static final MemberKind[] KINDS = MemberKind.values();
+
+    private final MappedByteBuffer map;
+    private final String[] strings;
+    private final int instancesOffset;
+    private final int membersOffset;
+    private final int blobsOffset;
+    private final List<CorpusInstance> instances;
+
+    private CorpusPack(MappedByteBuffer map, Set<Tier> tiers) throws IOException {
+        this.map = map;
+        byte[] magic = new byte[PackFormat.MAGIC.length];
+        map.get(0, magic);
+        if (!Arrays.equals(magic, PackFormat.MAGIC)) {
+            throw new IOException("Not a corpus pack");
+        }
+        int version = map.getInt(PackFormat.OFF_VERSION);
+        if (version != PackFormat.VERSION) {
+            throw new IOException("Unsupported pack version " + version);
+        }
+        if (map.getLong(PackFormat.OFF_FILE_LENGTH) != map.capacity()) {
+            throw new IOException("Truncated corpus pack");
+        }
+        this.strings = decodeStrings(map, (int) map.getLong(PackFormat.OFF_STRINGS));
+        this.instancesOffset = (int) map.getLong(PackFormat.OFF_INSTANCES);
+        this.membersOffset = (int) map.getLong(PackFormat.OFF_MEMBERS);
+        this.blobsOffset = (int) map.getLong(PackFormat.OFF_BLOBS);
+
+        int instanceCount = map.getInt(PackFormat.OFF_INSTANCE_COUNT);
+        List<CorpusInstance> list = new ArrayList<>(instanceCount);
+        for (int i = 0; i < instanceCount; i++) {
+            PackInstance instance = new PackInstance(instancesOffset + i * PackFormat.INSTANCE_RECORD_SIZE);
+            if (tiers.contains(instance.tier())) {
+                list.add(instance);
+            }
+        }
+        this.instances = Collections.unmodifiableList(list);
+    }
+
+    /** Opens a pack with its clean instances. */
+    public static CorpusPack open(Path file) throws IOException {
+        return open(file, Tier.clean());
+    }
+
+    /** Opens a pack with the instances of the given tiers. */
+    public static CorpusPack open(Path file, Set<Tier> tiers) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Corpus pack larger than 2 GiB: " + file);
+            }
+            if (size < PackFormat.HEADER_SIZE) {
+                throw new IOException("Not a corpus pack: " + file);
+            }
+            // The mapping stays valid after the channel is closed.
+            return new CorpusPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), tiers);
+        }
+    }
+
+    @Override
+    public List<CorpusInstance> instances() {
+        return instances;
+    }
+
+    private static String[] decodeStrings(ByteBuffer map, int offset) {
+        int count = map.getInt(offset);
+        int ends = offset + 4;
+        int bytes = ends + 4 * (count + 1);
+        String[] result = new String[count];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int start = map.getInt(ends + 4 * i);
+            int length = map.getInt(ends + 4 * (i + 1)) - start;
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            map.get(bytes + start, scratch, 0, length);
+            result[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    /** Number of distinct contents stored in the pack. */
+    public int blobCount() {
+        return map.getInt(PackFormat.OFF_BLOB_COUNT);
+    }
+
+    private Member memberAt(int memberIndex) {
+        int at = membersOffset + memberIndex * PackFormat.MEMBER_RECORD_SIZE;
+        int blob = blobsOffset + map.getInt(at + 8) * PackFormat.BLOB_RECORD_SIZE;
+        byte[] hash = new byte[ContentHash.LENGTH];
+        map.get(blob, hash);
+        int offset = (int) map.getLong(blob + ContentHash.LENGTH);
+        int length = map.getInt(blob + ContentHash.LENGTH + 8);
+        return new Member(KINDS[map.get(at)], strings[map.getInt(at + 4)],
+                map.slice(offset, length).asReadOnlyBuffer(), hash);
+    }
+
+    private final class PackInstance implements CorpusInstance {
+        private final int record;
+
+        PackInstance(int record) {
+            this.record = record;
+        }
+
+        @Override
+        public View view() {
+            return VIEWS[map.get(record)];
+        }
+
+        @Override
+        public Tier tier() {
+            View view = view();
+            return view == View.DISCARDED ? Tier.DISCARDED : TIERS[map.get(record + 1)];
+        }
+
+        @Override
+        public String category() {
+            return strings[map.getInt(record + 4)];
+        }
+
+        @Override
+        public String name() {
+            return strings[map.getInt(record + 8)];
+        }
+
+        @Override
+        public List<Member> members() {
+            int first = map.getInt(record + 12);
+            int count = map.getInt(record + 16);
+            return new AbstractList<Member>() {
+                @Override
+                public Member get(int index) {
+                    if (index < 0 || index >= count) {
+                        throw new IndexOutOfBoundsException(index);
+                    }
+                    return memberAt(first + index);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return key();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package fixbench.corpus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link Corpus} into a single pack file readable by {@link CorpusPack}. Contents are
+ * deduplicated by SHA-256 before they are written. Packs are mapped with int offsets, so writing
+ * fails as soon as the file would grow past 2 GiB and the partial file is deleted.
+ */
+public final class CorpusPackWriter {
+    /** The largest pack {@link CorpusPack} can map. */
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final long maxSize;
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final Map<ByteBuffer, Integer> blobIndex = new HashMap<>();
+    private final List<byte[]> blobHashes = new ArrayList<>();
+    private final List<long[]> blobRecords = new ArrayList<>();
+    private final List<int[]> instanceRecords = new ArrayList<>();
+    private final List<int[]> memberRecords = new ArrayList<>();
+    private long logicalBytes;
+
+    private CorpusPackWriter(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /** Writes the pack and returns its statistics. */
+    public static Stats write(Corpus corpus, Path out) throws IOException {
+        return write(corpus, out, MAX_SIZE);
+    }
+
+    /** Writes the pack, failing once it would exceed {@code maxSize} bytes. */
+    static Stats write(Corpus corpus, Path out, long maxSize) throws IOException {
+        CorpusPackWriter writer = new CorpusPackWriter(maxSize);
+        try {
+            writer.writeAll(corpus, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(out);
+            throw e;
+        }
+        long storedBytes = 0;
+        for (long[] record : writer.blobRecords) {
+            storedBytes += record[1];
+        }
+        return new Stats(writer.instanceRecords.size(), writer.memberRecords.size(),
+                writer.blobRecords.size(), writer.logicalBytes, storedBytes);
+    }
+
+    private void writeAll(Corpus corpus, Path out) throws IOException {
+        try (FileChannel channel = FileChannel.open(out, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(PackFormat.HEADER_SIZE);
+            for (CorpusInstance instance : corpus.instances()) {
+                int firstMember = memberRecords.size();
+                for (Member member : instance.members()) {
+                    memberRecords.add(new int[] {
+                            member.kind().ordinal(), intern(member.name()), blob(channel, member)});
+                    logicalBytes += member.size();
+                }
+                instanceRecords.add(new int[] {
+                        instance.view().ordinal(), intern(instance.category()), intern(instance.name()),
+                        firstMember, memberRecords.size() - firstMember, instance.tier().ordinal()});
+            }
+
+            long stringsOffset = channel.position();
+            writeFully(channel, encodeStrings());
+            long instancesOffset = channel.position();
+            writeFully(channel, encodeInstances());
+            long membersOffset = channel.position();
+            writeFully(channel, encodeMembers());
+            long blobsOffset = channel.position();
+            writeFully(channel, encodeBlobs());
+            long fileLength = channel.position();
+
+            ByteBuffer header = ByteBuffer.allocate(PackFormat.HEADER_SIZE);
+            header.put(PackFormat.MAGIC);
+            header.putInt(PackFormat.OFF_VERSION, PackFormat.VERSION);
+            header.putInt(PackFormat.OFF_INSTANCE_COUNT, instanceRecords.size());
+            header.putInt(PackFormat.OFF_MEMBER_COUNT, memberRecords.size());
+            header.putInt(PackFormat.OFF_BLOB_COUNT, blobRecords.size());
+            header.putLong(PackFormat.OFF_STRINGS, stringsOffset);
+            header.putLong(PackFormat.OFF_INSTANCES, instancesOffset);
+            header.putLong(PackFormat.OFF_MEMBERS, membersOffset);
+            header.putLong(PackFormat.OFF_FILE_LENGTH, fileLength);
+            header.putLong(PackFormat.OFF_BLOBS, blobsOffset);
+            header.clear();
+            channel.position(0);
+            writeFully(channel, header);
+        }
+    }
+
+    /** Returns the blob holding the member's content, appending it to the data section if new. */
+    private int blob(FileChannel channel, Member member) throws IOException {
+        byte[] hash = member.hash();
+        Integer existing = blobIndex.get(ByteBuffer.wrap(hash));
+        if (existing != null) {
+            return existing;
+        }
+        int index = blobRecords.size();
+        blobIndex.put(ByteBuffer.wrap(hash), index);
+        blobHashes.add(hash);
+        blobRecords.add(new long[] {channel.position(), member.size()});
+        writeFully(channel, member.content());
+        return index;
+    }
+
+    private int intern(String value) {
+        return strings.computeIfAbsent(value, k -> strings.size());
+    }
+
+    private ByteBuffer encodeStrings() {
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        int total = 0;
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            total += bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 * (encoded.size() + 1) + total);
+        buffer.putInt(encoded.size());
+        int end = 0;
+        buffer.putInt(end);
+        for (byte[] bytes : encoded) {
+            end += bytes.length;
+            buffer.putInt(end);
+        }
+        for (byte[] bytes : encoded) {
+            buffer.put(bytes);
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer encodeInstances() {
+        ByteBuffer buffer = ByteBuffer.allocate(instanceRecords.size() * PackFormat.INSTANCE_RECORD_SIZE);
+        for (int[] record : instanceRecords) {
+            buffer.put((byte) record[0]).put((byte) record[5]).put((byte) 0).put((byte) 0);
+            buffer.putInt(record[1]).putInt(record[2]).putInt(record[3]).putInt(record[4]);
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer encodeMembers() {
+        ByteBuffer buffer = ByteBuffer.allocate(memberRecords.size() * PackFormat.MEMBER_RECORD_SIZE);
+        for (int[] record : memberRecords) {
+            buffer.put((byte) record[0]).put((byte) 0).put((byte) 0).put((byte) 0);
+            buffer.putInt(record[1]).putInt(record[2]);
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer encodeBlobs() {
+        ByteBuffer buffer = ByteBuffer.allocate(blobRecords.size() * PackFormat.BLOB_RECORD_SIZE);
+        for (int i = 0; i < blobRecords.size(); i++) {
+            long[] record = blobRecords.get(i);
+            buffer.put(blobHashes.get(i)).putLong(record[0]).putInt((int) record[1]);
+        }
+        return buffer.flip();
+    }
+
+    /** Sizes of a written pack. {@code logicalBytes} counts every member, {@code storedBytes} each blob once. */
+    public static final class Stats {
+        public final int instances;
+        public final int members;
+        public final int blobs;
+        public final long logicalBytes;
+        public final long storedBytes;
+
+        Stats(int instances, int members, int blobs, long logicalBytes, long storedBytes) {
+            this.instances = instances;
+            this.members = members;
+            this.blobs = blobs;
+            this.logicalBytes = logicalBytes;
+            this.storedBytes = storedBytes;
+        }
+    }
+
+    private void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        if (channel.position() + buffer.remaining() > maxSize) {
+            throw new IOException("Corpus pack would exceed " + maxSize + " bytes after "
+                    + instanceRecords.size() + " instances; write a tree instead");
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
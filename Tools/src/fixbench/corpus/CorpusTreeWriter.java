@@ -0,0 +1,68 @@
+package fixbench.corpus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a {@link Corpus} into the benchmark's folder layout under a root, the inverse of
+ * {@link DirectoryCorpus}: {@code <view>/<category>/<name>/} with the top-level files and the
+ * {@code old/} and {@code new/} sources. Instances are written one at a time as the corpus yields
+ * them, so a generated corpus need not fit in memory.
+ */
+public final class CorpusTreeWriter {
+
+    private CorpusTreeWriter() {
+    }
+
+    /** Writes every instance, replacing files of the same names, and returns the sizes written. */
+    public static Stats write(Corpus corpus, Path root) throws IOException {
+        int instances = 0;
+        int members = 0;
+        long bytes = 0;
+        for (CorpusInstance instance : corpus.instances()) {
+            Path dir = root.resolve(instance.key());
+            Files.createDirectories(dir);
+            for (Member member : instance.members()) {
+                Path file;
+                if (member.kind() == MemberKind.OLD || member.kind() == MemberKind.NEW) {
+                    Path sourceDir = dir.resolve(member.kind() == MemberKind.OLD ? "old" : "new");
+                    Files.createDirectories(sourceDir);
+                    file = sourceDir.resolve(member.name());
+                } else {
+                    file = dir.resolve(member.name());
+                }
+                write(file, member.content());
+                members++;
+                bytes += member.size();
+            }
+            instances++;
+        }
+        return new Stats(instances, members, bytes);
+    }
+
+    private static void write(Path file, ByteBuffer content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    /** Sizes of a written tree. */
+    public static final class Stats {
+        public final int instances;
+        public final int members;
+        public final long bytes;
+
+        Stats(int instances, int members, long bytes) {
+            this.instances = instances;
+            this.members = members;
+            this.bytes = bytes;
+        }
+    }
+}
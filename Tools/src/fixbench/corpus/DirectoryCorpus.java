@@ -0,0 +1,169 @@
+package fixbench.corpus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Corpus read straight from the benchmark folder tree. Instance folders are listed eagerly, their
+ * files are only read when an instance's members are first requested.
+ */
+public final class DirectoryCorpus implements Corpus {
+    private final Path root;
+    private final List<CorpusInstance> instances;
+
+    private DirectoryCorpus(Path root, List<CorpusInstance> instances) {
+        this.root = root;
+        this.instances = Collections.unmodifiableList(instances);
+    }
+
+    /** Opens the clean instances of all views of the benchmark rooted at {@code root}. */
+    public static DirectoryCorpus open(Path root) throws IOException {
+        return open(root, EnumSet.allOf(View.class));
+    }
+
+    /** Opens the clean instances of some views. */
+    public static DirectoryCorpus open(Path root, Set<View> views) throws IOException {
+        return open(root, views, Tier.clean());
+    }
+
+    /**
+     * Opens the instances of some views and tiers. The discarded pairs are only listed if
+     * {@link Tier#DISCARDED} is requested, and instances excluded by {@code data_clean.log} are
+     * skipped by name, without touching their folders, unless {@link Tier#EXCLUDED_MULTI_FIX} is.
+     */
+    public static DirectoryCorpus open(Path root, Set<View> views, Set<Tier> tiers) throws IOException {
+        CleaningLog log = CleaningLog.read(root);
+        List<CorpusInstance> instances = new ArrayList<>();
+        for (View view : View.values()) {
+            Path viewDir = root.resolve(view.folder());
+            boolean wanted = view == View.DISCARDED ? tiers.contains(Tier.DISCARDED)
+                    : tiers.contains(Tier.CLEAN) || tiers.contains(Tier.EXCLUDED_MULTI_FIX);
+            if (!wanted || !views.contains(view) || !Files.isDirectory(viewDir)) {
+                continue;
+            }
+            for (Path categoryDir : sortedChildren(viewDir, true)) {
+                String category = categoryDir.getFileName().toString();
+                for (Path instanceDir : sortedChildren(categoryDir, true,
+                        name -> tiers.contains(log.tier(view, category, name)))) {
+                    Tier tier = log.tier(view, category, instanceDir.getFileName().toString());
+                    instances.add(new FolderInstance(view, category, instanceDir, tier));
+                }
+            }
+        }
+        return new DirectoryCorpus(root, instances);
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    @Override
+    public List<CorpusInstance> instances() {
+        return instances;
+    }
+
+    static List<Path> sortedChildren(Path dir, boolean directories) throws IOException {
+        return sortedChildren(dir, directories, name -> true);
+    }
+
+    /** Children of {@code dir} whose names {@code accept}; rejected ones are not even stat'ed. */
+    static List<Path> sortedChildren(Path dir, boolean directories, Predicate<String> accept) throws IOException {
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                if (!name.startsWith(".") && accept.test(name) && Files.isDirectory(child) == directories) {
+                    children.add(child);
+                }
+            }
+        }
+        Collections.sort(children);
+        return children;
+    }
+
+    private static final class FolderInstance implements CorpusInstance {
+        private final View view;
+        private final String category;
+        private final Path dir;
+        private final Tier tier;
+        private volatile List<Member> members;
+
+        FolderInstance(View view, String category, Path dir, Tier tier) {
+            this.view = view;
+            this.category = category;
+            this.dir = dir;
+            this.tier = tier;
+        }
+
+        @Override
+        public Tier tier() {
+            return tier;
+        }
+
+        @Override
+        public View view() {
+            return view;
+        }
+
+        @Override
+        public String category() {
+            return category;
+        }
+
+        @Override
+        public String name() {
+            return dir.getFileName().toString();
+        }
+
+        @Override
+        public List<Member> members() {
+            List<Member> result = members;
+            if (result == null) {
+                try {
+                    result = Collections.unmodifiableList(readMembers());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot read instance " + key(), e);
+                }
+                members = result;
+            }
+            return result;
+        }
+
+        private List<Member> readMembers() throws IOException {
+            List<Member> result = new ArrayList<>();
+            for (Path file : sortedChildren(dir, false)) {
+                MemberKind kind = MemberKind.ofTopLevel(file.getFileName().toString());
+                if (kind != null) {
+                    result.add(read(kind, file));
+                }
+            }
+            readSources(MemberKind.OLD, dir.resolve("old"), result);
+            readSources(MemberKind.NEW, dir.resolve("new"), result);
+            return result;
+        }
+
+        private static void readSources(MemberKind kind, Path sourceDir, List<Member> result)
+                throws IOException {
+            if (Files.isDirectory(sourceDir)) {
+                for (Path file : sortedChildren(sourceDir, false)) {
+                    result.add(read(kind, file));
+                }
+            }
+        }
+
+        private static Member read(MemberKind kind, Path file) throws IOException {
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+            return new Member(kind, file.getFileName().toString(), content);
+        }
+    }
+}
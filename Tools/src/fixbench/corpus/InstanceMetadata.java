@@ -0,0 +1,121 @@
+package fixbench.corpus;
+
+/**
+ * Typed content of a {@code pair.info} file. Genesis instances and FindBugs violations use
+ * different keys; fields that the instance's schema lacks are {@code null}, or {@code -1} for line
+ * numbers.
+ */
+public final class InstanceMetadata {
+
+    /** The two {@code pair.info} layouts of the benchmark. */
+    public enum Schema {
+        /** {@code Id, SATName, modifiedFPath, comSha, parentComSha, githubUrl, repoName}. */
+        GENESIS,
+        /** {@code Id, comSha, parentComSha, BuggyFilePath, FixedFilePath, StartLineNum, EndLineNum, repoName}. */
+        FB_VIOLATION
+    }
+
+    private final Schema schema;
+    private final String category;
+    private final long id;
+    private final String satName;
+    private final String modifiedPath;
+    private final String buggyFilePath;
+    private final String fixedFilePath;
+    private final int startLine;
+    private final int endLine;
+    private final String comSha;
+    private final String parentComSha;
+    private final String githubUrl;
+    private final String repoName;
+
+    InstanceMetadata(Schema schema, String category, long id, String satName, String modifiedPath,
+            String buggyFilePath, String fixedFilePath, int startLine, int endLine, String comSha,
+            String parentComSha, String githubUrl, String repoName) {
+        this.schema = schema;
+        this.category = category;
+        this.id = id;
+        this.satName = satName;
+        this.modifiedPath = modifiedPath;
+        this.buggyFilePath = buggyFilePath;
+        this.fixedFilePath = fixedFilePath;
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.comSha = comSha;
+        this.parentComSha = parentComSha;
+        this.githubUrl = githubUrl;
+        this.repoName = repoName;
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    /** Bug folder of the instance, e.g. {@code Genesis-NP}. Interned. */
+    public String category() {
+        return category;
+    }
+
+    /** Numeric id, the suffix of the instance folder name; {@code -1} if absent. */
+    public long id() {
+        return id;
+    }
+
+    /** Name of the static analysis tool for Genesis instances, e.g. {@code Genesis}. Interned. */
+    public String satName() {
+        return satName;
+    }
+
+    /** Repository-relative path of the changed file. */
+    public String filePath() {
+        return modifiedPath != null ? modifiedPath : fixedFilePath;
+    }
+
+    public String modifiedPath() {
+        return modifiedPath;
+    }
+
+    public String buggyFilePath() {
+        return buggyFilePath;
+    }
+
+    public String fixedFilePath() {
+        return fixedFilePath;
+    }
+
+    /** First line of the FindBugs warning in the buggy file, or {@code -1}. */
+    public int startLine() {
+        return startLine;
+    }
+
+    /** Last line of the FindBugs warning in the buggy file, or {@code -1}. */
+    public int endLine() {
+        return endLine;
+    }
+
+    public String comSha() {
+        return comSha;
+    }
+
+    /**
+     * Parent commit. In {@code All} this is often given relative to {@link #comSha()}, as in
+     * {@code <sha>^1}, while the split views carry the resolved sha.
+     */
+    public String parentComSha() {
+        return parentComSha;
+    }
+
+    public String githubUrl() {
+        return githubUrl;
+    }
+
+    /** Repository as {@code owner#name}, e.g. {@code jankotek#mapdb}. Interned. */
+    public String repoName() {
+        return repoName;
+    }
+
+    @Override
+    public String toString() {
+        return category + '#' + id + ' ' + repoName + ' ' + filePath();
+    }
+}
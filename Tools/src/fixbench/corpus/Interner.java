@@ -0,0 +1,93 @@
+package fixbench.corpus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Canonicalizes short, highly repeated strings such as repository names and bug folders. Lookups
+ * of a byte range go straight from UTF-8 bytes, so a hit allocates nothing; a lookup by
+ * {@link String} encodes it first.
+ */
+public final class Interner {
+    private byte[][] keys = new byte[256][];
+    private String[] values = new String[256];
+    private int size;
+
+    /** Returns the canonical string for {@code length} bytes of {@code buffer} at {@code offset}. */
+    public synchronized String intern(ByteBuffer buffer, int offset, int length) {
+        int hash = hash(buffer, offset, length);
+        int mask = keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            byte[] key = keys[slot];
+            if (key == null) {
+                byte[] bytes = new byte[length];
+                buffer.get(offset, bytes);
+                return insert(slot, bytes, new String(bytes, StandardCharsets.UTF_8));
+            }
+            if (equals(key, buffer, offset, length)) {
+                return values[slot];
+            }
+        }
+    }
+
+    /** Returns the canonical string equal to {@code value}; allocates its UTF-8 encoding on every call. */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+        return intern(bytes, 0, bytes.capacity());
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private String insert(int slot, byte[] key, String value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return value;
+    }
+
+    private void rehash() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = hash(ByteBuffer.wrap(oldKeys[i]), 0, oldKeys[i].length) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer.get(offset + i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] key, ByteBuffer buffer, int offset, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
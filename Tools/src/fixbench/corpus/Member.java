@@ -0,0 +1,60 @@
+package fixbench.corpus;
+
+import java.nio.ByteBuffer;
+
+/** One file of an instance. The content buffer is read-only and positioned at zero. */
+public final class Member {
+    private final MemberKind kind;
+    private final String name;
+    private final ByteBuffer content;
+    private volatile byte[] hash;
+
+    public Member(MemberKind kind, String name, ByteBuffer content) {
+        this(kind, name, content, null);
+    }
+
+    /** Creates a member whose content hash is already known, e.g. from a pack's blob table. */
+    public Member(MemberKind kind, String name, ByteBuffer content, byte[] hash) {
+        this.kind = kind;
+        this.name = name;
+        this.content = content;
+        this.hash = hash;
+    }
+
+    public MemberKind kind() {
+        return kind;
+    }
+
+    /** File name, without the {@code old/} or {@code new/} prefix. */
+    public String name() {
+        return name;
+    }
+
+    /** Returns a fresh view of the content, so callers may move its position freely. */
+    public ByteBuffer content() {
+        return content.duplicate();
+    }
+
+    public int size() {
+        return content.remaining();
+    }
+
+    /** SHA-256 of the content, computed on first use unless the member was created with it. */
+    public byte[] hash() {
+        byte[] result = hash;
+        if (result == null) {
+            result = ContentHash.of(content);
+            hash = result;
+        }
+        return result.clone();
+    }
+
+    public boolean isJavaSource() {
+        return name.endsWith(".java");
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + name;
+    }
+}
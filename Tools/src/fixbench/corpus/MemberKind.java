@@ -0,0 +1,30 @@
+package fixbench.corpus;
+
+/** Kind of a file stored in an instance folder. */
+public enum MemberKind {
+    PAIR_INFO,
+    COMMIT_MESSAGE,
+    DIFF,
+    FULL_DIFF,
+    OLD,
+    NEW;
+
+    /**
+     * Returns the kind of a top-level file of an instance folder, or {@code null} if the file is
+     * not part of the benchmark layout.
+     */
+    static MemberKind ofTopLevel(String fileName) {
+        switch (fileName) {
+            case "pair.info":
+                return PAIR_INFO;
+            case "comMsg.txt":
+                return COMMIT_MESSAGE;
+            case "diff.diff":
+                return DIFF;
+            case "full_diff.txt":
+                return FULL_DIFF;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package fixbench.corpus;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a corpus pack file. All numbers are big-endian.
+ *
+ * <pre>
+ * header     64 bytes   magic, version, counts and absolute section offsets
+ * data       ...        blob contents, back to back
+ * strings    ...        int count, int[count + 1] end offsets, UTF-8 bytes
+ * instances  20 * n     byte view, byte tier, 2 pad, int category, int name, int firstMember,
+ *                       int memberCount
+ * members    12 * m     byte kind, 3 pad, int name, int blob
+ * blobs      44 * b     byte[32] SHA-256, long offset, int length
+ * </pre>
+ *
+ * The tier byte is a {@link Tier} ordinal; packs written before it existed have 0, i.e. clean,
+ * and their discarded pairs are recognized by view. String fields are indices into the string
+ * table; blob offsets are absolute file positions. The
+ * data section is content-addressed: identical files, such as the sources an instance shares
+ * between {@code All} and its split view, are stored once and referenced by every member.
+ */
+final class PackFormat {
+    static final byte[] MAGIC = "FXBPACK\0".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 64;
+    static final int OFF_VERSION = 8;
+    static final int OFF_INSTANCE_COUNT = 12;
+    static final int OFF_MEMBER_COUNT = 16;
+    static final int OFF_BLOB_COUNT = 20;
+    static final int OFF_STRINGS = 24;
+    static final int OFF_INSTANCES = 32;
+    static final int OFF_MEMBERS = 40;
+    static final int OFF_FILE_LENGTH = 48;
+    static final int OFF_BLOBS = 56;
+
+    static final int INSTANCE_RECORD_SIZE = 20;
+    static final int MEMBER_RECORD_SIZE = 12;
+    static final int BLOB_RECORD_SIZE = ContentHash.LENGTH + 12;
+
+    private PackFormat() {
+    }
+}
@@ -0,0 +1,195 @@
+package fixbench.corpus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass parser for {@code pair.info}. Lines are {@code key:value}, split at the first colon
+ * with the whitespace around key and value dropped, and are matched byte by byte against the known
+ * keys; numbers are parsed in place and repeated values go through an {@link Interner}. Unknown
+ * keys are ignored. A parser may be shared between threads.
+ */
+public final class PairInfoParser {
+    private static final int ID = 0;
+    private static final int SAT_NAME = 1;
+    private static final int MODIFIED_PATH = 2;
+    private static final int COM_SHA = 3;
+    private static final int PARENT_COM_SHA = 4;
+    private static final int GITHUB_URL = 5;
+    private static final int REPO_NAME = 6;
+    private static final int BUGGY_FILE_PATH = 7;
+    private static final int FIXED_FILE_PATH = 8;
+    private static final int START_LINE = 9;
+    private static final int END_LINE = 10;
+
+    private static final byte[][] KEYS = {
+            ascii("Id"), ascii("SATName"), ascii("modifiedFPath"), ascii("comSha"),
+            ascii("parentComSha"), ascii("githubUrl"), ascii("repoName"), ascii("BuggyFilePath"),
+            ascii("FixedFilePath"), ascii("StartLineNum"), ascii("EndLineNum")};
+
+    private final Interner interner;
+
+    public PairInfoParser() {
+        this(new Interner());
+    }
+
+    public PairInfoParser(Interner interner) {
+        this.interner = interner;
+    }
+
+    public Interner interner() {
+        return interner;
+    }
+
+    /** Parses the {@code pair.info} of an instance, or returns {@code null} if it has none. */
+    public InstanceMetadata parse(CorpusInstance instance) {
+        ByteBuffer content = instance.content(MemberKind.PAIR_INFO);
+        return content == null ? null : parse(instance.category(), content);
+    }
+
+    /** Parses {@code content} from its position to its limit without moving the position. */
+    public InstanceMetadata parse(String category, ByteBuffer content) {
+        long id = -1;
+        int startLine = -1;
+        int endLine = -1;
+        String satName = null;
+        String modifiedPath = null;
+        String buggyFilePath = null;
+        String fixedFilePath = null;
+        String comSha = null;
+        String parentComSha = null;
+        String githubUrl = null;
+        String repoName = null;
+
+        int limit = content.limit();
+        int line = content.position();
+        while (line < limit) {
+            int end = line;
+            int colon = -1;
+            while (end < limit && content.get(end) != '\n') {
+                if (colon < 0 && content.get(end) == ':') {
+                    colon = end;
+                }
+                end++;
+            }
+            if (colon >= 0) {
+                int valueEnd = trimEnd(content, colon + 1, end);
+                int valueStart = trimStart(content, colon + 1, valueEnd);
+                int keyEnd = trimEnd(content, line, colon);
+                switch (key(content, trimStart(content, line, keyEnd), keyEnd)) {
+                    case ID:
+                        id = parseLong(content, valueStart, valueEnd);
+                        break;
+                    case SAT_NAME:
+                        satName = interner.intern(content, valueStart, valueEnd - valueStart);
+                        break;
+                    case MODIFIED_PATH:
+                        modifiedPath = string(content, valueStart, valueEnd);
+                        break;
+                    case COM_SHA:
+                        comSha = string(content, valueStart, valueEnd);
+                        break;
+                    case PARENT_COM_SHA:
+                        parentComSha = string(content, valueStart, valueEnd);
+                        break;
+                    case GITHUB_URL:
+                        githubUrl = interner.intern(content, valueStart, valueEnd - valueStart);
+                        break;
+                    case REPO_NAME:
+                        repoName = interner.intern(content, valueStart, valueEnd - valueStart);
+                        break;
+                    case BUGGY_FILE_PATH:
+                        buggyFilePath = string(content, valueStart, valueEnd);
+                        break;
+                    case FIXED_FILE_PATH:
+                        fixedFilePath = buggyFilePath != null && equals(buggyFilePath, content, valueStart, valueEnd)
+                                ? buggyFilePath : string(content, valueStart, valueEnd);
+                        break;
+                    case START_LINE:
+                        startLine = (int) parseLong(content, valueStart, valueEnd);
+                        break;
+                    case END_LINE:
+                        endLine = (int) parseLong(content, valueStart, valueEnd);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            line = end + 1;
+        }
+
+        InstanceMetadata.Schema schema = buggyFilePath != null || fixedFilePath != null
+                ? InstanceMetadata.Schema.FB_VIOLATION : InstanceMetadata.Schema.GENESIS;
+        return new InstanceMetadata(schema, interner.intern(category), id, satName, modifiedPath,
+                buggyFilePath, fixedFilePath, startLine, endLine, comSha, parentComSha, githubUrl,
+                repoName);
+    }
+
+    private static int key(ByteBuffer content, int start, int end) {
+        int length = end - start;
+        for (int k = 0; k < KEYS.length; k++) {
+            byte[] key = KEYS[k];
+            if (key.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && key[i] == content.get(start + i)) {
+                i++;
+            }
+            if (i == length) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimStart(ByteBuffer content, int start, int end) {
+        while (start < end && content.get(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(ByteBuffer content, int start, int end) {
+        while (end > start && content.get(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static long parseLong(ByteBuffer content, int start, int end) {
+        long value = 0;
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            int digit = content.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+            digits = true;
+        }
+        return digits ? value : -1;
+    }
+
+    private static String string(ByteBuffer content, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        content.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean equals(String ascii, ByteBuffer content, int start, int end) {
+        if (ascii.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (ascii.charAt(i) != content.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,46 @@
+package fixbench.corpus;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * How an instance stands after the benchmark was cleaned. Loaders return only {@link #CLEAN}
+ * instances unless asked for more.
+ */
+public enum Tier {
+    /** Part of the benchmark. */
+    CLEAN,
+    /**
+     * Listed in {@code data_clean.log} because a single commit fixes several warnings of the same
+     * type ("Comment 1.2"); removed from the benchmark.
+     */
+    EXCLUDED_MULTI_FIX,
+    /** A pair under {@code Supplymentary/DiscardedDiffs}, dropped while labeling. */
+    DISCARDED;
+
+    /** Lower-case name with dashes, e.g. {@code excluded-multi-fix}. */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public static Tier fromLabel(String label) {
+        return valueOf(label.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    /** Parses a comma-separated list of labels, e.g. {@code clean,discarded}. */
+    public static Set<Tier> parse(String labels) {
+        Set<Tier> tiers = EnumSet.noneOf(Tier.class);
+        for (String label : labels.split(",")) {
+            if (!label.isBlank()) {
+                tiers.add(fromLabel(label.trim()));
+            }
+        }
+        return tiers;
+    }
+
+    /** The instances evaluated by default. */
+    public static Set<Tier> clean() {
+        return EnumSet.of(CLEAN);
+    }
+}
@@ -0,0 +1,33 @@
+package fixbench.corpus;
+
+/**
+ * Top-level views of the benchmark. {@link #ALL} is the complete benchmark, the two split views
+ * partition it by whether the fix stays inside a single method. {@link #DISCARDED} holds the pairs
+ * that were dropped while labeling.
+ */
+public enum View {
+    ALL("All"),
+    WITHIN_SINGLE_METHOD("WithinSingleMethod"),
+    OUTSIDE_SINGLE_METHOD("OutsideSingleMethod"),
+    DISCARDED("Supplymentary/DiscardedDiffs");
+
+    private final String folder;
+
+    View(String folder) {
+        this.folder = folder;
+    }
+
+    /** Folder of the view relative to the benchmark root. */
+    public String folder() {
+        return folder;
+    }
+
+    public static View fromFolder(String folder) {
+        for (View view : values()) {
+            if (view.folder.equals(folder)) {
+                return view;
+            }
+        }
+        throw new IllegalArgumentException("Unknown view folder: " + folder);
+    }
+}
@@ -0,0 +1,549 @@
+package fixbench.detect;
+
+import fixbench.java.Declaration;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Re-detects the benchmark's bug patterns from tokens and declarations alone, without compiling or
+ * running the original analyzers. The FindBugs patterns follow the detectors' rules as far as a
+ * source without types allows; the Genesis patterns are heuristics that flag a dereference or an
+ * index without a guard in the same method. Findings carry one-based lines as in {@code pair.info}.
+ *
+ * <p>Call patterns and method bodies are checked in one walk over the tokens; field and type
+ * patterns read the declaration tree. Instances are immutable and may be shared between threads.
+ */
+public final class BugDetector {
+    /** Calls that may return {@code null}, flagged when their result is stored and dereferenced. */
+    private static final Set<String> NULLABLE = Set.of("get", "getProperty", "getenv", "readLine",
+            "getParent", "getParentFile", "listFiles", "getResource", "getResourceAsStream",
+            "getAnnotation", "getParameter", "getAttribute", "getHeader", "poll", "peek", "remove");
+    /** The subset of {@link #NULLABLE} also flagged when dereferenced directly. */
+    private static final Set<String> DIRECT_NULLABLE = Set.of("getProperty", "getenv", "readLine",
+            "getParent", "getParentFile", "listFiles", "getResource", "getResourceAsStream",
+            "getAnnotation", "getParameter", "getAttribute", "getHeader", "poll", "peek");
+    private static final Set<String> NULL_CHECKS = Set.of("requireNonNull", "isNull", "nonNull",
+            "ofNullable", "isEmpty", "isNotEmpty", "isBlank", "isNotBlank", "isNullOrEmpty");
+
+    /**
+     * Library supertypes known to be serializable. Supertypes declared in other files of the
+     * project are not visible, so classes that inherit serializability from them go unreported.
+     */
+    private static final Set<String> SERIALIZABLE = Set.of("Serializable", "Externalizable", "Throwable",
+            "Number", "Date", "EventObject", "ArrayList", "LinkedList", "Vector", "HashMap", "LinkedHashMap",
+            "TreeMap", "Hashtable", "Properties", "ConcurrentHashMap", "HashSet", "LinkedHashSet", "TreeSet",
+            "StdSerializer", "StdDeserializer", "StdScalarSerializer", "StdScalarDeserializer", "SimpleModule");
+
+    private final Set<BugPattern> patterns;
+
+    public BugDetector(Set<BugPattern> patterns) {
+        this.patterns = patterns.isEmpty() ? EnumSet.noneOf(BugPattern.class) : EnumSet.copyOf(patterns);
+    }
+
+    /** A detector for every pattern. */
+    public static BugDetector all() {
+        return new BugDetector(EnumSet.allOf(BugPattern.class));
+    }
+
+    public List<Finding> detect(ByteBuffer source) {
+        return detect(DeclarationIndex.of(source));
+    }
+
+    /** Findings in source order of their first line. */
+    public List<Finding> detect(DeclarationIndex index) {
+        List<Finding> findings = new ArrayList<>();
+        Tokens tokens = index.tokens();
+        Map<Declaration, Map<String, FieldUse>> fields = new HashMap<>();
+        for (Declaration declaration : index.declarations()) {
+            if (declaration.kind() == Declaration.Kind.TYPE) {
+                checkType(tokens, declaration, findings);
+            } else if (declaration.kind() == Declaration.Kind.FIELD) {
+                checkField(tokens, declaration, findings, fields);
+            }
+        }
+        walk(index, fields, findings);
+        for (Map<String, FieldUse> uses : fields.values()) {
+            for (FieldUse use : uses.values()) {
+                if (!use.read) {
+                    for (int line : use.writeLines) {
+                        findings.add(new Finding(BugPattern.URF_UNREAD_FIELD, line, line, use.name));
+                    }
+                }
+            }
+        }
+        findings.sort((a, b) -> a.startLine() != b.startLine()
+                ? Integer.compare(a.startLine(), b.startLine()) : a.pattern().compareTo(b.pattern()));
+        return Collections.unmodifiableList(findings);
+    }
+
+    private void checkType(Tokens tokens, Declaration type, List<Finding> findings) {
+        if (!patterns.contains(BugPattern.SE_NO_SERIALVERSIONID) || type.name().isEmpty()
+                || type.bodyOpen() < 0 || !isClass(tokens, type)) {
+            return;
+        }
+        boolean serializable = false;
+        for (int t = type.nameToken() + 1; t < type.bodyOpen(); t++) {
+            if (tokens.kind(t) == TokenKind.IDENTIFIER && serializable(tokens.text(t))) {
+                serializable = true;
+                break;
+            }
+        }
+        if (!serializable) {
+            return;
+        }
+        for (Declaration child : type.children()) {
+            if (child.kind() == Declaration.Kind.FIELD && child.name().equals("serialVersionUID")) {
+                return;
+            }
+        }
+        findings.add(new Finding(BugPattern.SE_NO_SERIALVERSIONID, type.startLine(), type.endLine(),
+                type.qualifiedName()));
+    }
+
+    private void checkField(Tokens tokens, Declaration field, List<Finding> findings,
+            Map<Declaration, Map<String, FieldUse>> fields) {
+        Declaration owner = field.parent();
+        if (owner == null || owner.kind() != Declaration.Kind.TYPE) {
+            return;
+        }
+        boolean visible = false;
+        boolean isStatic = false;
+        boolean isFinal = false;
+        for (int t = field.firstToken(); t < field.nameToken(); t++) {
+            if (tokens.is(t, '@')) {
+                t = skipAnnotation(tokens, t);
+            } else if (tokens.kind(t) == TokenKind.KEYWORD) {
+                visible |= tokens.is(t, "public") || tokens.is(t, "protected");
+                isStatic |= tokens.is(t, "static");
+                isFinal |= tokens.is(t, "final");
+            }
+        }
+        boolean inClass = isClass(tokens, owner);
+        if (patterns.contains(BugPattern.MS_SHOULD_BE_FINAL) && visible && isStatic && !isFinal
+                && inClass) {
+            findings.add(new Finding(BugPattern.MS_SHOULD_BE_FINAL, field.startLine(), field.startLine(),
+                    field.qualifiedName()));
+        }
+        if (patterns.contains(BugPattern.URF_UNREAD_FIELD) && !visible && inClass
+                && !field.name().equals("serialVersionUID")) {
+            FieldUse use = new FieldUse(field);
+            // An initializer counts as the write when the field is never assigned elsewhere.
+            if (tokens.is(field.nameToken() + 1, "=")) {
+                use.writeLines.add(field.startLine());
+            }
+            fields.computeIfAbsent(owner, type -> new HashMap<>()).put(field.name(), use);
+        }
+    }
+
+    /**
+     * One walk over the tokens: call patterns anywhere, field uses anywhere, and the guard checks
+     * of the Genesis heuristics per outermost method, constructor or initializer body. A simple name
+     * refers to the field of the innermost enclosing type that declares it, unless a parameter or
+     * local variable of the same name was declared earlier in the body.
+     */
+    private void walk(DeclarationIndex index, Map<Declaration, Map<String, FieldUse>> fields,
+            List<Finding> findings) {
+        Tokens tokens = index.tokens();
+        boolean convertCase = patterns.contains(BugPattern.DM_CONVERT_CASE);
+        boolean encoding = patterns.contains(BugPattern.DM_DEFAULT_ENCODING);
+        boolean nullDeref = patterns.contains(BugPattern.NULL_DEREFERENCE);
+        boolean bounds = patterns.contains(BugPattern.OUT_OF_BOUNDS);
+        Set<Integer> declarationNames = new HashSet<>();
+        List<Declaration> bodies = new ArrayList<>();
+        List<Declaration> types = new ArrayList<>();
+        for (Declaration declaration : index.declarations()) {
+            if (declaration.nameToken() >= 0) {
+                declarationNames.add(declaration.nameToken());
+            }
+            if (declaration.isCode() && declaration.bodyOpen() >= 0 && !insideCode(declaration)) {
+                bodies.add(declaration);
+            } else if (declaration.kind() == Declaration.Kind.TYPE && declaration.bodyOpen() >= 0) {
+                types.add(declaration);
+            }
+        }
+        int next = 0;
+        int nextType = 0;
+        Body body = null;
+        Deque<Declaration> enclosing = new ArrayDeque<>();
+        Set<String> locals = new HashSet<>();
+        for (int t = 0; t < tokens.size(); t++) {
+            if (body == null && next < bodies.size() && start(bodies.get(next)) == t) {
+                body = new Body(bodies.get(next++));
+                locals.clear();
+                parameters(tokens, body.code, locals);
+            }
+            while (nextType < types.size() && types.get(nextType).bodyOpen() == t) {
+                enclosing.push(types.get(nextType++));
+            }
+            while (!enclosing.isEmpty() && enclosing.peek().lastToken() < t) {
+                enclosing.pop();
+            }
+            if (tokens.kind(t) == TokenKind.IDENTIFIER) {
+                boolean call = tokens.is(t + 1, '(');
+                boolean member = tokens.is(t - 1, '.');
+                if (call && member && convertCase && tokens.is(t + 2, ')')
+                        && (tokens.is(t, "toLowerCase") || tokens.is(t, "toUpperCase"))) {
+                    addCall(findings, BugPattern.DM_CONVERT_CASE, tokens, t, tokens.text(t));
+                }
+                if (encoding && call) {
+                    String subject = defaultEncoding(index, t, member);
+                    if (subject != null) {
+                        addCall(findings, BugPattern.DM_DEFAULT_ENCODING, tokens, t, subject);
+                    }
+                }
+                if (!fields.isEmpty() && !declarationNames.contains(t) && !call) {
+                    String name = tokens.text(t);
+                    if (body != null && !member && declaresLocal(tokens, t)) {
+                        locals.add(name);
+                    } else if (member ? tokens.is(t - 2, "this") : !locals.contains(name)) {
+                        FieldUse use = resolve(fields, enclosing, name);
+                        if (use != null && tokens.is(t + 1, "=")) {
+                            use.writeLines.add(tokens.line(t));
+                        } else if (use != null) {
+                            use.read = true;
+                        }
+                    }
+                }
+                if (body != null && (nullDeref || bounds)) {
+                    body.identifier(index, t, call, member, nullDeref, bounds);
+                }
+            } else if (body != null && (nullDeref || bounds)) {
+                body.other(tokens, t);
+            }
+            if (body != null && t == body.code.lastToken()) {
+                body.finish(findings, nullDeref, bounds);
+                body = null;
+                // Field initializers after the body see the fields, not the body's locals.
+                locals.clear();
+            }
+        }
+    }
+
+    /** First token of a body walk; parameters are walked with the body they belong to. */
+    private static int start(Declaration code) {
+        return code.paramsOpen() >= 0 ? code.paramsOpen() : code.bodyOpen();
+    }
+
+    private static FieldUse resolve(Map<Declaration, Map<String, FieldUse>> fields,
+            Deque<Declaration> enclosing, String name) {
+        for (Declaration type : enclosing) {
+            Map<String, FieldUse> uses = fields.get(type);
+            FieldUse use = uses == null ? null : uses.get(name);
+            if (use != null) {
+                return use;
+            }
+        }
+        return null;
+    }
+
+    private static void parameters(Tokens tokens, Declaration code, Set<String> names) {
+        for (int t = code.paramsOpen() + 1; code.paramsOpen() >= 0 && t < code.paramsClose(); t++) {
+            if (tokens.kind(t) == TokenKind.IDENTIFIER && (tokens.is(t + 1, ',') || t + 1 == code.paramsClose())) {
+                names.add(tokens.text(t));
+            }
+        }
+    }
+
+    /**
+     * Whether the identifier at {@code t} declares a local variable, a catch or loop variable or a
+     * lambda parameter: it follows a type and precedes an initializer or the end of the declarator.
+     */
+    private static boolean declaresLocal(Tokens tokens, int t) {
+        if (tokens.is(t + 1, "->")) {
+            return true;
+        }
+        boolean afterType = tokens.kind(t - 1) == TokenKind.IDENTIFIER || tokens.is(t - 1, ">")
+                || tokens.is(t - 1, ']') || tokens.kind(t - 1) == TokenKind.KEYWORD && isPrimitive(tokens, t - 1);
+        return afterType && (tokens.is(t + 1, "=") || tokens.is(t + 1, ';') || tokens.is(t + 1, ':')
+                || tokens.is(t + 1, ',') || tokens.is(t + 1, ')'));
+    }
+
+    private static boolean isPrimitive(Tokens tokens, int t) {
+        return tokens.is(t, "int") || tokens.is(t, "long") || tokens.is(t, "boolean") || tokens.is(t, "double")
+                || tokens.is(t, "float") || tokens.is(t, "char") || tokens.is(t, "byte") || tokens.is(t, "short");
+    }
+
+    /** The subject of a call that uses the platform charset, or {@code null}. */
+    private static String defaultEncoding(DeclarationIndex index, int name, boolean member) {
+        Tokens tokens = index.tokens();
+        int open = name + 1;
+        int close = index.matching(open);
+        if (close < 0) {
+            return null;
+        }
+        if (member) {
+            return tokens.is(name, "getBytes") && close == open + 1 ? "getBytes()" : null;
+        }
+        if (!tokens.is(name - 1, "new")) {
+            return null;
+        }
+        int args = argumentCount(index, open, close);
+        String type = tokens.text(name);
+        switch (type) {
+            case "String":
+                // new String(bytes) and new String(bytes, offset, length); char arrays and
+                // literals are told apart only by how the argument reads.
+                if ((args == 1 || args == 3) && !tokens.is(open + 1, "new")
+                        && tokens.kind(open + 1) != TokenKind.STRING
+                        && !mentions(tokens, open, close, "toCharArray")
+                        && !tokens.text(open + 1).toLowerCase(Locale.ROOT).contains("char")) {
+                    return "new String";
+                }
+                return null;
+            case "InputStreamReader":
+            case "OutputStreamWriter":
+            case "FileReader":
+                return args == 1 ? "new " + type : null;
+            case "FileWriter":
+                return args == 1 || (args == 2 && (tokens.is(close - 1, "true")
+                        || tokens.is(close - 1, "false"))) ? "new " + type : null;
+            case "PrintStream":
+                return args == 1 || args == 2 ? "new " + type : null;
+            case "PrintWriter":
+            case "Scanner":
+                return args == 1 && tokens.kind(open + 1) != TokenKind.STRING
+                        && !writerArgument(tokens, open, close) ? "new " + type : null;
+            default:
+                return null;
+        }
+    }
+
+    /** Whether the single argument reads as a writer, which carries its own charset. */
+    private static boolean writerArgument(Tokens tokens, int open, int close) {
+        for (int t = open + 1; t < close; t++) {
+            if (tokens.kind(t) == TokenKind.IDENTIFIER
+                    && (tokens.text(t).endsWith("Writer") || tokens.text(t).endsWith("writer"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int argumentCount(DeclarationIndex index, int open, int close) {
+        if (close == open + 1) {
+            return 0;
+        }
+        Tokens tokens = index.tokens();
+        int count = 1;
+        for (int t = open + 1; t < close; t++) {
+            int match = index.matching(t);
+            if (match > t) {
+                t = match;
+            } else if (tokens.is(t, ',')) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean mentions(Tokens tokens, int from, int to, String text) {
+        for (int t = from; t < to; t++) {
+            if (tokens.is(t, text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a finding for the call at {@code t} that spans from the first line of its statement, as
+     * the analyzers attribute a call in a wrapped statement to the line the statement starts on.
+     */
+    private static void addCall(List<Finding> findings, BugPattern pattern, Tokens tokens, int t,
+            String subject) {
+        int first = t;
+        while (first > 0 && !tokens.is(first - 1, ';') && !tokens.is(first - 1, '{')
+                && !tokens.is(first - 1, '}')) {
+            first--;
+        }
+        findings.add(new Finding(pattern, tokens.line(first), tokens.line(t), subject));
+    }
+
+    private static boolean insideCode(Declaration declaration) {
+        for (Declaration d = declaration.parent(); d != null; d = d.parent()) {
+            if (d.isCode()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isClass(Tokens tokens, Declaration type) {
+        if (type.kind() != Declaration.Kind.TYPE) {
+            return false;
+        }
+        if (type.name().isEmpty()) {
+            return true;
+        }
+        for (int t = type.firstToken(); t < type.nameToken(); t++) {
+            if (tokens.is(t, '@')) {
+                if (tokens.is(t + 1, "interface")) {
+                    return false;
+                }
+                t = skipAnnotation(tokens, t);
+            } else if (tokens.is(t, "interface") || tokens.is(t, "enum") || tokens.is(t, "record")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean serializable(String supertype) {
+        return SERIALIZABLE.contains(supertype) || supertype.endsWith("Exception") || supertype.endsWith("Error");
+    }
+
+    /** Last token of the annotation starting at the {@code @} at {@code at}. */
+    private static int skipAnnotation(Tokens tokens, int at) {
+        int t = at + 1;
+        while (tokens.is(t + 1, '.') && tokens.kind(t + 2) == TokenKind.IDENTIFIER) {
+            t += 2;
+        }
+        if (tokens.is(t + 1, '(')) {
+            int depth = 0;
+            for (t = t + 1; t < tokens.size(); t++) {
+                if (tokens.is(t, '(')) {
+                    depth++;
+                } else if (tokens.is(t, ')') && --depth == 0) {
+                    break;
+                }
+            }
+        }
+        return t;
+    }
+
+    /** Writes and reads of one non-public field, collected over the whole file. */
+    private static final class FieldUse {
+        final String name;
+        final List<Integer> writeLines = new ArrayList<>();
+        boolean read;
+
+        FieldUse(Declaration field) {
+            this.name = field.qualifiedName();
+        }
+    }
+
+    /** Guard state of one method body, resolved when the walk leaves it. */
+    private static final class Body {
+        final Declaration code;
+        /** Variables assigned from a nullable call, by name, with the assignment's token. */
+        final Map<String, Integer> nullable = new HashMap<>();
+        /** First unguarded-looking dereference of each such variable, by name, with its line. */
+        final Map<String, Integer> dereferences = new HashMap<>();
+        final Set<String> nullChecked = new HashSet<>();
+        /** First index access of each array or list, by name, with its line. */
+        final Map<String, Integer> indexed = new HashMap<>();
+        final Set<String> bounded = new HashSet<>();
+        final List<Finding> direct = new ArrayList<>();
+        /** Variable assigned by the statement under way, or {@code null}. */
+        String assigning;
+        int assignDepth;
+        int depth;
+
+        Body(Declaration code) {
+            this.code = code;
+        }
+
+        void identifier(DeclarationIndex index, int t, boolean call, boolean member, boolean nullDeref,
+                boolean bounds) {
+            Tokens tokens = index.tokens();
+            String name = tokens.text(t);
+            if (nullDeref) {
+                if (!member && tokens.is(t + 1, "=")) {
+                    assigning = name;
+                    assignDepth = depth;
+                    nullable.remove(name);
+                } else if (call && assigning != null && (NULLABLE.contains(name) || name.startsWith("find")
+                        || name.startsWith("lookup"))) {
+                    nullable.put(assigning, t);
+                }
+                if (call && NULL_CHECKS.contains(name) && tokens.kind(t + 2) == TokenKind.IDENTIFIER) {
+                    nullChecked.add(tokens.text(t + 2));
+                }
+                if (!member && !call && (tokens.is(t + 1, '.') || tokens.is(t + 1, '['))
+                        && nullable.containsKey(name) && nullable.get(name) < t) {
+                    dereferences.putIfAbsent(name, tokens.line(t));
+                }
+                if (!member && (tokens.is(t + 1, "==") || tokens.is(t + 1, "!=")
+                        || tokens.is(t + 1, "instanceof"))) {
+                    nullChecked.add(name);
+                } else if (!member && (tokens.is(t - 1, "==") || tokens.is(t - 1, "!="))) {
+                    nullChecked.add(name);
+                }
+                if (call && DIRECT_NULLABLE.contains(name)) {
+                    int close = index.matching(t + 1);
+                    if (close > 0 && (tokens.is(close + 1, '.') || tokens.is(close + 1, '[')
+                            || tokens.is(t - 2, ':') && tokens.is(close + 1, ')'))) {
+                        direct.add(new Finding(BugPattern.NULL_DEREFERENCE, tokens.line(t), tokens.line(t),
+                                name + "()"));
+                    }
+                }
+            }
+            if (bounds) {
+                if (member && (tokens.is(t, "length") || tokens.is(t, "size") || tokens.is(t, "isEmpty"))
+                        && tokens.kind(t - 2) == TokenKind.IDENTIFIER) {
+                    bounded.add(tokens.text(t - 2));
+                } else if (!call && tokens.is(t + 1, '[') && !tokens.is(t + 2, ']')
+                        && tokens.kind(t - 1) != TokenKind.IDENTIFIER && !tokens.is(t - 1, "new")) {
+                    indexed.putIfAbsent(name, tokens.line(t));
+                } else if (call && member && (tokens.is(t, "charAt") || tokens.is(t, "get")
+                        && indexLike(tokens, t + 2)) && tokens.kind(t - 2) == TokenKind.IDENTIFIER) {
+                    indexed.putIfAbsent(tokens.text(t - 2), tokens.line(t));
+                } else if (call && member && tokens.is(t, "split")) {
+                    int close = index.matching(t + 1);
+                    if (close > 0 && tokens.is(close + 1, '[')) {
+                        direct.add(new Finding(BugPattern.OUT_OF_BOUNDS, tokens.line(t), tokens.line(t),
+                                "split()[]"));
+                    }
+                }
+            }
+        }
+
+        void other(Tokens tokens, int t) {
+            if (tokens.is(t, '(') || tokens.is(t, '{') || tokens.is(t, '[')) {
+                depth++;
+            } else if (tokens.is(t, ')') || tokens.is(t, '}') || tokens.is(t, ']')) {
+                depth--;
+            } else if (tokens.is(t, ';') && depth <= assignDepth) {
+                assigning = null;
+            }
+        }
+
+        void finish(List<Finding> findings, boolean nullDeref, boolean bounds) {
+            findings.addAll(direct);
+            if (nullDeref) {
+                dereferences.forEach((name, line) -> {
+                    if (!nullChecked.contains(name)) {
+                        findings.add(new Finding(BugPattern.NULL_DEREFERENCE, line, line, name));
+                    }
+                });
+            }
+            if (bounds) {
+                indexed.forEach((name, line) -> {
+                    if (!bounded.contains(name)) {
+                        findings.add(new Finding(BugPattern.OUT_OF_BOUNDS, line, line, name));
+                    }
+                });
+            }
+        }
+
+        /** Whether a {@code get} argument starting at {@code t} reads as a position, not a key. */
+        private static boolean indexLike(Tokens tokens, int t) {
+            return tokens.kind(t) == TokenKind.NUMBER
+                    || tokens.kind(t) == TokenKind.IDENTIFIER && (tokens.is(t + 1, "-")
+                    || tokens.is(t + 1, "+") || tokens.is(t + 1, ')') && tokens.length(t) <= 2);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package fixbench.detect;
+
+/** The bug patterns of the benchmark, by the category folder that holds their instances. */
+public enum BugPattern {
+    DM_CONVERT_CASE("FindBugs-DM_CONVERT_CASE"),
+    DM_DEFAULT_ENCODING("FindBugs-DM_DEFAULT_ENCODING"),
+    MS_SHOULD_BE_FINAL("FindBugs-MS_SHOULD_BE_FINAL"),
+    SE_NO_SERIALVERSIONID("FindBugs-SE_NO_SERIALVERSIONID"),
+    URF_UNREAD_FIELD("FindBugs-URF_UNREAD_FIELD"),
+    NULL_DEREFERENCE("Genesis-NP"),
+    OUT_OF_BOUNDS("Genesis-OOB");
+
+    private final String category;
+
+    BugPattern(String category) {
+        this.category = category;
+    }
+
+    public String category() {
+        return category;
+    }
+
+    /** Whether findings are heuristic candidates rather than a re-implementation of the check. */
+    public boolean isHeuristic() {
+        return this == NULL_DEREFERENCE || this == OUT_OF_BOUNDS;
+    }
+
+    /** The pattern of a category folder, or {@code null}. */
+    public static BugPattern ofCategory(String category) {
+        for (BugPattern pattern : values()) {
+            if (pattern.category.equals(category)) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+}
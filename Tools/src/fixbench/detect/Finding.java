@@ -0,0 +1,42 @@
+package fixbench.detect;
+
+/** A warning of a {@link BugDetector}, with one-based lines as in {@code pair.info}. */
+public final class Finding {
+    private final BugPattern pattern;
+    private final int startLine;
+    private final int endLine;
+    private final String subject;
+
+    Finding(BugPattern pattern, int startLine, int endLine, String subject) {
+        this.pattern = pattern;
+        this.startLine = startLine;
+        this.endLine = endLine;
+        this.subject = subject;
+    }
+
+    public BugPattern pattern() {
+        return pattern;
+    }
+
+    public int startLine() {
+        return startLine;
+    }
+
+    public int endLine() {
+        return endLine;
+    }
+
+    /** What the warning is about: a call, a field, a class or a variable. */
+    public String subject() {
+        return subject;
+    }
+
+    public boolean overlaps(int fromLine, int toLine) {
+        return startLine <= toLine && fromLine <= endLine;
+    }
+
+    @Override
+    public String toString() {
+        return pattern + " " + startLine + '-' + endLine + ' ' + subject;
+    }
+}
@@ -0,0 +1,161 @@
+package fixbench.diff;
+
+import fixbench.corpus.ContentHash;
+import fixbench.edit.Myers;
+import fixbench.io.ByteSink;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the {@code -U0} git diff of one file in the format of the benchmark's {@code diff.diff}:
+ * a {@code diff --git} header with abbreviated blob ids, then one hunk per changed region labeled
+ * with the nearest preceding line that starts with a letter, as git's default function-name rule
+ * does. Lines are aligned with {@link Myers}; past its edit limit the regions between the common
+ * prefix and suffix become one hunk.
+ */
+public final class DiffWriter {
+    private static final int LABEL_LENGTH = 80;
+    private static final byte[] NO_NEWLINE = ascii("\\ No newline at end of file\n");
+
+    private DiffWriter() {
+    }
+
+    /** Diff of {@code oldSource} against {@code newSource}, both at the repository path {@code path}. */
+    public static ByteBuffer write(String path, ByteBuffer oldSource, ByteBuffer newSource) {
+        List<ByteBuffer> a = lines(oldSource);
+        List<ByteBuffer> b = lines(newSource);
+        Map<ByteBuffer, Integer> keys = new HashMap<>();
+        int[] aKeys = keys(a, keys);
+        int[] bKeys = keys(b, keys);
+        int[] match = new int[aKeys.length];
+        Arrays.fill(match, -1);
+        Myers.align(aKeys, 0, aKeys.length, bKeys, 0, bKeys.length, match);
+
+        ByteSink out = new ByteSink(256 + oldSource.remaining() / 8);
+        put(out, "diff --git a/" + path + " b/" + path + "\nindex " + blobId(oldSource) + ".."
+                + blobId(newSource) + " 100644\n--- a/" + path + "\n+++ b/" + path + "\n");
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (i < a.size() && match[i] == j) {
+                i++;
+                j++;
+                continue;
+            }
+            int iEnd = i;
+            while (iEnd < a.size() && match[iEnd] < 0) {
+                iEnd++;
+            }
+            int jEnd = iEnd < a.size() ? match[iEnd] : b.size();
+            hunk(out, a, i, iEnd, b, j, jEnd);
+            i = iEnd;
+            j = jEnd;
+        }
+        return out.toBuffer();
+    }
+
+    private static void hunk(ByteSink out, List<ByteBuffer> a, int aFrom, int aTo, List<ByteBuffer> b, int bFrom,
+            int bTo) {
+        put(out, "@@ -" + range(aFrom, aTo - aFrom) + " +" + range(bFrom, bTo - bFrom) + " @@");
+        ByteBuffer label = label(a, aFrom);
+        if (label != null) {
+            out.putByte(' ').put(label);
+        }
+        out.putByte('\n');
+        for (int k = aFrom; k < aTo; k++) {
+            line(out, '-', a.get(k));
+        }
+        for (int k = bFrom; k < bTo; k++) {
+            line(out, '+', b.get(k));
+        }
+    }
+
+    /** {@code start,count} with git's conventions: one-based, the count omitted if one. */
+    private static String range(int from, int count) {
+        if (count == 1) {
+            return Integer.toString(from + 1);
+        }
+        return (count == 0 ? from : from + 1) + "," + count;
+    }
+
+    private static ByteBuffer label(List<ByteBuffer> lines, int before) {
+        for (int k = before - 1; k >= 0; k--) {
+            ByteBuffer line = lines.get(k);
+            if (line.hasRemaining()) {
+                int c = line.get(line.position()) & 0xff;
+                if (Character.isLetter(c) || c == '_' || c == '$') {
+                    int end = Math.min(line.limit(), line.position() + LABEL_LENGTH);
+                    while (end > line.position() && line.get(end - 1) <= ' ') {
+                        end--;
+                    }
+                    return line.duplicate().limit(end);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void line(ByteSink out, char marker, ByteBuffer line) {
+        out.putByte(marker).put(line);
+        if (line.get(line.limit() - 1) != '\n') {
+            out.putByte('\n').put(NO_NEWLINE, 0, NO_NEWLINE.length);
+        }
+    }
+
+    /**
+     * Lines with their {@code \n}, so that a final line without one differs from the same text
+     * with one, as git compares them.
+     */
+    private static List<ByteBuffer> lines(ByteBuffer source) {
+        List<ByteBuffer> lines = new ArrayList<>();
+        ByteBuffer content = source.slice();
+        int start = 0;
+        for (int k = 0; k < content.limit(); k++) {
+            if (content.get(k) == '\n') {
+                lines.add(content.duplicate().position(start).limit(k + 1));
+                start = k + 1;
+            }
+        }
+        if (start < content.limit()) {
+            lines.add(content.duplicate().position(start).limit(content.limit()));
+        }
+        return lines;
+    }
+
+    private static int[] keys(List<ByteBuffer> lines, Map<ByteBuffer, Integer> keys) {
+        int[] result = new int[lines.size()];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = keys.computeIfAbsent(lines.get(k), line -> keys.size());
+        }
+        return result;
+    }
+
+    /** First seven hex digits of git's blob id, the SHA-1 of {@code "blob <size>\0"} and the content. */
+    private static String blobId(ByteBuffer content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(ascii("blob " + content.remaining() + "\0"));
+        digest.update(content.duplicate());
+        return ContentHash.toHex(digest.digest()).substring(0, 7);
+    }
+
+    private static void put(ByteSink out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.put(bytes, 0, bytes.length);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,134 @@
+package fixbench.diff;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One {@code @@} hunk of a unified diff. A hunk only records offsets into the diff buffer; the
+ * header label, the path and the changed lines are decoded on request.
+ *
+ * <p>Line numbers follow the unified diff convention: an empty range ({@code count == 0}) means
+ * lines were inserted after, or deleted after, line {@code start} of that side.
+ */
+public final class Hunk {
+    private final ByteBuffer diff;
+    private final int pathStart;
+    private final int pathEnd;
+    private final int headerStart;
+    private final int labelStart;
+    private final int labelEnd;
+    private final int bodyStart;
+    private final int bodyEnd;
+    private final int oldStart;
+    private final int oldCount;
+    private final int newStart;
+    private final int newCount;
+
+    Hunk(ByteBuffer diff, int pathStart, int pathEnd, int headerStart, int labelStart, int labelEnd,
+            int bodyStart, int bodyEnd, int oldStart, int oldCount, int newStart, int newCount) {
+        this.diff = diff;
+        this.pathStart = pathStart;
+        this.pathEnd = pathEnd;
+        this.headerStart = headerStart;
+        this.labelStart = labelStart;
+        this.labelEnd = labelEnd;
+        this.bodyStart = bodyStart;
+        this.bodyEnd = bodyEnd;
+        this.oldStart = oldStart;
+        this.oldCount = oldCount;
+        this.newStart = newStart;
+        this.newCount = newCount;
+    }
+
+    public int oldStart() {
+        return oldStart;
+    }
+
+    public int oldCount() {
+        return oldCount;
+    }
+
+    public int newStart() {
+        return newStart;
+    }
+
+    public int newCount() {
+        return newCount;
+    }
+
+    /** Last line of the old range; equals {@code oldStart()} for an empty range. */
+    public int oldEnd() {
+        return oldCount == 0 ? oldStart : oldStart + oldCount - 1;
+    }
+
+    /** Last line of the new range; equals {@code newStart()} for an empty range. */
+    public int newEnd() {
+        return newCount == 0 ? newStart : newStart + newCount - 1;
+    }
+
+    /** Byte offset of the {@code @@} header in the diff. */
+    public int offset() {
+        return headerStart;
+    }
+
+    /**
+     * The enclosing-declaration label git printed after the header, e.g.
+     * {@code public class ODatabaseDocumentTx ...}; empty if there is none.
+     */
+    public String label() {
+        return decode(labelStart, labelEnd);
+    }
+
+    /** Path of the changed file from the {@code +++} line, without the {@code b/} prefix. */
+    public String path() {
+        return decode(pathStart, pathEnd);
+    }
+
+    /** The {@code -} and {@code +} lines of the hunk, including their markers. */
+    public ByteBuffer body() {
+        return diff.slice(bodyStart, bodyEnd - bodyStart).asReadOnlyBuffer();
+    }
+
+    /** Removed lines, without the leading {@code -}. */
+    public List<String> removedLines() {
+        return lines('-');
+    }
+
+    /** Added lines, without the leading {@code +}. */
+    public List<String> addedLines() {
+        return lines('+');
+    }
+
+    private List<String> lines(char marker) {
+        List<String> result = new ArrayList<>();
+        int line = bodyStart;
+        while (line < bodyEnd) {
+            int end = line;
+            while (end < bodyEnd && diff.get(end) != '\n') {
+                end++;
+            }
+            if (diff.get(line) == marker) {
+                int textEnd = end > line + 1 && diff.get(end - 1) == '\r' ? end - 1 : end;
+                result.add(decode(line + 1, textEnd));
+            }
+            line = end + 1;
+        }
+        return result;
+    }
+
+    private String decode(int start, int end) {
+        if (start >= end) {
+            return "";
+        }
+        byte[] bytes = new byte[end - start];
+        diff.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "@@ -" + oldStart + ',' + oldCount + " +" + newStart + ',' + newCount + " @@";
+    }
+}
@@ -0,0 +1,55 @@
+package fixbench.diff;
+
+import fixbench.java.Declaration;
+
+/** A hunk together with the declarations enclosing it in the old and the new source. */
+public final class HunkLocation {
+    private final Hunk hunk;
+    private final Declaration oldDeclaration;
+    private final Declaration newDeclaration;
+
+    HunkLocation(Hunk hunk, Declaration oldDeclaration, Declaration newDeclaration) {
+        this.hunk = hunk;
+        this.oldDeclaration = oldDeclaration;
+        this.newDeclaration = newDeclaration;
+    }
+
+    public Hunk hunk() {
+        return hunk;
+    }
+
+    /** Innermost declaration of the buggy source covering the hunk, or {@code null}. */
+    public Declaration oldDeclaration() {
+        return oldDeclaration;
+    }
+
+    /** Innermost declaration of the fixed source covering the hunk, or {@code null}. */
+    public Declaration newDeclaration() {
+        return newDeclaration;
+    }
+
+    /** Method, constructor or initializer of the buggy source containing the hunk, or {@code null}. */
+    public Declaration oldMethod() {
+        return code(oldDeclaration);
+    }
+
+    /** Method, constructor or initializer of the fixed source containing the hunk, or {@code null}. */
+    public Declaration newMethod() {
+        return code(newDeclaration);
+    }
+
+    private static Declaration code(Declaration declaration) {
+        for (Declaration d = declaration; d != null; d = d.parent()) {
+            if (d.isCode()) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return hunk + " " + (oldDeclaration == null ? "-" : oldDeclaration.qualifiedName()) + " -> "
+                + (newDeclaration == null ? "-" : newDeclaration.qualifiedName());
+    }
+}
@@ -0,0 +1,52 @@
+package fixbench.diff;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.java.Declaration;
+import fixbench.java.DeclarationIndex;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maps diff hunks to the declarations that enclose them. Each side is lexed once and every hunk is
+ * resolved with a binary search over the declaration outline.
+ */
+public final class HunkLocator {
+
+    private HunkLocator() {
+    }
+
+    /** Locates the hunks of an instance's {@code diff.diff} in its old and new Java sources. */
+    public static List<HunkLocation> locate(CorpusInstance instance) {
+        ByteBuffer diff = instance.content(MemberKind.DIFF);
+        Member oldSource = instance.oldSource();
+        Member newSource = instance.newSource();
+        if (diff == null || oldSource == null || newSource == null) {
+            return Collections.emptyList();
+        }
+        return locate(UnifiedDiffParser.parse(diff), DeclarationIndex.of(oldSource.content()),
+                DeclarationIndex.of(newSource.content()));
+    }
+
+    public static List<HunkLocation> locate(List<Hunk> hunks, DeclarationIndex oldIndex,
+            DeclarationIndex newIndex) {
+        List<HunkLocation> result = new ArrayList<>(hunks.size());
+        for (Hunk hunk : hunks) {
+            result.add(new HunkLocation(hunk,
+                    enclosing(oldIndex, hunk.oldStart(), hunk.oldCount()),
+                    enclosing(newIndex, hunk.newStart(), hunk.newCount())));
+        }
+        return result;
+    }
+
+    /** An empty range sits between {@code start} and {@code start + 1}; both must be covered. */
+    private static Declaration enclosing(DeclarationIndex index, int start, int count) {
+        if (count > 0) {
+            return index.enclosing(start, start + count - 1);
+        }
+        return start == 0 ? index.enclosing(1, 1) : index.enclosing(start, start + 1);
+    }
+}
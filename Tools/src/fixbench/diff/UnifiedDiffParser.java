@@ -0,0 +1,150 @@
+package fixbench.diff;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming parser for git unified diffs such as the benchmark's {@code diff.diff} files, which are
+ * produced with {@code -U0}. It walks the bytes once and hands each {@link Hunk} to a consumer as
+ * soon as its body ends; hunk bodies are delimited by the line counts of their header, so removed
+ * lines that happen to start with {@code --} are not mistaken for file headers.
+ */
+public final class UnifiedDiffParser {
+
+    private UnifiedDiffParser() {
+    }
+
+    public static List<Hunk> parse(ByteBuffer diff) {
+        List<Hunk> hunks = new ArrayList<>();
+        parse(diff, hunks::add);
+        return hunks;
+    }
+
+    /** Number of hunks in the diff. */
+    public static int count(ByteBuffer diff) {
+        int[] count = new int[1];
+        parse(diff, hunk -> count[0]++);
+        return count[0];
+    }
+
+    /** Parses {@code diff} from its position to its limit without moving the position. */
+    public static void parse(ByteBuffer diff, Consumer<Hunk> sink) {
+        int limit = diff.limit();
+        int pathStart = 0;
+        int pathEnd = 0;
+        int line = diff.position();
+        while (line < limit) {
+            int end = lineEnd(diff, line, limit);
+            if (startsWith(diff, line, end, "+++ ")) {
+                pathStart = line + 4;
+                pathEnd = trimEnd(diff, pathStart, end);
+                if (startsWith(diff, pathStart, pathEnd, "b/")) {
+                    pathStart += 2;
+                }
+            } else if (startsWith(diff, line, end, "@@ -")) {
+                int[] header = new int[5];
+                if (parseHeader(diff, line + 4, end, header)) {
+                    int oldRemaining = header[1];
+                    int newRemaining = header[3];
+                    int bodyStart = Math.min(end + 1, limit);
+                    int next = bodyStart;
+                    while (next < limit && (oldRemaining > 0 || newRemaining > 0)) {
+                        byte marker = diff.get(next);
+                        if (marker == '-') {
+                            oldRemaining--;
+                        } else if (marker == '+') {
+                            newRemaining--;
+                        } else if (marker == ' ') {
+                            oldRemaining--;
+                            newRemaining--;
+                        } else if (marker != '\\') {
+                            break;
+                        }
+                        next = Math.min(lineEnd(diff, next, limit) + 1, limit);
+                    }
+                    // "\ No newline at end of file" may follow the last line.
+                    while (next < limit && diff.get(next) == '\\') {
+                        next = Math.min(lineEnd(diff, next, limit) + 1, limit);
+                    }
+                    int labelStart = header[4];
+                    sink.accept(new Hunk(diff, pathStart, pathEnd, line, labelStart,
+                            Math.max(labelStart, trimEnd(diff, labelStart, end)), bodyStart, next,
+                            header[0], header[1], header[2], header[3]));
+                    line = next;
+                    continue;
+                }
+            }
+            line = end + 1;
+        }
+    }
+
+    /**
+     * Parses {@code a[,b] +c[,d] @@[ label]} into {@code {a, b, c, d, labelStart}}. Omitted counts
+     * default to one.
+     */
+    private static boolean parseHeader(ByteBuffer diff, int pos, int end, int[] out) {
+        int[] cursor = {pos};
+        out[0] = number(diff, cursor, end);
+        out[1] = cursor[0] < end && diff.get(cursor[0]) == ',' ? number(diff, advance(cursor), end) : 1;
+        if (cursor[0] + 1 >= end || diff.get(cursor[0]) != ' ' || diff.get(cursor[0] + 1) != '+') {
+            return false;
+        }
+        cursor[0] += 2;
+        out[2] = number(diff, cursor, end);
+        out[3] = cursor[0] < end && diff.get(cursor[0]) == ',' ? number(diff, advance(cursor), end) : 1;
+        if (out[0] < 0 || out[1] < 0 || out[2] < 0 || out[3] < 0
+                || !startsWith(diff, cursor[0], end, " @@")) {
+            return false;
+        }
+        int label = cursor[0] + 3;
+        out[4] = label < end && diff.get(label) == ' ' ? label + 1 : Math.min(label, end);
+        return true;
+    }
+
+    private static int[] advance(int[] cursor) {
+        cursor[0]++;
+        return cursor;
+    }
+
+    private static int number(ByteBuffer diff, int[] cursor, int end) {
+        int pos = cursor[0];
+        int value = 0;
+        while (pos < end && diff.get(pos) >= '0' && diff.get(pos) <= '9') {
+            value = value * 10 + (diff.get(pos) - '0');
+            pos++;
+        }
+        if (pos == cursor[0]) {
+            return -1;
+        }
+        cursor[0] = pos;
+        return value;
+    }
+
+    private static int lineEnd(ByteBuffer diff, int pos, int limit) {
+        while (pos < limit && diff.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int trimEnd(ByteBuffer diff, int start, int end) {
+        while (end > start && (diff.get(end - 1) == '\r' || diff.get(end - 1) == ' ')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean startsWith(ByteBuffer diff, int pos, int end, String prefix) {
+        if (end - pos < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (diff.get(pos + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
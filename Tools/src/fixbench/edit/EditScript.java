@@ -0,0 +1,146 @@
+package fixbench.edit;
+
+import fixbench.io.ByteSink;
+import fixbench.java.SyntaxTree;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tree edit script turning the syntax tree of a buggy source into that of the fixed source. Nodes
+ * are preorder ids of {@link SyntaxTree}: {@code source} ids refer to the buggy tree, {@code target}
+ * and {@code parent} ids to the fixed tree. Actions are stored as parallel arrays:
+ *
+ * <ul>
+ * <li>{@code INSERT target parent position}: add the fixed tree's subtree at {@code target},
+ * without the nodes that are matched, as child {@code position} of {@code parent}.</li>
+ * <li>{@code DELETE source}: remove the subtree at {@code source}, except matched nodes, which
+ * were moved out before.</li>
+ * <li>{@code UPDATE source target}: relabel a token or declaration name.</li>
+ * <li>{@code MOVE source target parent position}: move a subtree to a new parent or position.</li>
+ * </ul>
+ */
+public final class EditScript {
+    private static final Type[] TYPES = Type.values();
+
+    public enum Type {
+        INSERT,
+        DELETE,
+        UPDATE,
+        MOVE
+    }
+
+    private byte[] types;
+    private int[] sources;
+    private int[] targets;
+    private int[] parents;
+    private int[] positions;
+    private int size;
+
+    EditScript(int capacity) {
+        int length = Math.max(4, capacity);
+        types = new byte[length];
+        sources = new int[length];
+        targets = new int[length];
+        parents = new int[length];
+        positions = new int[length];
+    }
+
+    void add(Type type, int source, int target, int parent, int position) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        sources[size] = source;
+        targets[size] = target;
+        parents[size] = parent;
+        positions[size] = position;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Type type(int action) {
+        return TYPES[types[action]];
+    }
+
+    /** Node of the buggy tree, or {@code -1} for an insertion. */
+    public int source(int action) {
+        return sources[action];
+    }
+
+    /** Node of the fixed tree, or {@code -1} for a deletion. */
+    public int target(int action) {
+        return targets[action];
+    }
+
+    /** New parent in the fixed tree of an insertion or move, otherwise {@code -1}. */
+    public int parent(int action) {
+        return parents[action];
+    }
+
+    /** Child index under {@link #parent(int)}, otherwise {@code -1}. */
+    public int position(int action) {
+        return positions[action];
+    }
+
+    public int count(Type type) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** One action in readable form, e.g. {@code UPDATE TOKEN "a" -> "b"}. */
+    public String describe(int action, SyntaxTree src, SyntaxTree dst) {
+        switch (type(action)) {
+            case INSERT:
+                return "INSERT " + node(dst, targets[action]) + " into " + node(dst, parents[action])
+                        + " at " + positions[action];
+            case DELETE:
+                return "DELETE " + node(src, sources[action]);
+            case UPDATE:
+                return "UPDATE " + node(src, sources[action]) + " -> \"" + dst.label(targets[action]) + '"';
+            default:
+                return "MOVE " + node(src, sources[action]) + " into " + node(dst, parents[action])
+                        + " at " + positions[action];
+        }
+    }
+
+    private static String node(SyntaxTree tree, int node) {
+        String label = tree.label(node);
+        return tree.kind(node) + "#" + node + (label.isEmpty() ? "" : " \"" + label + '"')
+                + " line " + tree.tokens().line(Math.max(0, tree.firstToken(node)));
+    }
+
+    void encode(ByteSink out) {
+        out.putVarint(size);
+        for (int i = 0; i < size; i++) {
+            out.putByte(types[i]);
+            out.putVarint(sources[i] + 1);
+            out.putVarint(targets[i] + 1);
+            out.putVarint(parents[i] + 1);
+            out.putVarint(positions[i] + 1);
+        }
+    }
+
+    static EditScript decode(ByteBuffer in) {
+        int count = ByteSink.readVarint(in);
+        EditScript script = new EditScript(count);
+        for (int i = 0; i < count; i++) {
+            Type type = TYPES[in.get()];
+            script.add(type, ByteSink.readVarint(in) - 1, ByteSink.readVarint(in) - 1,
+                    ByteSink.readVarint(in) - 1, ByteSink.readVarint(in) - 1);
+        }
+        return script;
+    }
+}
@@ -0,0 +1,265 @@
+package fixbench.edit;
+
+import fixbench.corpus.ContentHash;
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import fixbench.io.ByteSink;
+import fixbench.java.SyntaxTreeCache;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Edit scripts of every instance in one memory-mapped file. Lookup by instance key is a probe of
+ * an open-addressing table, so any script is found in O(1) without reading the others. Instances
+ * with the same buggy and fixed sources, e.g. in {@code All} and a split view, share one script.
+ *
+ * <pre>
+ * header    32 bytes  magic, version, entry count, slot count, section offsets, file length
+ * entries   per key   key, SHA-256 of old and new source, script offset
+ * slots     int[]     entry offset or 0, indexed by key hash
+ * scripts   varints   see EditScript
+ * </pre>
+ */
+public final class EditScriptStore {
+    private static final byte[] MAGIC = "FXEDIT\0\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int OFF_VERSION = 8;
+    private static final int OFF_ENTRY_COUNT = 12;
+    private static final int OFF_SLOT_COUNT = 16;
+    private static final int OFF_SLOTS = 20;
+    private static final int OFF_SCRIPTS = 24;
+    private static final int OFF_FILE_LENGTH = 28;
+    private static final int HASH_LENGTH = 32;
+
+    private final ByteBuffer data;
+    private final int slotCount;
+    private final int slots;
+    private final int scripts;
+
+    private EditScriptStore(ByteBuffer data) {
+        this.data = data;
+        this.slotCount = data.getInt(OFF_SLOT_COUNT);
+        this.slots = data.getInt(OFF_SLOTS);
+        this.scripts = data.getInt(OFF_SCRIPTS);
+    }
+
+    public static EditScriptStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not an edit script store: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data.get(i) != MAGIC[i]) {
+                    throw new IOException("Not an edit script store: " + file);
+                }
+            }
+            int version = data.getInt(OFF_VERSION);
+            if (version != VERSION) {
+                throw new IOException("Unsupported edit script store version " + version);
+            }
+            if (data.getInt(OFF_FILE_LENGTH) != size) {
+                throw new IOException("Truncated edit script store: " + file);
+            }
+            return new EditScriptStore(data);
+        }
+    }
+
+    public int size() {
+        return data.getInt(OFF_ENTRY_COUNT);
+    }
+
+    /** The script of the instance with the given key, or {@code null}. */
+    public EditScript get(String key) {
+        int entry = find(key);
+        return entry < 0 ? null : script(entry);
+    }
+
+    /**
+     * The script of an instance, or {@code null} if the store has none or it was computed for
+     * different sources.
+     */
+    public EditScript get(CorpusInstance instance) {
+        int entry = find(instance.key());
+        if (entry < 0) {
+            return null;
+        }
+        int hashes = entry + keyLength(entry);
+        Member oldSource = instance.oldSource();
+        Member newSource = instance.newSource();
+        if (oldSource == null || newSource == null || !hashAt(hashes, oldSource.hash())
+                || !hashAt(hashes + HASH_LENGTH, newSource.hash())) {
+            return null;
+        }
+        return script(entry);
+    }
+
+    private int find(String key) {
+        byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+        int mask = slotCount - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = data.getInt(slots + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            ByteBuffer in = data.duplicate().position(entry);
+            int length = ByteSink.readVarint(in);
+            if (length == utf8.length && keyEquals(in.position(), utf8)) {
+                return entry;
+            }
+        }
+    }
+
+    private boolean keyEquals(int offset, byte[] utf8) {
+        for (int i = 0; i < utf8.length; i++) {
+            if (data.get(offset + i) != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hashAt(int offset, byte[] hash) {
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            if (data.get(offset + i) != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Bytes of the length-prefixed key at {@code entry}. */
+    private int keyLength(int entry) {
+        ByteBuffer in = data.duplicate().position(entry);
+        int length = ByteSink.readVarint(in);
+        return in.position() - entry + length;
+    }
+
+    private EditScript script(int entry) {
+        int offset = data.getInt(entry + keyLength(entry) + 2 * HASH_LENGTH);
+        return EditScript.decode(data.duplicate().position(scripts + offset));
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Counts of a {@link #build} run. */
+    public static final class Stats {
+        public final int instances;
+        public final int scripts;
+        public final long actions;
+
+        Stats(int instances, int scripts, long actions) {
+            this.instances = instances;
+            this.scripts = scripts;
+            this.actions = actions;
+        }
+    }
+
+    /**
+     * Computes the script of every instance with an old and a new Java source and writes the
+     * store. Distinct source pairs are diffed in parallel; parsed trees come from {@code cache}
+     * when one is given.
+     */
+    public static Stats build(Corpus corpus, Path file, SyntaxTreeCache cache) throws IOException {
+        Map<String, Pair> pairs = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>();
+        List<Pair> byKey = new ArrayList<>();
+        for (CorpusInstance instance : corpus.instances()) {
+            Member oldSource = instance.oldSource();
+            Member newSource = instance.newSource();
+            if (oldSource == null || newSource == null) {
+                continue;
+            }
+            String id = ContentHash.toHex(oldSource.hash()) + ContentHash.toHex(newSource.hash());
+            keys.add(instance.key());
+            byKey.add(pairs.computeIfAbsent(id, k -> new Pair(oldSource, newSource)));
+        }
+        List<Pair> distinct = new ArrayList<>(pairs.values());
+        try {
+            distinct.parallelStream().forEach(pair -> pair.script = diff(pair, cache));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        ByteSink out = new ByteSink(1 << 20);
+        out.put(MAGIC, 0, MAGIC.length);
+        while (out.size() < HEADER_SIZE) {
+            out.putInt(0);
+        }
+        out.setInt(OFF_VERSION, VERSION);
+        out.setInt(OFF_ENTRY_COUNT, keys.size());
+        ByteSink encoded = new ByteSink(1 << 20);
+        long actions = 0;
+        for (Pair pair : distinct) {
+            pair.offset = encoded.size();
+            pair.script.encode(encoded);
+            actions += pair.script.size();
+        }
+        int[] entries = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            Pair pair = byKey.get(i);
+            entries[i] = out.size();
+            out.putString(keys.get(i));
+            byte[] oldHash = pair.oldSource.hash();
+            byte[] newHash = pair.newSource.hash();
+            out.put(oldHash, 0, oldHash.length);
+            out.put(newHash, 0, newHash.length);
+            out.putInt(pair.offset);
+        }
+        int slotCount = Integer.highestOneBit(Math.max(2, keys.size()) * 2 - 1) * 2;
+        int[] table = new int[slotCount];
+        for (int i = 0; i < keys.size(); i++) {
+            int slot = hash(keys.get(i)) & (slotCount - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            table[slot] = entries[i];
+        }
+        out.setInt(OFF_SLOT_COUNT, slotCount);
+        out.setInt(OFF_SLOTS, out.size());
+        for (int entry : table) {
+            out.putInt(entry);
+        }
+        out.setInt(OFF_SCRIPTS, out.size());
+        out.put(encoded.toBuffer());
+        out.setInt(OFF_FILE_LENGTH, out.size());
+        out.writeAtomically(file);
+        return new Stats(keys.size(), distinct.size(), actions);
+    }
+
+    private static EditScript diff(Pair pair, SyntaxTreeCache cache) {
+        try {
+            return TreeDiff.diff(SyntaxTreeCache.tree(pair.oldSource, cache),
+                    SyntaxTreeCache.tree(pair.newSource, cache));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Pair {
+        final Member oldSource;
+        final Member newSource;
+        EditScript script;
+        int offset;
+
+        Pair(Member oldSource, Member newSource) {
+            this.oldSource = oldSource;
+            this.newSource = newSource;
+        }
+    }
+}
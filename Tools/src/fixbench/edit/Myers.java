@@ -0,0 +1,82 @@
+package fixbench.edit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Myers' O(ND) longest common subsequence over int keys. The trace keeps one diagonal window per
+ * edit distance, so memory is O(D^2); past {@link #MAX_EDITS} the ranges are reported as having
+ * nothing in common.
+ */
+public final class Myers {
+    public static final int MAX_EDITS = 2048;
+
+    private Myers() {
+    }
+
+    /**
+     * Sets {@code match[i] = j} for every pair of the common subsequence of {@code a[aFrom, aTo)}
+     * and {@code b[bFrom, bTo)}, with absolute indices. Returns false if the ranges differ in more
+     * than {@link #MAX_EDITS} places.
+     */
+    public static boolean align(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] match) {
+        while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) {
+            match[aFrom++] = bFrom++;
+        }
+        while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) {
+            match[--aTo] = --bTo;
+        }
+        int n = aTo - aFrom;
+        int m = bTo - bFrom;
+        if (n == 0 || m == 0) {
+            return true;
+        }
+        int limit = Math.min(n + m, MAX_EDITS);
+        int offset = limit + 1;
+        int[] v = new int[2 * limit + 3];
+        List<int[]> trace = new ArrayList<>();
+        for (int d = 0; d <= limit; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aFrom + x] == b[bFrom + y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, d, n, m, aFrom, bFrom, match);
+                    return true;
+                }
+            }
+            int[] window = new int[2 * d + 1];
+            System.arraycopy(v, offset - d, window, 0, window.length);
+            trace.add(window);
+        }
+        return false;
+    }
+
+    private static void backtrack(List<int[]> trace, int edits, int n, int m, int aFrom, int bFrom,
+            int[] match) {
+        int x = n;
+        int y = m;
+        for (int d = edits; d > 0; d--) {
+            int[] previous = trace.get(d - 1);
+            int k = x - y;
+            int base = d - 1;
+            int previousK = k == -d || (k != d && previous[base + k - 1] < previous[base + k + 1])
+                    ? k + 1 : k - 1;
+            int previousX = previous[base + previousK];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                match[aFrom + --x] = bFrom + --y;
+            }
+            x = previousX;
+            y = previousY;
+        }
+        while (x > 0 && y > 0) {
+            match[aFrom + --x] = bFrom + --y;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package fixbench.edit;
+
+import fixbench.java.NodeKind;
+import fixbench.java.SyntaxTree;
+import java.util.Arrays;
+
+/** Computes the {@link EditScript} between two syntax trees from a {@link TreeMatcher} mapping. */
+public final class TreeDiff {
+
+    private TreeDiff() {
+    }
+
+    public static EditScript diff(SyntaxTree src, SyntaxTree dst) {
+        TreeMatcher matcher = TreeMatcher.match(src, dst);
+        boolean[] inOrder = inOrder(matcher);
+        int[] positions = childPositions(dst);
+        EditScript script = new EditScript(16);
+        // Parents of the fixed tree come first in preorder, so insertions find their parent.
+        for (int d = 0; d < dst.size(); d++) {
+            int s = matcher.srcOf(d);
+            int parent = dst.parent(d);
+            if (s < 0) {
+                if (parent < 0 || matcher.srcOf(parent) >= 0) {
+                    script.add(EditScript.Type.INSERT, -1, d, parent, positions[d]);
+                }
+                continue;
+            }
+            if (parent >= 0 && (src.parent(s) < 0 || matcher.dstOf(src.parent(s)) != parent || !inOrder[d])) {
+                script.add(EditScript.Type.MOVE, s, d, parent, positions[d]);
+            }
+            if (!sameLabel(src, s, dst, d)) {
+                script.add(EditScript.Type.UPDATE, s, d, -1, -1);
+            }
+        }
+        for (int s = 0; s < src.size(); s++) {
+            int parent = src.parent(s);
+            if (matcher.dstOf(s) < 0 && (parent < 0 || matcher.dstOf(parent) >= 0)) {
+                script.add(EditScript.Type.DELETE, s, -1, -1, -1);
+            }
+        }
+        return script;
+    }
+
+    private static boolean sameLabel(SyntaxTree src, int s, SyntaxTree dst, int d) {
+        if (src.kind(s) == NodeKind.TOKEN) {
+            return src.tokens().sameText(src.firstToken(s), dst.tokens(), dst.firstToken(d));
+        }
+        String a = src.name(s);
+        String b = dst.name(d);
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Marks the fixed-tree nodes that keep their relative order among the matched children of a
+     * matched parent: a longest increasing subsequence of their positions. The rest are moves.
+     */
+    private static boolean[] inOrder(TreeMatcher matcher) {
+        SyntaxTree src = matcher.src();
+        SyntaxTree dst = matcher.dst();
+        boolean[] inOrder = new boolean[dst.size()];
+        int[] sequence = new int[16];
+        for (int s = 0; s < src.size(); s++) {
+            int d = matcher.dstOf(s);
+            if (d < 0 || src.firstChild(s) < 0) {
+                continue;
+            }
+            int length = 0;
+            for (int child = src.firstChild(s); child >= 0; child = src.nextSibling(child)) {
+                int mapped = matcher.dstOf(child);
+                if (mapped >= 0 && dst.parent(mapped) == d) {
+                    if (length == sequence.length) {
+                        sequence = Arrays.copyOf(sequence, length * 2);
+                    }
+                    sequence[length++] = mapped;
+                }
+            }
+            markIncreasing(sequence, length, inOrder);
+        }
+        return inOrder;
+    }
+
+    /** Patience-sorting LIS over node ids, which increase with sibling position. */
+    private static void markIncreasing(int[] sequence, int length, boolean[] marks) {
+        int[] tails = new int[length];
+        int[] previous = new int[length];
+        int piles = 0;
+        for (int i = 0; i < length; i++) {
+            int low = 0;
+            int high = piles;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence[tails[mid]] < sequence[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == piles) {
+                piles++;
+            }
+        }
+        for (int i = piles == 0 ? -1 : tails[piles - 1]; i >= 0; i = previous[i]) {
+            marks[sequence[i]] = true;
+        }
+    }
+
+    private static int[] childPositions(SyntaxTree tree) {
+        int[] positions = new int[tree.size()];
+        for (int node = 0; node < tree.size(); node++) {
+            int position = 0;
+            for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+                positions[child] = position++;
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,260 @@
+package fixbench.edit;
+
+import fixbench.java.NodeKind;
+import fixbench.java.SyntaxTree;
+import fixbench.java.Tokens;
+import java.util.Arrays;
+
+/**
+ * Maps the nodes of a buggy tree to the nodes of its fixed version, in the spirit of GumTree but
+ * anchored on the token stream, which is where the two sides of a benchmark pair mostly agree:
+ *
+ * <ol>
+ * <li>Lines are aligned with Myers' diff on a hash of their tokens, then the tokens inside each
+ * changed region are aligned the same way; aligned tokens map their leaves.</li>
+ * <li>Bottom-up, an inner node maps to the parent of its children's matches, if that node has the
+ * same kind and the two subtrees share at least half of their tokens.</li>
+ * <li>Top-down, unmatched children of matched nodes are paired by kind between matched siblings,
+ * which recovers updated leaves and rewritten statements.</li>
+ * </ol>
+ *
+ * The whole pass is linear in the size of the trees plus the cost of the diff over the changed
+ * regions.
+ */
+final class TreeMatcher {
+    private static final double MIN_DICE = 0.5;
+
+    private final SyntaxTree src;
+    private final SyntaxTree dst;
+    private final int[] srcToDst;
+    private final int[] dstToSrc;
+
+    private TreeMatcher(SyntaxTree src, SyntaxTree dst) {
+        this.src = src;
+        this.dst = dst;
+        this.srcToDst = new int[src.size()];
+        this.dstToSrc = new int[dst.size()];
+        Arrays.fill(srcToDst, -1);
+        Arrays.fill(dstToSrc, -1);
+    }
+
+    static TreeMatcher match(SyntaxTree src, SyntaxTree dst) {
+        TreeMatcher matcher = new TreeMatcher(src, dst);
+        matcher.matchTokens();
+        matcher.matchBottomUp();
+        matcher.recover();
+        return matcher;
+    }
+
+    SyntaxTree src() {
+        return src;
+    }
+
+    SyntaxTree dst() {
+        return dst;
+    }
+
+    /** Node of the fixed tree mapped to {@code node} of the buggy tree, or {@code -1}. */
+    int dstOf(int node) {
+        return srcToDst[node];
+    }
+
+    /** Node of the buggy tree mapped to {@code node} of the fixed tree, or {@code -1}. */
+    int srcOf(int node) {
+        return dstToSrc[node];
+    }
+
+    private void link(int s, int d) {
+        srcToDst[s] = d;
+        dstToSrc[d] = s;
+    }
+
+    private void matchTokens() {
+        Tokens a = src.tokens();
+        Tokens b = dst.tokens();
+        int[] aLines = lineStarts(a);
+        int[] bLines = lineStarts(b);
+        int[] aTokens = tokenKeys(a);
+        int[] bTokens = tokenKeys(b);
+        int[] aKeys = lineKeys(aTokens, aLines);
+        int[] bKeys = lineKeys(bTokens, bLines);
+        int[] lineMatch = new int[aKeys.length];
+        Arrays.fill(lineMatch, -1);
+        if (!Myers.align(aKeys, 0, aKeys.length, bKeys, 0, bKeys.length, lineMatch)) {
+            return;
+        }
+        int[] tokenMatch = new int[a.size()];
+        Arrays.fill(tokenMatch, -1);
+        int i = 0;
+        int j = 0;
+        while (i < aKeys.length || j < bKeys.length) {
+            if (i < aKeys.length && lineMatch[i] == j) {
+                int length = aLines[i + 1] - aLines[i];
+                if (length == bLines[j + 1] - bLines[j]) {
+                    for (int t = 0; t < length; t++) {
+                        tokenMatch[aLines[i] + t] = bLines[j] + t;
+                    }
+                } else {
+                    Myers.align(aTokens, aLines[i], aLines[i + 1], bTokens, bLines[j], bLines[j + 1],
+                            tokenMatch);
+                }
+                i++;
+                j++;
+                continue;
+            }
+            // A changed region: lines up to the next aligned pair on both sides.
+            int iEnd = i;
+            while (iEnd < aKeys.length && lineMatch[iEnd] < 0) {
+                iEnd++;
+            }
+            int jEnd = iEnd < aKeys.length ? lineMatch[iEnd] : bKeys.length;
+            Myers.align(aTokens, aLines[i], aLines[iEnd], bTokens, bLines[j], bLines[jEnd], tokenMatch);
+            i = iEnd;
+            j = jEnd;
+        }
+        int[] aLeaves = leaves(src);
+        int[] bLeaves = leaves(dst);
+        for (int t = 0; t < tokenMatch.length; t++) {
+            int u = tokenMatch[t];
+            if (u >= 0 && a.sameText(t, b, u) && aLeaves[t] >= 0 && bLeaves[u] >= 0) {
+                link(aLeaves[t], bLeaves[u]);
+            }
+        }
+    }
+
+    private void matchBottomUp() {
+        int[] candidates = new int[16];
+        int[] votes = new int[16];
+        // Children have higher preorder numbers than their parents.
+        for (int node = src.size() - 1; node >= 0; node--) {
+            if (srcToDst[node] >= 0 || src.kind(node) == NodeKind.TOKEN) {
+                continue;
+            }
+            int count = 0;
+            for (int child = src.firstChild(node); child >= 0; child = src.nextSibling(child)) {
+                int mapped = srcToDst[child];
+                if (mapped < 0 || dst.parent(mapped) < 0) {
+                    continue;
+                }
+                int parent = dst.parent(mapped);
+                int c = 0;
+                while (c < count && candidates[c] != parent) {
+                    c++;
+                }
+                if (c == count) {
+                    if (count == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, count * 2);
+                        votes = Arrays.copyOf(votes, count * 2);
+                    }
+                    candidates[count] = parent;
+                    votes[count++] = 0;
+                }
+                votes[c] += tokenCount(src, child);
+            }
+            int best = -1;
+            int bestVotes = 0;
+            for (int c = 0; c < count; c++) {
+                int candidate = candidates[c];
+                if (dstToSrc[candidate] < 0 && dst.kind(candidate) == src.kind(node)
+                        && votes[c] > bestVotes) {
+                    best = candidate;
+                    bestVotes = votes[c];
+                }
+            }
+            if (best >= 0 && 2.0 * bestVotes / (tokenCount(src, node) + tokenCount(dst, best)) >= MIN_DICE) {
+                link(node, best);
+            }
+        }
+        if (src.size() > 0 && dst.size() > 0 && srcToDst[0] < 0 && dstToSrc[0] < 0
+                && src.kind(0) == dst.kind(0)) {
+            link(0, 0);
+        }
+    }
+
+    /** Pairs unmatched children of matched nodes, walking the buggy tree in preorder. */
+    private void recover() {
+        for (int node = 0; node < src.size(); node++) {
+            int mapped = srcToDst[node];
+            if (mapped < 0 || src.kind(node) == NodeKind.TOKEN) {
+                continue;
+            }
+            int d = dst.firstChild(mapped);
+            for (int s = src.firstChild(node); s >= 0; s = src.nextSibling(s)) {
+                int target = srcToDst[s];
+                if (target >= 0) {
+                    if (dst.parent(target) == mapped) {
+                        d = dst.nextSibling(target);
+                    }
+                    continue;
+                }
+                // Pair with the next unmatched sibling of the same kind before the next anchor.
+                for (int c = d; c >= 0 && dstToSrc[c] < 0; c = dst.nextSibling(c)) {
+                    if (sameKind(s, c)) {
+                        link(s, c);
+                        d = dst.nextSibling(c);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean sameKind(int s, int d) {
+        if (src.kind(s) != dst.kind(d)) {
+            return false;
+        }
+        if (src.kind(s) == NodeKind.TOKEN) {
+            return src.tokens().kind(src.firstToken(s)) == dst.tokens().kind(dst.firstToken(d));
+        }
+        return true;
+    }
+
+    private static int tokenCount(SyntaxTree tree, int node) {
+        return tree.lastToken(node) - tree.firstToken(node) + 1;
+    }
+
+    /** Leaf node of each token. */
+    private static int[] leaves(SyntaxTree tree) {
+        int[] leaves = new int[tree.tokens().size()];
+        Arrays.fill(leaves, -1);
+        for (int node = 0; node < tree.size(); node++) {
+            if (tree.kind(node) == NodeKind.TOKEN) {
+                leaves[tree.firstToken(node)] = node;
+            }
+        }
+        return leaves;
+    }
+
+    /** First token of each line that has tokens, plus the token count as a sentinel. */
+    private static int[] lineStarts(Tokens tokens) {
+        int[] starts = new int[tokens.size() + 1];
+        int count = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            if (t == 0 || tokens.line(t) != tokens.line(t - 1)) {
+                starts[count++] = t;
+            }
+        }
+        starts[count] = tokens.size();
+        return Arrays.copyOf(starts, count + 1);
+    }
+
+    private static int[] lineKeys(int[] tokenKeys, int[] lineStarts) {
+        int[] keys = new int[lineStarts.length - 1];
+        for (int line = 0; line < keys.length; line++) {
+            int hash = 1;
+            for (int t = lineStarts[line]; t < lineStarts[line + 1]; t++) {
+                hash = hash * 31 + tokenKeys[t];
+            }
+            keys[line] = hash;
+        }
+        return keys;
+    }
+
+    private static int[] tokenKeys(Tokens tokens) {
+        int[] keys = new int[tokens.size()];
+        for (int t = 0; t < keys.length; t++) {
+            keys[t] = tokens.textHash(t) * 31 + tokens.kind(t).ordinal();
+        }
+        return keys;
+    }
+}
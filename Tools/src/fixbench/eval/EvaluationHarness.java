@@ -0,0 +1,432 @@
+package fixbench.eval;
+
+import fixbench.corpus.ContentHash;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.InstanceMetadata;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.PairInfoParser;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link TransformationTool} over a set of instances on a work-stealing pool. Instance cost
+ * is heavily skewed, from a few hundred lines to clojure's 8.6k-line {@code Compiler.java}, so
+ * tasks are forked largest source first: idle workers steal the oldest, i.e. largest, pending
+ * tasks while the forking worker drains the small ones. Each result is handed to the sink as soon
+ * as its instance finishes.
+ *
+ * <p>A tool that exceeds the per-instance timeout is interrupted and its instance is reported as
+ * {@link Verdict#TIMEOUT}; the worker then moves on to the next instance. The timeout relies on
+ * the interrupt alone: a tool that neither checks its interrupt status nor blocks in an
+ * interruptible call runs on until it returns, holding its worker, and is reported as a timeout
+ * only then. An instance whose files or {@code pair.info} cannot be read is reported as
+ * {@link Verdict#ERROR}. Incremental tools can be evaluated leave-one-out with
+ * {@link #runLeaveOneOut}.
+ *
+ * <p>Verdicts are reused for a candidate equal to one already verified against the same fixed
+ * source and diff. {@code All} and the two split views hold every change twice, and for a cheap
+ * tool verification is the most expensive phase, so this halves it; the verifier must therefore
+ * decide from those three contents alone.
+ */
+public final class EvaluationHarness {
+    private static final int RUNNING = 0;
+    private static final int FINISHED = 1;
+    private static final int TIMED_OUT = 2;
+    /** The alarm fired and its interrupt was delivered; only then may the worker clear it. */
+    private static final int INTERRUPTED = 3;
+    /** Smallest number of held-out instances worth a separate leave-one-out model. */
+    private static final int MIN_CHUNK = 32;
+
+    private final int parallelism;
+    private final Duration timeout;
+    private final Verifier verifier;
+    private final PerformanceMetrics metrics = new PerformanceMetrics();
+    private final PairInfoParser parser = new PairInfoParser();
+    /** Verdicts by fixed source, diff and candidate content hash. */
+    private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+    public EvaluationHarness(int parallelism, Duration timeout) {
+        this(parallelism, timeout, Verifier.NORMALIZED);
+    }
+
+    public EvaluationHarness(int parallelism, Duration timeout, Verifier verifier) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+        this.verifier = verifier;
+    }
+
+    /**
+     * Evaluates {@code tool} on every instance. The sink is called concurrently from worker
+     * threads and must be thread-safe.
+     */
+    public Summary run(List<CorpusInstance> instances, TransformationTool tool,
+            Consumer<InstanceResult> sink) {
+        Map<String, List<CorpusInstance>> folders = folders(instances);
+        List<CorpusInstance> ordered = new ArrayList<>(instances);
+        ordered.sort(Comparator.comparingLong(EvaluationHarness::cost).reversed());
+        List<Job> jobs = new ArrayList<>(ordered.size());
+        for (CorpusInstance instance : ordered) {
+            List<CorpusInstance> examples = without(folders.get(folderOf(instance)), instance);
+            jobs.add((watchdog, summary) -> {
+                try {
+                    String failure = load(instance, tool.name());
+                    emit(summary, sink, failure != null
+                            ? result(instance, tool.name(), Verdict.ERROR, 0, 0, null, failure)
+                            : evaluate(instance, tool.name(), () -> tool.apply(instance, examples), watchdog));
+                } finally {
+                    Phases.exit();
+                }
+            });
+        }
+        return schedule(jobs);
+    }
+
+    /**
+     * Leave-one-out evaluation of an incremental tool within each view and bug folder. A folder is
+     * split into at most {@code parallelism} chunks; each chunk learns the whole folder once, then
+     * holds out its instances one at a time by removing, applying and re-adding them. Large folders
+     * such as Genesis-NP thus cost a handful of full learns instead of one per instance.
+     *
+     * <p>An exception from {@code learn}, {@code remove} or {@code add} is reported as
+     * {@link Verdict#ERROR} of the instance being held out, or of every instance of the chunk if
+     * the folder cannot be learned. After a failed {@code remove} or {@code add} the model is
+     * relearned before the next instance. Only {@code apply} is subject to the timeout.
+     */
+    public <M> Summary runLeaveOneOut(List<CorpusInstance> instances, IncrementalTool<M> tool,
+            Consumer<InstanceResult> sink) {
+        List<List<CorpusInstance>> chunks = new ArrayList<>();
+        List<List<CorpusInstance>> chunkFolders = new ArrayList<>();
+        for (List<CorpusInstance> folder : folders(instances).values()) {
+            int count = Math.max(1, Math.min(parallelism, folder.size() / MIN_CHUNK));
+            for (int c = 0; c < count; c++) {
+                chunks.add(folder.subList(c * folder.size() / count, (c + 1) * folder.size() / count));
+                chunkFolders.add(folder);
+            }
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < chunks.size(); c++) {
+            order.add(c);
+        }
+        order.sort(Comparator.comparingLong((Integer c) -> chunkCost(chunkFolders.get(c), chunks.get(c)))
+                .reversed());
+        List<Job> jobs = new ArrayList<>(chunks.size());
+        for (int c : order) {
+            List<CorpusInstance> folder = chunkFolders.get(c);
+            List<CorpusInstance> chunk = chunks.get(c);
+            jobs.add((watchdog, summary) -> {
+                M model = null;
+                Throwable learnFailure = null;
+                for (CorpusInstance target : chunk) {
+                    if (model == null && learnFailure == null) {
+                        try {
+                            model = learn(tool, folder);
+                        } catch (RuntimeException | StackOverflowError e) {
+                            learnFailure = e;
+                        }
+                    }
+                    try {
+                        InstanceResult result;
+                        String loadFailure = load(target, tool.name());
+                        if (loadFailure != null) {
+                            result = result(target, tool.name(), Verdict.ERROR, 0, 0, null, loadFailure);
+                        } else if (model == null) {
+                            result = result(target, tool.name(), Verdict.ERROR, 0, 0, null,
+                                    String.valueOf(learnFailure));
+                        } else {
+                            try {
+                                result = holdOut(tool, model, target, watchdog);
+                            } catch (RuntimeException | StackOverflowError e) {
+                                // The model may be half updated; relearn it for the next instance.
+                                model = null;
+                                result = result(target, tool.name(), Verdict.ERROR, 0, 0, null, String.valueOf(e));
+                            }
+                        }
+                        emit(summary, sink, result);
+                    } finally {
+                        Phases.exit();
+                    }
+                }
+            });
+        }
+        return schedule(jobs);
+    }
+
+    /**
+     * Time and allocation of every phase of this harness's runs so far, including spans that tools
+     * open with {@link Phases#start}.
+     */
+    public PerformanceMetrics metrics() {
+        return metrics;
+    }
+
+    /** Learns a leave-one-out model, attributing the time to the bug folder. */
+    private <M> M learn(IncrementalTool<M> tool, List<CorpusInstance> folder) {
+        Phases.enter(metrics, null, folderOf(folder.get(0)), null, tool.name());
+        Phases.Span span = Phases.start(Phase.LEARN);
+        try {
+            return tool.learn(folder);
+        } finally {
+            span.close();
+            Phases.exit();
+        }
+    }
+
+    /** Removes {@code target} from the model, applies the model to it and adds it back. */
+    private <M> InstanceResult holdOut(IncrementalTool<M> tool, M model, CorpusInstance target,
+            ScheduledThreadPoolExecutor watchdog) {
+        Phases.Span retract = Phases.start(Phase.LEARN);
+        try {
+            tool.remove(model, target);
+        } finally {
+            retract.close();
+        }
+        InstanceResult result = evaluate(target, tool.name(), () -> tool.apply(model, target), watchdog);
+        Phases.Span restore = Phases.start(Phase.LEARN);
+        try {
+            tool.add(model, target);
+        } finally {
+            restore.close();
+        }
+        return result;
+    }
+
+    /**
+     * Attributes the current thread's phases to {@code instance} until {@link Phases#exit} and
+     * reads its files, so that reading a directory corpus is not counted as the tool's time.
+     *
+     * @return {@code null}, or the failure to read the instance, to be reported as its error
+     */
+    private String load(CorpusInstance instance, String tool) {
+        Phases.enter(metrics, instance.key(), folderOf(instance), null, tool);
+        Phases.Span span = Phases.start(Phase.LOAD);
+        try {
+            instance.members();
+            InstanceMetadata meta = parser.parse(instance);
+            Phases.repository(meta == null ? null : meta.repoName());
+            return null;
+        } catch (RuntimeException | StackOverflowError e) {
+            return String.valueOf(e);
+        } finally {
+            span.close();
+        }
+    }
+
+    /** Runs the jobs on a fresh work-stealing pool, forking them in the given order. */
+    private Summary schedule(List<Job> jobs) {
+        Summary summary = new Summary();
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "fixbench-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    List<ForkJoinTask<?>> tasks = new ArrayList<>(jobs.size());
+                    for (Job job : jobs) {
+                        tasks.add(ForkJoinTask.adapt(() -> job.run(watchdog, summary)).fork());
+                    }
+                    for (ForkJoinTask<?> task : tasks) {
+                        task.join();
+                    }
+                }
+            });
+        } finally {
+            pool.shutdown();
+            watchdog.shutdownNow();
+        }
+        summary.wallNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private static void emit(Summary summary, Consumer<InstanceResult> sink, InstanceResult result) {
+        summary.add(result);
+        sink.accept(result);
+    }
+
+    private InstanceResult evaluate(CorpusInstance instance, String tool, Callable<ByteBuffer> attempt,
+            ScheduledThreadPoolExecutor watchdog) {
+        Thread worker = Thread.currentThread();
+        AtomicInteger state = new AtomicInteger(RUNNING);
+        ScheduledFuture<?> alarm = watchdog.schedule(() -> {
+            if (state.compareAndSet(RUNNING, TIMED_OUT)) {
+                worker.interrupt();
+                state.set(INTERRUPTED);
+            }
+        }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+
+        ByteBuffer candidate = null;
+        Throwable failure = null;
+        Phases.Span apply = Phases.start(Phase.APPLY);
+        try {
+            candidate = attempt.call();
+        } catch (Exception | StackOverflowError e) {
+            failure = e;
+        } finally {
+            apply.close();
+        }
+        long elapsed = apply.nanos();
+        long allocated = apply.allocatedBytes();
+        alarm.cancel(false);
+        if (!state.compareAndSet(RUNNING, FINISHED)) {
+            // The alarm fired. Wait until its interrupt has landed, then clear it, so that it does
+            // not leak into the next instance; cancel() does not wait for a running alarm.
+            while (state.get() != INTERRUPTED) {
+                Thread.onSpinWait();
+            }
+            Thread.interrupted();
+            return result(instance, tool, Verdict.TIMEOUT, elapsed, allocated, null, null);
+        }
+        if (failure != null) {
+            return result(instance, tool, Verdict.ERROR, elapsed, allocated, null, String.valueOf(failure));
+        }
+        if (candidate == null) {
+            return result(instance, tool, Verdict.NO_OUTPUT, elapsed, allocated, null, null);
+        }
+        Verdict verdict;
+        Phases.Span verify = Phases.start(Phase.VERIFY);
+        try {
+            verdict = reproduces(instance, candidate) ? Verdict.REPRODUCED : Verdict.DIFFERENT;
+        } finally {
+            verify.close();
+        }
+        return result(instance, tool, verdict, elapsed, allocated, candidate, null);
+    }
+
+    /** Verifies a candidate, or takes the verdict of an identical one of another instance. */
+    private boolean reproduces(CorpusInstance instance, ByteBuffer candidate) {
+        Member expected = instance.newSource();
+        if (expected == null) {
+            return verifier.reproduces(instance, candidate);
+        }
+        Member diff = instance.member(MemberKind.DIFF);
+        String key = ContentHash.toHex(expected.hash()) + (diff == null ? "-" : ContentHash.toHex(diff.hash()))
+                + ContentHash.toHex(ContentHash.of(candidate));
+        Boolean verdict = verdicts.get(key);
+        if (verdict == null) {
+            verdict = verifier.reproduces(instance, candidate);
+            verdicts.put(key, verdict);
+        }
+        return verdict;
+    }
+
+    private static InstanceResult result(CorpusInstance instance, String tool, Verdict verdict,
+            long elapsed, long allocated, ByteBuffer candidate, String error) {
+        return new InstanceResult(instance.key(), instance.category(), tool, verdict, elapsed, allocated,
+                candidate, error);
+    }
+
+    private static Map<String, List<CorpusInstance>> folders(List<CorpusInstance> instances) {
+        Map<String, List<CorpusInstance>> folders = new LinkedHashMap<>();
+        for (CorpusInstance instance : instances) {
+            folders.computeIfAbsent(folderOf(instance), k -> new ArrayList<>()).add(instance);
+        }
+        return folders;
+    }
+
+    private static String folderOf(CorpusInstance instance) {
+        return instance.view().folder() + '/' + instance.category();
+    }
+
+    /** Size of the buggy source; an instance that cannot be read fails later, in {@link #load}. */
+    private static long cost(CorpusInstance instance) {
+        try {
+            Member source = instance.oldSource();
+            return source == null ? 0 : source.size();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /** A chunk learns its whole folder once and then applies to each of its own instances. */
+    private static long chunkCost(List<CorpusInstance> folder, List<CorpusInstance> chunk) {
+        long cost = 0;
+        for (CorpusInstance instance : folder) {
+            cost += cost(instance);
+        }
+        for (CorpusInstance instance : chunk) {
+            cost += cost(instance);
+        }
+        return cost;
+    }
+
+    /** The folder's instances except {@code target}, without copying the list. */
+    static List<CorpusInstance> without(List<CorpusInstance> folder, CorpusInstance target) {
+        int skip = folder.indexOf(target);
+        return new AbstractList<CorpusInstance>() {
+            @Override
+            public CorpusInstance get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return folder.get(index < skip ? index : index + 1);
+            }
+
+            @Override
+            public int size() {
+                return skip < 0 ? folder.size() : folder.size() - 1;
+            }
+        };
+    }
+
+    /** A unit of scheduled work: one instance, or one leave-one-out chunk. */
+    private interface Job {
+        void run(ScheduledThreadPoolExecutor watchdog, Summary summary);
+    }
+
+    /** Verdict counts of a run. */
+    public static final class Summary {
+        private final Map<Verdict, Integer> counts = new EnumMap<>(Verdict.class);
+        private long wallNanos;
+
+        synchronized void add(InstanceResult result) {
+            counts.merge(result.verdict(), 1, Integer::sum);
+        }
+
+        public synchronized int count(Verdict verdict) {
+            return counts.getOrDefault(verdict, 0);
+        }
+
+        public synchronized int total() {
+            int total = 0;
+            for (int count : counts.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return total() + " instances in " + wallNanos / 1_000_000 + " ms " + counts;
+        }
+    }
+}
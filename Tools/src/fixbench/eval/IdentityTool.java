@@ -0,0 +1,21 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/** Baseline tool that returns the buggy source unchanged. */
+public final class IdentityTool implements TransformationTool {
+
+    @Override
+    public String name() {
+        return "identity";
+    }
+
+    @Override
+    public ByteBuffer apply(CorpusInstance target, List<CorpusInstance> examples) {
+        Member source = target.oldSource();
+        return source == null ? null : source.content();
+    }
+}
@@ -0,0 +1,52 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A learning tool whose model can retract and re-add single examples. Leave-one-out evaluation
+ * then learns each bug folder once and, per held-out instance, only removes and restores that
+ * instance's contribution, instead of relearning from the other n - 1 examples n times.
+ *
+ * <p>A model is only used by one thread at a time, but different models of the same tool may be
+ * used concurrently.
+ *
+ * @param <M> the learned model
+ */
+public interface IncrementalTool<M> {
+
+    String name();
+
+    /** Learns a model from all {@code examples}. */
+    M learn(List<CorpusInstance> examples);
+
+    /** Retracts the contribution of an example that was learned before. */
+    void remove(M model, CorpusInstance example);
+
+    /** Restores the contribution of an example that was removed before. */
+    void add(M model, CorpusInstance example);
+
+    /**
+     * Transforms the buggy source of {@code target} with the model; must not modify the model.
+     *
+     * @return the candidate fixed source, or {@code null} if the tool makes no change
+     */
+    ByteBuffer apply(M model, CorpusInstance target) throws Exception;
+
+    /** Adapts this tool to relearn from scratch for every instance, the baseline of the protocol. */
+    default TransformationTool fromScratch() {
+        IncrementalTool<M> tool = this;
+        return new TransformationTool() {
+            @Override
+            public String name() {
+                return tool.name() + "-scratch";
+            }
+
+            @Override
+            public ByteBuffer apply(CorpusInstance target, List<CorpusInstance> examples) throws Exception {
+                return tool.apply(tool.learn(examples), target);
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package fixbench.eval;
+
+import java.nio.ByteBuffer;
+
+/** Result of one tool on one instance, as streamed by {@link EvaluationHarness}. */
+public final class InstanceResult {
+    private final String key;
+    private final String category;
+    private final String tool;
+    private final Verdict verdict;
+    private final long wallNanos;
+    private final long allocatedBytes;
+    private final ByteBuffer candidate;
+    private final String error;
+
+    public InstanceResult(String key, String category, String tool, Verdict verdict, long wallNanos,
+            long allocatedBytes, ByteBuffer candidate, String error) {
+        this.key = key;
+        this.category = category;
+        this.tool = tool;
+        this.verdict = verdict;
+        this.wallNanos = wallNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.candidate = candidate;
+        this.error = error;
+    }
+
+    /** Path of the instance relative to the benchmark root. */
+    public String key() {
+        return key;
+    }
+
+    public String category() {
+        return category;
+    }
+
+    public String tool() {
+        return tool;
+    }
+
+    public Verdict verdict() {
+        return verdict;
+    }
+
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    /** Bytes the tool allocated on its worker thread, or {@code -1} if the VM does not count them. */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /** The tool's output, or {@code null} if there is none. */
+    public ByteBuffer candidate() {
+        return candidate == null ? null : candidate.duplicate();
+    }
+
+    /** Exception message for {@link Verdict#ERROR}, otherwise {@code null}. */
+    public String error() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return key + '\t' + tool + '\t' + verdict + '\t' + wallNanos / 1_000_000 + "ms"
+                + (error == null ? "" : '\t' + error);
+    }
+}
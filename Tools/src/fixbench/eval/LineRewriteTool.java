@@ -0,0 +1,154 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.diff.Hunk;
+import fixbench.diff.UnifiedDiffParser;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Baseline incremental tool that learns single-line rewrites. Every hunk that replaces exactly one
+ * line containing a letter contributes a rule from the trimmed removed line to the added lines; applying the model
+ * rewrites each line of the target that some rule matches, choosing the most frequent rewrite.
+ * Rules are reference counted, so removing an example is the exact inverse of adding it.
+ */
+public final class LineRewriteTool implements IncrementalTool<LineRewriteTool.Model> {
+
+    /** Rewrite counts per trimmed buggy line. */
+    public static final class Model {
+        private final Map<String, Map<String, Integer>> rules = new HashMap<>();
+
+        public int size() {
+            return rules.size();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "line-rewrite";
+    }
+
+    @Override
+    public Model learn(List<CorpusInstance> examples) {
+        Model model = new Model();
+        for (CorpusInstance example : examples) {
+            add(model, example);
+        }
+        return model;
+    }
+
+    @Override
+    public void remove(Model model, CorpusInstance example) {
+        for (String[] rule : rules(example)) {
+            Map<String, Integer> rewrites = model.rules.get(rule[0]);
+            if (rewrites == null) {
+                continue;
+            }
+            rewrites.computeIfPresent(rule[1], (k, count) -> count == 1 ? null : count - 1);
+            if (rewrites.isEmpty()) {
+                model.rules.remove(rule[0]);
+            }
+        }
+    }
+
+    @Override
+    public void add(Model model, CorpusInstance example) {
+        for (String[] rule : rules(example)) {
+            model.rules.computeIfAbsent(rule[0], k -> new HashMap<>()).merge(rule[1], 1, Integer::sum);
+        }
+    }
+
+    @Override
+    public ByteBuffer apply(Model model, CorpusInstance target) {
+        Member source = target.oldSource();
+        if (source == null || model.rules.isEmpty()) {
+            return null;
+        }
+        String text = StandardCharsets.UTF_8.decode(source.content()).toString();
+        StringBuilder out = new StringBuilder(text.length() + 64);
+        boolean changed = false;
+        int line = 0;
+        while (line < text.length()) {
+            int end = text.indexOf('\n', line);
+            end = end < 0 ? text.length() : end + 1;
+            int contentEnd = end;
+            while (contentEnd > line && (text.charAt(contentEnd - 1) == '\n' || text.charAt(contentEnd - 1) == '\r')) {
+                contentEnd--;
+            }
+            String content = text.substring(line, contentEnd);
+            String rewrite = best(model.rules.get(content.trim()));
+            if (rewrite == null) {
+                out.append(text, line, end);
+            } else {
+                String indent = content.substring(0, content.length() - content.stripLeading().length());
+                String newline = text.substring(contentEnd, end);
+                for (String added : rewrite.split("\n", -1)) {
+                    out.append(indent).append(added).append(newline.isEmpty() ? "\n" : newline);
+                }
+                if (newline.isEmpty()) {
+                    out.setLength(out.length() - 1);
+                }
+                changed = true;
+            }
+            line = end;
+        }
+        return changed ? ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8)) : null;
+    }
+
+    private static String best(Map<String, Integer> rewrites) {
+        if (rewrites == null) {
+            return null;
+        }
+        String best = null;
+        int bestCount = 0;
+        for (Map.Entry<String, Integer> rewrite : rewrites.entrySet()) {
+            int count = rewrite.getValue();
+            if (count > bestCount || (count == bestCount && rewrite.getKey().compareTo(best) < 0)) {
+                best = rewrite.getKey();
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /** Rules of an example as {@code {trimmed removed line, added lines relative to its indent}}. */
+    private static List<String[]> rules(CorpusInstance example) {
+        ByteBuffer diff = example.content(MemberKind.DIFF);
+        List<String[]> rules = new ArrayList<>();
+        if (diff == null) {
+            return rules;
+        }
+        List<Hunk> hunks;
+        Phases.Span parse = Phases.start(Phase.PARSE);
+        try {
+            hunks = UnifiedDiffParser.parse(diff);
+        } finally {
+            parse.close();
+        }
+        for (Hunk hunk : hunks) {
+            if (hunk.oldCount() != 1 || hunk.newCount() == 0) {
+                continue;
+            }
+            String removed = hunk.removedLines().get(0);
+            String indent = removed.substring(0, removed.length() - removed.stripLeading().length());
+            StringBuilder added = new StringBuilder();
+            for (String line : hunk.addedLines()) {
+                if (added.length() > 0) {
+                    added.append('\n');
+                }
+                added.append(line.startsWith(indent) ? line.substring(indent.length()) : line.strip());
+            }
+            // Lines without a letter, such as a lone closing brace, would match almost anywhere.
+            if (removed.chars().anyMatch(Character::isLetter)) {
+                rules.add(new String[] {removed.trim(), added.toString()});
+            }
+        }
+        return rules;
+    }
+}
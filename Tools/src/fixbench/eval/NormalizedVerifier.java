@@ -0,0 +1,301 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.diff.Hunk;
+import fixbench.diff.UnifiedDiffParser;
+import fixbench.java.Declaration;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.JavaLexer;
+import fixbench.java.NodeKind;
+import fixbench.java.SyntaxTree;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares a candidate with the fixed source as token streams, so that whitespace, comments, the
+ * order of imports and the case of number literals such as {@code 1L} do not matter. The two
+ * streams are matched from both ends; if they differ only inside one method, constructor or
+ * initializer that contains a hunk of the instance's diff, the two versions of it are compared
+ * as {@link SyntaxTree}s, where redundant parentheses and braces around a single statement in the
+ * body of an {@code if}, {@code else}, {@code for}, {@code while} or {@code do} do not matter
+ * either. A match therefore means equal up to these normalizations, not equal source.
+ */
+public final class NormalizedVerifier implements Verifier {
+    /** Markers of the normalized tree encoding; tokens are encoded by their non-negative index. */
+    private static final int END = -1;
+
+    @Override
+    public boolean reproduces(CorpusInstance instance, ByteBuffer candidate) {
+        Member expected = instance.newSource();
+        if (expected == null) {
+            return false;
+        }
+        ByteBuffer reference = expected.content();
+        if (reference.equals(candidate)) {
+            return true;
+        }
+        ByteBuffer diff = instance.content(MemberKind.DIFF);
+        return equivalent(reference, candidate,
+                diff == null ? Collections.emptyList() : UnifiedDiffParser.parse(diff));
+    }
+
+    /**
+     * Whether two sources are equivalent, falling back to a tree comparison only for a method that
+     * overlaps one of the hunks on their new side.
+     */
+    static boolean equivalent(ByteBuffer reference, ByteBuffer candidate, List<Hunk> hunks) {
+        Tokens a;
+        Tokens b;
+        Phases.Span lex = Phases.start(Phase.PARSE);
+        try {
+            a = JavaLexer.lex(reference);
+            b = JavaLexer.lex(candidate);
+        } finally {
+            lex.close();
+        }
+        int bodyA = headerEnd(a);
+        int bodyB = headerEnd(b);
+        if (!header(a, bodyA).equals(header(b, bodyB))) {
+            return false;
+        }
+        int prefix = 0;
+        while (bodyA + prefix < a.size() && bodyB + prefix < b.size()
+                && sameToken(a, bodyA + prefix, b, bodyB + prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.size() - bodyA - prefix && suffix < b.size() - bodyB - prefix
+                && sameToken(a, a.size() - 1 - suffix, b, b.size() - 1 - suffix)) {
+            suffix++;
+        }
+        if (bodyA + prefix + suffix == a.size() && bodyB + prefix + suffix == b.size()) {
+            return true;
+        }
+        // The differing tokens, with one shared token on each side so that an insertion has a place.
+        DeclarationIndex indexA = DeclarationIndex.of(a);
+        DeclarationIndex indexB = DeclarationIndex.of(b);
+        Declaration methodA = outermostCode(indexA, bodyA + prefix - 1, a.size() - suffix);
+        Declaration methodB = outermostCode(indexB, bodyB + prefix - 1, b.size() - suffix);
+        if (methodA == null || methodB == null || methodA.firstToken() - bodyA != methodB.firstToken() - bodyB
+                || a.size() - methodA.lastToken() != b.size() - methodB.lastToken()
+                || !touchesHunk(methodA, hunks)) {
+            return false;
+        }
+        SyntaxTree treeA;
+        SyntaxTree treeB;
+        Phases.Span parse = Phases.start(Phase.PARSE);
+        try {
+            treeA = SyntaxTree.of(indexA);
+            treeB = SyntaxTree.of(indexB);
+        } finally {
+            parse.close();
+        }
+        int nodeA = declarationNode(treeA, methodA);
+        int nodeB = declarationNode(treeB, methodB);
+        if (nodeA < 0 || nodeB < 0) {
+            return false;
+        }
+        int[] encodedA = encode(treeA, nodeA);
+        int[] encodedB = encode(treeB, nodeB);
+        if (encodedA.length != encodedB.length) {
+            return false;
+        }
+        for (int i = 0; i < encodedA.length; i++) {
+            int x = encodedA[i];
+            int y = encodedB[i];
+            if (x < 0 || y < 0 ? x != y : !sameToken(a, x, b, y)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameToken(Tokens a, int i, Tokens b, int j) {
+        if (a.kind(i) != b.kind(j)) {
+            return false;
+        }
+        if (a.sameText(i, b, j)) {
+            return true;
+        }
+        return a.kind(i) == TokenKind.NUMBER && a.text(i).equalsIgnoreCase(b.text(j));
+    }
+
+    /** Index of the first token after the package and import declarations. */
+    private static int headerEnd(Tokens tokens) {
+        int t = 0;
+        while (t < tokens.size() && (tokens.is(t, "package") || tokens.is(t, "import"))) {
+            while (t < tokens.size() && !tokens.is(t, ';')) {
+                t++;
+            }
+            t++;
+        }
+        return Math.min(t, tokens.size());
+    }
+
+    /** The package declaration followed by the sorted import declarations. */
+    private static List<String> header(Tokens tokens, int end) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder statement = new StringBuilder();
+        for (int t = 0; t < end; t++) {
+            statement.append(tokens.text(t)).append(' ');
+            if (tokens.is(t, ';')) {
+                statements.add(statement.toString());
+                statement.setLength(0);
+            }
+        }
+        if (!statements.isEmpty() && statements.get(0).startsWith("package ")) {
+            Collections.sort(statements.subList(1, statements.size()));
+        } else {
+            Collections.sort(statements);
+        }
+        return statements;
+    }
+
+    /** The outermost method, constructor or initializer covering tokens {@code from} to {@code to}. */
+    private static Declaration outermostCode(DeclarationIndex index, int from, int to) {
+        for (Declaration declaration : index.declarations()) {
+            if (declaration.isCode() && declaration.firstToken() <= from && to <= declaration.lastToken()) {
+                return declaration;
+            }
+        }
+        return null;
+    }
+
+    private static boolean touchesHunk(Declaration method, List<Hunk> hunks) {
+        for (Hunk hunk : hunks) {
+            if (hunk.newStart() <= method.endLine() && method.startLine() <= hunk.newEnd()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The tree node of a declaration, or {@code -1} if the tree nests it differently. */
+    private static int declarationNode(SyntaxTree tree, Declaration declaration) {
+        for (int node = tree.nodeOfToken(declaration.firstToken()); node >= 0; node = tree.parent(node)) {
+            if (tree.kind(node).isDeclaration() && tree.firstToken(node) == declaration.firstToken()) {
+                return node;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Preorder encoding of a subtree: a token by its index, an inner node by a negative marker of
+     * its kind, then its children, then {@link #END}.
+     */
+    private static int[] encode(SyntaxTree tree, int root) {
+        Encoding out = new Encoding();
+        encode(tree, root, out);
+        return Arrays.copyOf(out.values, out.size);
+    }
+
+    private static void encode(SyntaxTree tree, int node, Encoding out) {
+        NodeKind kind = tree.kind(node);
+        if (kind == NodeKind.TOKEN) {
+            out.add(tree.firstToken(node));
+            return;
+        }
+        if (kind == NodeKind.PARENS) {
+            int inner = onlyInnerChild(tree, node);
+            if (inner >= 0 && tree.kind(inner) == NodeKind.PARENS) {
+                encode(tree, inner, out);
+                return;
+            }
+        }
+        if (kind == NodeKind.BLOCK && isControlBody(tree, node)) {
+            int inner = onlyInnerChild(tree, node);
+            if (inner >= 0 && tree.kind(inner) == NodeKind.STATEMENT
+                    && !(tree.nextSibling(node) >= 0 && hasIf(tree, inner))) {
+                // The body of a control statement, braced or not. Without braces the statement
+                // ends at the body's semicolon, so an else or the while of a do starts a new one.
+                for (int child = tree.firstChild(inner); child >= 0; child = tree.nextSibling(child)) {
+                    encode(tree, child, out);
+                }
+                if (tree.nextSibling(node) >= 0) {
+                    out.add(END);
+                    out.add(-2 - NodeKind.STATEMENT.ordinal());
+                }
+                return;
+            }
+        }
+        out.add(-2 - kind.ordinal());
+        for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+            encode(tree, child, out);
+        }
+        out.add(END);
+    }
+
+    /**
+     * Whether a block is the body of an {@code if}, {@code for} or {@code while} after its
+     * condition, or of an {@code else} or {@code do}. Array initializers, lambda bodies and the
+     * blocks of {@code try}, {@code synchronized} and {@code switch} keep their braces.
+     */
+    private static boolean isControlBody(SyntaxTree tree, int block) {
+        int statement = tree.parent(block);
+        if (statement < 0 || tree.kind(statement) != NodeKind.STATEMENT) {
+            return false;
+        }
+        int beforePrevious = -1;
+        int previous = -1;
+        for (int child = tree.firstChild(statement); child != block; child = tree.nextSibling(child)) {
+            beforePrevious = previous;
+            previous = child;
+        }
+        if (previous < 0) {
+            return false;
+        }
+        Tokens tokens = tree.tokens();
+        if (tree.kind(previous) == NodeKind.TOKEN) {
+            int token = tree.firstToken(previous);
+            return tokens.is(token, "else") || tokens.is(token, "do");
+        }
+        if (tree.kind(previous) != NodeKind.PARENS || beforePrevious < 0
+                || tree.kind(beforePrevious) != NodeKind.TOKEN) {
+            return false;
+        }
+        int keyword = tree.firstToken(beforePrevious);
+        return tokens.is(keyword, "if") || tokens.is(keyword, "for") || tokens.is(keyword, "while");
+    }
+
+    /**
+     * Whether a statement has an {@code if} of its own, which would take the {@code else} after
+     * the braces if they were dropped.
+     */
+    private static boolean hasIf(SyntaxTree tree, int statement) {
+        for (int child = tree.firstChild(statement); child >= 0; child = tree.nextSibling(child)) {
+            if (tree.kind(child) == NodeKind.TOKEN && tree.tokens().is(tree.firstToken(child), "if")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The only child between the bracket tokens of a bracketed node, or {@code -1}. */
+    private static int onlyInnerChild(SyntaxTree tree, int node) {
+        int open = tree.firstChild(node);
+        int inner = open < 0 ? -1 : tree.nextSibling(open);
+        int close = inner < 0 ? -1 : tree.nextSibling(inner);
+        return close >= 0 && tree.nextSibling(close) < 0 && tree.kind(close) == NodeKind.TOKEN ? inner : -1;
+    }
+
+    /** Growable int array. */
+    private static final class Encoding {
+        int[] values = new int[256];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/** Sanity-check tool that answers with the reference fix; every instance must be reproduced. */
+public final class OracleTool implements TransformationTool {
+
+    @Override
+    public String name() {
+        return "oracle";
+    }
+
+    @Override
+    public ByteBuffer apply(CorpusInstance target, List<CorpusInstance> examples) {
+        Member source = target.newSource();
+        return source == null ? null : source.content();
+    }
+}
@@ -0,0 +1,148 @@
+package fixbench.eval;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wall time and allocation of an evaluation run per {@link Phase}, per instance and per
+ * repository, filled by the {@link Phases} spans of the harness and of the tool. Phase totals
+ * include nested spans, so a tool's parsing also appears within its apply time; instance and
+ * repository totals count only outermost spans. Thread-safe.
+ */
+public final class PerformanceMetrics {
+    private final Map<Phase, Stats> phases = new EnumMap<>(Phase.class);
+    private final Map<String, Stats> instances = new ConcurrentHashMap<>();
+    private final Map<String, Stats> repositories = new ConcurrentHashMap<>();
+
+    public PerformanceMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Stats(phase.name().toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    void record(Phase phase, String instance, String repository, long nanos, long allocated, boolean outermost) {
+        phases.get(phase).add(phase, nanos, allocated, true);
+        if (instance != null) {
+            instances.computeIfAbsent(instance, Stats::new).add(phase, nanos, allocated, outermost);
+        }
+        if (repository != null) {
+            repositories.computeIfAbsent(repository, Stats::new).add(phase, nanos, allocated, outermost);
+        }
+    }
+
+    public Stats phase(Phase phase) {
+        return phases.get(phase);
+    }
+
+    /** The {@code n} instances with the most wall time, slowest first. */
+    public List<Stats> slowestInstances(int n) {
+        return slowest(instances, n);
+    }
+
+    /** The {@code n} repositories with the most wall time over their instances, slowest first. */
+    public List<Stats> slowestRepositories(int n) {
+        return slowest(repositories, n);
+    }
+
+    private static List<Stats> slowest(Map<String, Stats> all, int n) {
+        List<Stats> sorted = new ArrayList<>(all.values());
+        sorted.sort(Comparator.comparingLong((Stats stats) -> stats.nanos()).reversed().thenComparing(Stats::name));
+        return sorted.subList(0, Math.min(n, sorted.size()));
+    }
+
+    /** Phase totals and the {@code n} slowest instances and repositories, as tab-separated tables. */
+    public String report(int n) {
+        StringBuilder out = new StringBuilder("phase\tspans\ttotal-ms\tmax-ms\talloc-mb\n");
+        for (Stats stats : phases.values()) {
+            if (stats.count() > 0) {
+                out.append(stats.name()).append('\t').append(stats.count()).append('\t')
+                        .append(millis(stats.nanos())).append('\t').append(millis(stats.maxNanos())).append('\t')
+                        .append(stats.allocatedBytes() >> 20).append('\n');
+            }
+        }
+        table(out, "instance", slowestInstances(n));
+        table(out, "repository", slowestRepositories(n));
+        return out.toString();
+    }
+
+    private static void table(StringBuilder out, String title, List<Stats> rows) {
+        out.append('\n').append(title).append("\ttotal-ms");
+        for (Phase phase : Phase.values()) {
+            out.append('\t').append(phase.name().toLowerCase(Locale.ROOT)).append("-ms");
+        }
+        out.append("\talloc-mb\n");
+        for (Stats stats : rows) {
+            out.append(stats.name()).append('\t').append(millis(stats.nanos()));
+            for (Phase phase : Phase.values()) {
+                out.append('\t').append(millis(stats.nanos(phase)));
+            }
+            out.append('\t').append(stats.allocatedBytes() >> 20).append('\n');
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+
+    /** Totals of one phase, instance or repository. */
+    public static final class Stats {
+        private final String name;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private int count;
+        private long nanos;
+        private long maxNanos;
+        private long allocatedBytes;
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(Phase phase, long spanNanos, long allocated, boolean outermost) {
+            phaseNanos[phase.ordinal()] += spanNanos;
+            if (outermost) {
+                count++;
+                nanos += spanNanos;
+                maxNanos = Math.max(maxNanos, spanNanos);
+                allocatedBytes += Math.max(0, allocated);
+            }
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /** Outermost spans. */
+        public synchronized int count() {
+            return count;
+        }
+
+        /** Wall time of the outermost spans. */
+        public synchronized long nanos() {
+            return nanos;
+        }
+
+        public synchronized long maxNanos() {
+            return maxNanos;
+        }
+
+        /** Wall time of one phase, including spans nested in other phases. */
+        public synchronized long nanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        /** Bytes allocated during the outermost spans, where the VM counts them. */
+        public synchronized long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return name + ": " + count + " spans, " + nanos / 1_000_000 + " ms";
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package fixbench.eval;
+
+/** Stages of evaluating a tool on an instance, as timed by {@link Phases}. */
+public enum Phase {
+    /** Reading the instance's files and {@code pair.info}. */
+    LOAD,
+    /** Lexing or parsing sources and diffs; usually nested in another phase. */
+    PARSE,
+    /** Building a model from examples, once per leave-one-out chunk. */
+    LEARN,
+    /** Running the tool on the held-out instance. */
+    APPLY,
+    /** Comparing the candidate with the fixed source. */
+    VERIFY
+}
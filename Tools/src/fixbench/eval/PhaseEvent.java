@@ -0,0 +1,34 @@
+package fixbench.eval;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Flight Recorder event of one {@link Phase}; the event's duration is the phase's wall time. */
+@Name("fixbench.Phase")
+@Label("Phase")
+@Category("FixBench")
+@Description("One phase of evaluating a tool on an instance")
+@StackTrace(false)
+final class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Instance")
+    @Description("Instance key, or the bug folder for a leave-one-out learn")
+    String instance;
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Tool")
+    String tool;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread during the phase, or -1")
+    @DataAmount
+    long allocated;
+}
@@ -0,0 +1,145 @@
+package fixbench.eval;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Times the {@link Phase}s of an evaluation. The harness opens spans for loading, learning,
+ * applying and verifying; tools may open their own, typically {@link Phase#PARSE}, which are then
+ * attributed to the instance the thread is evaluating:
+ *
+ * <pre>
+ * Phases.Span span = Phases.start(Phase.PARSE);
+ * try {
+ *     hunks = UnifiedDiffParser.parse(diff);
+ * } finally {
+ *     span.close();
+ * }
+ * </pre>
+ *
+ * Every span is committed as a {@code fixbench.Phase} Flight Recorder event when a recording is
+ * running, and added to the harness's {@link PerformanceMetrics}. Spans may nest; only the
+ * outermost ones count towards an instance's total.
+ */
+public final class Phases {
+    /** Per-thread allocation counter of HotSpot, or {@code null} on VMs without one. */
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationCounter();
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+
+    private Phases() {
+    }
+
+    /** Starts timing a phase on the current thread; close the span to end it. */
+    public static Span start(Phase phase) {
+        return new Span(phase, CONTEXT.get());
+    }
+
+    /**
+     * Attributes the current thread's spans to an instance, or with {@code instance == null} to the
+     * bug folder {@code folder} as a whole, until {@link #exit}.
+     */
+    static void enter(PerformanceMetrics metrics, String instance, String folder, String repository, String tool) {
+        CONTEXT.set(new Context(metrics, instance, folder, repository, tool));
+    }
+
+    /** Sets the repository of the current instance once its {@code pair.info} is read. */
+    static void repository(String repository) {
+        Context context = CONTEXT.get();
+        if (context != null) {
+            context.repository = repository;
+        }
+    }
+
+    static void exit() {
+        CONTEXT.remove();
+    }
+
+    /** Bytes allocated by the current thread so far, or {@code -1} if the VM does not count them. */
+    static long allocatedBytes() {
+        return ALLOCATION == null ? -1 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot;
+            }
+        }
+        return null;
+    }
+
+    /** What the spans of a thread are attributed to. Only touched by that thread. */
+    private static final class Context {
+        final PerformanceMetrics metrics;
+        final String instance;
+        final String folder;
+        final String tool;
+        String repository;
+        int depth;
+
+        Context(PerformanceMetrics metrics, String instance, String folder, String repository, String tool) {
+            this.metrics = metrics;
+            this.instance = instance;
+            this.folder = folder;
+            this.repository = repository;
+            this.tool = tool;
+        }
+    }
+
+    /** One timed phase. Closing it more than once has no further effect. */
+    public static final class Span implements AutoCloseable {
+        private final Phase phase;
+        private final Context context;
+        private final PhaseEvent event = new PhaseEvent();
+        private final boolean outermost;
+        private final long allocatedBefore;
+        private final long start;
+        private long nanos = -1;
+        private long allocated;
+
+        Span(Phase phase, Context context) {
+            this.phase = phase;
+            this.context = context;
+            this.outermost = context == null || context.depth++ == 0;
+            this.allocatedBefore = Phases.allocatedBytes();
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (nanos >= 0) {
+                return;
+            }
+            nanos = System.nanoTime() - start;
+            allocated = allocatedBefore < 0 ? -1 : Phases.allocatedBytes() - allocatedBefore;
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = phase.name();
+                if (context != null) {
+                    event.instance = context.instance != null ? context.instance : context.folder;
+                    event.repository = context.repository;
+                    event.tool = context.tool;
+                }
+                event.allocated = allocated;
+                event.commit();
+            }
+            if (context != null) {
+                context.depth--;
+                context.metrics.record(phase, context.instance, context.repository, nanos, allocated, outermost);
+            }
+        }
+
+        /** Wall time of the closed span. */
+        public long nanos() {
+            return nanos;
+        }
+
+        /** Bytes allocated by the thread during the closed span, or {@code -1}. */
+        public long allocatedBytes() {
+            return allocated;
+        }
+    }
+}
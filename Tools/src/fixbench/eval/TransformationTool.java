@@ -0,0 +1,26 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * An example-based transformation tool under evaluation. For each held-out instance the tool sees
+ * the other instances of the same bug folder as examples and transforms the held-out buggy source.
+ *
+ * <p>The harness calls {@link #apply} from several threads at once. Implementations should poll
+ * {@link Thread#interrupted()} in long loops so that per-instance timeouts take effect promptly.
+ */
+public interface TransformationTool {
+
+    String name();
+
+    /**
+     * Transforms the buggy source of {@code target}.
+     *
+     * @param target the held-out instance; only its old source may be used as input
+     * @param examples the other instances of the same view and bug folder, excluding {@code target}
+     * @return the candidate fixed source, or {@code null} if the tool makes no change
+     */
+    ByteBuffer apply(CorpusInstance target, List<CorpusInstance> examples) throws Exception;
+}
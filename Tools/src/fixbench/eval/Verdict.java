@@ -0,0 +1,16 @@
+package fixbench.eval;
+
+/** Outcome of running a tool on one instance. */
+public enum Verdict {
+    /**
+     * The verifier accepted the candidate: byte for byte with {@link Verifier#EXACT}, or up to the
+     * normalizations of {@link NormalizedVerifier} with the default verifier.
+     */
+    REPRODUCED,
+    /** The tool produced a candidate that differs from the fixed source. */
+    DIFFERENT,
+    /** The tool declined to transform the instance. */
+    NO_OUTPUT,
+    TIMEOUT,
+    ERROR
+}
@@ -0,0 +1,20 @@
+package fixbench.eval;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import java.nio.ByteBuffer;
+
+/** Decides whether a tool's candidate reproduces the reference fix of an instance. */
+public interface Verifier {
+
+    /** Byte-for-byte comparison with the fixed source. */
+    Verifier EXACT = (instance, candidate) -> {
+        Member expected = instance.newSource();
+        return expected != null && expected.content().equals(candidate);
+    };
+
+    /** Token-level comparison with the fixed source, see {@link NormalizedVerifier}. */
+    Verifier NORMALIZED = new NormalizedVerifier();
+
+    boolean reproduces(CorpusInstance instance, ByteBuffer candidate);
+}
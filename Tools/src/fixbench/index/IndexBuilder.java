@@ -0,0 +1,172 @@
+package fixbench.index;
+
+import fixbench.corpus.CleaningLog;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.InstanceMetadata;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.PairInfoParser;
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import fixbench.diff.UnifiedDiffParser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Builds an {@link InstanceIndex} from the benchmark folder tree. Given the previous index, only
+ * instances whose files changed since are read again; unchanged ones are recognized from file
+ * names, sizes and modification times alone. Every tier is indexed: discarded pairs from their
+ * folders, and instances removed by {@code data_clean.log} from the log alone.
+ */
+public final class IndexBuilder {
+    private final Path root;
+    private final PairInfoParser parser = new PairInfoParser();
+    private int reused;
+    private int rebuilt;
+
+    public IndexBuilder(Path root) {
+        this.root = root;
+    }
+
+    /** Builds a fresh index. */
+    public InstanceIndex build() throws IOException {
+        return build(null);
+    }
+
+    /** Builds an index, reusing entries of {@code previous} whose instance folders did not change. */
+    public InstanceIndex build(InstanceIndex previous) throws IOException {
+        Map<String, IndexEntry> old = new HashMap<>();
+        if (previous != null) {
+            for (IndexEntry entry : previous.entries()) {
+                old.put(entry.category() + '/' + entry.name(), entry);
+            }
+        }
+        Map<String, List<CorpusInstance>> groups = new LinkedHashMap<>();
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(root, EnumSet.allOf(View.class),
+                EnumSet.allOf(Tier.class))) {
+            for (CorpusInstance instance : corpus.instances()) {
+                groups.computeIfAbsent(instance.category() + '/' + instance.name(),
+                        k -> new ArrayList<>()).add(instance);
+            }
+        }
+        Map<String, Integer> excluded = excludedViews(CleaningLog.read(root), groups);
+        reused = 0;
+        rebuilt = 0;
+        List<IndexEntry> entries = new ArrayList<>(groups.size());
+        for (Map.Entry<String, List<CorpusInstance>> group : groups.entrySet()) {
+            List<CorpusInstance> occurrences = group.getValue();
+            long fingerprint = fingerprint(occurrences);
+            IndexEntry entry = old.get(group.getKey());
+            if (entry != null && entry.fingerprint() == fingerprint) {
+                reused++;
+            } else {
+                entry = read(occurrences, fingerprint);
+                rebuilt++;
+            }
+            entries.add(entry);
+        }
+        for (Map.Entry<String, Integer> removed : excluded.entrySet()) {
+            String key = removed.getKey();
+            int slash = key.indexOf('/');
+            entries.add(new IndexEntry(key.substring(0, slash), key.substring(slash + 1), null, null, 0, 0,
+                    removed.getValue(), Tier.EXCLUDED_MULTI_FIX, 0));
+        }
+        entries.sort((a, b) -> a.key().compareTo(b.key()));
+        return InstanceIndex.of(entries);
+    }
+
+    /** Entries taken over from the previous index by the last build. */
+    public int reused() {
+        return reused;
+    }
+
+    /** Entries read from disk by the last build. */
+    public int rebuilt() {
+        return rebuilt;
+    }
+
+    private IndexEntry read(List<CorpusInstance> occurrences, long fingerprint) {
+        CorpusInstance first = occurrences.get(0);
+        InstanceMetadata meta = parser.parse(first);
+        Member oldSource = first.oldSource();
+        return new IndexEntry(first.category(), first.name(),
+                meta == null ? null : meta.repoName(), meta == null ? null : meta.filePath(),
+                countHunks(first.content(MemberKind.DIFF)),
+                oldSource == null ? 0 : countLines(oldSource.content()), viewMask(occurrences),
+                first.tier(), fingerprint);
+    }
+
+    /** View masks of the logged instances that have no folder left, by {@code category/name}. */
+    private static Map<String, Integer> excludedViews(CleaningLog log, Map<String, List<CorpusInstance>> present) {
+        Map<String, Integer> views = new LinkedHashMap<>();
+        for (String key : log.excluded().keySet()) {
+            for (View view : View.values()) {
+                String prefix = view.folder() + '/';
+                if (key.startsWith(prefix)) {
+                    String instance = key.substring(prefix.length());
+                    if (!present.containsKey(instance)) {
+                        views.merge(instance, 1 << view.ordinal(), (a, b) -> a | b);
+                    }
+                    break;
+                }
+            }
+        }
+        return views;
+    }
+
+    private long fingerprint(List<CorpusInstance> occurrences) throws IOException {
+        long hash = 17;
+        for (CorpusInstance instance : occurrences) {
+            Path dir = root.resolve(instance.key());
+            hash = 31 * hash + instance.view().ordinal();
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                    if (Files.isRegularFile(file)) {
+                        hash = 31 * hash + dir.relativize(file).toString().hashCode();
+                        hash = 31 * hash + Files.size(file);
+                        hash = 31 * hash + Files.getLastModifiedTime(file).toMillis();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return hash;
+    }
+
+    private static int viewMask(List<CorpusInstance> occurrences) {
+        int mask = 0;
+        for (CorpusInstance instance : occurrences) {
+            mask |= 1 << instance.view().ordinal();
+        }
+        return mask;
+    }
+
+    private static int countHunks(ByteBuffer diff) {
+        return diff == null ? 0 : UnifiedDiffParser.count(diff);
+    }
+
+    static int countLines(ByteBuffer source) {
+        int lines = 0;
+        for (int i = source.position(); i < source.limit(); i++) {
+            if (source.get(i) == '\n') {
+                lines++;
+            }
+        }
+        if (source.limit() > source.position() && source.get(source.limit() - 1) != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,105 @@
+package fixbench.index;
+
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * One code change of the index. An instance that appears both in {@code All} and in a split view
+ * is a single entry whose {@link #views()} lists every view that contains it. Instances removed by
+ * {@code data_clean.log} are entries of their {@link #tier()} with neither repository nor counts,
+ * as their folders no longer exist.
+ */
+public final class IndexEntry {
+    private final String category;
+    private final String name;
+    private final String repoName;
+    private final String filePath;
+    private final int hunks;
+    private final int oldLines;
+    private final int viewMask;
+    private final Tier tier;
+    private final long fingerprint;
+
+    IndexEntry(String category, String name, String repoName, String filePath, int hunks,
+            int oldLines, int viewMask, Tier tier, long fingerprint) {
+        this.category = category;
+        this.name = name;
+        this.repoName = repoName;
+        this.filePath = filePath;
+        this.hunks = hunks;
+        this.oldLines = oldLines;
+        this.viewMask = viewMask;
+        this.tier = tier;
+        this.fingerprint = fingerprint;
+    }
+
+    public String category() {
+        return category;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String repoName() {
+        return repoName;
+    }
+
+    public String filePath() {
+        return filePath;
+    }
+
+    /** Number of {@code @@} hunks in {@code diff.diff}. */
+    public int hunks() {
+        return hunks;
+    }
+
+    /** Line count of the buggy Java source. */
+    public int oldLines() {
+        return oldLines;
+    }
+
+    public Set<View> views() {
+        EnumSet<View> views = EnumSet.noneOf(View.class);
+        for (View view : View.values()) {
+            if ((viewMask & (1 << view.ordinal())) != 0) {
+                views.add(view);
+            }
+        }
+        return views;
+    }
+
+    public boolean in(View view) {
+        return (viewMask & (1 << view.ordinal())) != 0;
+    }
+
+    public Tier tier() {
+        return tier;
+    }
+
+    int viewMask() {
+        return viewMask;
+    }
+
+    /** Hash over names, sizes and modification times of the entry's files in every view. */
+    long fingerprint() {
+        return fingerprint;
+    }
+
+    /** Path of the instance in its first view, relative to the benchmark root. */
+    public String key() {
+        for (View view : View.values()) {
+            if (in(view)) {
+                return view.folder() + '/' + category + '/' + name;
+            }
+        }
+        return category + '/' + name;
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
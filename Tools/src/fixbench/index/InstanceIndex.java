@@ -0,0 +1,261 @@
+package fixbench.index;
+
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import fixbench.io.ByteSink;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the benchmark instances. Repository, bug folder, file path, view and tier map
+ * to posting bitsets over entry ordinals; hunk and line counts are kept as columns. Selections are
+ * bitset intersections followed by a range scan and take microseconds. Built by
+ * {@link IndexBuilder}, persisted with {@link #save(Path)}.
+ */
+public final class InstanceIndex {
+    private static final int MAGIC = 0x46584958;
+    private static final int VERSION = 2;
+
+    private final List<IndexEntry> entries;
+    private final Map<String, BitSet> byRepo;
+    private final Map<String, BitSet> byCategory;
+    private final Map<String, BitSet> byPath;
+    private final BitSet[] byView;
+    private final BitSet[] byTier = new BitSet[Tier.values().length];
+    private final int[] hunks;
+    private final int[] oldLines;
+
+    private InstanceIndex(List<IndexEntry> entries, Map<String, BitSet> byRepo,
+            Map<String, BitSet> byCategory, Map<String, BitSet> byPath, BitSet[] byView) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.byRepo = byRepo;
+        this.byCategory = byCategory;
+        this.byPath = byPath;
+        this.byView = byView;
+        this.hunks = new int[entries.size()];
+        this.oldLines = new int[entries.size()];
+        for (int t = 0; t < byTier.length; t++) {
+            byTier[t] = new BitSet();
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            hunks[i] = entries.get(i).hunks();
+            oldLines[i] = entries.get(i).oldLines();
+            byTier[entries.get(i).tier().ordinal()].set(i);
+        }
+    }
+
+    /** Creates an index over {@code entries}, inverting them into posting lists. */
+    static InstanceIndex of(List<IndexEntry> entries) {
+        Map<String, BitSet> byRepo = new TreeMap<>();
+        Map<String, BitSet> byCategory = new TreeMap<>();
+        Map<String, BitSet> byPath = new TreeMap<>();
+        BitSet[] byView = new BitSet[View.values().length];
+        for (int v = 0; v < byView.length; v++) {
+            byView[v] = new BitSet();
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            IndexEntry entry = entries.get(i);
+            post(byRepo, entry.repoName(), i);
+            post(byCategory, entry.category(), i);
+            post(byPath, entry.filePath(), i);
+            for (View view : View.values()) {
+                if (entry.in(view)) {
+                    byView[view.ordinal()].set(i);
+                }
+            }
+        }
+        return new InstanceIndex(new ArrayList<>(entries), byRepo, byCategory, byPath, byView);
+    }
+
+    public List<IndexEntry> entries() {
+        return entries;
+    }
+
+    public IndexEntry entry(int ordinal) {
+        return entries.get(ordinal);
+    }
+
+    /** Returns the ordinals of the entries matching {@code query}. */
+    public BitSet select(Query query) {
+        BitSet result = new BitSet(entries.size());
+        result.set(0, entries.size());
+        intersect(result, byRepo, query.repoName);
+        intersect(result, byCategory, query.category);
+        intersect(result, byPath, query.filePath);
+        if (query.view != null) {
+            result.and(byView[query.view.ordinal()]);
+        }
+        if (query.tier != null) {
+            result.and(byTier[query.tier.ordinal()]);
+        }
+        boolean hunkRange = query.minHunks > 0 || query.maxHunks < Integer.MAX_VALUE;
+        boolean lineRange = query.minLines > 0 || query.maxLines < Integer.MAX_VALUE;
+        if (hunkRange || lineRange) {
+            for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+                if (hunks[i] < query.minHunks || hunks[i] > query.maxHunks
+                        || oldLines[i] < query.minLines || oldLines[i] > query.maxLines) {
+                    result.clear(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<IndexEntry> find(Query query) {
+        BitSet hits = select(query);
+        List<IndexEntry> result = new ArrayList<>(hits.cardinality());
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            result.add(entries.get(i));
+        }
+        return result;
+    }
+
+    /** Distinct repository names, in sorted order. */
+    public List<String> repos() {
+        return new ArrayList<>(byRepo.keySet());
+    }
+
+    public List<String> categories() {
+        return new ArrayList<>(byCategory.keySet());
+    }
+
+    /** Number of entries of a tier. */
+    public int count(Tier tier) {
+        return byTier[tier.ordinal()].cardinality();
+    }
+
+    /** Writes the index atomically, replacing any existing file. */
+    public void save(Path file) throws IOException {
+        ByteSink.writeAtomically(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (IndexEntry entry : entries) {
+                out.writeUTF(entry.category());
+                out.writeUTF(entry.name());
+                out.writeUTF(nonNull(entry.repoName()));
+                out.writeUTF(nonNull(entry.filePath()));
+                out.writeInt(entry.hunks());
+                out.writeInt(entry.oldLines());
+                out.writeInt(entry.viewMask());
+                out.writeByte(entry.tier().ordinal());
+                out.writeLong(entry.fingerprint());
+            }
+            writePostings(out, byRepo);
+            writePostings(out, byCategory);
+            writePostings(out, byPath);
+            for (BitSet view : byView) {
+                writeBits(out, view);
+            }
+        });
+    }
+
+    public static InstanceIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an instance index: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported index version " + version);
+            }
+            int count = in.readInt();
+            Tier[] tiers = Tier.values();
+            List<IndexEntry> entries = new ArrayList<>(count);
+            Map<String, String> strings = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String category = canonical(strings, in.readUTF());
+                String name = in.readUTF();
+                String repoName = nullable(canonical(strings, in.readUTF()));
+                String filePath = nullable(in.readUTF());
+                entries.add(new IndexEntry(category, name, repoName, filePath, in.readInt(),
+                        in.readInt(), in.readInt(), tiers[in.readByte()], in.readLong()));
+            }
+            Map<String, BitSet> byRepo = readPostings(in);
+            Map<String, BitSet> byCategory = readPostings(in);
+            Map<String, BitSet> byPath = readPostings(in);
+            BitSet[] byView = new BitSet[View.values().length];
+            for (int v = 0; v < byView.length; v++) {
+                byView[v] = readBits(in);
+            }
+            return new InstanceIndex(entries, byRepo, byCategory, byPath, byView);
+        }
+    }
+
+    private static void post(Map<String, BitSet> postings, String term, int ordinal) {
+        if (term != null) {
+            postings.computeIfAbsent(term, t -> new BitSet()).set(ordinal);
+        }
+    }
+
+    private static void intersect(BitSet result, Map<String, BitSet> postings, String term) {
+        if (term == null) {
+            return;
+        }
+        BitSet posting = postings.get(term);
+        if (posting == null) {
+            result.clear();
+        } else {
+            result.and(posting);
+        }
+    }
+
+    private static void writePostings(DataOutputStream out, Map<String, BitSet> postings)
+            throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<String, BitSet> posting : postings.entrySet()) {
+            out.writeUTF(posting.getKey());
+            writeBits(out, posting.getValue());
+        }
+    }
+
+    private static Map<String, BitSet> readPostings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        Map<String, BitSet> postings = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            postings.put(in.readUTF(), readBits(in));
+        }
+        return postings;
+    }
+
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private static BitSet readBits(DataInputStream in) throws IOException {
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static String canonical(Map<String, String> strings, String value) {
+        return strings.computeIfAbsent(value, v -> v);
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String nullable(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
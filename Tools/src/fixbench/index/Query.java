@@ -0,0 +1,74 @@
+package fixbench.index;
+
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+
+/**
+ * Conjunctive selection over an {@link InstanceIndex}. Queries are immutable; each refinement
+ * returns a new query.
+ */
+public final class Query {
+    private static final Query ALL = new Query(null, null, null, null, null, 0, Integer.MAX_VALUE, 0,
+            Integer.MAX_VALUE);
+
+    final String repoName;
+    final String category;
+    final String filePath;
+    final View view;
+    final Tier tier;
+    final int minHunks;
+    final int maxHunks;
+    final int minLines;
+    final int maxLines;
+
+    private Query(String repoName, String category, String filePath, View view, Tier tier, int minHunks,
+            int maxHunks, int minLines, int maxLines) {
+        this.repoName = repoName;
+        this.category = category;
+        this.filePath = filePath;
+        this.view = view;
+        this.tier = tier;
+        this.minHunks = minHunks;
+        this.maxHunks = maxHunks;
+        this.minLines = minLines;
+        this.maxLines = maxLines;
+    }
+
+    /** Matches every entry, whatever its tier. */
+    public static Query all() {
+        return ALL;
+    }
+
+    public Query repo(String repoName) {
+        return new Query(repoName, category, filePath, view, tier, minHunks, maxHunks, minLines, maxLines);
+    }
+
+    /** Restricts to a bug folder, e.g. {@code Genesis-NP}. */
+    public Query category(String category) {
+        return new Query(repoName, category, filePath, view, tier, minHunks, maxHunks, minLines, maxLines);
+    }
+
+    /** Restricts to an exact repository-relative path of the changed file. */
+    public Query path(String filePath) {
+        return new Query(repoName, category, filePath, view, tier, minHunks, maxHunks, minLines, maxLines);
+    }
+
+    public Query view(View view) {
+        return new Query(repoName, category, filePath, view, tier, minHunks, maxHunks, minLines, maxLines);
+    }
+
+    /** Restricts to clean, excluded or discarded instances. */
+    public Query tier(Tier tier) {
+        return new Query(repoName, category, filePath, view, tier, minHunks, maxHunks, minLines, maxLines);
+    }
+
+    /** Restricts the number of hunks to {@code [min, max]}. */
+    public Query hunks(int min, int max) {
+        return new Query(repoName, category, filePath, view, tier, min, max, minLines, maxLines);
+    }
+
+    /** Restricts the line count of the buggy file to {@code [min, max]}. */
+    public Query oldLines(int min, int max) {
+        return new Query(repoName, category, filePath, view, tier, minHunks, maxHunks, min, max);
+    }
+}
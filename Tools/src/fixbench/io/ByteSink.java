@@ -0,0 +1,191 @@
+package fixbench.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Growable big-endian byte buffer for building the tools' binary files, with LEB128 varints for
+ * the many small numbers they hold.
+ */
+public final class ByteSink {
+    private byte[] bytes;
+    private int size;
+
+    public ByteSink() {
+        this(256);
+    }
+
+    public ByteSink(int capacity) {
+        bytes = new byte[Math.max(16, capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public ByteSink putByte(int value) {
+        ensure(1);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public ByteSink putInt(int value) {
+        ensure(4);
+        bytes[size++] = (byte) (value >>> 24);
+        bytes[size++] = (byte) (value >>> 16);
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public ByteSink putLong(long value) {
+        putInt((int) (value >>> 32));
+        return putInt((int) value);
+    }
+
+    /** Overwrites four bytes at {@code offset}, e.g. to patch a header after the body is known. */
+    public ByteSink setInt(int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+        return this;
+    }
+
+    /** Writes an unsigned LEB128 varint; negative values take five bytes. */
+    public ByteSink putVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7f) != 0) {
+            bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public ByteSink putVarlong(long value) {
+        ensure(10);
+        while ((value & ~0x7fL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /** Writes a varint length followed by UTF-8 bytes. */
+    public ByteSink putString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        putVarint(utf8.length);
+        return put(utf8, 0, utf8.length);
+    }
+
+    public ByteSink put(byte[] src, int offset, int length) {
+        ensure(length);
+        System.arraycopy(src, offset, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    public ByteSink put(ByteBuffer src) {
+        ByteBuffer copy = src.duplicate();
+        ensure(copy.remaining());
+        int length = copy.remaining();
+        copy.get(bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    /** A buffer over the written bytes, without copying. */
+    public ByteBuffer toBuffer() {
+        return ByteBuffer.wrap(bytes, 0, size);
+    }
+
+    /** Writes the bytes to a temporary sibling and moves it over {@code file} atomically. */
+    public void writeAtomically(Path file) throws IOException {
+        writeAtomically(file, out -> out.write(bytes, 0, size));
+    }
+
+    /**
+     * Writes a file through {@code body} to a temporary sibling and moves it over {@code file}
+     * atomically, so readers see either the old file or all of the new one. {@code file} may be a
+     * bare file name. The file gets the permissions of any newly created file, as the umask allows;
+     * {@link Files#createTempFile} would make it readable by its owner only.
+     */
+    public static void writeAtomically(Path file, Body body) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path tmp;
+        OutputStream stream;
+        while (true) {
+            tmp = absolute.resolveSibling(absolute.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                stream = Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // Another writer's temporary file; draw another name.
+            }
+        }
+        try {
+            try (OutputStream out = new BufferedOutputStream(stream)) {
+                body.writeTo(out);
+            }
+            Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static int readVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    public static long readVarlong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    public static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+
+    /** Writes the content of a file saved by {@link #writeAtomically(Path, Body)}. */
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,193 @@
+package fixbench.java;
+
+import fixbench.io.ByteSink;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Syntax tree loaded from a {@link SyntaxTreeCache} entry. Nothing is decoded up front: the
+ * token table, the skeleton and each method body are read from the entry when first asked for,
+ * so looking at one method of a large file costs that method plus the token table.
+ */
+public final class CachedSyntaxTree {
+    private static final TokenKind[] TOKEN_KINDS = TokenKind.values();
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+
+    private final ByteBuffer data;
+    private final ByteBuffer source;
+    private final int chunkCount;
+    private final int chunksStart;
+    private String[] strings;
+    private Tokens tokens;
+    private SyntaxTree skeleton;
+
+    private CachedSyntaxTree(ByteBuffer data, ByteBuffer source) {
+        this.data = data;
+        this.source = source;
+        this.chunkCount = data.getInt(SyntaxTreeCodec.OFF_CHUNK_COUNT);
+        this.chunksStart = data.getInt(SyntaxTreeCodec.OFF_CHUNKS) + 4 * (chunkCount + 1);
+    }
+
+    /**
+     * Wraps an encoded entry for the given source, which must be the buffer the tree was built
+     * from (same content and position).
+     */
+    static CachedSyntaxTree open(ByteBuffer data, ByteBuffer source) throws IOException {
+        data = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (data.remaining() < SyntaxTreeCodec.HEADER_SIZE) {
+            throw new IOException("Truncated syntax tree entry");
+        }
+        data = data.slice();
+        for (int i = 0; i < SyntaxTreeCodec.MAGIC.length; i++) {
+            if (data.get(i) != SyntaxTreeCodec.MAGIC[i]) {
+                throw new IOException("Not a syntax tree entry");
+            }
+        }
+        int version = data.getInt(SyntaxTreeCodec.OFF_VERSION);
+        if (version != SyntaxTreeCodec.VERSION) {
+            throw new IOException("Unsupported syntax tree version " + version);
+        }
+        if (data.getInt(SyntaxTreeCodec.OFF_SOURCE_LENGTH) != source.remaining()) {
+            throw new IOException("Syntax tree entry does not match its source");
+        }
+        CachedSyntaxTree tree = new CachedSyntaxTree(data, source);
+        if (tree.chunksStart > data.limit() || tree.chunksStart + tree.chunkEnd(tree.chunkCount - 1) > data.limit()) {
+            throw new IOException("Truncated syntax tree entry");
+        }
+        return tree;
+    }
+
+    public synchronized Tokens tokens() {
+        if (tokens == null) {
+            ByteBuffer in = section(SyntaxTreeCodec.OFF_LINES);
+            int[] lineStarts = new int[data.getInt(SyntaxTreeCodec.OFF_LINE_COUNT)];
+            int offset = 0;
+            for (int line = 0; line < lineStarts.length; line++) {
+                offset += ByteSink.readVarint(in);
+                lineStarts[line] = offset;
+            }
+            int count = data.getInt(SyntaxTreeCodec.OFF_TOKEN_COUNT);
+            Tokens decoded = new Tokens(source, Math.max(16, count), lineStarts);
+            in = section(SyntaxTreeCodec.OFF_TOKENS);
+            int previousEnd = lineStarts.length == 0 ? 0 : lineStarts[0];
+            int line = 1;
+            for (int t = 0; t < count; t++) {
+                TokenKind kind = TOKEN_KINDS[in.get()];
+                int start = previousEnd + ByteSink.readVarint(in);
+                int end = start + ByteSink.readVarint(in);
+                while (line < lineStarts.length && lineStarts[line] <= start) {
+                    line++;
+                }
+                decoded.add(kind, start, end, line);
+                previousEnd = end;
+            }
+            tokens = decoded;
+        }
+        return tokens;
+    }
+
+    /**
+     * The file's tree with every method and initializer reduced to a childless node spanning its
+     * tokens. The i-th such node in preorder is the root of {@link #method(int) method(i)}.
+     */
+    public synchronized SyntaxTree skeleton() {
+        if (skeleton == null) {
+            skeleton = decode(0, false);
+        }
+        return skeleton;
+    }
+
+    /** Number of methods and initializers, each stored and loadable on its own. */
+    public int methodCount() {
+        return chunkCount - 1;
+    }
+
+    /** The tree of one method or initializer, rooted at its declaration node. */
+    public SyntaxTree method(int index) {
+        if (index < 0 || index >= methodCount()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return decode(index + 1, false);
+    }
+
+    /** The complete tree, identical to the one the entry was built from. */
+    public SyntaxTree tree() {
+        return decode(0, true);
+    }
+
+    private SyntaxTree decode(int chunk, boolean expand) {
+        ByteBuffer in = chunk(chunk);
+        int capacity = expand ? data.getInt(SyntaxTreeCodec.OFF_NODE_COUNT) : ByteSink.readVarint(in);
+        if (expand) {
+            ByteSink.readVarint(in);
+        }
+        SyntaxTree tree = new SyntaxTree(tokens(), Math.max(1, capacity));
+        int[] token = {ByteSink.readVarint(in)};
+        node(in, tree, -1, token, expand);
+        return tree;
+    }
+
+    private void node(ByteBuffer in, SyntaxTree tree, int parent, int[] token, boolean expand) {
+        int tag = in.get() & 0xff;
+        NodeKind kind = NODE_KINDS[tag & ~SyntaxTreeCodec.STUB];
+        if (kind == NodeKind.TOKEN) {
+            tree.add(kind, parent, token[0], token[0], null);
+            token[0]++;
+            return;
+        }
+        if ((tag & SyntaxTreeCodec.STUB) != 0) {
+            String name = string(ByteSink.readVarint(in));
+            int chunk = ByteSink.readVarint(in);
+            int span = ByteSink.readVarint(in);
+            if (expand) {
+                ByteBuffer body = chunk(chunk);
+                ByteSink.readVarint(body);
+                ByteSink.readVarint(body);
+                node(body, tree, parent, token, true);
+            } else {
+                tree.add(kind, parent, token[0], token[0] + span - 1, name);
+                token[0] += span;
+            }
+            return;
+        }
+        String name = kind.isDeclaration() ? string(ByteSink.readVarint(in)) : null;
+        int node = tree.add(kind, parent, token[0], token[0], name);
+        int children = ByteSink.readVarint(in);
+        for (int c = 0; c < children; c++) {
+            node(in, tree, node, token, expand);
+        }
+        tree.setLastToken(node, token[0] - 1);
+    }
+
+    private synchronized String string(int index) {
+        if (index == 0) {
+            return null;
+        }
+        if (strings == null) {
+            ByteBuffer in = section(SyntaxTreeCodec.OFF_STRINGS);
+            String[] decoded = new String[data.getInt(SyntaxTreeCodec.OFF_STRING_COUNT)];
+            for (int i = 0; i < decoded.length; i++) {
+                decoded[i] = ByteSink.readString(in);
+            }
+            strings = decoded;
+        }
+        return strings[index - 1];
+    }
+
+    private ByteBuffer section(int headerOffset) {
+        return data.duplicate().position(data.getInt(headerOffset));
+    }
+
+    private ByteBuffer chunk(int chunk) {
+        return data.slice(chunksStart + chunkStart(chunk), chunkEnd(chunk) - chunkStart(chunk));
+    }
+
+    private int chunkStart(int chunk) {
+        return data.getInt(data.getInt(SyntaxTreeCodec.OFF_CHUNKS) + 4 * chunk);
+    }
+
+    private int chunkEnd(int chunk) {
+        return chunkStart(chunk + 1);
+    }
+}
@@ -0,0 +1,140 @@
+package fixbench.java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A type, method, field or initializer found by {@link DeclarationIndex}. The range spans from the
+ * first annotation or modifier to the closing brace or semicolon; doc comments are not included.
+ * Constructors are methods named after their type; anonymous classes are types with an empty name.
+ */
+public final class Declaration {
+
+    public enum Kind {
+        TYPE,
+        METHOD,
+        FIELD,
+        INITIALIZER
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final Declaration parent;
+    private final List<Declaration> children = new ArrayList<>();
+    final int firstToken;
+    final int nameToken;
+    int paramsOpen = -1;
+    int paramsClose = -1;
+    int bodyOpen = -1;
+    int lastToken;
+    private int startLine;
+    private int endLine;
+    private int startOffset;
+    private int endOffset;
+
+    Declaration(Kind kind, String name, Declaration parent, int firstToken, int nameToken) {
+        this.kind = kind;
+        this.name = name;
+        this.parent = parent;
+        this.firstToken = firstToken;
+        this.nameToken = nameToken;
+        if (parent != null) {
+            parent.children.add(this);
+        }
+    }
+
+    void close(Tokens tokens, int lastToken) {
+        this.lastToken = lastToken;
+        this.startLine = tokens.line(firstToken);
+        this.endLine = tokens.lineOf(tokens.end(lastToken) - 1);
+        this.startOffset = tokens.start(firstToken);
+        this.endOffset = tokens.end(lastToken);
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** Enclosing declaration, or {@code null} for a top-level type. */
+    public Declaration parent() {
+        return parent;
+    }
+
+    public List<Declaration> children() {
+        return Collections.unmodifiableList(children);
+    }
+
+    /** One-based line of the first token. */
+    public int startLine() {
+        return startLine;
+    }
+
+    /** One-based line of the last token. */
+    public int endLine() {
+        return endLine;
+    }
+
+    /** Byte offset of the first token. */
+    public int startOffset() {
+        return startOffset;
+    }
+
+    /** Byte offset just past the last token. */
+    public int endOffset() {
+        return endOffset;
+    }
+
+    /** Index of the first token of the declaration. */
+    public int firstToken() {
+        return firstToken;
+    }
+
+    /** Index of the name token, or {@code -1} for initializers. */
+    public int nameToken() {
+        return nameToken;
+    }
+
+    /** Index of the closing brace or semicolon. */
+    public int lastToken() {
+        return lastToken;
+    }
+
+    /** Index of the opening parenthesis of a method's parameter list, or {@code -1}. */
+    public int paramsOpen() {
+        return paramsOpen;
+    }
+
+    /** Index of the closing parenthesis of a method's parameter list, or {@code -1}. */
+    public int paramsClose() {
+        return paramsClose;
+    }
+
+    /** Index of the opening brace of the body, or {@code -1} for fields and abstract methods. */
+    public int bodyOpen() {
+        return bodyOpen;
+    }
+
+    public boolean contains(int fromLine, int toLine) {
+        return startLine <= fromLine && toLine <= endLine;
+    }
+
+    /** Whether this is a method, constructor or initializer, i.e. a declaration with code. */
+    public boolean isCode() {
+        return kind == Kind.METHOD || kind == Kind.INITIALIZER;
+    }
+
+    /** Dotted path of names from the top-level type, e.g. {@code HTreeMap.getInner}. */
+    public String qualifiedName() {
+        return parent == null ? name : parent.qualifiedName() + '.' + name;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + qualifiedName() + " [" + startLine + '-' + endLine + ']';
+    }
+}
@@ -0,0 +1,437 @@
+package fixbench.java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Outline of the declarations of one Java source, recovered from its tokens by tracking braces.
+ * This is not a full parser: it finds types (including anonymous and local classes), methods,
+ * constructors, fields and initializers well enough to anchor diff hunks and slice methods out of
+ * benchmark sources, which need not compile.
+ */
+public final class DeclarationIndex {
+    private final Tokens tokens;
+    private final List<Declaration> all;
+    private final int[] brackets;
+
+    private DeclarationIndex(Tokens tokens, List<Declaration> all, int[] brackets) {
+        this.tokens = tokens;
+        this.all = Collections.unmodifiableList(all);
+        this.brackets = brackets;
+    }
+
+    public static DeclarationIndex of(ByteBuffer source) {
+        return of(JavaLexer.lex(source));
+    }
+
+    public static DeclarationIndex of(Tokens tokens) {
+        int[] brackets = matchBrackets(tokens);
+        return new DeclarationIndex(tokens, new Scanner(tokens, brackets).scan(), brackets);
+    }
+
+    public Tokens tokens() {
+        return tokens;
+    }
+
+    /** All declarations in source order of their first token. */
+    public List<Declaration> declarations() {
+        return all;
+    }
+
+    /** Index of the bracket matching the one at {@code token}, or {@code -1}. */
+    public int matching(int token) {
+        return brackets[token];
+    }
+
+    /**
+     * Innermost declaration whose lines cover {@code [fromLine, toLine]}, or {@code null} if the
+     * range lies outside every type, e.g. in the imports.
+     */
+    public Declaration enclosing(int fromLine, int toLine) {
+        int low = 0;
+        int high = all.size() - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (all.get(mid).startLine() <= fromLine) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Declarations nest, so the innermost cover is an ancestor of the last one starting before.
+        for (Declaration d = candidate < 0 ? null : all.get(candidate); d != null; d = d.parent()) {
+            if (d.contains(fromLine, toLine)) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    /** Innermost method, constructor or initializer covering the lines, or {@code null}. */
+    public Declaration enclosingCode(int fromLine, int toLine) {
+        for (Declaration d = enclosing(fromLine, toLine); d != null; d = d.parent()) {
+            if (d.isCode()) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    private static int[] matchBrackets(Tokens tokens) {
+        int[] match = new int[tokens.size()];
+        int[] stack = new int[64];
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            match[i] = -1;
+            if (tokens.kind(i) != TokenKind.SEPARATOR) {
+                continue;
+            }
+            if (tokens.is(i, '(') || tokens.is(i, '[') || tokens.is(i, '{')) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = i;
+            } else if (tokens.is(i, ')') || tokens.is(i, ']') || tokens.is(i, '}')) {
+                char open = tokens.is(i, ')') ? '(' : tokens.is(i, ']') ? '[' : '{';
+                // Unbalanced input: drop unmatched openers until one of the right kind is found.
+                int d = depth - 1;
+                while (d >= 0 && !tokens.is(stack[d], open)) {
+                    d--;
+                }
+                if (d >= 0) {
+                    match[i] = stack[d];
+                    match[stack[d]] = i;
+                    depth = d;
+                }
+            }
+        }
+        return match;
+    }
+
+    /** Brace-tracking pass that produces the declarations. */
+    private static final class Scanner {
+        private static final int TYPE_BODY = 0;
+        private static final int CODE = 1;
+
+        private final Tokens tokens;
+        private final int[] brackets;
+        private final List<Declaration> result = new ArrayList<>();
+        private final Deque<Frame> stack = new ArrayDeque<>();
+
+        Scanner(Tokens tokens, int[] brackets) {
+            this.tokens = tokens;
+            this.brackets = brackets;
+        }
+
+        List<Declaration> scan() {
+            stack.push(new Frame(TYPE_BODY, null, 0));
+            int n = tokens.size();
+            for (int i = 0; i < n; i++) {
+                Frame frame = stack.peek();
+                i = frame.kind == TYPE_BODY ? member(frame, i) : code(frame, i);
+            }
+            while (stack.size() > 1) {
+                Frame frame = stack.pop();
+                if (frame.decl != null) {
+                    frame.decl.close(tokens, n - 1);
+                }
+            }
+            result.sort((a, b) -> Integer.compare(a.firstToken, b.firstToken));
+            return result;
+        }
+
+        /** Handles token {@code i} at type-body level; returns the last token consumed. */
+        private int member(Frame frame, int i) {
+            if (tokens.is(i, '}')) {
+                return closeFrame(i);
+            }
+            if (tokens.is(i, ';')) {
+                if (frame.enumConstants) {
+                    frame.enumConstants = false;
+                } else if (frame.decl != null && i > frame.memberStart && frame.pendingType < 0) {
+                    field(frame, i);
+                }
+                frame.reset(i + 1);
+                return i;
+            }
+            if (frame.enumConstants && tokens.is(i, ',')) {
+                frame.reset(i + 1);
+                return i;
+            }
+            if (tokens.is(i, '=')) {
+                frame.sawAssign = true;
+                return i;
+            }
+            if ((tokens.is(i, '(') || tokens.is(i, '[')) && brackets[i] > i) {
+                return brackets[i];
+            }
+            int typeName = typeKeyword(i);
+            if (typeName > 0) {
+                frame.pendingType = typeName;
+                frame.pendingEnum = tokens.is(i, "enum");
+                return typeName;
+            }
+            if (tokens.is(i, '{')) {
+                return openBrace(frame, i);
+            }
+            if (!frame.enumConstants && !frame.sawAssign && frame.pendingType < 0
+                    && frame.decl != null && isMethodName(i)) {
+                return method(frame, i);
+            }
+            return i;
+        }
+
+        private int openBrace(Frame frame, int i) {
+            if (frame.pendingType >= 0) {
+                Declaration type = new Declaration(Declaration.Kind.TYPE,
+                        tokens.text(frame.pendingType), frame.owner, frame.memberStart, frame.pendingType);
+                type.bodyOpen = i;
+                boolean isEnum = frame.pendingEnum;
+                frame.pendingType = -1;
+                Frame body = new Frame(TYPE_BODY, type, i + 1);
+                body.enumConstants = isEnum;
+                body.closesMember = true;
+                push(body, type);
+                return i;
+            }
+            if (frame.enumConstants) {
+                Declaration constant = new Declaration(Declaration.Kind.TYPE,
+                        tokens.text(frame.memberStart), frame.decl, frame.memberStart, frame.memberStart);
+                constant.bodyOpen = i;
+                push(new Frame(TYPE_BODY, constant, i + 1), constant);
+                return i;
+            }
+            boolean atMemberStart = i == frame.memberStart
+                    || (i == frame.memberStart + 1 && tokens.is(frame.memberStart, "static"));
+            if (!frame.sawAssign && atMemberStart && frame.decl != null) {
+                Declaration init = new Declaration(Declaration.Kind.INITIALIZER,
+                        tokens.is(frame.memberStart, "static") ? "<clinit>" : "<init>", frame.decl,
+                        frame.memberStart, -1);
+                init.bodyOpen = i;
+                Frame code = new Frame(CODE, init, i + 1);
+                code.closesMember = true;
+                push(code, init);
+                return i;
+            }
+            return nestedBrace(frame, i);
+        }
+
+        private int method(Frame frame, int name) {
+            int close = brackets[name + 1];
+            Declaration method = new Declaration(Declaration.Kind.METHOD, tokens.text(name),
+                    frame.decl, frame.memberStart, name);
+            method.paramsOpen = name + 1;
+            method.paramsClose = close;
+            int k = close + 1;
+            while (k < tokens.size() && !tokens.is(k, '{') && !tokens.is(k, ';')) {
+                if (tokens.is(k, "default")) {
+                    // Annotation member with a default value, which may be an array initializer.
+                    while (k < tokens.size() && !tokens.is(k, ';')) {
+                        k = brackets[k] > k ? brackets[k] + 1 : k + 1;
+                    }
+                    break;
+                }
+                k = (tokens.is(k, '(') || tokens.is(k, '[')) && brackets[k] > k ? brackets[k] + 1 : k + 1;
+            }
+            if (k >= tokens.size()) {
+                method.close(tokens, tokens.size() - 1);
+                result.add(method);
+                return tokens.size() - 1;
+            }
+            if (tokens.is(k, ';')) {
+                method.close(tokens, k);
+                result.add(method);
+                frame.reset(k + 1);
+                return k;
+            }
+            method.bodyOpen = k;
+            Frame code = new Frame(CODE, method, k + 1);
+            code.closesMember = true;
+            push(code, method);
+            return k;
+        }
+
+        private void field(Frame frame, int semicolon) {
+            int name = -1;
+            for (int k = frame.memberStart; k < semicolon; k++) {
+                if (tokens.is(k, '=') || tokens.is(k, ',')) {
+                    break;
+                }
+                if (tokens.is(k, '(') || tokens.is(k, '[')) {
+                    k = Math.max(k, brackets[k]);
+                    continue;
+                }
+                if (tokens.kind(k) == TokenKind.IDENTIFIER) {
+                    name = k;
+                }
+            }
+            if (name < 0) {
+                return;
+            }
+            Declaration field = new Declaration(Declaration.Kind.FIELD, tokens.text(name), frame.decl,
+                    frame.memberStart, name);
+            field.close(tokens, semicolon);
+            result.add(field);
+        }
+
+        /** Handles token {@code i} inside code; returns the last token consumed. */
+        private int code(Frame frame, int i) {
+            if (tokens.is(i, '}')) {
+                return closeFrame(i);
+            }
+            if (tokens.is(i, ';')) {
+                frame.reset(i + 1);
+                return i;
+            }
+            int typeName = typeKeyword(i);
+            if (typeName > 0) {
+                frame.pendingType = typeName;
+                frame.pendingEnum = tokens.is(i, "enum");
+                return typeName;
+            }
+            if (tokens.is(i, '{')) {
+                if (frame.pendingType >= 0) {
+                    return openBrace(frame, i);
+                }
+                return nestedBrace(frame, i);
+            }
+            return i;
+        }
+
+        /** A brace that is neither a member body: an anonymous class, a block or an array initializer. */
+        private int nestedBrace(Frame frame, int i) {
+            int typeName = anonymousClassType(i);
+            if (typeName >= 0) {
+                Declaration anonymous = new Declaration(Declaration.Kind.TYPE, "", frame.owner,
+                        frame.memberStart, typeName);
+                anonymous.bodyOpen = i;
+                push(new Frame(TYPE_BODY, anonymous, i + 1), anonymous);
+                return i;
+            }
+            Frame block = new Frame(CODE, null, i + 1);
+            block.owner = frame.owner;
+            stack.push(block);
+            return i;
+        }
+
+        private int closeFrame(int i) {
+            if (stack.size() == 1) {
+                return i;
+            }
+            Frame frame = stack.pop();
+            if (frame.decl != null) {
+                frame.decl.close(tokens, i);
+            }
+            if (frame.closesMember || stack.peek().kind == CODE) {
+                stack.peek().reset(i + 1);
+            }
+            return i;
+        }
+
+        private void push(Frame frame, Declaration decl) {
+            result.add(decl);
+            stack.push(frame);
+        }
+
+        /**
+         * If token {@code i} is {@code class}, {@code interface}, {@code enum} or a contextual
+         * {@code record} keyword starting a type declaration, returns the index of the type name.
+         */
+        private int typeKeyword(int i) {
+            boolean keyword = tokens.is(i, "class") || tokens.is(i, "interface") || tokens.is(i, "enum");
+            boolean record = tokens.is(i, "record") && tokens.kind(i) == TokenKind.IDENTIFIER
+                    && (tokens.is(i + 2, '(') || tokens.is(i + 2, '<'));
+            if (!keyword && !record) {
+                return -1;
+            }
+            if (i > 0 && tokens.is(i - 1, '.')) {
+                return -1;
+            }
+            return i + 1 < tokens.size() && tokens.kind(i + 1) == TokenKind.IDENTIFIER ? i + 1 : -1;
+        }
+
+        private boolean isMethodName(int i) {
+            if (tokens.kind(i) != TokenKind.IDENTIFIER || !tokens.is(i + 1, '(') || brackets[i + 1] < 0) {
+                return false;
+            }
+            return i == 0 || !(tokens.is(i - 1, '.') || tokens.is(i - 1, '@') || tokens.is(i - 1, "new"));
+        }
+
+        /**
+         * Returns the type name token if the brace at {@code i} opens an anonymous class body, as in
+         * {@code new Runnable() {}} or {@code new Foo<>(x) {}}; otherwise {@code -1}.
+         */
+        private int anonymousClassType(int i) {
+            if (i == 0 || !tokens.is(i - 1, ')') || brackets[i - 1] < 0) {
+                return -1;
+            }
+            int j = brackets[i - 1] - 1;
+            if (j >= 0 && closingAngles(j) > 0) {
+                // Skip type arguments, where ">>" and ">>>" close several levels at once.
+                int depth = 0;
+                for (; j >= 0; j--) {
+                    depth += closingAngles(j);
+                    if (tokens.is(j, '<')) {
+                        depth--;
+                    }
+                    if (depth == 0) {
+                        break;
+                    }
+                }
+                j--;
+            }
+            int typeName = j;
+            while (j >= 0 && tokens.kind(j) == TokenKind.IDENTIFIER) {
+                if (j >= 2 && tokens.is(j - 1, '.') && tokens.kind(j - 2) == TokenKind.IDENTIFIER) {
+                    j -= 2;
+                } else {
+                    j--;
+                    break;
+                }
+            }
+            return j >= 0 && tokens.is(j, "new") && typeName > j ? typeName : -1;
+        }
+
+        private int closingAngles(int token) {
+            if (tokens.is(token, '>')) {
+                return 1;
+            }
+            return tokens.is(token, ">>") ? 2 : tokens.is(token, ">>>") ? 3 : 0;
+        }
+    }
+
+    /** Parsing state of one brace level. */
+    private static final class Frame {
+        final int kind;
+        /** Declaration whose body this frame is, or {@code null} for plain blocks. */
+        final Declaration decl;
+        /** Innermost enclosing declaration, the parent of declarations found in this frame. */
+        Declaration owner;
+        int memberStart;
+        boolean sawAssign;
+        boolean enumConstants;
+        boolean closesMember;
+        int pendingType = -1;
+        boolean pendingEnum;
+
+        Frame(int kind, Declaration decl, int memberStart) {
+            this.kind = kind;
+            this.decl = decl;
+            this.owner = decl;
+            this.memberStart = memberStart;
+        }
+
+        void reset(int next) {
+            memberStart = next;
+            sawAssign = false;
+            pendingType = -1;
+        }
+    }
+}
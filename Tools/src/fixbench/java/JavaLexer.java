@@ -0,0 +1,254 @@
+package fixbench.java;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Single-pass Java lexer over UTF-8 bytes. It is tolerant: malformed input such as unterminated
+ * strings or comments ends the offending token at the end of the line or file instead of failing,
+ * since benchmark snapshots are not guaranteed to compile.
+ */
+public final class JavaLexer {
+    private static final String[] KEYWORDS = {
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class",
+            "const", "continue", "default", "do", "double", "else", "enum", "extends", "final",
+            "finally", "float", "for", "goto", "if", "implements", "import", "instanceof", "int",
+            "interface", "long", "native", "new", "package", "private", "protected", "public",
+            "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this",
+            "throw", "throws", "transient", "try", "void", "volatile", "while", "true", "false",
+            "null"};
+    private static final byte[][][] KEYWORDS_BY_LENGTH = new byte[13][][];
+    private static final String[] OPERATORS = {
+            ">>>=", "<<=", ">>=", ">>>", "...", "->", "::", "++", "--", "&&", "||", "==", "!=", "<=",
+            ">=", "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<", ">>"};
+
+    static {
+        for (String keyword : KEYWORDS) {
+            byte[] bytes = keyword.getBytes(StandardCharsets.US_ASCII);
+            byte[][] bucket = KEYWORDS_BY_LENGTH[bytes.length];
+            bucket = bucket == null ? new byte[1][] : Arrays.copyOf(bucket, bucket.length + 1);
+            bucket[bucket.length - 1] = bytes;
+            KEYWORDS_BY_LENGTH[bytes.length] = bucket;
+        }
+    }
+
+    private final boolean keepComments;
+
+    private JavaLexer(boolean keepComments) {
+        this.keepComments = keepComments;
+    }
+
+    /** Lexes {@code source} between its position and limit, dropping comments. */
+    public static Tokens lex(ByteBuffer source) {
+        return new JavaLexer(false).run(source);
+    }
+
+    /** Lexes {@code source}, keeping comments as {@link TokenKind#COMMENT} tokens. */
+    public static Tokens lexWithComments(ByteBuffer source) {
+        return new JavaLexer(true).run(source);
+    }
+
+    private Tokens run(ByteBuffer src) {
+        int pos = src.position();
+        int limit = src.limit();
+        int[] lineStarts = lineStarts(src, pos, limit);
+        Tokens tokens = new Tokens(src, Math.max(16, (limit - pos) / 5), lineStarts);
+        int line = 1;
+        while (pos < limit) {
+            int c = src.get(pos) & 0xff;
+            if (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f') {
+                pos++;
+                continue;
+            }
+            int start = pos;
+            while (line < lineStarts.length && lineStarts[line] <= start) {
+                line++;
+            }
+            int startLine = line;
+            if (c == '/' && pos + 1 < limit && src.get(pos + 1) == '/') {
+                while (pos < limit && src.get(pos) != '\n') {
+                    pos++;
+                }
+                if (keepComments) {
+                    tokens.add(TokenKind.COMMENT, start, trimCr(src, start, pos), startLine);
+                }
+                continue;
+            }
+            if (c == '/' && pos + 1 < limit && src.get(pos + 1) == '*') {
+                pos += 2;
+                while (pos < limit && !(src.get(pos) == '*' && pos + 1 < limit && src.get(pos + 1) == '/')) {
+                    pos++;
+                }
+                pos = Math.min(limit, pos + 2);
+                if (keepComments) {
+                    tokens.add(TokenKind.COMMENT, start, pos, startLine);
+                }
+                continue;
+            }
+            if (isIdentifierStart(c)) {
+                pos++;
+                while (pos < limit && isIdentifierPart(src.get(pos) & 0xff)) {
+                    pos++;
+                }
+                tokens.add(isKeyword(src, start, pos) ? TokenKind.KEYWORD : TokenKind.IDENTIFIER,
+                        start, pos, startLine);
+                continue;
+            }
+            if (isDigit(c) || (c == '.' && pos + 1 < limit && isDigit(src.get(pos + 1)))) {
+                pos = number(src, pos, limit);
+                tokens.add(TokenKind.NUMBER, start, pos, startLine);
+                continue;
+            }
+            if (c == '"') {
+                if (pos + 2 < limit && src.get(pos + 1) == '"' && src.get(pos + 2) == '"') {
+                    pos += 3;
+                    while (pos < limit && !(src.get(pos) == '"' && pos + 2 < limit
+                            && src.get(pos + 1) == '"' && src.get(pos + 2) == '"')) {
+                        if (src.get(pos) == '\\') {
+                            pos++;
+                        }
+                        pos++;
+                    }
+                    pos = Math.min(limit, pos + 3);
+                } else {
+                    pos = quoted(src, pos, limit, '"');
+                }
+                tokens.add(TokenKind.STRING, start, pos, startLine);
+                continue;
+            }
+            if (c == '\'') {
+                pos = quoted(src, pos, limit, '\'');
+                tokens.add(TokenKind.CHAR, start, pos, startLine);
+                continue;
+            }
+            if ("(){}[];,.@".indexOf(c) >= 0) {
+                tokens.add(TokenKind.SEPARATOR, start, pos + 1, startLine);
+                pos++;
+                continue;
+            }
+            pos += operatorLength(src, pos, limit);
+            tokens.add(TokenKind.OPERATOR, start, pos, startLine);
+        }
+        return tokens;
+    }
+
+    private static int[] lineStarts(ByteBuffer src, int pos, int limit) {
+        int count = 1;
+        for (int i = pos; i < limit; i++) {
+            if (src.get(i) == '\n') {
+                count++;
+            }
+        }
+        int[] starts = new int[count];
+        starts[0] = pos;
+        int line = 1;
+        for (int i = pos; i < limit; i++) {
+            if (src.get(i) == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static int trimCr(ByteBuffer src, int start, int end) {
+        return end > start && src.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    private static int quoted(ByteBuffer src, int pos, int limit, char quote) {
+        pos++;
+        while (pos < limit) {
+            byte b = src.get(pos);
+            if (b == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (b == quote) {
+                return pos + 1;
+            }
+            if (b == '\n') {
+                return pos;
+            }
+            pos++;
+        }
+        return limit;
+    }
+
+    private static int number(ByteBuffer src, int pos, int limit) {
+        while (pos < limit) {
+            int c = src.get(pos) & 0xff;
+            if ((c == 'e' || c == 'E' || c == 'p' || c == 'P') && pos + 1 < limit
+                    && (src.get(pos + 1) == '+' || src.get(pos + 1) == '-')
+                    && !isHexPrefix(src, pos)) {
+                pos += 2;
+            } else if (isIdentifierPart(c) || c == '.') {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return pos;
+    }
+
+    /** Guards against reading {@code 0xE-1} as a hexadecimal exponent. */
+    private static boolean isHexPrefix(ByteBuffer src, int pos) {
+        int c = src.get(pos) & 0xff;
+        if (c == 'p' || c == 'P') {
+            return false;
+        }
+        int start = pos;
+        while (start > 0 && isIdentifierPart(src.get(start - 1) & 0xff)) {
+            start--;
+        }
+        return pos - start >= 2 && src.get(start) == '0'
+                && (src.get(start + 1) == 'x' || src.get(start + 1) == 'X');
+    }
+
+    private static int operatorLength(ByteBuffer src, int pos, int limit) {
+        // Every multi-character operator continues with one of these.
+        if (pos + 1 >= limit || "=<>&|+-.:".indexOf(src.get(pos + 1)) < 0) {
+            return 1;
+        }
+        for (String op : OPERATORS) {
+            if (pos + op.length() <= limit) {
+                int i = 0;
+                while (i < op.length() && src.get(pos + i) == op.charAt(i)) {
+                    i++;
+                }
+                if (i == op.length()) {
+                    return i;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static boolean isKeyword(ByteBuffer src, int start, int end) {
+        int length = end - start;
+        if (length >= KEYWORDS_BY_LENGTH.length || KEYWORDS_BY_LENGTH[length] == null) {
+            return false;
+        }
+        for (byte[] keyword : KEYWORDS_BY_LENGTH[length]) {
+            int i = 0;
+            while (i < length && keyword[i] == src.get(start + i)) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c >= 0x80;
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+}
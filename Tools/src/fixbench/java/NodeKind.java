@@ -0,0 +1,36 @@
+package fixbench.java;
+
+/** Kinds of {@link SyntaxTree} nodes. */
+public enum NodeKind {
+    UNIT,
+    TYPE,
+    METHOD,
+    FIELD,
+    INITIALIZER,
+    /** Brace-delimited code: a method body, a nested block, a lambda body or an anonymous class. */
+    BLOCK,
+    /** A statement, or an import or package declaration, or a member the outline did not classify. */
+    STATEMENT,
+    PARENS,
+    BRACKETS,
+    /** A single token. */
+    TOKEN;
+
+    /** Whether nodes of this kind stand for a declaration of the outline. */
+    public boolean isDeclaration() {
+        return this == TYPE || this == METHOD || this == FIELD || this == INITIALIZER;
+    }
+
+    static NodeKind of(Declaration.Kind kind) {
+        switch (kind) {
+            case TYPE:
+                return TYPE;
+            case METHOD:
+                return METHOD;
+            case FIELD:
+                return FIELD;
+            default:
+                return INITIALIZER;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package fixbench.java;
+
+import java.util.Arrays;
+
+/**
+ * Lossless tree over a token stream: every token is exactly one {@link NodeKind#TOKEN} leaf.
+ * Declarations come from the {@link DeclarationIndex} outline; code bodies are split into blocks,
+ * statements and bracket groups. Nodes are numbered in preorder and stored in parallel arrays;
+ * node 0 is the root, which is a {@link NodeKind#UNIT} for a whole file or a declaration for a
+ * tree loaded per method from a {@link SyntaxTreeCache}.
+ */
+public final class SyntaxTree {
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    private final Tokens tokens;
+    private byte[] kinds;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] lastChildren;
+    private int[] firstTokens;
+    private int[] lastTokens;
+    private String[] names;
+    private int size;
+
+    SyntaxTree(Tokens tokens, int capacity) {
+        this.tokens = tokens;
+        this.kinds = new byte[capacity];
+        this.parents = new int[capacity];
+        this.firstChildren = new int[capacity];
+        this.nextSiblings = new int[capacity];
+        this.lastChildren = new int[capacity];
+        this.firstTokens = new int[capacity];
+        this.lastTokens = new int[capacity];
+        this.names = new String[capacity];
+    }
+
+    /** Builds the tree of a whole file. */
+    public static SyntaxTree of(DeclarationIndex index) {
+        Tokens tokens = index.tokens();
+        SyntaxTree tree = new SyntaxTree(tokens, Math.max(16, tokens.size() + tokens.size() / 2));
+        new Builder(tree, index).build();
+        return tree;
+    }
+
+    /** Appends a node as the last child of {@code parent}, or as the root if {@code parent < 0}. */
+    int add(NodeKind kind, int parent, int firstToken, int lastToken, String name) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            lastChildren = Arrays.copyOf(lastChildren, capacity);
+            firstTokens = Arrays.copyOf(firstTokens, capacity);
+            lastTokens = Arrays.copyOf(lastTokens, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        int node = size++;
+        kinds[node] = (byte) kind.ordinal();
+        parents[node] = parent;
+        firstChildren[node] = -1;
+        nextSiblings[node] = -1;
+        lastChildren[node] = -1;
+        firstTokens[node] = firstToken;
+        lastTokens[node] = lastToken;
+        names[node] = name;
+        if (parent >= 0) {
+            if (lastChildren[parent] < 0) {
+                firstChildren[parent] = node;
+            } else {
+                nextSiblings[lastChildren[parent]] = node;
+            }
+            lastChildren[parent] = node;
+        }
+        return node;
+    }
+
+    void setLastToken(int node, int lastToken) {
+        lastTokens[node] = lastToken;
+    }
+
+    public Tokens tokens() {
+        return tokens;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public NodeKind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /** Parent node, or {@code -1} for the root. */
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    /** First child, or {@code -1} for a leaf. */
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    /** Next sibling, or {@code -1} for a last child. */
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int firstToken(int node) {
+        return firstTokens[node];
+    }
+
+    public int lastToken(int node) {
+        return lastTokens[node];
+    }
+
+    /** Declared name of a declaration node, or {@code null}. */
+    public String name(int node) {
+        return names[node];
+    }
+
+    /**
+     * Label of the node for matching: the token text of a leaf, the name of a declaration and
+     * {@code ""} otherwise.
+     */
+    public String label(int node) {
+        if (kind(node) == NodeKind.TOKEN) {
+            return tokens.text(firstTokens[node]);
+        }
+        return names[node] == null ? "" : names[node];
+    }
+
+    /** Number of nodes in the subtree of {@code node}, which is contiguous in preorder. */
+    public int subtreeSize(int node) {
+        int end = node + 1;
+        while (end < size && isAncestor(node, end)) {
+            end++;
+        }
+        return end - node;
+    }
+
+    /** Whether {@code ancestor} is {@code node} or one of its ancestors. */
+    public boolean isAncestor(int ancestor, int node) {
+        for (int n = node; n >= 0 && n >= ancestor; n = parents[n]) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Innermost node whose token range contains {@code token}. */
+    public int nodeOfToken(int token) {
+        int node = 0;
+        if (size == 0 || token < firstTokens[0] || token > lastTokens[0]) {
+            return -1;
+        }
+        boolean descended = true;
+        while (descended) {
+            descended = false;
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                if (firstTokens[child] <= token && token <= lastTokens[child]) {
+                    node = child;
+                    descended = true;
+                    break;
+                }
+            }
+        }
+        return node;
+    }
+
+    /** Renders the subtree as an indented outline, for debugging. */
+    public String dump(int node) {
+        StringBuilder out = new StringBuilder();
+        dump(node, 0, out);
+        return out.toString();
+    }
+
+    private void dump(int node, int depth, StringBuilder out) {
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+        out.append(kind(node));
+        String label = label(node);
+        if (!label.isEmpty()) {
+            out.append(' ').append(label);
+        }
+        out.append('\n');
+        for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+            dump(child, depth + 1, out);
+        }
+    }
+
+    /** Builds the nodes of a whole file from the outline and the bracket structure. */
+    private static final class Builder {
+        private final SyntaxTree tree;
+        private final DeclarationIndex index;
+        private final Tokens tokens;
+
+        Builder(SyntaxTree tree, DeclarationIndex index) {
+            this.tree = tree;
+            this.index = index;
+            this.tokens = index.tokens();
+        }
+
+        void build() {
+            int last = tokens.size() - 1;
+            int unit = tree.add(NodeKind.UNIT, -1, 0, last, null);
+            int next = 0;
+            for (Declaration decl : index.declarations()) {
+                if (decl.parent() != null || decl.firstToken() < next) {
+                    continue;
+                }
+                statements(unit, next, decl.firstToken() - 1);
+                declaration(unit, decl);
+                next = decl.lastToken() + 1;
+            }
+            statements(unit, next, last);
+        }
+
+        private void declaration(int parent, Declaration decl) {
+            int node = tree.add(NodeKind.of(decl.kind()), parent, decl.firstToken(), decl.lastToken(),
+                    decl.name());
+            switch (decl.kind()) {
+                case TYPE: {
+                    int open = decl.bodyOpen();
+                    sequence(node, decl.firstToken(), open - 1);
+                    leaf(node, open);
+                    int next = open + 1;
+                    for (Declaration member : decl.children()) {
+                        // Anonymous classes belong to the field or statement they occur in.
+                        if (member.name().isEmpty() || member.firstToken() < next
+                                || member.lastToken() > decl.lastToken()) {
+                            continue;
+                        }
+                        statements(node, next, member.firstToken() - 1);
+                        declaration(node, member);
+                        next = member.lastToken() + 1;
+                    }
+                    statements(node, next, decl.lastToken() - 1);
+                    leaf(node, decl.lastToken());
+                    break;
+                }
+                case METHOD:
+                case INITIALIZER:
+                    if (decl.bodyOpen() < 0) {
+                        sequence(node, decl.firstToken(), decl.lastToken());
+                    } else {
+                        sequence(node, decl.firstToken(), decl.bodyOpen() - 1);
+                        block(node, decl.bodyOpen());
+                    }
+                    break;
+                default:
+                    sequence(node, decl.firstToken(), decl.lastToken());
+                    break;
+            }
+        }
+
+        /** Splits {@code [from, to]} into statements ending at semicolons or statement blocks. */
+        private void statements(int parent, int from, int to) {
+            int i = from;
+            while (i <= to) {
+                int statement = tree.add(NodeKind.STATEMENT, parent, i, i, null);
+                while (i <= to) {
+                    int end = element(statement, i);
+                    boolean done = tokens.is(i, ';') || (tokens.is(i, '{') && endsStatement(i, end));
+                    i = end + 1;
+                    if (done) {
+                        break;
+                    }
+                }
+                tree.setLastToken(statement, Math.min(i - 1, to));
+            }
+        }
+
+        /** Adds the tokens {@code [from, to]} as leaves and bracket groups. */
+        private void sequence(int parent, int from, int to) {
+            for (int i = from; i <= to; ) {
+                i = element(parent, i) + 1;
+            }
+        }
+
+        /** Adds the element starting at token {@code i}; returns its last token. */
+        private int element(int parent, int i) {
+            int match = index.matching(i);
+            if (match <= i) {
+                leaf(parent, i);
+                return i;
+            }
+            if (tokens.is(i, '{')) {
+                return block(parent, i);
+            }
+            int group = tree.add(tokens.is(i, '(') ? NodeKind.PARENS : NodeKind.BRACKETS, parent, i,
+                    match, null);
+            leaf(group, i);
+            sequence(group, i + 1, match - 1);
+            leaf(group, match);
+            return match;
+        }
+
+        private int block(int parent, int open) {
+            int close = index.matching(open);
+            if (close < 0) {
+                close = tokens.size() - 1;
+            }
+            int block = tree.add(NodeKind.BLOCK, parent, open, close, null);
+            leaf(block, open);
+            statements(block, open + 1, close - 1);
+            if (close > open && tokens.is(close, '}')) {
+                leaf(block, close);
+            }
+            return close;
+        }
+
+        /**
+         * Whether the block {@code [open, close]} finishes its statement: control-flow and plain
+         * blocks do, while lambda bodies, anonymous classes and array initializers are part of an
+         * expression that continues up to a semicolon.
+         */
+        private boolean endsStatement(int open, int close) {
+            int next = close + 1;
+            if (tokens.is(next, "else") || tokens.is(next, "catch") || tokens.is(next, "finally")
+                    || tokens.is(next, "while")) {
+                return false;
+            }
+            int prev = open - 1;
+            if (prev < 0) {
+                return true;
+            }
+            if (tokens.is(prev, "->") || tokens.is(prev, '=') || tokens.is(prev, ']')
+                    || tokens.is(prev, ',') || tokens.is(prev, '(')) {
+                return false;
+            }
+            if (tokens.is(prev, ')')) {
+                int paren = index.matching(prev);
+                for (int k = paren - 1; k >= 0 && k >= paren - 8; k--) {
+                    if (tokens.is(k, "new")) {
+                        return false;
+                    }
+                    if (tokens.is(k, ';') || tokens.is(k, '{') || tokens.is(k, '}')
+                            || tokens.kind(k) == TokenKind.KEYWORD) {
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void leaf(int parent, int token) {
+            tree.add(NodeKind.TOKEN, parent, token, token, null);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fixbench.java;
+
+import fixbench.corpus.ContentHash;
+import fixbench.corpus.Member;
+import fixbench.io.ByteSink;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent store of parsed sources keyed by content hash, shared by every tool and run. An entry
+ * lives at {@code <dir>/<first two hex digits>/<hex>.ast}; it is built on the first request for a
+ * content, written atomically, and memory-mapped afterwards. Entries are immutable, so concurrent
+ * builders of the same content write identical bytes and the last move wins.
+ */
+public final class SyntaxTreeCache {
+    private final Path dir;
+    private final ConcurrentMap<String, CachedSyntaxTree> loaded = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SyntaxTreeCache(Path dir) {
+        this.dir = dir;
+    }
+
+    public CachedSyntaxTree get(Member member) throws IOException {
+        return get(member.hash(), member.content());
+    }
+
+    public CachedSyntaxTree get(ByteBuffer source) throws IOException {
+        return get(ContentHash.of(source), source);
+    }
+
+    private CachedSyntaxTree get(byte[] hash, ByteBuffer source) throws IOException {
+        String key = ContentHash.toHex(hash);
+        CachedSyntaxTree tree = loaded.get(key);
+        if (tree != null) {
+            hits.incrementAndGet();
+            return tree;
+        }
+        Path file = dir.resolve(key.substring(0, 2)).resolve(key + ".ast");
+        ByteBuffer data = map(file);
+        if (data != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            data = build(source, file);
+        }
+        tree = CachedSyntaxTree.open(data, source);
+        CachedSyntaxTree previous = loaded.putIfAbsent(key, tree);
+        return previous != null ? previous : tree;
+    }
+
+    /** The tree of a source, from {@code cache}, or parsed afresh if {@code cache} is {@code null}. */
+    public static SyntaxTree tree(Member source, SyntaxTreeCache cache) throws IOException {
+        return cache != null ? cache.get(source).tree() : SyntaxTree.of(DeclarationIndex.of(source.content()));
+    }
+
+    /** Requests answered from memory or from an existing entry. */
+    public long hits() {
+        return hits.get();
+    }
+
+    /** Requests that had to parse the source. */
+    public long misses() {
+        return misses.get();
+    }
+
+    private static ByteBuffer build(ByteBuffer source, Path file) throws IOException {
+        SyntaxTree tree = SyntaxTree.of(DeclarationIndex.of(source));
+        ByteSink encoded = SyntaxTreeCodec.encode(tree, source.remaining());
+        Files.createDirectories(file.getParent());
+        encoded.writeAtomically(file);
+        return encoded.toBuffer();
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package fixbench.java;
+
+import fixbench.io.ByteSink;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialized form of a {@link SyntaxTree}, read back by {@link CachedSyntaxTree}.
+ *
+ * <pre>
+ * header    56 bytes  magic, version, source length, counts, section offsets
+ * tokens    varints   kind byte, gap to the previous token's end, length
+ * lines     varints   distance between line starts
+ * strings   varints   declaration names, length-prefixed UTF-8
+ * chunks    int[]     chunk start offsets, one past the end last
+ *           ...       chunk 0: the skeleton, then one chunk per method or initializer
+ * </pre>
+ *
+ * A chunk is a varint node count, a varint first token and the nodes in preorder: a kind byte,
+ * then for declarations a varint name (string index plus one, 0 for none) and for inner nodes a
+ * varint child count. Tokens are leaves in source order, so token ranges follow from the
+ * structure and are not stored. In the skeleton each method or initializer is a stub, its kind
+ * byte flagged with {@code 0x80} and followed by the name, the chunk index and the token span; a
+ * method is thus decoded without touching the rest of the file.
+ */
+final class SyntaxTreeCodec {
+    static final byte[] MAGIC = "FXBAST\0\0".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int STUB = 0x80;
+
+    static final int HEADER_SIZE = 56;
+    static final int OFF_VERSION = 8;
+    static final int OFF_SOURCE_LENGTH = 12;
+    static final int OFF_TOKEN_COUNT = 16;
+    static final int OFF_LINE_COUNT = 20;
+    static final int OFF_STRING_COUNT = 24;
+    static final int OFF_CHUNK_COUNT = 28;
+    static final int OFF_NODE_COUNT = 32;
+    static final int OFF_TOKENS = 36;
+    static final int OFF_LINES = 40;
+    static final int OFF_STRINGS = 44;
+    static final int OFF_CHUNKS = 48;
+
+    private SyntaxTreeCodec() {
+    }
+
+    static ByteSink encode(SyntaxTree tree, int sourceLength) {
+        Tokens tokens = tree.tokens();
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<Integer> code = new ArrayList<>();
+        for (int node = 0; node < tree.size(); node++) {
+            if (tree.name(node) != null) {
+                strings.putIfAbsent(tree.name(node), strings.size());
+            }
+            if (isCode(tree.kind(node))) {
+                code.add(node);
+            }
+        }
+
+        ByteSink out = new ByteSink(tokens.size() * 4 + tree.size() * 2);
+        out.put(MAGIC, 0, MAGIC.length);
+        while (out.size() < HEADER_SIZE) {
+            out.putInt(0);
+        }
+        out.setInt(OFF_VERSION, VERSION);
+        out.setInt(OFF_SOURCE_LENGTH, sourceLength);
+        out.setInt(OFF_TOKEN_COUNT, tokens.size());
+        out.setInt(OFF_LINE_COUNT, tokens.lineCount());
+        out.setInt(OFF_STRING_COUNT, strings.size());
+        out.setInt(OFF_CHUNK_COUNT, code.size() + 1);
+        out.setInt(OFF_NODE_COUNT, tree.size());
+
+        out.setInt(OFF_TOKENS, out.size());
+        int previousEnd = tokens.lineStart(1);
+        for (int t = 0; t < tokens.size(); t++) {
+            out.putByte(tokens.kind(t).ordinal());
+            out.putVarint(tokens.start(t) - previousEnd);
+            out.putVarint(tokens.length(t));
+            previousEnd = tokens.end(t);
+        }
+        out.setInt(OFF_LINES, out.size());
+        out.putVarint(tokens.lineStart(1));
+        for (int line = 2; line <= tokens.lineCount(); line++) {
+            out.putVarint(tokens.lineStart(line) - tokens.lineStart(line - 1));
+        }
+        out.setInt(OFF_STRINGS, out.size());
+        for (String name : strings.keySet()) {
+            out.putString(name);
+        }
+
+        out.setInt(OFF_CHUNKS, out.size());
+        int table = out.size();
+        for (int c = 0; c <= code.size() + 1; c++) {
+            out.putInt(0);
+        }
+        int chunksStart = out.size();
+        out.setInt(table, 0);
+        int[] stubCounter = {1};
+        out.putVarint(tree.size() - codeNodes(tree, code));
+        out.putVarint(0);
+        node(out, tree, 0, strings, stubCounter);
+        for (int c = 0; c < code.size(); c++) {
+            out.setInt(table + 4 * (c + 1), out.size() - chunksStart);
+            int node = code.get(c);
+            out.putVarint(tree.subtreeSize(node));
+            out.putVarint(tree.firstToken(node));
+            node(out, tree, node, strings, null);
+        }
+        out.setInt(table + 4 * (code.size() + 1), out.size() - chunksStart);
+        return out;
+    }
+
+    /** Writes a node in preorder; with a stub counter, code declarations become stubs. */
+    private static void node(ByteSink out, SyntaxTree tree, int node, Map<String, Integer> strings,
+            int[] stubCounter) {
+        NodeKind kind = tree.kind(node);
+        if (stubCounter != null && isCode(kind)) {
+            out.putByte(kind.ordinal() | STUB);
+            out.putVarint(nameIndex(tree, node, strings));
+            out.putVarint(stubCounter[0]++);
+            out.putVarint(tree.lastToken(node) - tree.firstToken(node) + 1);
+            return;
+        }
+        out.putByte(kind.ordinal());
+        if (kind == NodeKind.TOKEN) {
+            return;
+        }
+        if (kind.isDeclaration()) {
+            out.putVarint(nameIndex(tree, node, strings));
+        }
+        int children = 0;
+        for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+            children++;
+        }
+        out.putVarint(children);
+        for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+            node(out, tree, child, strings, stubCounter);
+        }
+    }
+
+    /** Nodes inside code declarations, excluding the declaration nodes that remain as stubs. */
+    private static int codeNodes(SyntaxTree tree, List<Integer> code) {
+        int count = 0;
+        for (int node : code) {
+            count += tree.subtreeSize(node) - 1;
+        }
+        return count;
+    }
+
+    /** One plus the string index of the node's name, or 0 for none. */
+    private static int nameIndex(SyntaxTree tree, int node, Map<String, Integer> strings) {
+        String name = tree.name(node);
+        return name == null ? 0 : strings.get(name) + 1;
+    }
+
+    static boolean isCode(NodeKind kind) {
+        return kind == NodeKind.METHOD || kind == NodeKind.INITIALIZER;
+    }
+}
@@ -0,0 +1,15 @@
+package fixbench.java;
+
+/** Kinds of tokens produced by {@link JavaLexer}. */
+public enum TokenKind {
+    IDENTIFIER,
+    KEYWORD,
+    NUMBER,
+    STRING,
+    CHAR,
+    OPERATOR,
+    /** One of {@code ( ) [ ] { } ; , . @}. */
+    SEPARATOR,
+    /** Line, block and doc comments; only produced when the lexer keeps comments. */
+    COMMENT
+}
@@ -0,0 +1,156 @@
+package fixbench.java;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Token stream of one source file, stored as parallel arrays of kinds and byte offsets into the
+ * source buffer. Token text is only decoded on request.
+ */
+public final class Tokens {
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    private final ByteBuffer source;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int size;
+    private final int[] lineStarts;
+
+    Tokens(ByteBuffer source, int capacity, int[] lineStarts) {
+        this.source = source;
+        this.kinds = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.lines = new int[capacity];
+        this.lineStarts = lineStarts;
+    }
+
+    void add(TokenKind kind, int start, int end, int line) {
+        if (size == kinds.length) {
+            int capacity = Math.max(16, size * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        size++;
+    }
+
+    /** The lexed buffer; offsets are absolute indices into it. */
+    public ByteBuffer source() {
+        return source.duplicate();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenKind kind(int token) {
+        return KINDS[kinds[token]];
+    }
+
+    /** Byte offset of the first byte of the token. */
+    public int start(int token) {
+        return starts[token];
+    }
+
+    /** Byte offset just past the token. */
+    public int end(int token) {
+        return ends[token];
+    }
+
+    /** One-based line of the first byte of the token. */
+    public int line(int token) {
+        return lines[token];
+    }
+
+    /** One-based line containing the byte at {@code offset}. */
+    public int lineOf(int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /** Number of lines of the source. */
+    public int lineCount() {
+        return lineStarts.length;
+    }
+
+    /** Byte offset of the first byte of a one-based line. */
+    public int lineStart(int line) {
+        return lineStarts[line - 1];
+    }
+
+    public int length(int token) {
+        return ends[token] - starts[token];
+    }
+
+    public String text(int token) {
+        byte[] bytes = new byte[ends[token] - starts[token]];
+        source.get(starts[token], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Whether the token is the single character {@code c}, e.g. a separator or operator. */
+    public boolean is(int token, char c) {
+        return token >= 0 && token < size && ends[token] - starts[token] == 1
+                && source.get(starts[token]) == c;
+    }
+
+    /** Whether the token's text equals the ASCII string {@code text}. */
+    public boolean is(int token, String text) {
+        if (token < 0 || token >= size || ends[token] - starts[token] != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (source.get(starts[token] + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Whether two tokens, possibly of different streams, have the same text. */
+    public boolean sameText(int token, Tokens other, int otherToken) {
+        int length = length(token);
+        if (length != other.length(otherToken)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.get(starts[token] + i) != other.source.get(other.starts[otherToken] + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 32-bit hash of the token text, stable across runs. */
+    public int textHash(int token) {
+        int hash = 0x811c9dc5;
+        for (int i = starts[token]; i < ends[token]; i++) {
+            hash = (hash ^ (source.get(i) & 0xff)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    /** Index of the first token starting at or after {@code offset}. */
+    public int firstAtOrAfter(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,513 @@
+package fixbench.results;
+
+import fixbench.corpus.ContentHash;
+import fixbench.eval.InstanceResult;
+import fixbench.eval.Verdict;
+import fixbench.io.ByteSink;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Evaluation results in a memory-mapped columnar file, one row per instance, tool and
+ * configuration, sorted in that order. Each {@link Column} is a separately deflated block that is
+ * inflated and decoded on first use, so a {@link #groupBy} over the verdicts never touches the
+ * candidates, and a {@link RunDiff} reads only the keys, verdicts and candidate hashes. Category,
+ * repository, tool and configuration are dictionary coded; grouping by them counts into arrays
+ * indexed by code.
+ *
+ * <pre>
+ * header     24 bytes  magic, version, row count, column count, file length
+ * directory  per column  offset, deflated length, inflated length
+ * columns    deflated  keys front coded; dictionaries; varints; verdict bytes; candidate hashes;
+ *                      distinct candidates
+ * </pre>
+ *
+ * Written by {@link ResultsWriter}. Reading is thread-safe.
+ */
+public final class ResultsStore {
+    static final byte[] MAGIC = "FXRSLT\0\0".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int DIRECTORY_ENTRY = 12;
+    static final int OFF_VERSION = 8;
+    static final int OFF_ROW_COUNT = 12;
+    static final int OFF_COLUMN_COUNT = 16;
+    static final int OFF_FILE_LENGTH = 20;
+
+    /** Columns in file order. */
+    public enum Column {
+        /** Instance path relative to the benchmark root, e.g. {@code All/Genesis-NP/Genesis#242}. */
+        KEY,
+        CATEGORY,
+        /** {@code repoName} from {@code pair.info}, or empty. */
+        REPOSITORY,
+        /** Numeric id of the instance folder, or {@code -1}. */
+        ID,
+        TOOL,
+        CONFIGURATION,
+        VERDICT,
+        WALL_NANOS,
+        /** Bytes allocated by the tool, or {@code -1}. */
+        ALLOCATED_BYTES,
+        /** SHA-256 of the candidate, so that runs can be compared without reading candidates. */
+        CANDIDATE_HASH,
+        CANDIDATE,
+        ERROR;
+
+        boolean isDictionary() {
+            return this == CATEGORY || this == REPOSITORY || this == TOOL || this == CONFIGURATION;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+    private static final String[] VERDICT_NAMES = verdictNames();
+
+    private final ByteBuffer data;
+    private final int rows;
+    private final Object[] decoded = new Object[COLUMNS.length];
+    private long inflatedBytes;
+
+    private ResultsStore(ByteBuffer data) {
+        this.data = data;
+        this.rows = data.getInt(OFF_ROW_COUNT);
+    }
+
+    public static ResultsStore open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a results store: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data.get(i) != MAGIC[i]) {
+                    throw new IOException("Not a results store: " + file);
+                }
+            }
+            int version = data.getInt(OFF_VERSION);
+            if (version != VERSION) {
+                throw new IOException("Unsupported results store version " + version);
+            }
+            if (data.getInt(OFF_FILE_LENGTH) != size) {
+                throw new IOException("Truncated results store: " + file);
+            }
+            if (data.getInt(OFF_COLUMN_COUNT) != COLUMNS.length) {
+                throw new IOException("Unexpected column count in " + file);
+            }
+            return new ResultsStore(data);
+        }
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public String key(int row) {
+        return strings(Column.KEY)[row];
+    }
+
+    public String category(int row) {
+        return dictionary(Column.CATEGORY).value(row);
+    }
+
+    public String repository(int row) {
+        return dictionary(Column.REPOSITORY).value(row);
+    }
+
+    public long id(int row) {
+        return longs(Column.ID)[row];
+    }
+
+    public String tool(int row) {
+        return dictionary(Column.TOOL).value(row);
+    }
+
+    public String configuration(int row) {
+        return dictionary(Column.CONFIGURATION).value(row);
+    }
+
+    public Verdict verdict(int row) {
+        return Verdict.values()[verdicts()[row]];
+    }
+
+    public long wallNanos(int row) {
+        return longs(Column.WALL_NANOS)[row];
+    }
+
+    public long allocatedBytes(int row) {
+        return longs(Column.ALLOCATED_BYTES)[row];
+    }
+
+    /** SHA-256 of the candidate, or {@code null} if the tool returned none. */
+    public byte[] candidateHash(int row) {
+        byte[] hashes = (byte[]) column(Column.CANDIDATE_HASH);
+        int from = row * ContentHash.LENGTH;
+        for (int i = from; i < from + ContentHash.LENGTH; i++) {
+            if (hashes[i] != 0) {
+                return Arrays.copyOfRange(hashes, from, from + ContentHash.LENGTH);
+            }
+        }
+        return null;
+    }
+
+    /** Whether two rows, possibly of different stores, have the same candidate or both none. */
+    public boolean sameCandidate(int row, ResultsStore other, int otherRow) {
+        byte[] a = (byte[]) column(Column.CANDIDATE_HASH);
+        byte[] b = (byte[]) other.column(Column.CANDIDATE_HASH);
+        return Arrays.equals(a, row * ContentHash.LENGTH, (row + 1) * ContentHash.LENGTH,
+                b, otherRow * ContentHash.LENGTH, (otherRow + 1) * ContentHash.LENGTH);
+    }
+
+    /** The tool's output, or {@code null}. */
+    public ByteBuffer candidate(int row) {
+        Blobs blobs = (Blobs) column(Column.CANDIDATE);
+        int ref = blobs.refs[row];
+        if (ref < 0) {
+            return null;
+        }
+        int start = blobs.starts[ref];
+        return blobs.data.duplicate().position(start).limit(start + blobs.lengths[ref]).slice()
+                .asReadOnlyBuffer();
+    }
+
+    public String error(int row) {
+        return strings(Column.ERROR)[row];
+    }
+
+    /** The row as a harness result. */
+    public InstanceResult result(int row) {
+        return new InstanceResult(key(row), category(row), tool(row), verdict(row), wallNanos(row),
+                allocatedBytes(row), candidate(row), error(row));
+    }
+
+    /**
+     * The row of an instance, tool and configuration, or {@code -1}. A binary search over the
+     * sorted keys.
+     */
+    public int find(String key, String tool, String configuration) {
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, key, tool, configuration);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Compares a row with an instance, tool and configuration in the store's sort order. */
+    int compare(int row, String key, String tool, String configuration) {
+        int cmp = key(row).compareTo(key);
+        if (cmp == 0) {
+            cmp = tool(row).compareTo(tool);
+        }
+        return cmp == 0 ? configuration(row).compareTo(configuration) : cmp;
+    }
+
+    /**
+     * Aggregates the rows by the values of one or more of {@code CATEGORY}, {@code REPOSITORY},
+     * {@code TOOL}, {@code CONFIGURATION} and {@code VERDICT}. Keys of several columns are joined
+     * with tabs; the map is sorted by key.
+     */
+    public Map<String, Group> groupBy(Column... columns) {
+        int[][] codes = new int[columns.length][];
+        String[][] names = new String[columns.length][];
+        long groups = 1;
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c] == Column.VERDICT) {
+                codes[c] = verdictCodes();
+                names[c] = VERDICT_NAMES;
+            } else if (columns[c].isDictionary()) {
+                Dictionary dictionary = dictionary(columns[c]);
+                codes[c] = dictionary.codes;
+                names[c] = dictionary.values;
+            } else {
+                throw new IllegalArgumentException("Cannot group by " + columns[c]);
+            }
+            groups *= Math.max(1, names[c].length);
+        }
+        byte[] verdicts = verdicts();
+        long[] wall = longs(Column.WALL_NANOS);
+        long[] allocated = longs(Column.ALLOCATED_BYTES);
+        // Mixed-radix group numbers; dense when the product of the dictionary sizes is small.
+        Map<Long, Group> sparse = groups > 1 << 16 ? new HashMap<>() : null;
+        Group[] dense = sparse == null ? new Group[(int) groups] : null;
+        for (int row = 0; row < rows; row++) {
+            long number = 0;
+            for (int c = 0; c < columns.length; c++) {
+                number = number * names[c].length + codes[c][row];
+            }
+            Group group = dense != null ? dense[(int) number] : sparse.get(number);
+            if (group == null) {
+                StringBuilder name = new StringBuilder();
+                for (int c = 0; c < columns.length; c++) {
+                    name.append(c == 0 ? "" : "\t").append(names[c][codes[c][row]]);
+                }
+                group = new Group(name.toString());
+                if (dense != null) {
+                    dense[(int) number] = group;
+                } else {
+                    sparse.put(number, group);
+                }
+            }
+            group.add(verdicts[row], wall[row], allocated[row]);
+        }
+        Map<String, Group> result = new TreeMap<>();
+        for (Group group : dense != null ? Arrays.asList(dense) : sparse.values()) {
+            if (group != null) {
+                result.put(group.name, group);
+            }
+        }
+        return result;
+    }
+
+    /** Columns inflated so far. */
+    public synchronized Set<Column> loadedColumns() {
+        Set<Column> loaded = EnumSet.noneOf(Column.class);
+        for (Column column : COLUMNS) {
+            if (decoded[column.ordinal()] != null) {
+                loaded.add(column);
+            }
+        }
+        return loaded;
+    }
+
+    /** Bytes inflated so far. */
+    public synchronized long inflatedBytes() {
+        return inflatedBytes;
+    }
+
+    private String[] strings(Column column) {
+        return (String[]) column(column);
+    }
+
+    private long[] longs(Column column) {
+        return (long[]) column(column);
+    }
+
+    private byte[] verdicts() {
+        return (byte[]) column(Column.VERDICT);
+    }
+
+    private int[] verdictCodes() {
+        byte[] verdicts = verdicts();
+        int[] codes = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            codes[row] = verdicts[row];
+        }
+        return codes;
+    }
+
+    private Dictionary dictionary(Column column) {
+        return (Dictionary) column(column);
+    }
+
+    private synchronized Object column(Column column) {
+        Object values = decoded[column.ordinal()];
+        if (values == null) {
+            ByteBuffer in = inflate(column);
+            inflatedBytes += in.remaining();
+            values = decode(column, in);
+            decoded[column.ordinal()] = values;
+        }
+        return values;
+    }
+
+    private ByteBuffer inflate(Column column) {
+        int entry = HEADER_SIZE + column.ordinal() * DIRECTORY_ENTRY;
+        int offset = data.getInt(entry);
+        int length = data.getInt(entry + 4);
+        byte[] raw = new byte[data.getInt(entry + 8)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.duplicate().position(offset).limit(offset + length));
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                n += inflater.inflate(raw, n, raw.length - n);
+                if (inflater.needsInput() && n < raw.length) {
+                    throw new IllegalStateException("Truncated column " + column);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column " + column, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private Object decode(Column column, ByteBuffer in) {
+        switch (column) {
+            case KEY: {
+                String[] keys = new String[rows];
+                String previous = "";
+                for (int row = 0; row < rows; row++) {
+                    int shared = ByteSink.readVarint(in);
+                    previous = previous.substring(0, shared) + ByteSink.readString(in);
+                    keys[row] = previous;
+                }
+                return keys;
+            }
+            case CATEGORY:
+            case REPOSITORY:
+            case TOOL:
+            case CONFIGURATION: {
+                String[] values = new String[ByteSink.readVarint(in)];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ByteSink.readString(in);
+                }
+                int[] codes = new int[rows];
+                for (int row = 0; row < rows; row++) {
+                    codes[row] = ByteSink.readVarint(in);
+                }
+                return new Dictionary(values, codes);
+            }
+            case ID:
+            case ALLOCATED_BYTES: {
+                long[] values = new long[rows];
+                for (int row = 0; row < rows; row++) {
+                    values[row] = ByteSink.readVarlong(in) - 1;
+                }
+                return values;
+            }
+            case WALL_NANOS: {
+                long[] values = new long[rows];
+                for (int row = 0; row < rows; row++) {
+                    values[row] = ByteSink.readVarlong(in);
+                }
+                return values;
+            }
+            case VERDICT:
+            case CANDIDATE_HASH:
+                return in.array();
+            case CANDIDATE: {
+                int count = ByteSink.readVarint(in);
+                int[] starts = new int[count];
+                int[] lengths = new int[count];
+                for (int i = 0; i < count; i++) {
+                    lengths[i] = ByteSink.readVarint(in);
+                    starts[i] = in.position();
+                    in.position(in.position() + lengths[i]);
+                }
+                int[] refs = new int[rows];
+                for (int row = 0; row < rows; row++) {
+                    refs[row] = ByteSink.readVarint(in) - 1;
+                }
+                return new Blobs(in, starts, lengths, refs);
+            }
+            case ERROR: {
+                String[] errors = new String[rows];
+                for (int row = 0; row < rows; row++) {
+                    errors[row] = ByteSink.readVarint(in) == 0 ? null : ByteSink.readString(in);
+                }
+                return errors;
+            }
+            default:
+                throw new AssertionError(column);
+        }
+    }
+
+    private static String[] verdictNames() {
+        Verdict[] verdicts = Verdict.values();
+        String[] names = new String[verdicts.length];
+        for (int i = 0; i < verdicts.length; i++) {
+            names[i] = verdicts[i].name();
+        }
+        return names;
+    }
+
+    /** Aggregate of the rows sharing one group-by key. */
+    public static final class Group {
+        private final String name;
+        private final int[] verdicts = new int[Verdict.values().length];
+        private int rows;
+        private long wallNanos;
+        private long allocatedBytes;
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        void add(int verdict, long wall, long allocated) {
+            verdicts[verdict]++;
+            rows++;
+            wallNanos += wall;
+            allocatedBytes += Math.max(0, allocated);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        public int count(Verdict verdict) {
+            return verdicts[verdict.ordinal()];
+        }
+
+        public long wallNanos() {
+            return wallNanos;
+        }
+
+        /** Sum over the rows that report allocation. */
+        public long allocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + count(Verdict.REPRODUCED) + "/" + rows + " reproduced";
+        }
+    }
+
+    /** The inflated candidate column: distinct candidates and which of them each row has. */
+    private static final class Blobs {
+        final ByteBuffer data;
+        final int[] starts;
+        final int[] lengths;
+        /** Index into {@code starts} per row, {@code -1} for none. */
+        final int[] refs;
+
+        Blobs(ByteBuffer data, int[] starts, int[] lengths, int[] refs) {
+            this.data = data;
+            this.starts = starts;
+            this.lengths = lengths;
+            this.refs = refs;
+        }
+    }
+
+    /** Distinct values and the code of each row. */
+    private static final class Dictionary {
+        final String[] values;
+        final int[] codes;
+
+        Dictionary(String[] values, int[] codes) {
+            this.values = values;
+            this.codes = codes;
+        }
+
+        String value(int row) {
+            return values[codes[row]];
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package fixbench.results;
+
+import fixbench.corpus.ContentHash;
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.InstanceMetadata;
+import fixbench.corpus.PairInfoParser;
+import fixbench.eval.InstanceResult;
+import fixbench.eval.Verdict;
+import fixbench.io.ByteSink;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+
+/**
+ * Collects evaluation results and writes them as a {@link ResultsStore}. A writer is a thread-safe
+ * sink for {@link fixbench.eval.EvaluationHarness}; the repository and numeric id of each instance
+ * are looked up in its {@code pair.info}. Rows of earlier runs can be added with {@link #addAll},
+ * so one store can hold several tools and configurations; a later row replaces an earlier one with
+ * the same instance, tool and configuration.
+ */
+public final class ResultsWriter implements Consumer<InstanceResult> {
+    private static final Comparator<Row> ORDER = Comparator.<Row, String>comparing(row -> row.key)
+            .thenComparing(row -> row.tool).thenComparing(row -> row.configuration);
+
+    private final String configuration;
+    private final Map<String, CorpusInstance> instances = new HashMap<>();
+    private final PairInfoParser parser = new PairInfoParser();
+    private final List<Row> rows = new ArrayList<>();
+
+    /** A writer whose results, unless added with an explicit one, belong to {@code configuration}. */
+    public ResultsWriter(Corpus corpus, String configuration) {
+        this.configuration = configuration;
+        for (CorpusInstance instance : corpus.instances()) {
+            instances.put(instance.key(), instance);
+        }
+    }
+
+    @Override
+    public void accept(InstanceResult result) {
+        add(result, configuration);
+    }
+
+    public void add(InstanceResult result, String configuration) {
+        CorpusInstance instance = instances.get(result.key());
+        InstanceMetadata meta = instance == null ? null : parser.parse(instance);
+        ByteBuffer candidate = result.candidate();
+        Row row = new Row(result.key(), result.category(),
+                meta == null || meta.repoName() == null ? "" : meta.repoName(), meta == null ? -1 : meta.id(),
+                result.tool(), configuration, result.verdict(), result.wallNanos(), result.allocatedBytes(),
+                candidate == null ? null : ContentHash.of(candidate), candidate, result.error());
+        synchronized (this) {
+            rows.add(row);
+        }
+    }
+
+    /** Adds every row of an existing store, e.g. to extend it with another run. */
+    public synchronized void addAll(ResultsStore store) {
+        for (int row = 0; row < store.size(); row++) {
+            rows.add(new Row(store.key(row), store.category(row), store.repository(row), store.id(row),
+                    store.tool(row), store.configuration(row), store.verdict(row), store.wallNanos(row),
+                    store.allocatedBytes(row), store.candidateHash(row), store.candidate(row), store.error(row)));
+        }
+    }
+
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /** Writes the rows, ordered by instance key, tool and configuration, and returns the file size. */
+    public synchronized long write(Path file) throws IOException {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(ORDER);
+        List<Row> unique = new ArrayList<>(sorted.size());
+        for (Row row : sorted) {
+            // The sort is stable, so of equal rows the last one added comes last and wins.
+            if (!unique.isEmpty() && ORDER.compare(unique.get(unique.size() - 1), row) == 0) {
+                unique.set(unique.size() - 1, row);
+            } else {
+                unique.add(row);
+            }
+        }
+        ResultsStore.Column[] columns = ResultsStore.Column.values();
+        List<byte[]> compressed = new ArrayList<>(columns.length);
+        int[] rawLengths = new int[columns.length];
+        for (ResultsStore.Column column : columns) {
+            ByteSink raw = encode(column, unique);
+            rawLengths[column.ordinal()] = raw.size();
+            compressed.add(deflate(raw));
+        }
+        ByteSink out = new ByteSink(4096);
+        out.put(ResultsStore.MAGIC, 0, ResultsStore.MAGIC.length);
+        out.putInt(ResultsStore.VERSION).putInt(unique.size()).putInt(columns.length).putInt(0);
+        int offset = ResultsStore.HEADER_SIZE + columns.length * ResultsStore.DIRECTORY_ENTRY;
+        for (ResultsStore.Column column : columns) {
+            int length = compressed.get(column.ordinal()).length;
+            out.putInt(offset).putInt(length).putInt(rawLengths[column.ordinal()]);
+            offset += length;
+        }
+        for (byte[] block : compressed) {
+            out.put(block, 0, block.length);
+        }
+        out.setInt(ResultsStore.OFF_FILE_LENGTH, out.size());
+        out.writeAtomically(file);
+        return out.size();
+    }
+
+    private static ByteSink encode(ResultsStore.Column column, List<Row> rows) {
+        ByteSink out = new ByteSink(rows.size() * 4);
+        switch (column) {
+            case KEY:
+                // Front coding: keys are sorted, so neighbours share most of their path.
+                String previous = "";
+                for (Row row : rows) {
+                    int shared = sharedPrefix(previous, row.key);
+                    out.putVarint(shared).putString(row.key.substring(shared));
+                    previous = row.key;
+                }
+                break;
+            case CATEGORY:
+                dictionary(out, rows, row -> row.category);
+                break;
+            case REPOSITORY:
+                dictionary(out, rows, row -> row.repository);
+                break;
+            case ID:
+                for (Row row : rows) {
+                    out.putVarlong(row.id + 1);
+                }
+                break;
+            case TOOL:
+                dictionary(out, rows, row -> row.tool);
+                break;
+            case CONFIGURATION:
+                dictionary(out, rows, row -> row.configuration);
+                break;
+            case VERDICT:
+                for (Row row : rows) {
+                    out.putByte(row.verdict.ordinal());
+                }
+                break;
+            case WALL_NANOS:
+                for (Row row : rows) {
+                    out.putVarlong(row.wallNanos);
+                }
+                break;
+            case ALLOCATED_BYTES:
+                for (Row row : rows) {
+                    out.putVarlong(row.allocatedBytes + 1);
+                }
+                break;
+            case CANDIDATE_HASH:
+                byte[] none = new byte[ContentHash.LENGTH];
+                for (Row row : rows) {
+                    out.put(row.candidateHash == null ? none : row.candidateHash, 0, ContentHash.LENGTH);
+                }
+                break;
+            case CANDIDATE:
+                // Each distinct candidate once, then per row its number plus one, or 0 for none. Views
+                // share sources, so tools often produce the same candidate for several rows.
+                Map<String, Integer> distinct = new HashMap<>();
+                List<ByteBuffer> blobs = new ArrayList<>();
+                int[] refs = new int[rows.size()];
+                for (int i = 0; i < rows.size(); i++) {
+                    Row row = rows.get(i);
+                    if (row.candidate != null) {
+                        String hash = ContentHash.toHex(row.candidateHash);
+                        Integer ref = distinct.get(hash);
+                        if (ref == null) {
+                            ref = blobs.size();
+                            distinct.put(hash, ref);
+                            blobs.add(row.candidate);
+                        }
+                        refs[i] = ref + 1;
+                    }
+                }
+                out.putVarint(blobs.size());
+                for (ByteBuffer blob : blobs) {
+                    out.putVarint(blob.remaining()).put(blob);
+                }
+                for (int ref : refs) {
+                    out.putVarint(ref);
+                }
+                break;
+            case ERROR:
+                for (Row row : rows) {
+                    if (row.error == null) {
+                        out.putVarint(0);
+                    } else {
+                        out.putVarint(1).putString(row.error);
+                    }
+                }
+                break;
+            default:
+                throw new AssertionError(column);
+        }
+        return out;
+    }
+
+    /** Distinct values in order of first use, then one code per row. */
+    private static void dictionary(ByteSink out, List<Row> rows, Function<Row, String> value) {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (Row row : rows) {
+            codes.putIfAbsent(value.apply(row), codes.size());
+        }
+        out.putVarint(codes.size());
+        for (String name : codes.keySet()) {
+            out.putString(name);
+        }
+        for (Row row : rows) {
+            out.putVarint(codes.get(value.apply(row)));
+        }
+    }
+
+    private static byte[] deflate(ByteSink raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw.toBuffer());
+            deflater.finish();
+            ByteSink out = new ByteSink(raw.size() / 4 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.put(chunk, 0, n);
+            }
+            ByteBuffer bytes = out.toBuffer();
+            byte[] result = new byte[bytes.remaining()];
+            bytes.get(result);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // Do not split a surrogate pair between the prefix and the suffix.
+        return i > 0 && Character.isHighSurrogate(a.charAt(i - 1)) ? i - 1 : i;
+    }
+
+    private static final class Row {
+        final String key;
+        final String category;
+        final String repository;
+        final long id;
+        final String tool;
+        final String configuration;
+        final Verdict verdict;
+        final long wallNanos;
+        final long allocatedBytes;
+        final byte[] candidateHash;
+        final ByteBuffer candidate;
+        final String error;
+
+        Row(String key, String category, String repository, long id, String tool, String configuration,
+                Verdict verdict, long wallNanos, long allocatedBytes, byte[] candidateHash, ByteBuffer candidate,
+                String error) {
+            this.key = key;
+            this.category = category;
+            this.repository = repository;
+            this.id = id;
+            this.tool = tool;
+            this.configuration = configuration;
+            this.verdict = verdict;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.candidateHash = candidateHash;
+            this.candidate = candidate;
+            this.error = error;
+        }
+    }
+}
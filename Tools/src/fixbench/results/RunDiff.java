@@ -0,0 +1,149 @@
+package fixbench.results;
+
+import fixbench.eval.Verdict;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What changed between two results stores: rows whose verdict or candidate differ, and rows only
+ * one of them has. Both stores are sorted by instance, tool and configuration, so the rows are
+ * matched in one merge pass that reads only the key, tool, configuration, verdict and candidate
+ * hash columns.
+ */
+public final class RunDiff {
+    private final List<Change> changes;
+    private final int unchanged;
+
+    private RunDiff(List<Change> changes, int unchanged) {
+        this.changes = changes;
+        this.unchanged = unchanged;
+    }
+
+    public static RunDiff of(ResultsStore before, ResultsStore after) {
+        List<Change> changes = new ArrayList<>();
+        int unchanged = 0;
+        int a = 0;
+        int b = 0;
+        while (a < before.size() || b < after.size()) {
+            int cmp = a == before.size() ? 1 : b == after.size() ? -1
+                    : before.compare(a, after.key(b), after.tool(b), after.configuration(b));
+            if (cmp < 0) {
+                changes.add(new Change(before.key(a), before.tool(a), before.configuration(a), before.verdict(a),
+                        null, true));
+                a++;
+            } else if (cmp > 0) {
+                changes.add(new Change(after.key(b), after.tool(b), after.configuration(b), null, after.verdict(b),
+                        true));
+                b++;
+            } else {
+                Verdict was = before.verdict(a);
+                Verdict now = after.verdict(b);
+                boolean candidateChanged = !before.sameCandidate(a, after, b);
+                if (was != now || candidateChanged) {
+                    changes.add(new Change(after.key(b), after.tool(b), after.configuration(b), was, now,
+                            candidateChanged));
+                } else {
+                    unchanged++;
+                }
+                a++;
+                b++;
+            }
+        }
+        return new RunDiff(Collections.unmodifiableList(changes), unchanged);
+    }
+
+    /** Changed, added and removed rows in store order. */
+    public List<Change> changes() {
+        return changes;
+    }
+
+    /** Rows present in both stores with the same verdict and candidate. */
+    public int unchanged() {
+        return unchanged;
+    }
+
+    /** Rows reproduced before but not after. */
+    public int regressions() {
+        int count = 0;
+        for (Change change : changes) {
+            count += change.isRegression() ? 1 : 0;
+        }
+        return count;
+    }
+
+    /** Rows reproduced after but not before. */
+    public int improvements() {
+        int count = 0;
+        for (Change change : changes) {
+            count += change.isImprovement() ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return changes.size() + " changed, " + unchanged + " unchanged, " + improvements() + " newly reproduced, "
+                + regressions() + " no longer reproduced";
+    }
+
+    /** One row that differs between the runs. */
+    public static final class Change {
+        private final String key;
+        private final String tool;
+        private final String configuration;
+        private final Verdict before;
+        private final Verdict after;
+        private final boolean candidateChanged;
+
+        Change(String key, String tool, String configuration, Verdict before, Verdict after,
+                boolean candidateChanged) {
+            this.key = key;
+            this.tool = tool;
+            this.configuration = configuration;
+            this.before = before;
+            this.after = after;
+            this.candidateChanged = candidateChanged;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public String tool() {
+            return tool;
+        }
+
+        public String configuration() {
+            return configuration;
+        }
+
+        /** Verdict in the first run, or {@code null} if the row is new. */
+        public Verdict before() {
+            return before;
+        }
+
+        /** Verdict in the second run, or {@code null} if the row was removed. */
+        public Verdict after() {
+            return after;
+        }
+
+        public boolean candidateChanged() {
+            return candidateChanged;
+        }
+
+        public boolean isRegression() {
+            return before == Verdict.REPRODUCED && after != null && after != Verdict.REPRODUCED;
+        }
+
+        public boolean isImprovement() {
+            return after == Verdict.REPRODUCED && before != null && before != Verdict.REPRODUCED;
+        }
+
+        @Override
+        public String toString() {
+            return key + '\t' + tool + '\t' + configuration + '\t' + (before == null ? "-" : before) + '\t'
+                    + (after == null ? "-" : after) + (candidateChanged && before == after ? "\tcandidate" : "");
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package fixbench.similar;
+
+import fixbench.edit.EditScript;
+import fixbench.java.NodeKind;
+import fixbench.java.SyntaxTree;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.util.Arrays;
+
+/**
+ * Structural features of a fix and their MinHash signature. Features are 64-bit hashes of:
+ *
+ * <ul>
+ * <li>each action with the node kind and its parent's kind, e.g. {@code INSERT STATEMENT in BLOCK};</li>
+ * <li>the shape of each inserted or deleted subtree, with local names abstracted, e.g.
+ * {@code if (ID != null) {}} for a null guard whatever the guarded variable;</li>
+ * <li>each inserted, deleted or updated token, e.g. {@code Locale} and {@code ENGLISH}.</li>
+ * </ul>
+ *
+ * Method names, type-like names (capitalized) and keywords are kept, other identifiers and all
+ * literals are abstracted, so fixes of the same pattern in different code share most features.
+ */
+public final class FixFingerprint {
+    /** Length of the MinHash signature. */
+    public static final int SIGNATURE_LENGTH = 64;
+
+    private static final long[] SEEDS = new long[SIGNATURE_LENGTH];
+
+    static {
+        long seed = 0x2545f4914f6cdd1dL;
+        for (int i = 0; i < SEEDS.length; i++) {
+            seed = mix(seed + 0x9e3779b97f4a7c15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final String category;
+    private final String name;
+    private final long[] features;
+    private final int[] signature;
+
+    FixFingerprint(String category, String name, long[] features, int[] signature) {
+        this.category = category;
+        this.name = name;
+        this.features = features;
+        this.signature = signature;
+    }
+
+    public static FixFingerprint of(String category, String name, EditScript script, SyntaxTree src,
+            SyntaxTree dst) {
+        long[] features = features(script, src, dst);
+        return new FixFingerprint(category, name, features, minHash(features));
+    }
+
+    public String category() {
+        return category;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** {@code category/name}, the same for an instance in every view. */
+    public String id() {
+        return category + '/' + name;
+    }
+
+    /** Distinct feature hashes in ascending order. */
+    public long[] features() {
+        return features.clone();
+    }
+
+    public int[] signature() {
+        return signature.clone();
+    }
+
+    int[] signatureView() {
+        return signature;
+    }
+
+    /** Exact Jaccard similarity of the feature sets. */
+    public double jaccard(FixFingerprint other) {
+        long[] a = features;
+        long[] b = other.features;
+        if (a.length == 0 && b.length == 0) {
+            return 1;
+        }
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    /** Fraction of equal signature positions, an estimate of {@link #jaccard}. */
+    public double estimate(FixFingerprint other) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+            if (signature[i] == other.signature[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_LENGTH;
+    }
+
+    static int[] minHash(long[] features) {
+        int[] signature = new int[SIGNATURE_LENGTH];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long feature : features) {
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                int h = (int) (mix(feature ^ SEEDS[i]) >>> 33);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long[] features(EditScript script, SyntaxTree src, SyntaxTree dst) {
+        boolean[] moved = new boolean[dst.size()];
+        for (int i = 0; i < script.size(); i++) {
+            if (script.type(i) == EditScript.Type.MOVE) {
+                moved[script.target(i)] = true;
+            }
+        }
+        Features features = new Features();
+        for (int i = 0; i < script.size(); i++) {
+            EditScript.Type type = script.type(i);
+            SyntaxTree tree = type == EditScript.Type.INSERT ? dst : src;
+            int node = type == EditScript.Type.INSERT ? script.target(i) : script.source(i);
+            int parent = tree.parent(node);
+            long base = mix(type.ordinal() + 1);
+            features.add(mix(base ^ (tree.kind(node).ordinal() + 1) * 31L
+                    ^ (parent < 0 ? 0 : tree.kind(parent).ordinal() + 1) * 961L));
+            switch (type) {
+                case INSERT:
+                    features.add(mix(base ^ shape(dst, node, moved)));
+                    leaves(dst, node, moved, base, features);
+                    break;
+                case DELETE:
+                    features.add(mix(base ^ shape(src, node, null)));
+                    leaves(src, node, null, base, features);
+                    break;
+                case UPDATE:
+                    if (src.kind(node) == NodeKind.TOKEN) {
+                        features.add(mix(base ^ label(src, node) * 31 ^ label(dst, script.target(i))));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return features.distinct();
+    }
+
+    /** Hash of the subtree's kinds and abstracted labels, skipping moved subtrees. */
+    private static long shape(SyntaxTree tree, int node, boolean[] moved) {
+        long hash = tree.kind(node).ordinal() + 1;
+        if (tree.kind(node) == NodeKind.TOKEN) {
+            return mix(hash * 31 + label(tree, node));
+        }
+        for (int child = tree.firstChild(node); child >= 0; child = tree.nextSibling(child)) {
+            if (moved == null || !moved[child]) {
+                hash = hash * 31 + shape(tree, child, moved);
+            }
+        }
+        return mix(hash);
+    }
+
+    /** Adds a feature per token leaf of the subtree. */
+    private static void leaves(SyntaxTree tree, int node, boolean[] moved, long base, Features features) {
+        int end = node + tree.subtreeSize(node);
+        for (int n = node; n < end; n++) {
+            if (moved != null && moved[n]) {
+                n += tree.subtreeSize(n) - 1;
+            } else if (tree.kind(n) == NodeKind.TOKEN) {
+                features.add(mix(base * 7 ^ label(tree, n)));
+            }
+        }
+    }
+
+    /** Hash of a token's text, or of its kind if the text is abstracted. */
+    private static long label(SyntaxTree tree, int node) {
+        Tokens tokens = tree.tokens();
+        int token = tree.firstToken(node);
+        TokenKind kind = tokens.kind(token);
+        boolean keep;
+        switch (kind) {
+            case IDENTIFIER:
+                keep = tokens.is(token + 1, '(') || Character.isUpperCase(tokens.source().get(tokens.start(token)));
+                break;
+            case NUMBER:
+            case STRING:
+            case CHAR:
+                keep = false;
+                break;
+            default:
+                keep = true;
+        }
+        return keep ? tokens.textHash(token) & 0xffffffffL | (long) kind.ordinal() << 32 : kind.ordinal();
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Features {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] distinct() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[count - 1]) {
+                    sorted[count++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, count);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package fixbench.similar;
+
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.edit.EditScript;
+import fixbench.edit.EditScriptStore;
+import fixbench.io.ByteSink;
+import fixbench.java.SyntaxTreeCache;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Nearest-neighbour search over {@link FixFingerprint}s. Signatures are split into
+ * {@value #BANDS} bands of {@value #ROWS} rows; fixes sharing a band are candidates, which are
+ * ranked by exact Jaccard similarity. With this banding a pair at similarity 0.5 becomes a
+ * candidate with probability 0.64, a pair at 0.8 with probability 0.999.
+ */
+public final class FixIndex {
+    static final int BANDS = 16;
+    static final int ROWS = FixFingerprint.SIGNATURE_LENGTH / BANDS;
+    private static final int MAGIC = 0x46584658;
+    private static final int VERSION = 1;
+
+    private final List<FixFingerprint> fixes;
+    private final Map<String, Integer> byId;
+    /** Positions of each category's fixes, the fallback scan of {@link #nearestInCategory}. */
+    private final Map<String, int[]> byCategory;
+    private final List<Map<Long, int[]>> bands;
+
+    private FixIndex(List<FixFingerprint> fixes) {
+        this.fixes = fixes;
+        this.byId = new HashMap<>(fixes.size() * 2);
+        this.byCategory = new HashMap<>();
+        this.bands = new ArrayList<>(BANDS);
+        Map<String, List<Integer>> categories = new HashMap<>();
+        List<Map<Long, List<Integer>>> lists = new ArrayList<>(BANDS);
+        for (int b = 0; b < BANDS; b++) {
+            lists.add(new HashMap<>());
+        }
+        for (int i = 0; i < fixes.size(); i++) {
+            FixFingerprint fix = fixes.get(i);
+            byId.put(fix.id(), i);
+            categories.computeIfAbsent(fix.category(), k -> new ArrayList<>()).add(i);
+            for (int b = 0; b < BANDS; b++) {
+                lists.get(b).computeIfAbsent(band(fix, b), k -> new ArrayList<>()).add(i);
+            }
+        }
+        for (Map<Long, List<Integer>> list : lists) {
+            Map<Long, int[]> band = new HashMap<>(list.size() * 2);
+            for (Map.Entry<Long, List<Integer>> bucket : list.entrySet()) {
+                band.put(bucket.getKey(), bucket.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            bands.add(band);
+        }
+        for (Map.Entry<String, List<Integer>> category : categories.entrySet()) {
+            byCategory.put(category.getKey(),
+                    category.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    public static FixIndex of(List<FixFingerprint> fixes) {
+        return new FixIndex(new ArrayList<>(fixes));
+    }
+
+    /**
+     * Fingerprints the edit script of every instance, once per {@code category/name}. Parsed
+     * trees come from {@code cache} when one is given.
+     */
+    public static FixIndex build(Corpus corpus, EditScriptStore scripts, SyntaxTreeCache cache)
+            throws IOException {
+        Map<String, FixFingerprint> fixes = new LinkedHashMap<>();
+        for (CorpusInstance instance : corpus.instances()) {
+            String id = instance.category() + '/' + instance.name();
+            EditScript script = fixes.containsKey(id) ? null : scripts.get(instance);
+            if (script != null) {
+                fixes.put(id, FixFingerprint.of(instance.category(), instance.name(), script,
+                        SyntaxTreeCache.tree(instance.oldSource(), cache),
+                        SyntaxTreeCache.tree(instance.newSource(), cache)));
+            }
+        }
+        return new FixIndex(new ArrayList<>(fixes.values()));
+    }
+
+    public int size() {
+        return fixes.size();
+    }
+
+    public List<FixFingerprint> fixes() {
+        return Collections.unmodifiableList(fixes);
+    }
+
+    /** The fingerprint of an instance, in any view, or {@code null}. */
+    public FixFingerprint get(String category, String name) {
+        Integer index = byId.get(category + '/' + name);
+        return index == null ? null : fixes.get(index);
+    }
+
+    public FixFingerprint get(CorpusInstance instance) {
+        return get(instance.category(), instance.name());
+    }
+
+    /**
+     * The {@code k} fixes most similar to {@code query} that pass {@code filter}, most similar
+     * first, excluding the query itself. If the banded candidates do not yield {@code k} results,
+     * the remaining fixes are scanned, so the answer never comes up short.
+     */
+    public List<Neighbor> nearest(FixFingerprint query, int k, Predicate<FixFingerprint> filter) {
+        return nearest(query, k, filter, null);
+    }
+
+    /**
+     * Nearest fixes of the same category, the usual example pool of a leave-one-out run. The
+     * fallback scan visits only that category's fixes.
+     */
+    public List<Neighbor> nearestInCategory(FixFingerprint query, int k) {
+        return nearest(query, k, fix -> fix.category().equals(query.category()),
+                byCategory.getOrDefault(query.category(), new int[0]));
+    }
+
+    /** Searches the bands, then, if they come up short, {@code pool} or every fix if it is null. */
+    private List<Neighbor> nearest(FixFingerprint query, int k, Predicate<FixFingerprint> filter,
+            int[] pool) {
+        boolean[] seen = new boolean[fixes.size()];
+        List<Neighbor> result = new ArrayList<>();
+        for (int b = 0; b < BANDS; b++) {
+            int[] bucket = bands.get(b).get(band(query, b));
+            if (bucket != null) {
+                for (int i : bucket) {
+                    consider(i, query, filter, seen, result);
+                }
+            }
+        }
+        if (result.size() < k) {
+            int scanned = pool == null ? fixes.size() : pool.length;
+            for (int p = 0; p < scanned; p++) {
+                consider(pool == null ? p : pool[p], query, filter, seen, result);
+            }
+        }
+        result.sort(null);
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    private void consider(int i, FixFingerprint query, Predicate<FixFingerprint> filter, boolean[] seen,
+            List<Neighbor> result) {
+        if (seen[i]) {
+            return;
+        }
+        seen[i] = true;
+        FixFingerprint fix = fixes.get(i);
+        if (fix.id().equals(query.id()) || !filter.test(fix)) {
+            return;
+        }
+        result.add(new Neighbor(fix, query.jaccard(fix)));
+    }
+
+    private static long band(FixFingerprint fix, int band) {
+        int[] signature = fix.signatureView();
+        long hash = band;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++) {
+            hash = FixFingerprint.mix(hash * 31 + signature[r]);
+        }
+        return hash;
+    }
+
+    /** Writes the index atomically, replacing any existing file. */
+    public void save(Path file) throws IOException {
+        ByteSink.writeAtomically(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fixes.size());
+            for (FixFingerprint fix : fixes) {
+                out.writeUTF(fix.category());
+                out.writeUTF(fix.name());
+                long[] features = fix.features();
+                out.writeInt(features.length);
+                for (long feature : features) {
+                    out.writeLong(feature);
+                }
+                for (int value : fix.signatureView()) {
+                    out.writeInt(value);
+                }
+            }
+        });
+    }
+
+    public static FixIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a fix index: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported fix index version " + version);
+            }
+            int count = in.readInt();
+            List<FixFingerprint> fixes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String category = in.readUTF();
+                String name = in.readUTF();
+                long[] features = new long[in.readInt()];
+                for (int f = 0; f < features.length; f++) {
+                    features[f] = in.readLong();
+                }
+                int[] signature = new int[FixFingerprint.SIGNATURE_LENGTH];
+                for (int s = 0; s < signature.length; s++) {
+                    signature[s] = in.readInt();
+                }
+                fixes.add(new FixFingerprint(category, name, features, signature));
+            }
+            return new FixIndex(fixes);
+        }
+    }
+
+    /** A fix and its similarity to the query; ordered most similar first, then by id. */
+    public static final class Neighbor implements Comparable<Neighbor> {
+        private final FixFingerprint fix;
+        private final double similarity;
+
+        Neighbor(FixFingerprint fix, double similarity) {
+            this.fix = fix;
+            this.similarity = similarity;
+        }
+
+        public FixFingerprint fix() {
+            return fix;
+        }
+
+        /** Jaccard similarity of the feature sets. */
+        public double similarity() {
+            return similarity;
+        }
+
+        @Override
+        public int compareTo(Neighbor other) {
+            int bySimilarity = Double.compare(other.similarity, similarity);
+            return bySimilarity != 0 ? bySimilarity : fix.id().compareTo(other.fix.id());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %.3f", fix.id(), similarity);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package fixbench.sites;
+
+import fixbench.java.NodeKind;
+import fixbench.java.SyntaxTree;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Features indexed per site:
+ *
+ * <ul>
+ * <li>{@code call:NAME} for a method call, e.g. {@code call:toUpperCase};</li>
+ * <li>{@code new:TYPE} for an instance creation, e.g. {@code new:String};</li>
+ * <li>{@code index} for an array access;</li>
+ * <li>{@code path:PARENT/KIND} for each node of the site's tree, e.g. {@code path:STATEMENT/BRACKETS}.</li>
+ * </ul>
+ */
+public final class SiteFeatures {
+    public static final String INDEX = "index";
+
+    private SiteFeatures() {
+    }
+
+    public static String call(String name) {
+        return "call:" + name;
+    }
+
+    public static String creation(String type) {
+        return "new:" + type;
+    }
+
+    public static String path(NodeKind parent, NodeKind kind) {
+        return "path:" + parent + '/' + kind;
+    }
+
+    /** Whether a node is a site: a statement or a field declaration. */
+    public static boolean isSite(SyntaxTree tree, int node) {
+        NodeKind kind = tree.kind(node);
+        return kind == NodeKind.STATEMENT || kind == NodeKind.FIELD;
+    }
+
+    /**
+     * Visits the nodes of a site in preorder, skipping nested statements and declarations, which
+     * are sites of their own. Stops at the first node the visitor accepts.
+     */
+    public static boolean anyOwnNode(SyntaxTree tree, int site, IntPredicate visitor) {
+        int node = tree.firstChild(site);
+        while (node >= 0) {
+            NodeKind kind = tree.kind(node);
+            if (kind != NodeKind.STATEMENT && !kind.isDeclaration()) {
+                if (visitor.test(node)) {
+                    return true;
+                }
+                if (tree.firstChild(node) >= 0) {
+                    node = tree.firstChild(node);
+                    continue;
+                }
+            }
+            while (node != site && tree.nextSibling(node) < 0) {
+                node = tree.parent(node);
+            }
+            node = node == site ? -1 : tree.nextSibling(node);
+        }
+        return false;
+    }
+
+    /** Reports the token features of token {@code t}, looking at its neighbours in the stream. */
+    public static void ofToken(Tokens tokens, int t, Consumer<String> sink) {
+        if (tokens.kind(t) == TokenKind.IDENTIFIER) {
+            if (tokens.is(t + 1, '(') && !tokens.is(t - 1, "new") && !isCreatedType(tokens, t)) {
+                sink.accept(call(tokens.text(t)));
+            }
+            if (tokens.is(t - 1, "new")) {
+                int type = t;
+                while (type + 2 < tokens.size() && tokens.is(type + 1, '.')
+                        && tokens.kind(type + 2) == TokenKind.IDENTIFIER) {
+                    type += 2;
+                }
+                sink.accept(creation(tokens.text(type)));
+            }
+        } else if (tokens.is(t, '[') && t > 0 && !tokens.is(t + 1, ']')
+                && (tokens.kind(t - 1) == TokenKind.IDENTIFIER || tokens.is(t - 1, ')') || tokens.is(t - 1, ']'))
+                && !isCreatedType(tokens, t - 1)) {
+            sink.accept(INDEX);
+        }
+    }
+
+    /** Whether the identifier at {@code t} is part of the type of a {@code new} expression. */
+    private static boolean isCreatedType(Tokens tokens, int t) {
+        int i = t;
+        while (i >= 2 && tokens.is(i - 1, '.') && tokens.kind(i - 2) == TokenKind.IDENTIFIER) {
+            i -= 2;
+        }
+        return tokens.is(i - 1, "new");
+    }
+}
@@ -0,0 +1,266 @@
+package fixbench.sites;
+
+import fixbench.corpus.ContentHash;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import fixbench.java.NodeKind;
+import fixbench.java.SyntaxTree;
+import fixbench.java.SyntaxTreeCache;
+import fixbench.java.Tokens;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from {@link SiteFeatures} to the statements and fields of every buggy source
+ * that carry them. A rule is matched only against the sites that have all of its features,
+ * which for call- or creation-based rules is a tiny fraction of the corpus.
+ */
+public final class SiteIndex {
+    /** Pseudo-feature carried by every site, to count them. */
+    private static final String SITE = "";
+
+    private final List<SourceFile> files;
+    private final Map<String, long[]> postings;
+    private final SyntaxTreeCache cache;
+    private final long sites;
+
+    private SiteIndex(List<SourceFile> files, Map<String, long[]> postings, SyntaxTreeCache cache,
+            long sites) {
+        this.files = files;
+        this.postings = postings;
+        this.cache = cache;
+        this.sites = sites;
+    }
+
+    /**
+     * Indexes the buggy source of every instance, once per distinct content. Parsed trees come
+     * from {@code cache} when one is given, which also makes matching cheap.
+     */
+    public static SiteIndex build(List<? extends CorpusInstance> instances, SyntaxTreeCache cache) {
+        Map<String, SourceFile> byHash = new LinkedHashMap<>();
+        for (CorpusInstance instance : instances) {
+            Member source = instance.oldSource();
+            if (source != null) {
+                byHash.computeIfAbsent(ContentHash.toHex(source.hash()),
+                        h -> new SourceFile(byHash.size(), source)).instances.add(instance);
+            }
+        }
+        List<SourceFile> files = new ArrayList<>(byHash.values());
+        List<Map<String, int[]>> perFile = new ArrayList<>(Collections.nCopies(files.size(), null));
+        files.parallelStream().forEach(file -> perFile.set(file.id, features(tree(file.source, cache))));
+
+        Map<String, long[]> postings = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        long sites = 0;
+        for (SourceFile file : files) {
+            Map<String, int[]> features = perFile.get(file.id);
+            for (Map.Entry<String, int[]> feature : features.entrySet()) {
+                int[] nodes = feature.getValue();
+                int count = nodes[0];
+                String key = feature.getKey();
+                long[] list = postings.get(key);
+                int size = sizes.getOrDefault(key, 0);
+                if (list == null || size + count > list.length) {
+                    list = Arrays.copyOf(list == null ? new long[0] : list, Math.max(16, (size + count) * 2));
+                    postings.put(key, list);
+                }
+                for (int i = 1; i <= count; i++) {
+                    list[size++] = (long) file.id << 32 | nodes[i];
+                }
+                sizes.put(key, size);
+            }
+            sites += features.getOrDefault(SITE, new int[1])[0];
+            perFile.set(file.id, null);
+        }
+        postings.remove(SITE);
+        postings.replaceAll((key, list) -> Arrays.copyOf(list, sizes.get(key)));
+        return new SiteIndex(files, postings, cache, sites);
+    }
+
+    /** Feature to {@code [count, node...]} for the sites of one file, nodes ascending. */
+    private static Map<String, int[]> features(SyntaxTree tree) {
+        Tokens tokens = tree.tokens();
+        Map<String, int[]> features = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (int site = 0; site < tree.size(); site++) {
+            if (!SiteFeatures.isSite(tree, site)) {
+                continue;
+            }
+            seen.clear();
+            seen.add(SITE);
+            SiteFeatures.anyOwnNode(tree, site, n -> {
+                seen.add(SiteFeatures.path(tree.kind(tree.parent(n)), tree.kind(n)));
+                if (tree.kind(n) == NodeKind.TOKEN) {
+                    SiteFeatures.ofToken(tokens, tree.firstToken(n), seen::add);
+                }
+                return false;
+            });
+            for (String feature : seen) {
+                int[] nodes = features.get(feature);
+                if (nodes == null) {
+                    nodes = new int[8];
+                    features.put(feature, nodes);
+                } else if (nodes[0] + 1 == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    features.put(feature, nodes);
+                }
+                nodes[++nodes[0]] = site;
+            }
+        }
+        return features;
+    }
+
+    /** Distinct buggy sources. */
+    public List<SourceFile> files() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /** Statements and fields indexed. */
+    public long sites() {
+        return sites;
+    }
+
+    /** Sites carrying the feature. */
+    public int count(String feature) {
+        long[] list = postings.get(feature);
+        return list == null ? 0 : list.length;
+    }
+
+    /** Every site where the rule matches. */
+    public Result search(SiteRule rule) {
+        long[] candidates = null;
+        for (String feature : rule.features()) {
+            long[] list = postings.get(feature);
+            candidates = list == null ? new long[0] : candidates == null ? list : intersect(candidates, list);
+        }
+        if (candidates == null) {
+            throw new IllegalArgumentException("A site rule needs at least one feature");
+        }
+        List<Site> matches = new ArrayList<>();
+        int i = 0;
+        while (i < candidates.length) {
+            SourceFile file = files.get((int) (candidates[i] >>> 32));
+            SyntaxTree tree = tree(file.source, cache);
+            for (; i < candidates.length && (int) (candidates[i] >>> 32) == file.id; i++) {
+                int node = (int) candidates[i];
+                if (rule.matches(tree, node)) {
+                    matches.add(new Site(file, node, tree.tokens().line(tree.firstToken(node)),
+                            tree.tokens().line(tree.lastToken(node))));
+                }
+            }
+        }
+        return new Result(candidates.length, matches);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[size++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static SyntaxTree tree(Member source, SyntaxTreeCache cache) {
+        try {
+            return SyntaxTreeCache.tree(source, cache);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** A distinct buggy source and the instances that contain it. */
+    public static final class SourceFile {
+        private final int id;
+        private final Member source;
+        private final List<CorpusInstance> instances = new ArrayList<>(2);
+
+        SourceFile(int id, Member source) {
+            this.id = id;
+            this.source = source;
+        }
+
+        public Member source() {
+            return source;
+        }
+
+        public List<CorpusInstance> instances() {
+            return Collections.unmodifiableList(instances);
+        }
+    }
+
+    /** A statement or field where a rule matches. */
+    public static final class Site {
+        private final SourceFile file;
+        private final int node;
+        private final int startLine;
+        private final int endLine;
+
+        Site(SourceFile file, int node, int startLine, int endLine) {
+            this.file = file;
+            this.node = node;
+            this.startLine = startLine;
+            this.endLine = endLine;
+        }
+
+        public SourceFile file() {
+            return file;
+        }
+
+        /** Preorder id of the site in the file's {@link SyntaxTree}. */
+        public int node() {
+            return node;
+        }
+
+        public int startLine() {
+            return startLine;
+        }
+
+        public int endLine() {
+            return endLine;
+        }
+
+        @Override
+        public String toString() {
+            return file.instances.get(0).key() + ':' + startLine + '-' + endLine;
+        }
+    }
+
+    /** Matches of a rule and the number of candidate sites it was tested on. */
+    public static final class Result {
+        private final int candidates;
+        private final List<Site> matches;
+
+        Result(int candidates, List<Site> matches) {
+            this.candidates = candidates;
+            this.matches = Collections.unmodifiableList(matches);
+        }
+
+        public int candidates() {
+            return candidates;
+        }
+
+        public List<Site> matches() {
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package fixbench.sites;
+
+import fixbench.java.SyntaxTree;
+import java.util.Set;
+
+/**
+ * A learned transformation's applicability test. {@link SiteIndex} only asks a rule to match
+ * sites that carry all of its {@link #features()}, so the features should be cheap necessary
+ * conditions and {@link #matches} the full check.
+ */
+public interface SiteRule {
+
+    /** Features every matching site has, see {@link SiteFeatures}; at least one. */
+    Set<String> features();
+
+    /** Whether the rule applies to the statement or field {@code site} of the tree. */
+    boolean matches(SyntaxTree tree, int site);
+}
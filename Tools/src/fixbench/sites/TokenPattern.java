@@ -0,0 +1,80 @@
+package fixbench.sites;
+
+import fixbench.java.JavaLexer;
+import fixbench.java.SyntaxTree;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Rule matching a token sequence within a site, e.g. {@code $s.toLowerCase()} or
+ * {@code new String($b)}. An identifier starting with {@code $} matches any one token. The
+ * features are the calls, creations and array accesses of the pattern.
+ */
+public final class TokenPattern implements SiteRule {
+    private final String pattern;
+    private final Tokens tokens;
+    private final Set<String> features;
+
+    private TokenPattern(String pattern, Tokens tokens, Set<String> features) {
+        this.pattern = pattern;
+        this.tokens = tokens;
+        this.features = features;
+    }
+
+    public static TokenPattern of(String pattern) {
+        Tokens tokens = JavaLexer.lex(ByteBuffer.wrap(pattern.getBytes(StandardCharsets.UTF_8)));
+        if (tokens.size() == 0) {
+            throw new IllegalArgumentException("Empty pattern");
+        }
+        Set<String> features = new LinkedHashSet<>();
+        for (int t = 0; t < tokens.size(); t++) {
+            if (!isPlaceholder(tokens, t)) {
+                SiteFeatures.ofToken(tokens, t, features::add);
+            }
+        }
+        if (features.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Pattern has no call, creation or array access to index on: " + pattern);
+        }
+        return new TokenPattern(pattern, tokens, Collections.unmodifiableSet(features));
+    }
+
+    @Override
+    public Set<String> features() {
+        return features;
+    }
+
+    @Override
+    public boolean matches(SyntaxTree tree, int site) {
+        Tokens source = tree.tokens();
+        int last = tree.lastToken(site);
+        return SiteFeatures.anyOwnNode(tree, site,
+                n -> tree.firstChild(n) < 0 && matchesAt(source, tree.firstToken(n), last));
+    }
+
+    private boolean matchesAt(Tokens source, int start, int last) {
+        if (start + tokens.size() - 1 > last) {
+            return false;
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!isPlaceholder(tokens, i) && !tokens.sameText(i, source, start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlaceholder(Tokens tokens, int t) {
+        return tokens.kind(t) == TokenKind.IDENTIFIER && tokens.source().get(tokens.start(t)) == '$';
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -0,0 +1,132 @@
+package fixbench.slice;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The method, constructor or initializer that holds every change of an instance, as a byte and
+ * line range of the buggy and the fixed source. The signature keys name the method independently
+ * of its position, e.g. {@code RpcServer.Connection.processOneRpc(byte[])}.
+ */
+public final class MethodSlice {
+    private final String key;
+    private final String oldSignature;
+    private final String newSignature;
+    private final byte[] oldSourceHash;
+    private final byte[] newSourceHash;
+    private final int oldStart;
+    private final int oldEnd;
+    private final int newStart;
+    private final int newEnd;
+    private final int oldStartLine;
+    private final int oldEndLine;
+    private final int newStartLine;
+    private final int newEndLine;
+
+    MethodSlice(String key, String oldSignature, String newSignature, byte[] oldSourceHash,
+            byte[] newSourceHash, int oldStart, int oldEnd, int newStart, int newEnd, int oldStartLine,
+            int oldEndLine, int newStartLine, int newEndLine) {
+        this.key = key;
+        this.oldSignature = oldSignature;
+        this.newSignature = newSignature;
+        this.oldSourceHash = oldSourceHash;
+        this.newSourceHash = newSourceHash;
+        this.oldStart = oldStart;
+        this.oldEnd = oldEnd;
+        this.newStart = newStart;
+        this.newEnd = newEnd;
+        this.oldStartLine = oldStartLine;
+        this.oldEndLine = oldEndLine;
+        this.newStartLine = newStartLine;
+        this.newEndLine = newEndLine;
+    }
+
+    /** Key of the instance, see {@link CorpusInstance#key()}. */
+    public String key() {
+        return key;
+    }
+
+    public String oldSignature() {
+        return oldSignature;
+    }
+
+    public String newSignature() {
+        return newSignature;
+    }
+
+    /** Byte offset of the method's first token in the buggy source. */
+    public int oldStart() {
+        return oldStart;
+    }
+
+    /** Byte offset just past the method in the buggy source. */
+    public int oldEnd() {
+        return oldEnd;
+    }
+
+    public int newStart() {
+        return newStart;
+    }
+
+    public int newEnd() {
+        return newEnd;
+    }
+
+    public int oldStartLine() {
+        return oldStartLine;
+    }
+
+    public int oldEndLine() {
+        return oldEndLine;
+    }
+
+    public int newStartLine() {
+        return newStartLine;
+    }
+
+    public int newEndLine() {
+        return newEndLine;
+    }
+
+    /** SHA-256 of the buggy source the slice was taken from. */
+    byte[] oldSourceHash() {
+        return oldSourceHash.clone();
+    }
+
+    /** SHA-256 of the fixed source the slice was taken from. */
+    byte[] newSourceHash() {
+        return newSourceHash.clone();
+    }
+
+    /**
+     * The method's bytes in the instance's buggy source. With a pack this is a slice of the
+     * mapping, so the rest of the file is never read: the source's hash comes from the pack's blob
+     * table.
+     *
+     * @throws IllegalStateException if the source is not the one the slice was taken from
+     */
+    public ByteBuffer oldMethod(CorpusInstance instance) {
+        return slice(instance.oldSource(), oldSourceHash, oldStart, oldEnd);
+    }
+
+    /** The method's bytes in the instance's fixed source. */
+    public ByteBuffer newMethod(CorpusInstance instance) {
+        return slice(instance.newSource(), newSourceHash, newStart, newEnd);
+    }
+
+    private ByteBuffer slice(Member source, byte[] hash, int start, int end) {
+        if (source == null || !Arrays.equals(source.hash(), hash)) {
+            throw new IllegalStateException("Method slice of " + key + " does not match its source");
+        }
+        ByteBuffer content = source.content();
+        return content.slice(content.position() + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return key + " " + oldSignature + " [" + oldStartLine + '-' + oldEndLine + "] -> "
+                + newSignature + " [" + newStartLine + '-' + newEndLine + ']';
+    }
+}
@@ -0,0 +1,116 @@
+package fixbench.slice;
+
+import fixbench.corpus.ContentHash;
+import fixbench.corpus.CorpusInstance;
+import fixbench.io.ByteSink;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed {@link MethodSlice}s by instance key, so loaders can hand tools the edited method
+ * without lexing the file. Instances whose changes span several declarations have no slice.
+ */
+public final class MethodSliceTable {
+    private static final int MAGIC = 0x4658534c;
+    private static final int VERSION = 2;
+
+    private final List<MethodSlice> slices;
+    private final Map<String, MethodSlice> byKey;
+
+    private MethodSliceTable(List<MethodSlice> slices) {
+        this.slices = slices;
+        this.byKey = new HashMap<>(slices.size() * 2);
+        for (MethodSlice slice : slices) {
+            byKey.put(slice.key(), slice);
+        }
+    }
+
+    public static MethodSliceTable build(List<? extends CorpusInstance> instances) {
+        List<MethodSlice> slices = new ArrayList<>(instances.size());
+        for (CorpusInstance instance : instances) {
+            MethodSlice slice = MethodSlicer.slice(instance);
+            if (slice != null) {
+                slices.add(slice);
+            }
+        }
+        return new MethodSliceTable(slices);
+    }
+
+    /** The slice of the instance with the given key, or {@code null}. */
+    public MethodSlice get(String key) {
+        return byKey.get(key);
+    }
+
+    public MethodSlice get(CorpusInstance instance) {
+        return byKey.get(instance.key());
+    }
+
+    public List<MethodSlice> slices() {
+        return Collections.unmodifiableList(slices);
+    }
+
+    public int size() {
+        return slices.size();
+    }
+
+    /** Writes the table atomically, replacing any existing file. */
+    public void save(Path file) throws IOException {
+        ByteSink.writeAtomically(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(slices.size());
+            for (MethodSlice slice : slices) {
+                out.writeUTF(slice.key());
+                out.writeUTF(slice.oldSignature());
+                out.writeUTF(slice.newSignature());
+                out.write(slice.oldSourceHash());
+                out.write(slice.newSourceHash());
+                out.writeInt(slice.oldStart());
+                out.writeInt(slice.oldEnd());
+                out.writeInt(slice.newStart());
+                out.writeInt(slice.newEnd());
+                out.writeInt(slice.oldStartLine());
+                out.writeInt(slice.oldEndLine());
+                out.writeInt(slice.newStartLine());
+                out.writeInt(slice.newEndLine());
+            }
+        });
+    }
+
+    public static MethodSliceTable load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a method slice table: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported method slice table version " + version);
+            }
+            int count = in.readInt();
+            List<MethodSlice> slices = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                slices.add(new MethodSlice(in.readUTF(), in.readUTF(), in.readUTF(), hash(in), hash(in),
+                        in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                        in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+            }
+            return new MethodSliceTable(slices);
+        }
+    }
+
+    private static byte[] hash(DataInputStream in) throws IOException {
+        byte[] hash = new byte[ContentHash.LENGTH];
+        in.readFully(hash);
+        return hash;
+    }
+}
@@ -0,0 +1,200 @@
+package fixbench.slice;
+
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.diff.Hunk;
+import fixbench.diff.UnifiedDiffParser;
+import fixbench.java.Declaration;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.Tokens;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/** Finds the single method that encloses all hunks of an instance on both sides. */
+public final class MethodSlicer {
+
+    private MethodSlicer() {
+    }
+
+    /**
+     * The slice of an instance, or {@code null} if its hunks do not fall within one method, e.g.
+     * for instances outside the {@code WithinSingleMethod} split.
+     */
+    public static MethodSlice slice(CorpusInstance instance) {
+        ByteBuffer diff = instance.content(MemberKind.DIFF);
+        Member oldSource = instance.oldSource();
+        Member newSource = instance.newSource();
+        if (diff == null || oldSource == null || newSource == null) {
+            return null;
+        }
+        List<Hunk> hunks = UnifiedDiffParser.parse(diff);
+        if (hunks.isEmpty()) {
+            return null;
+        }
+        ByteBuffer oldContent = oldSource.content();
+        ByteBuffer newContent = newSource.content();
+        DeclarationIndex oldIndex = DeclarationIndex.of(oldContent);
+        DeclarationIndex newIndex = DeclarationIndex.of(newContent);
+        Declaration oldMethod = method(oldIndex, hunks, true);
+        Declaration newMethod = method(newIndex, hunks, false);
+        // A side with only insertion points is located through the other side's signature.
+        if (oldMethod != null && !changes(hunks, false)) {
+            newMethod = bySignature(newIndex, signature(oldIndex.tokens(), oldMethod), newMethod);
+        } else if (newMethod != null && !changes(hunks, true)) {
+            oldMethod = bySignature(oldIndex, signature(newIndex.tokens(), newMethod), oldMethod);
+        }
+        if (oldMethod == null || newMethod == null) {
+            return null;
+        }
+        int oldBase = oldContent.position();
+        int newBase = newContent.position();
+        return new MethodSlice(instance.key(), signature(oldIndex.tokens(), oldMethod),
+                signature(newIndex.tokens(), newMethod), oldSource.hash(), newSource.hash(),
+                oldMethod.startOffset() - oldBase, oldMethod.endOffset() - oldBase,
+                newMethod.startOffset() - newBase, newMethod.endOffset() - newBase,
+                oldMethod.startLine(), oldMethod.endLine(), newMethod.startLine(), newMethod.endLine());
+    }
+
+    /**
+     * Outermost code declaration covering the changed lines of all hunks on one side. A change
+     * inside an anonymous or local class is attributed to the method declaring that class.
+     * Insertion points only count when a side has no changed lines: diff tools often place an
+     * insertion just past a closing brace, so it may sit outside the method it belongs to.
+     */
+    private static Declaration method(DeclarationIndex index, List<Hunk> hunks, boolean old) {
+        boolean changes = changes(hunks, old);
+        int from = Integer.MAX_VALUE;
+        int to = 0;
+        for (Hunk hunk : hunks) {
+            int start = old ? hunk.oldStart() : hunk.newStart();
+            int count = old ? hunk.oldCount() : hunk.newCount();
+            if (count > 0) {
+                from = Math.min(from, start);
+                to = Math.max(to, start + count - 1);
+            } else if (!changes) {
+                from = Math.min(from, Math.max(1, start));
+                to = Math.max(to, Math.max(1, start));
+            }
+        }
+        return outermost(index.enclosingCode(from, to));
+    }
+
+    private static boolean changes(List<Hunk> hunks, boolean old) {
+        for (Hunk hunk : hunks) {
+            if ((old ? hunk.oldCount() : hunk.newCount()) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Declaration outermost(Declaration method) {
+        for (Declaration d = method; d != null; d = d.parent()) {
+            if (d.isCode()) {
+                method = d;
+            }
+        }
+        return method;
+    }
+
+    /** The top-level code declaration with the given signature, or {@code fallback}. */
+    private static Declaration bySignature(DeclarationIndex index, String signature,
+            Declaration fallback) {
+        for (Declaration d : index.declarations()) {
+            if (d.isCode() && outermost(d) == d && signature.equals(signature(index.tokens(), d))) {
+                return d;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Qualified name and erased parameter types, e.g. {@code Foo.bar(List,int[],String...)}.
+     * Annotations, modifiers and parameter names are dropped, so the key survives reformatting
+     * and parameter renames. Initializers are {@code <init>} or {@code <clinit>} without
+     * parameters.
+     */
+    public static String signature(Tokens tokens, Declaration method) {
+        StringBuilder key = new StringBuilder(method.qualifiedName());
+        if (method.paramsOpen() < 0) {
+            return key.toString();
+        }
+        key.append('(');
+        int close = method.paramsClose();
+        int start = method.paramsOpen() + 1;
+        boolean first = true;
+        int depth = 0;
+        for (int i = start; i <= close; i++) {
+            if (tokens.is(i, '(') || tokens.is(i, '<')) {
+                depth++;
+            } else if ((tokens.is(i, ')') || tokens.is(i, '>')) && i < close) {
+                depth--;
+            } else if (tokens.is(i, ">>")) {
+                depth -= 2;
+            } else if (tokens.is(i, ">>>")) {
+                depth -= 3;
+            }
+            if (i == close || (depth == 0 && tokens.is(i, ','))) {
+                if (i > start) {
+                    if (!first) {
+                        key.append(',');
+                    }
+                    parameterType(tokens, start, i, key);
+                    first = false;
+                }
+                start = i + 1;
+            }
+        }
+        return key.append(')').toString();
+    }
+
+    /** Appends the type of the parameter spanning tokens {@code [from, to)}. */
+    private static void parameterType(Tokens tokens, int from, int to, StringBuilder key) {
+        // The name is the last identifier; C-style array brackets may follow it.
+        int name = to - 1;
+        int dims = 0;
+        while (name > from && tokens.is(name, ']')) {
+            name -= 2;
+            dims++;
+        }
+        int angle = 0;
+        for (int i = from; i < name; i++) {
+            if (tokens.is(i, '@')) {
+                i = skipAnnotation(tokens, i, name);
+            } else if (tokens.is(i, '<')) {
+                angle++;
+            } else if (tokens.is(i, '>')) {
+                angle--;
+            } else if (tokens.is(i, ">>")) {
+                angle -= 2;
+            } else if (tokens.is(i, ">>>")) {
+                angle -= 3;
+            } else if (angle == 0 && !tokens.is(i, "final")) {
+                key.append(tokens.text(i));
+            }
+        }
+        for (int d = 0; d < dims; d++) {
+            key.append("[]");
+        }
+    }
+
+    /** Index of the last token of the annotation starting at {@code at}. */
+    private static int skipAnnotation(Tokens tokens, int at, int limit) {
+        int i = at + 1;
+        while (i + 2 < limit && tokens.is(i + 1, '.')) {
+            i += 2;
+        }
+        if (i + 1 < limit && tokens.is(i + 1, '(')) {
+            int depth = 0;
+            for (int j = i + 1; j < limit; j++) {
+                if (tokens.is(j, '(')) {
+                    depth++;
+                } else if (tokens.is(j, ')') && --depth == 0) {
+                    return j;
+                }
+            }
+        }
+        return i;
+    }
+}
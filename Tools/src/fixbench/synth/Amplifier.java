@@ -0,0 +1,274 @@
+package fixbench.synth;
+
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.InstanceMetadata;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.PairInfoParser;
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import fixbench.diff.DiffWriter;
+import fixbench.diff.Hunk;
+import fixbench.diff.UnifiedDiffParser;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Generates any number of synthetic instances from the benchmark's pairs for scale testing.
+ * Variant {@code n} mutates source pair {@code n mod sources()} with a random subset of the
+ * enabled {@link Mutation}s, at least one, drawn from a generator seeded by the seed and
+ * {@code n} alone; variants are therefore reproducible and independent, and {@link #corpus} yields
+ * them lazily, so they can be streamed into a pack or a folder tree without being held in memory.
+ * Iterating the corpus generates the next {@value #BATCH} variants at a time in parallel.
+ *
+ * <p>A variant keeps its source's view and category and is named {@code <name>~<n>}. Its
+ * {@code diff.diff} is regenerated with {@link DiffWriter}; {@code full_diff.txt}, which describes
+ * the original commit, is dropped. {@code pair.info} gains {@code variantOf} and {@code mutations}
+ * lines, which the metadata parser ignores.
+ */
+public final class Amplifier {
+    private static final Mutation[] ORDER = {
+            Mutation.NULL_CHECK, Mutation.BOUNDS_CHECK, Mutation.RENAME, Mutation.RELOCATE};
+    private static final int BATCH = 256;
+
+    private final List<CorpusInstance> sources;
+    private final Set<Mutation> mutations;
+    private final long seed;
+    private final PairInfoParser parser = new PairInfoParser();
+    private final AtomicLongArray applied = new AtomicLongArray(Mutation.values().length);
+
+    /**
+     * Prepares to amplify the pairs among {@code instances} that have both Java sources and a diff
+     * and admit at least one of the mutations. A pair listed in several views is used once, from
+     * the first view listing it.
+     */
+    public Amplifier(List<CorpusInstance> instances, Set<Mutation> mutations, long seed) {
+        this.mutations = EnumSet.copyOf(mutations);
+        this.seed = seed;
+        List<CorpusInstance> usable = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (CorpusInstance instance : instances) {
+            if (seen.add(instance.category() + '/' + instance.name()) && mutable(instance)) {
+                usable.add(instance);
+            }
+        }
+        this.sources = Collections.unmodifiableList(usable);
+    }
+
+    /** Source pairs the variants are drawn from. */
+    public List<CorpusInstance> sources() {
+        return sources;
+    }
+
+    /** The first {@code count} variants, generated on each access. */
+    public Corpus corpus(int count) {
+        if (sources.isEmpty() && count > 0) {
+            throw new IllegalStateException("No pair admits the mutations " + mutations);
+        }
+        List<CorpusInstance> variants = new AbstractList<CorpusInstance>() {
+            @Override
+            public CorpusInstance get(int index) {
+                return variant(index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public Iterator<CorpusInstance> iterator() {
+                return new Batches(count);
+            }
+        };
+        return () -> variants;
+    }
+
+    /** Generates variant {@code n}. Thread-safe. */
+    public CorpusInstance variant(int n) {
+        CorpusInstance source = sources.get(n % sources.size());
+        SplittableRandom random = new SplittableRandom(seed ^ (n + 1) * 0x9E3779B97F4A7C15L);
+        Mutator mutator = mutator(source, random);
+        Set<Mutation> done = EnumSet.noneOf(Mutation.class);
+        for (Mutation mutation : ORDER) {
+            if (mutations.contains(mutation) && random.nextBoolean() && mutator.apply(mutation)) {
+                done.add(mutation);
+            }
+        }
+        for (int i = 0; i < ORDER.length && done.isEmpty(); i++) {
+            if (mutations.contains(ORDER[i]) && mutator.apply(ORDER[i])) {
+                done.add(ORDER[i]);
+            }
+        }
+        for (Mutation mutation : done) {
+            applied.incrementAndGet(mutation.ordinal());
+        }
+        return new Variant(source, source.name() + '~' + n, members(source, mutator, done));
+    }
+
+    /** Variants generated so far that had the mutation applied. */
+    public long applied(Mutation mutation) {
+        return applied.get(mutation.ordinal());
+    }
+
+    private boolean mutable(CorpusInstance instance) {
+        if (instance.oldSource() == null || instance.newSource() == null
+                || instance.content(MemberKind.DIFF) == null || instance.content(MemberKind.PAIR_INFO) == null) {
+            return false;
+        }
+        for (Mutation mutation : ORDER) {
+            if (mutations.contains(mutation) && mutator(instance, new SplittableRandom(seed)).apply(mutation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mutator mutator(CorpusInstance source, SplittableRandom random) {
+        InstanceMetadata meta = parser.parse(source);
+        boolean anchored = meta.schema() == InstanceMetadata.Schema.FB_VIOLATION && meta.startLine() > 0;
+        return new Mutator(bytes(source.oldSource().content()), bytes(source.newSource().content()),
+                UnifiedDiffParser.parse(source.content(MemberKind.DIFF)), anchored ? meta.startLine() : 0,
+                anchored ? Math.max(meta.startLine(), meta.endLine()) : 0, random);
+    }
+
+    private static List<Member> members(CorpusInstance source, Mutator mutator, Set<Mutation> done) {
+        Member oldSource = source.oldSource();
+        Member newSource = source.newSource();
+        ByteBuffer oldContent = ByteBuffer.wrap(mutator.oldSource()).asReadOnlyBuffer();
+        ByteBuffer newContent = ByteBuffer.wrap(mutator.newSource()).asReadOnlyBuffer();
+        List<Hunk> hunks = UnifiedDiffParser.parse(source.content(MemberKind.DIFF));
+        String path = hunks.isEmpty() ? oldSource.name() : hunks.get(0).path();
+
+        List<Member> members = new ArrayList<>();
+        for (Member member : source.members()) {
+            switch (member.kind()) {
+                case PAIR_INFO:
+                    members.add(new Member(MemberKind.PAIR_INFO, member.name(), pairInfo(source, member, done)));
+                    break;
+                case DIFF:
+                    members.add(new Member(MemberKind.DIFF, member.name(),
+                            DiffWriter.write(path, oldContent, newContent).asReadOnlyBuffer()));
+                    break;
+                case FULL_DIFF:
+                    break;
+                case OLD:
+                    members.add(member.name().equals(oldSource.name())
+                            ? new Member(MemberKind.OLD, member.name(), oldContent) : member);
+                    break;
+                case NEW:
+                    members.add(member.name().equals(newSource.name())
+                            ? new Member(MemberKind.NEW, member.name(), newContent) : member);
+                    break;
+                default:
+                    members.add(member);
+                    break;
+            }
+        }
+        return members;
+    }
+
+    private static ByteBuffer pairInfo(CorpusInstance source, Member member, Set<Mutation> done) {
+        ByteBuffer content = member.content();
+        boolean terminated = !content.hasRemaining() || content.get(content.limit() - 1) == '\n';
+        StringJoiner labels = new StringJoiner(",");
+        for (Mutation mutation : done) {
+            labels.add(mutation.label());
+        }
+        byte[] extra = ((terminated ? "" : "\n") + "variantOf:" + source.key() + "\nmutations:" + labels + '\n')
+                .getBytes(StandardCharsets.UTF_8);
+        ByteBuffer result = ByteBuffer.allocate(content.remaining() + extra.length);
+        result.put(content).put(extra).flip();
+        return result.asReadOnlyBuffer();
+    }
+
+    private static byte[] bytes(ByteBuffer content) {
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
+
+    /** Iterator over the first variants that generates them a batch at a time on the common pool. */
+    private final class Batches implements Iterator<CorpusInstance> {
+        private final int count;
+        private List<CorpusInstance> batch = Collections.emptyList();
+        private int next;
+        private int offset;
+
+        Batches(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < count;
+        }
+
+        @Override
+        public CorpusInstance next() {
+            if (next >= count) {
+                throw new NoSuchElementException();
+            }
+            if (offset == batch.size()) {
+                batch = IntStream.range(next, Math.min(count, next + BATCH)).parallel()
+                        .mapToObj(Amplifier.this::variant).collect(Collectors.toList());
+                offset = 0;
+            }
+            next++;
+            return batch.get(offset++);
+        }
+    }
+
+    /** A generated instance; its members are held in memory. */
+    private static final class Variant implements CorpusInstance {
+        private final CorpusInstance source;
+        private final String name;
+        private final List<Member> members;
+
+        Variant(CorpusInstance source, String name, List<Member> members) {
+            this.source = source;
+            this.name = name;
+            this.members = Collections.unmodifiableList(members);
+        }
+
+        @Override
+        public View view() {
+            return source.view();
+        }
+
+        @Override
+        public String category() {
+            return source.category();
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public Tier tier() {
+            return source.tier();
+        }
+
+        @Override
+        public List<Member> members() {
+            return members;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fixbench.synth;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rewrites the {@link Amplifier} applies to a benchmark pair. None changes what either side does:
+ * renames and relocations are applied to both sources alike, so the fix stays the same change,
+ * and check rewrites only restate a condition the fix adds.
+ */
+public enum Mutation {
+    /** Renames a parameter or local variable of one method in both sources. */
+    RENAME,
+    /** Moves a method the fix leaves alone behind another method of its class in both sources. */
+    RELOCATE,
+    /**
+     * Restates a null check the fix adds: {@code x != null} as {@code null != x} or
+     * {@code java.util.Objects.nonNull(x)}, and {@code x == null} likewise.
+     */
+    NULL_CHECK,
+    /** Mirrors a comparison the fix adds, e.g. {@code i < n} as {@code n > i}. */
+    BOUNDS_CHECK;
+
+    /** Lower-case name with dashes, e.g. {@code null-check}. */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    public static Mutation fromLabel(String label) {
+        return valueOf(label.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    /** Parses a comma-separated list of labels, e.g. {@code rename,null-check}. */
+    public static Set<Mutation> parse(String labels) {
+        Set<Mutation> mutations = EnumSet.noneOf(Mutation.class);
+        for (String label : labels.split(",")) {
+            if (!label.isBlank()) {
+                mutations.add(fromLabel(label.trim()));
+            }
+        }
+        return mutations;
+    }
+}
@@ -0,0 +1,687 @@
+package fixbench.synth;
+
+import fixbench.diff.Hunk;
+import fixbench.java.Declaration;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.TokenKind;
+import fixbench.java.Tokens;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Applies {@link Mutation}s to the two sources of one pair, working on tokens and byte offsets like
+ * the rest of the tools. Check rewrites look only at the lines the fix adds, which the hunks of the
+ * original diff give. They and renames keep every line where it is, so the hunks stay valid until
+ * a relocation; the {@link Amplifier} therefore applies relocations last.
+ */
+final class Mutator {
+    private static final Set<String> PRIMITIVES = Set.of(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double");
+    /** Tokens that may precede an operand of a rewritten check, all binding looser than it. */
+    private static final Set<String> BEFORE_CHECK = Set.of("&&", "||", "?", ":", "=", ";", "return");
+    /** Tokens that may follow a rewritten check. */
+    private static final Set<String> AFTER_CHECK = Set.of(")", "&&", "||", "?", ":", ";");
+    private static final Set<String> ATOMS = Set.of("this", "super", "null", "true", "false", "class");
+
+    private final List<Hunk> hunks;
+    private final int anchorFrom;
+    private final int anchorTo;
+    private final SplittableRandom random;
+    private byte[] oldSource;
+    private byte[] newSource;
+
+    /**
+     * Creates a mutator over copies of the sources. Lines {@code [anchorFrom, anchorTo]} of the old
+     * source, a FindBugs warning's range from {@code pair.info}, keep their numbers; {@code 0}
+     * means there is no such range.
+     */
+    Mutator(byte[] oldSource, byte[] newSource, List<Hunk> hunks, int anchorFrom, int anchorTo,
+            SplittableRandom random) {
+        this.oldSource = oldSource;
+        this.newSource = newSource;
+        this.hunks = hunks;
+        this.anchorFrom = anchorFrom;
+        this.anchorTo = anchorTo;
+        this.random = random;
+    }
+
+    byte[] oldSource() {
+        return oldSource;
+    }
+
+    byte[] newSource() {
+        return newSource;
+    }
+
+    /** Applies the mutation at a random site and returns whether the pair had one. */
+    boolean apply(Mutation mutation) {
+        switch (mutation) {
+            case RENAME:
+                return rename();
+            case RELOCATE:
+                return relocate();
+            case NULL_CHECK:
+                return rewriteCheck(true);
+            case BOUNDS_CHECK:
+                return rewriteCheck(false);
+            default:
+                throw new AssertionError(mutation);
+        }
+    }
+
+    private boolean rename() {
+        DeclarationIndex oldIndex = DeclarationIndex.of(ByteBuffer.wrap(oldSource));
+        DeclarationIndex newIndex = DeclarationIndex.of(ByteBuffer.wrap(newSource));
+        Map<String, Declaration> oldMethods = methods(oldIndex);
+        Map<String, Declaration> newMethods = methods(newIndex);
+        List<String> order = new ArrayList<>();
+        for (String key : oldMethods.keySet()) {
+            if (newMethods.containsKey(key)) {
+                order.add(key);
+            }
+        }
+        shuffle(order);
+        // Renaming inside the method the fix changes makes the variant's diff differ from the source's.
+        String fixed = fixedMethod(oldIndex, oldMethods);
+        if (fixed != null && order.remove(fixed)) {
+            order.add(0, fixed);
+        }
+        for (String key : order) {
+            Declaration oldMethod = oldMethods.get(key);
+            Declaration newMethod = newMethods.get(key);
+            List<String> names = locals(oldIndex.tokens(), oldMethod);
+            names.retainAll(locals(newIndex.tokens(), newMethod));
+            shuffle(names);
+            for (String name : names) {
+                List<Integer> oldDeclarations = declarations(oldIndex.tokens(), oldMethod, name);
+                List<Integer> newDeclarations = declarations(newIndex.tokens(), newMethod, name);
+                if (oldDeclarations.isEmpty() || oldDeclarations.size() != newDeclarations.size()) {
+                    continue;
+                }
+                int k = random.nextInt(oldDeclarations.size());
+                List<Integer> oldUses = uses(oldIndex, oldMethod, oldDeclarations.get(k), name);
+                List<Integer> newUses = uses(newIndex, newMethod, newDeclarations.get(k), name);
+                if (oldUses != null && newUses != null) {
+                    String fresh = freshName(name, oldIndex.tokens(), newIndex.tokens());
+                    oldSource = rename(oldIndex.tokens(), oldUses, fresh, oldSource);
+                    newSource = rename(newIndex.tokens(), newUses, fresh, newSource);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Methods with bodies by qualified name; overloads get {@code #2}, {@code #3}, ... in source order. */
+    private static Map<String, Declaration> methods(DeclarationIndex index) {
+        Map<String, Declaration> methods = new LinkedHashMap<>();
+        for (Declaration declaration : index.declarations()) {
+            if (declaration.kind() == Declaration.Kind.METHOD && declaration.bodyOpen() >= 0) {
+                String key = declaration.qualifiedName();
+                for (int n = 2; methods.containsKey(key); n++) {
+                    key = declaration.qualifiedName() + '#' + n;
+                }
+                methods.put(key, declaration);
+            }
+        }
+        return methods;
+    }
+
+    private String fixedMethod(DeclarationIndex index, Map<String, Declaration> methods) {
+        if (hunks.isEmpty()) {
+            return null;
+        }
+        int line = Math.max(1, hunks.get(0).oldStart());
+        Declaration enclosing = index.enclosingCode(line, line);
+        for (Map.Entry<String, Declaration> method : methods.entrySet()) {
+            if (method.getValue() == enclosing) {
+                return method.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Names of the parameters and local variables a method declares: identifiers after a type and
+     * before {@code =}, {@code ;}, {@code ,}, {@code :} or {@code )}.
+     */
+    private static List<String> locals(Tokens tokens, Declaration method) {
+        Set<String> names = new LinkedHashSet<>();
+        for (int t = Math.max(method.paramsOpen(), method.firstToken()) + 1; t < method.lastToken(); t++) {
+            if (isDeclaration(tokens, t)) {
+                names.add(tokens.text(t));
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /** Tokens declaring {@code name} in the method, in source order. */
+    private static List<Integer> declarations(Tokens tokens, Declaration method, String name) {
+        List<Integer> declarations = new ArrayList<>();
+        for (int t = Math.max(method.paramsOpen(), method.firstToken()) + 1; t < method.lastToken(); t++) {
+            if (isDeclaration(tokens, t) && tokens.text(t).equals(name)) {
+                declarations.add(t);
+            }
+        }
+        return declarations;
+    }
+
+    private static boolean isDeclaration(Tokens tokens, int t) {
+        return tokens.kind(t) == TokenKind.IDENTIFIER && followsType(tokens, t)
+                && isAny(tokens, t + 1, "=", ";", ",", ":", ")");
+    }
+
+    /**
+     * The simple-name uses of the local declared at {@code declaration}, itself included: the
+     * occurrences of {@code name} in its scope, leaving out member selections and calls. Returns
+     * {@code null} if the scope is unclear or the name might mean something else in it: another
+     * declaration, a type, a label or enum constant, an annotation element, or any use inside a
+     * local or anonymous class, whose members and inherited fields may shadow the local.
+     */
+    private static List<Integer> uses(DeclarationIndex index, Declaration method, int declaration, String name) {
+        Tokens tokens = index.tokens();
+        int[] scope = scope(index, method, declaration);
+        if (scope == null) {
+            return null;
+        }
+        List<Declaration> nested = new ArrayList<>();
+        for (Declaration type : index.declarations()) {
+            if (type.kind() == Declaration.Kind.TYPE && type.firstToken() > method.firstToken()
+                    && type.lastToken() < method.lastToken()) {
+                nested.add(type);
+            }
+        }
+        List<Integer> uses = new ArrayList<>();
+        for (int t = scope[0]; t <= scope[1]; t++) {
+            if (tokens.kind(t) != TokenKind.IDENTIFIER || !tokens.text(t).equals(name) || isAny(tokens, t - 1, ".", "::")
+                    || tokens.is(t + 1, '(')) {
+                continue;
+            }
+            if (t != declaration && isDeclaration(tokens, t) || tokens.kind(t + 1) == TokenKind.IDENTIFIER
+                    || isAny(tokens, t - 1, "case", "break", "continue", "@")
+                    || tokens.is(t + 1, '=') && annotation(index, t) || inside(nested, t)) {
+                return null;
+            }
+            uses.add(t);
+        }
+        return uses;
+    }
+
+    /**
+     * First and last token of the scope of the local declared at {@code declaration}: the method for
+     * a parameter, the rest of the enclosing block for a local, and the statement for a variable
+     * declared in the header of a {@code for}, {@code catch}, {@code try} or lambda with a block
+     * body. {@code null} for any other declaration, such as a pattern variable.
+     */
+    private static int[] scope(DeclarationIndex index, Declaration method, int declaration) {
+        Tokens tokens = index.tokens();
+        if (method.paramsOpen() >= 0 && declaration > method.paramsOpen() && declaration < method.paramsClose()) {
+            return new int[] {declaration, method.lastToken()};
+        }
+        int open = enclosingBracket(index, declaration);
+        if (open <= method.firstToken()) {
+            return null;
+        }
+        if (tokens.is(open, '{')) {
+            return new int[] {declaration, index.matching(open)};
+        }
+        int close = tokens.is(open, '(') ? index.matching(open) : -1;
+        if (close < 0) {
+            return null;
+        }
+        int body = close + 1;
+        if (tokens.is(body, "->")) {
+            body++;
+        } else if (!isAny(tokens, open - 1, "for", "catch", "try")) {
+            return null;
+        }
+        return tokens.is(body, '{') ? new int[] {declaration, index.matching(body)} : null;
+    }
+
+    /** The innermost unclosed bracket before token {@code t}, or {@code -1}. */
+    private static int enclosingBracket(DeclarationIndex index, int t) {
+        Tokens tokens = index.tokens();
+        for (int i = t - 1; i >= 0; i--) {
+            if (tokens.is(i, ')') || tokens.is(i, ']') || tokens.is(i, '}')) {
+                i = index.matching(i);
+                if (i < 0) {
+                    return -1;
+                }
+            } else if (tokens.is(i, '(') || tokens.is(i, '[') || tokens.is(i, '{')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Whether token {@code t} names an element in an annotation such as {@code @A(t = 1)}. */
+    private static boolean annotation(DeclarationIndex index, int t) {
+        Tokens tokens = index.tokens();
+        int open = enclosingBracket(index, t);
+        return open >= 2 && tokens.is(open, '(') && tokens.kind(open - 1) == TokenKind.IDENTIFIER
+                && tokens.is(open - 2, '@');
+    }
+
+    private static boolean inside(List<Declaration> types, int t) {
+        for (Declaration type : types) {
+            if (t >= type.firstToken() && t <= type.lastToken()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean followsType(Tokens tokens, int t) {
+        int previous = t - 1;
+        if (tokens.kind(previous) == TokenKind.IDENTIFIER
+                || tokens.kind(previous) == TokenKind.KEYWORD && PRIMITIVES.contains(tokens.text(previous))) {
+            return true;
+        }
+        if (tokens.is(previous, ']')) {
+            return tokens.is(previous - 1, '[');
+        }
+        if (tokens.is(previous, '>') || tokens.is(previous, ">>")) {
+            // A generic type: walk back over its arguments to the identifier before the first '<'.
+            int depth = 0;
+            for (int i = previous; i > 0; i--) {
+                if (tokens.is(i, '>')) {
+                    depth++;
+                } else if (tokens.is(i, ">>")) {
+                    depth += 2;
+                } else if (tokens.is(i, '<')) {
+                    depth--;
+                    if (depth == 0) {
+                        return tokens.kind(i - 1) == TokenKind.IDENTIFIER;
+                    }
+                } else if (tokens.kind(i) != TokenKind.IDENTIFIER
+                        && !isAny(tokens, i, ",", ".", "?", "[", "]", "extends", "super")) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** {@code name} plus a number, unused as an identifier in either source. */
+    private String freshName(String name, Tokens oldTokens, Tokens newTokens) {
+        Set<String> used = new HashSet<>();
+        for (Tokens tokens : Arrays.asList(oldTokens, newTokens)) {
+            for (int t = 0; t < tokens.size(); t++) {
+                if (tokens.kind(t) == TokenKind.IDENTIFIER) {
+                    used.add(tokens.text(t));
+                }
+            }
+        }
+        int n = 2 + random.nextInt(98);
+        while (used.contains(name + n)) {
+            n++;
+        }
+        return name + n;
+    }
+
+    /** Replaces the tokens {@code uses} with {@code fresh}. */
+    private static byte[] rename(Tokens tokens, List<Integer> uses, String fresh, byte[] source) {
+        byte[] replacement = fresh.getBytes(StandardCharsets.UTF_8);
+        int size = source.length;
+        for (int t : uses) {
+            size += replacement.length - tokens.length(t);
+        }
+        byte[] result = new byte[size];
+        int from = 0;
+        int to = 0;
+        for (int t : uses) {
+            int length = tokens.start(t) - from;
+            System.arraycopy(source, from, result, to, length);
+            to += length;
+            System.arraycopy(replacement, 0, result, to, replacement.length);
+            to += replacement.length;
+            from = tokens.end(t);
+        }
+        System.arraycopy(source, from, result, to, source.length - from);
+        return result;
+    }
+
+    private boolean relocate() {
+        DeclarationIndex oldIndex = DeclarationIndex.of(ByteBuffer.wrap(oldSource));
+        DeclarationIndex newIndex = DeclarationIndex.of(ByteBuffer.wrap(newSource));
+        List<Region> newRegions = regions(newIndex, newSource.length);
+        Set<Region> paired = new HashSet<>();
+        // Methods identical on both sides, each with its counterpart, grouped by enclosing type.
+        Map<Declaration, List<Region[]>> byType = new LinkedHashMap<>();
+        for (Region before : regions(oldIndex, oldSource.length)) {
+            for (Region after : newRegions) {
+                if (!paired.contains(after) && after.method.qualifiedName().equals(before.method.qualifiedName())
+                        && Arrays.equals(oldSource, before.from, before.to, newSource, after.from, after.to)) {
+                    paired.add(after);
+                    byType.computeIfAbsent(before.method.parent(), type -> new ArrayList<>())
+                            .add(new Region[] {before, after});
+                    break;
+                }
+            }
+        }
+        int count = moves(byType, -1);
+        if (count == 0) {
+            return false;
+        }
+        moves(byType, random.nextInt(count));
+        return true;
+    }
+
+    /**
+     * Counts the possible moves of a method behind another of its type, or with {@code pick >= 0}
+     * performs move number {@code pick}.
+     */
+    private int moves(Map<Declaration, List<Region[]>> byType, int pick) {
+        int count = 0;
+        for (List<Region[]> methods : byType.values()) {
+            for (Region[] moved : methods) {
+                for (Region[] target : methods) {
+                    if (moved == target || target[0].to == moved[0].from || target[1].to == moved[1].from
+                            || !keepsAnchor(moved[0], target[0])) {
+                        continue;
+                    }
+                    if (count++ == pick) {
+                        oldSource = move(oldSource, moved[0], target[0]);
+                        newSource = move(newSource, moved[1], target[1]);
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Whether moving {@code moved} behind {@code target} leaves the anchored old lines in place. */
+    private boolean keepsAnchor(Region moved, Region target) {
+        return anchorFrom <= 0
+                || moved.lastLine < anchorFrom && target.lastLine < anchorFrom
+                || moved.firstLine > anchorTo && target.lastLine >= anchorTo;
+    }
+
+    /**
+     * Whole-line regions of the methods of named types that share no line with another member: from
+     * the line after the previous token, so doc comments move along, to the end of the last line.
+     */
+    private static List<Region> regions(DeclarationIndex index, int length) {
+        Tokens tokens = index.tokens();
+        List<Region> regions = new ArrayList<>();
+        for (Declaration method : index.declarations()) {
+            Declaration type = method.parent();
+            if (method.kind() != Declaration.Kind.METHOD || type == null || type.name().isEmpty()
+                    || type.parent() != null && type.parent().kind() != Declaration.Kind.TYPE) {
+                continue;
+            }
+            int first = method.firstToken();
+            int last = method.lastToken();
+            if (first == 0 || last + 1 >= tokens.size()) {
+                continue;
+            }
+            int previousLine = tokens.lineOf(tokens.end(first - 1) - 1);
+            if (previousLine >= method.startLine() || tokens.line(last + 1) <= method.endLine()) {
+                continue;
+            }
+            int to = method.endLine() < tokens.lineCount() ? tokens.lineStart(method.endLine() + 1) : length;
+            regions.add(new Region(method, tokens.lineStart(previousLine + 1), to, previousLine + 1,
+                    method.endLine()));
+        }
+        return regions;
+    }
+
+    private static byte[] move(byte[] source, Region moved, Region target) {
+        byte[] result = new byte[source.length];
+        int length = moved.to - moved.from;
+        if (moved.from < target.from) {
+            System.arraycopy(source, 0, result, 0, moved.from);
+            System.arraycopy(source, moved.to, result, moved.from, target.to - moved.to);
+            System.arraycopy(source, moved.from, result, target.to - length, length);
+            System.arraycopy(source, target.to, result, target.to, source.length - target.to);
+        } else {
+            System.arraycopy(source, 0, result, 0, target.to);
+            System.arraycopy(source, moved.from, result, target.to, length);
+            System.arraycopy(source, target.to, result, target.to + length, moved.from - target.to);
+            System.arraycopy(source, moved.to, result, moved.to, source.length - moved.to);
+        }
+        return result;
+    }
+
+    /**
+     * Restates one null check, or mirrors one comparison, on a line the fix adds. Both operands must
+     * be primary expressions such as {@code a.b(c)[i]}, delimited by tokens that bind looser, so the
+     * rewrite cannot regroup the surrounding expression; comparisons in argument lists are skipped
+     * as they might be generic types. Operands are only swapped if that cannot change what they
+     * evaluate to or throw; a null check on any other operand becomes an {@code Objects} call.
+     */
+    private boolean rewriteCheck(boolean nullCheck) {
+        DeclarationIndex index = DeclarationIndex.of(ByteBuffer.wrap(newSource));
+        Tokens tokens = index.tokens();
+        boolean[] added = addedLines(tokens.lineCount());
+        List<int[]> sites = new ArrayList<>();
+        for (int op = 1; op + 1 < tokens.size(); op++) {
+            if (tokens.kind(op) != TokenKind.OPERATOR || !added[tokens.line(op)]) {
+                continue;
+            }
+            boolean equality = isAny(tokens, op, "==", "!=");
+            boolean relational = isAny(tokens, op, "<", ">", "<=", ">=");
+            if (nullCheck ? !equality : !relational) {
+                continue;
+            }
+            int left = operandStart(index, op - 1);
+            int right = operandEnd(index, op + 1);
+            if (left < 0 || right < 0 || tokens.line(left) != tokens.line(right) || !delimited(tokens, left, right)) {
+                continue;
+            }
+            boolean leftNull = left == op - 1 && tokens.is(left, "null");
+            boolean rightNull = right == op + 1 && tokens.is(right, "null");
+            boolean swappable = swappable(tokens, left, op - 1, op + 1, right);
+            if (nullCheck ? leftNull != rightNull : !leftNull && !rightNull && swappable) {
+                sites.add(new int[] {left, op, right, swappable ? 1 : 0});
+            }
+        }
+        if (sites.isEmpty()) {
+            return false;
+        }
+        int[] site = sites.get(random.nextInt(sites.size()));
+        String left = text(tokens, site[0], site[1] - 1);
+        String operator = tokens.text(site[1]);
+        String right = text(tokens, site[1] + 1, site[2]);
+        String replacement;
+        if (!nullCheck) {
+            replacement = right + ' ' + mirror(operator) + ' ' + left;
+        } else if (site[3] == 1 && random.nextBoolean()) {
+            replacement = right + ' ' + operator + ' ' + left;
+        } else {
+            replacement = "java.util.Objects." + (operator.equals("==") ? "isNull(" : "nonNull(")
+                    + (left.equals("null") ? right : left) + ')';
+        }
+        newSource = splice(newSource, tokens.start(site[0]), tokens.end(site[2]),
+                replacement.getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    /**
+     * Whether operands {@code [a, aEnd]} and {@code [b, bEnd]} may be evaluated in either order:
+     * neither has side effects, and one is a literal or a plain name, which can neither throw nor
+     * see the other's reads.
+     */
+    private static boolean swappable(Tokens tokens, int a, int aEnd, int b, int bEnd) {
+        return pure(tokens, a, aEnd) && pure(tokens, b, bEnd) && (trivial(tokens, a, aEnd) || trivial(tokens, b, bEnd));
+    }
+
+    /** Whether the operand makes no call and creates, assigns or increments nothing. */
+    private static boolean pure(Tokens tokens, int first, int last) {
+        for (int t = first; t <= last; t++) {
+            if (tokens.is(t, '(') && t > first || tokens.is(t, "new") || tokens.is(t, "++") || tokens.is(t, "--")) {
+                return false;
+            }
+            if (tokens.kind(t) == TokenKind.OPERATOR && tokens.text(t).endsWith("=")
+                    && !isAny(tokens, t, "==", "!=", "<=", ">=")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** A single literal or name, or {@code this.name}. */
+    private static boolean trivial(Tokens tokens, int first, int last) {
+        return first == last && isAtom(tokens, first)
+                || last == first + 2 && tokens.is(first, "this") && tokens.is(first + 1, '.') && isAtom(tokens, last);
+    }
+
+    private boolean[] addedLines(int lineCount) {
+        boolean[] added = new boolean[lineCount + 2];
+        for (Hunk hunk : hunks) {
+            int end = Math.min(lineCount, hunk.newStart() + hunk.newCount() - 1);
+            for (int line = Math.max(1, hunk.newStart()); line <= end && hunk.newCount() > 0; line++) {
+                added[line] = true;
+            }
+        }
+        return added;
+    }
+
+    /** First token of the primary expression ending at {@code end}, or {@code -1}. */
+    private static int operandStart(DeclarationIndex index, int end) {
+        Tokens tokens = index.tokens();
+        int i = end;
+        while (i > 0) {
+            if (tokens.is(i, ')') || tokens.is(i, ']')) {
+                int open = index.matching(i);
+                if (open <= 0) {
+                    return -1;
+                }
+                boolean call = tokens.is(open, '(') && tokens.kind(open - 1) == TokenKind.IDENTIFIER;
+                boolean subscript = tokens.is(open, '[') && (tokens.kind(open - 1) == TokenKind.IDENTIFIER
+                        || tokens.is(open - 1, ')') || tokens.is(open - 1, ']'));
+                if (!call && !subscript) {
+                    return tokens.is(open, '(') ? open : -1;
+                }
+                i = open - 1;
+            } else if (isAtom(tokens, i)) {
+                if (i < 2 || !tokens.is(i - 1, '.')) {
+                    return i;
+                }
+                i -= 2;
+            } else {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /** Last token of the primary expression starting at {@code start}, or {@code -1}. */
+    private static int operandEnd(DeclarationIndex index, int start) {
+        Tokens tokens = index.tokens();
+        int i;
+        if (tokens.is(start, '(')) {
+            i = index.matching(start);
+        } else {
+            i = isAtom(tokens, start) ? start : -1;
+        }
+        while (i >= 0 && i + 1 < tokens.size()) {
+            int next = i + 1;
+            if (tokens.is(next, '(') && tokens.kind(i) == TokenKind.IDENTIFIER || tokens.is(next, '[')) {
+                i = index.matching(next);
+            } else if (tokens.is(next, '.') && next + 1 < tokens.size() && isAtom(tokens, next + 1)) {
+                i = next + 1;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean delimited(Tokens tokens, int left, int right) {
+        int before = left - 1;
+        int after = right + 1;
+        if (before < 0 || after >= tokens.size() || !isAny(tokens, after, AFTER_CHECK)) {
+            return false;
+        }
+        if (tokens.is(before, '(')) {
+            // A parenthesized condition, not an argument or parameter list.
+            int opener = before - 1;
+            return opener >= 0 && (tokens.kind(opener) == TokenKind.KEYWORD && !isAny(tokens, opener, "this", "super")
+                    || tokens.kind(opener) == TokenKind.OPERATOR && !tokens.is(opener, '>')
+                    || isAny(tokens, opener, "(", "{", ";", ","));
+        }
+        return isAny(tokens, before, BEFORE_CHECK);
+    }
+
+    private static boolean isAtom(Tokens tokens, int t) {
+        TokenKind kind = tokens.kind(t);
+        return kind == TokenKind.IDENTIFIER || kind == TokenKind.NUMBER || kind == TokenKind.STRING
+                || kind == TokenKind.CHAR || kind == TokenKind.KEYWORD && ATOMS.contains(tokens.text(t));
+    }
+
+    private static String mirror(String operator) {
+        switch (operator) {
+            case "<":
+                return ">";
+            case ">":
+                return "<";
+            case "<=":
+                return ">=";
+            default:
+                return "<=";
+        }
+    }
+
+    private static boolean isAny(Tokens tokens, int t, String... texts) {
+        return isAny(tokens, t, Arrays.asList(texts));
+    }
+
+    private static boolean isAny(Tokens tokens, int t, Iterable<String> texts) {
+        for (String text : texts) {
+            if (tokens.is(t, text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String text(Tokens tokens, int first, int last) {
+        ByteBuffer source = tokens.source();
+        byte[] bytes = new byte[tokens.end(last) - tokens.start(first)];
+        source.get(tokens.start(first), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] splice(byte[] source, int from, int to, byte[] replacement) {
+        byte[] result = new byte[source.length - (to - from) + replacement.length];
+        System.arraycopy(source, 0, result, 0, from);
+        System.arraycopy(replacement, 0, result, from, replacement.length);
+        System.arraycopy(source, to, result, from + replacement.length, source.length - to);
+        return result;
+    }
+
+    private void shuffle(List<String> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            Collections.swap(list, i, random.nextInt(i + 1));
+        }
+    }
+
+    /** Byte range of a method with its leading comments, and its first and last line. */
+    private static final class Region {
+        final Declaration method;
+        final int from;
+        final int to;
+        final int firstLine;
+        final int lastLine;
+
+        Region(Declaration method, int from, int to, int firstLine, int lastLine) {
+            this.method = method;
+            this.from = from;
+            this.to = to;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+        }
+    }
+}
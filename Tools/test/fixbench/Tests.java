@@ -0,0 +1,106 @@
+package fixbench;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the tools' tests with nothing but a JDK. A test is a public static no-argument method whose
+ * name starts with {@code test}, in a class whose name ends with {@code Test}; the classes are
+ * found in the directory this class was loaded from, or named on the command line. Tests that
+ * read the benchmark find it at the {@code fixbench.root} system property, by default the parent
+ * of the working directory.
+ */
+public final class Tests {
+
+    private Tests() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> classes = args.length > 0 ? Arrays.asList(args) : testClasses();
+        int passed = 0;
+        List<String> failures = new ArrayList<>();
+        for (String name : classes) {
+            Method[] methods = Class.forName(name).getMethods();
+            Arrays.sort(methods, Comparator.comparing(Method::getName));
+            for (Method method : methods) {
+                if (!method.getName().startsWith("test") || !Modifier.isStatic(method.getModifiers())
+                        || method.getParameterCount() != 0) {
+                    continue;
+                }
+                String test = name + '.' + method.getName();
+                long start = System.nanoTime();
+                try {
+                    method.invoke(null);
+                    passed++;
+                    System.out.printf("PASS %s (%d ms)%n", test, (System.nanoTime() - start) / 1_000_000);
+                } catch (InvocationTargetException e) {
+                    failures.add(test);
+                    System.out.println("FAIL " + test);
+                    e.getCause().printStackTrace(System.out);
+                }
+            }
+        }
+        System.out.printf("%d passed, %d failed%n", passed, failures.size());
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /** The benchmark root the tests read. */
+    public static Path corpusRoot() {
+        return Paths.get(System.getProperty("fixbench.root", "..")).toAbsolutePath().normalize();
+    }
+
+    public static void assertEquals(Object expected, Object actual) {
+        assertEquals(expected, actual, "");
+    }
+
+    public static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + (message.isEmpty() ? "" : ": ") + "expected <" + expected
+                    + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /** Deletes a directory tree, for cleaning up after tests that write files. */
+    public static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static List<String> testClasses() throws IOException, URISyntaxException {
+        Path root = Paths.get(Tests.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.map(path -> root.relativize(path).toString())
+                    .filter(name -> name.endsWith("Test.class") && !name.contains("$"))
+                    .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package fixbench.compile;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public final class CompileServiceTest {
+    /** A source that compiles against the stubs of its two imports. */
+    private static final String BUGGY = "package org.example;\n"
+            + "\n"
+            + "import org.example.util.Names;\n"
+            + "import org.example.model.Item;\n"
+            + "\n"
+            + "public class Registry {\n"
+            + "    private final java.util.List<Item> items = new java.util.ArrayList<>();\n"
+            + "\n"
+            + "    public int count(String name) {\n"
+            + "        int count = 0;\n"
+            + "        for (Item item : items) {\n"
+            + "            if (item != null) {\n"
+            + "                count++;\n"
+            + "            }\n"
+            + "        }\n"
+            + "        return name.length() + count;\n"
+            + "    }\n"
+            + "}\n";
+
+    public static void testCheck() throws IOException {
+        String fixed = BUGGY.replace("return name.length() + count;",
+                "return name == null ? count : name.length() + count;");
+        String broken = BUGGY.replace("return name.length() + count;", "return name.length() + total;");
+        try (CompileService service = new CompileService()) {
+            assertEquals(2, service.prepare("example", List.of(utf8(BUGGY))));
+            assertEquals(0, service.compile("example", "Registry.java", utf8(BUGGY)).errorCount());
+
+            assertEquals(List.of(), service.check("example", "Registry.java", utf8(BUGGY), utf8(fixed)));
+
+            List<CompileDiagnostic> introduced = service.check("example", "Registry.java", utf8(BUGGY),
+                    utf8(broken));
+            assertEquals(1, introduced.size(), String.valueOf(introduced));
+            CompileDiagnostic error = introduced.get(0);
+            assertTrue(error.isError(), error.toString());
+            assertEquals("compiler.err.cant.resolve.location", error.code());
+            assertTrue(error.message().contains("total"), error.message());
+            assertTrue(!error.involvesStub(), error.toString());
+        }
+    }
+
+    private static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
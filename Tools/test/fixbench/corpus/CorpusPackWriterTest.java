@@ -0,0 +1,158 @@
+package fixbench.corpus;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class CorpusPackWriterTest {
+    private static final int INSTANCES = 40;
+
+    /**
+     * Every instance comes back with its view, tier, names and members in order; members with
+     * equal content share a blob and carry the SHA-256 of their content.
+     */
+    public static void testRoundTrip() throws IOException {
+        List<CorpusInstance> instances = Arrays.asList(
+                new Instance(View.ALL, Tier.CLEAN, "Genesis-NP", "Genesis#1",
+                        member(MemberKind.PAIR_INFO, "pair.info", "Id:1\n"),
+                        member(MemberKind.DIFF, "diff.diff", "@@ -1 +1 @@\n-a\n+b\n"),
+                        member(MemberKind.OLD, "A.java", "class A { int a; }\n"),
+                        member(MemberKind.NEW, "A.java", "class A { int b; }\n")),
+                new Instance(View.WITHIN_SINGLE_METHOD, Tier.CLEAN, "Genesis-NP", "Genesis#1",
+                        member(MemberKind.OLD, "A.java", "class A { int a; }\n"),
+                        member(MemberKind.NEW, "A.java", "class A { int b; }\n")),
+                new Instance(View.ALL, Tier.EXCLUDED_MULTI_FIX, "FindBugs-URF_UNREAD_FIELD", "FBViolation#7",
+                        member(MemberKind.PAIR_INFO, "pair.info", "Id:7\n"),
+                        member(MemberKind.OLD, "B.java", "")),
+                new Instance(View.DISCARDED, Tier.DISCARDED, "Genesis-OOB", "Genesis#9",
+                        member(MemberKind.OLD, "\u00c4.java", "class \u00c4 {}\n")));
+        Path dir = Files.createTempDirectory("corpuspackwritertest");
+        try {
+            Path file = dir.resolve("sample.fxpack");
+            CorpusPackWriter.Stats stats = CorpusPackWriter.write(() -> instances, file);
+            assertEquals(instances.size(), stats.instances);
+            assertEquals(9, stats.members);
+            assertEquals(7, stats.blobs);
+
+            try (CorpusPack pack = CorpusPack.open(file, EnumSet.allOf(Tier.class))) {
+                assertEquals(7, pack.blobCount());
+                assertEquals(instances.size(), pack.instances().size());
+                for (int i = 0; i < instances.size(); i++) {
+                    CorpusInstance expected = instances.get(i);
+                    CorpusInstance actual = pack.instances().get(i);
+                    assertEquals(expected.view(), actual.view());
+                    assertEquals(expected.tier(), actual.tier(), expected.key());
+                    assertEquals(expected.category(), actual.category());
+                    assertEquals(expected.name(), actual.name());
+                    assertEquals(expected.members().size(), actual.members().size(), expected.key());
+                    for (int m = 0; m < expected.members().size(); m++) {
+                        Member before = expected.members().get(m);
+                        Member after = actual.members().get(m);
+                        assertEquals(before.kind(), after.kind(), after.toString());
+                        assertEquals(before.name(), after.name());
+                        assertEquals(before.content(), after.content(), after.toString());
+                        assertTrue(Arrays.equals(ContentHash.of(before.content()), after.hash()),
+                                "hash of " + after);
+                    }
+                }
+            }
+            try (CorpusPack pack = CorpusPack.open(file)) {
+                assertEquals(2, pack.instances().size());
+                for (CorpusInstance instance : pack.instances()) {
+                    assertEquals(Tier.CLEAN, instance.tier(), instance.key());
+                }
+            }
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    /** A pack that fits is written whole; one byte less and the writer fails and leaves no file. */
+    public static void testSizeLimit() throws IOException {
+        Path dir = Files.createTempDirectory("corpuspackwritertest");
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.of(View.ALL))) {
+            List<CorpusInstance> instances = new ArrayList<>(corpus.instances().subList(0, INSTANCES));
+            Corpus sample = () -> instances;
+            Path file = dir.resolve("sample.fxpack");
+            CorpusPackWriter.write(sample, file);
+            long size = Files.size(file);
+
+            CorpusPackWriter.Stats stats = CorpusPackWriter.write(sample, file, size);
+            assertEquals(INSTANCES, stats.instances);
+            assertEquals(size, Files.size(file));
+            try (CorpusPack pack = CorpusPack.open(file)) {
+                assertEquals(INSTANCES, pack.instances().size());
+                for (int i = 0; i < INSTANCES; i++) {
+                    assertEquals(instances.get(i).key(), pack.instances().get(i).key());
+                }
+            }
+
+            for (long limit : new long[] {size - 1, PackFormat.HEADER_SIZE + 1}) {
+                try {
+                    CorpusPackWriter.write(sample, file, limit);
+                    throw new AssertionError("pack of " + size + " bytes written under a limit of " + limit);
+                } catch (IOException e) {
+                    assertTrue(e.getMessage().contains("exceed " + limit), e.getMessage());
+                }
+                assertTrue(!Files.exists(file), "partial pack left behind");
+            }
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    private static Member member(MemberKind kind, String name, String content) {
+        return new Member(kind, name, ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static final class Instance implements CorpusInstance {
+        private final View view;
+        private final Tier tier;
+        private final String category;
+        private final String name;
+        private final List<Member> members;
+
+        Instance(View view, Tier tier, String category, String name, Member... members) {
+            this.view = view;
+            this.tier = tier;
+            this.category = category;
+            this.name = name;
+            this.members = Arrays.asList(members);
+        }
+
+        @Override
+        public View view() {
+            return view;
+        }
+
+        @Override
+        public Tier tier() {
+            return tier;
+        }
+
+        @Override
+        public String category() {
+            return category;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public List<Member> members() {
+            return members;
+        }
+    }
+}
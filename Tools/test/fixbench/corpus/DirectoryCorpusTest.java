@@ -0,0 +1,113 @@
+package fixbench.corpus;
+
+import static fixbench.Tests.assertEquals;
+
+import fixbench.Main;
+import fixbench.Tests;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public final class DirectoryCorpusTest {
+    private static final String LOG = "Comment 1.2: one commit fixes several warnings of the same type\n"
+            + "List:\n"
+            + "Genesis-NP:\n"
+            + "WithinSingleMethod/Genesis-NP/Genesis#2\n"
+            + "OutsideSingleMethod/Genesis-OOB/Genesis#9\n";
+
+    public static void testCleaningLog() {
+        CleaningLog log = CleaningLog.parse(LOG);
+        assertEquals(2, log.size());
+        assertEquals("Comment 1.2", log.excluded().get("WithinSingleMethod/Genesis-NP/Genesis#2"));
+        assertEquals(Tier.EXCLUDED_MULTI_FIX, log.tier(View.ALL, "Genesis-NP", "Genesis#2"));
+        assertEquals(Tier.CLEAN, log.tier(View.ALL, "Genesis-NP", "Genesis#1"));
+        assertEquals(Tier.DISCARDED, log.tier(View.DISCARDED, "Genesis-NP", "Genesis#2"));
+        assertEquals(EnumSet.of(Tier.CLEAN, Tier.DISCARDED), Tier.parse("clean, discarded,"));
+        assertEquals(Tier.EXCLUDED_MULTI_FIX, Tier.fromLabel(Tier.EXCLUDED_MULTI_FIX.label()));
+    }
+
+    public static void testTiers() throws IOException {
+        Path root = sample();
+        try {
+            assertEquals(List.of("All/Genesis-NP/Genesis#1", "WithinSingleMethod/Genesis-NP/Genesis#1"),
+                    keys(root, EnumSet.allOf(View.class), Tier.clean()));
+            assertEquals(List.of("All/Genesis-NP/Genesis#2", "WithinSingleMethod/Genesis-NP/Genesis#2"),
+                    keys(root, EnumSet.allOf(View.class), EnumSet.of(Tier.EXCLUDED_MULTI_FIX)));
+            assertEquals(List.of("Supplymentary/DiscardedDiffs/Genesis-NP/Genesis#3"),
+                    keys(root, EnumSet.allOf(View.class), EnumSet.of(Tier.DISCARDED)));
+            assertEquals(List.of("All/Genesis-NP/Genesis#1", "All/Genesis-NP/Genesis#2"),
+                    keys(root, EnumSet.of(View.ALL), EnumSet.allOf(Tier.class)));
+            assertEquals(List.of(), keys(root, EnumSet.of(View.DISCARDED), Tier.clean()));
+        } finally {
+            Tests.delete(root);
+        }
+    }
+
+    /** {@code ls} lists the clean instances unless {@code --tiers=} asks for others. */
+    public static void testTiersFlag() throws Exception {
+        Path root = sample();
+        try {
+            assertEquals(List.of("All/Genesis-NP/Genesis#1", "WithinSingleMethod/Genesis-NP/Genesis#1"),
+                    list("ls", root.toString()));
+            assertEquals(List.of("All/Genesis-NP/Genesis#2", "WithinSingleMethod/Genesis-NP/Genesis#2",
+                    "Supplymentary/DiscardedDiffs/Genesis-NP/Genesis#3"),
+                    list("--tiers=excluded-multi-fix,discarded", "ls", root.toString()));
+            assertEquals(List.of("All/Genesis-NP/Genesis#1", "WithinSingleMethod/Genesis-NP/Genesis#1"),
+                    list("ls", root.toString()));
+        } finally {
+            Tests.delete(root);
+        }
+    }
+
+    /**
+     * Genesis#1 is clean, Genesis#2 is excluded by the log in every view although only one view is
+     * listed, and Genesis#3 is a discarded pair.
+     */
+    private static Path sample() throws IOException {
+        Path root = Files.createTempDirectory("directorycorpustest");
+        for (String key : new String[] {"All/Genesis-NP/Genesis#1", "WithinSingleMethod/Genesis-NP/Genesis#1",
+                "All/Genesis-NP/Genesis#2", "WithinSingleMethod/Genesis-NP/Genesis#2",
+                "Supplymentary/DiscardedDiffs/Genesis-NP/Genesis#3"}) {
+            SampleTree.instance(root, key, "a#lib", "src/Main.java", 1, 3);
+        }
+        SampleTree.write(root.resolve(CleaningLog.FILE), LOG);
+        return root;
+    }
+
+    private static List<String> keys(Path root, Set<View> views, Set<Tier> tiers) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(root, views, tiers)) {
+            for (CorpusInstance instance : corpus.instances()) {
+                assertEquals(true, tiers.contains(instance.tier()), instance.key() + " " + instance.tier());
+                keys.add(instance.key());
+            }
+        }
+        return keys;
+    }
+
+    /** Runs the command line and returns the instance key of each output line. */
+    private static List<String> list(String... args) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            Main.main(args);
+        } finally {
+            System.setOut(out);
+        }
+        List<String> keys = new ArrayList<>();
+        for (String line : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                keys.add(line.substring(0, line.indexOf('\t')));
+            }
+        }
+        return keys;
+    }
+}
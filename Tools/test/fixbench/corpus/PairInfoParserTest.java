@@ -0,0 +1,105 @@
+package fixbench.corpus;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class PairInfoParserTest {
+
+    /** Every {@code pair.info} of every tier agrees with a plain split-and-trim reading. */
+    public static void testEveryCorpusFile() throws IOException {
+        PairInfoParser parser = new PairInfoParser();
+        int checked = 0;
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.allOf(View.class),
+                EnumSet.allOf(Tier.class))) {
+            for (CorpusInstance instance : corpus.instances()) {
+                ByteBuffer content = instance.content(MemberKind.PAIR_INFO);
+                if (content == null) {
+                    continue;
+                }
+                Map<String, String> expected = reference(content);
+                InstanceMetadata meta = parser.parse(instance);
+                String key = instance.key();
+                assertEquals(number(expected.get("Id")), meta.id(), key);
+                assertEquals(expected.get("SATName"), meta.satName(), key);
+                assertEquals(expected.get("modifiedFPath"), meta.modifiedPath(), key);
+                assertEquals(expected.get("BuggyFilePath"), meta.buggyFilePath(), key);
+                assertEquals(expected.get("FixedFilePath"), meta.fixedFilePath(), key);
+                assertEquals(number(expected.get("StartLineNum")), (long) meta.startLine(), key);
+                assertEquals(number(expected.get("EndLineNum")), (long) meta.endLine(), key);
+                assertEquals(expected.get("comSha"), meta.comSha(), key);
+                assertEquals(expected.get("parentComSha"), meta.parentComSha(), key);
+                assertEquals(expected.get("githubUrl"), meta.githubUrl(), key);
+                assertEquals(expected.get("repoName"), meta.repoName(), key);
+                assertEquals(expected.containsKey("BuggyFilePath") ? InstanceMetadata.Schema.FB_VIOLATION
+                        : InstanceMetadata.Schema.GENESIS, meta.schema(), key);
+                checked++;
+            }
+        }
+        assertTrue(checked > 1000, "only " + checked + " files checked");
+    }
+
+    public static void testFindBugsFile() throws IOException {
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.of(View.ALL))) {
+            InstanceMetadata meta = null;
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instance.key().equals("All/FindBugs-DM_CONVERT_CASE/FBViolation#10070")) {
+                    meta = new PairInfoParser().parse(instance);
+                }
+            }
+            assertTrue(meta != null, "instance missing");
+            assertEquals(InstanceMetadata.Schema.FB_VIOLATION, meta.schema());
+            assertEquals(10070L, meta.id());
+            assertEquals("src/net/slipcor/pvparena/commands/PAG_Arenaclass.java", meta.filePath());
+            assertEquals(59, meta.startLine());
+            assertEquals(59, meta.endLine());
+            assertEquals("slipcor#pvparena", meta.repoName());
+        }
+    }
+
+    public static void testWhitespaceAndStrayLines() {
+        String text = "Id: 42\r\n"
+                + ":orphan value\n"
+                + "\n"
+                + "  repoName :  owner#repo \t\n"
+                + "comSha:\n"
+                + "StartLineNum:\t7\n"
+                + "unknown:key:with:colons\n"
+                + "githubUrl: https://github.com/owner/repo";
+        byte[] bytes = ("junk\n" + text).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer content = ByteBuffer.wrap(bytes).position(5);
+        InstanceMetadata meta = new PairInfoParser().parse("Genesis-NP", content);
+        assertEquals(5, content.position(), "parse moved the position");
+        assertEquals(InstanceMetadata.Schema.GENESIS, meta.schema());
+        assertEquals("Genesis-NP", meta.category());
+        assertEquals(42L, meta.id());
+        assertEquals("owner#repo", meta.repoName());
+        assertEquals("", meta.comSha());
+        assertEquals(7, meta.startLine());
+        assertEquals(-1, meta.endLine());
+        assertEquals("https://github.com/owner/repo", meta.githubUrl());
+    }
+
+    /** Keys and trimmed values, split at the first colon; a later line wins. */
+    private static Map<String, String> reference(ByteBuffer content) {
+        Map<String, String> values = new HashMap<>();
+        for (String line : StandardCharsets.UTF_8.decode(content.duplicate()).toString().split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon >= 0) {
+                values.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        return values;
+    }
+
+    private static long number(String value) {
+        return value == null || !value.matches("[0-9]+") ? -1 : Long.parseLong(value);
+    }
+}
@@ -0,0 +1,49 @@
+package fixbench.corpus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Writes small benchmark folder trees for tests that must not depend on the real benchmark. */
+public final class SampleTree {
+
+    private SampleTree() {
+    }
+
+    /**
+     * Writes the instance folder {@code key}, e.g. {@code All/Genesis-NP/Genesis#1}, with a Genesis
+     * {@code pair.info}, a diff of {@code hunks} hunks and an old source of {@code lines} lines.
+     */
+    public static Path instance(Path root, String key, String repoName, String filePath, int hunks, int lines)
+            throws IOException {
+        Path dir = root.resolve(key);
+        String name = dir.getFileName().toString();
+        write(dir.resolve("pair.info"), "Id:" + name.substring(name.indexOf('#') + 1) + "\n"
+                + "SATName:Genesis\n"
+                + "modifiedFPath:" + filePath + "\n"
+                + "comSha:0\n"
+                + "parentComSha:0^1\n"
+                + "githubUrl:https://github.com/" + repoName.replace('#', '/') + "\n"
+                + "repoName:" + repoName + "\n");
+        write(dir.resolve("comMsg.txt"), "Fix " + name + "\n");
+        StringBuilder diff = new StringBuilder("--- a/" + filePath + "\n+++ b/" + filePath + "\n");
+        for (int h = 0; h < hunks; h++) {
+            diff.append("@@ -").append(h + 1).append(" +").append(h + 1).append(" @@\n-a\n+b\n");
+        }
+        write(dir.resolve("diff.diff"), diff.toString());
+        String file = filePath.substring(filePath.lastIndexOf('/') + 1);
+        StringBuilder source = new StringBuilder();
+        for (int l = 0; l < lines; l++) {
+            source.append("// ").append(l).append('\n');
+        }
+        write(dir.resolve("old").resolve(file), source.toString());
+        write(dir.resolve("new").resolve(file), source + "// fixed\n");
+        return dir;
+    }
+
+    public static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package fixbench.detect;
+
+import static fixbench.Tests.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class BugDetectorTest {
+
+    public static void testConvertCase() {
+        assertFindings(BugPattern.DM_CONVERT_CASE,
+                "class A {\n  String f(String s) {\n    return s.toLowerCase();\n  }\n}\n",
+                "DM_CONVERT_CASE 3-3 toLowerCase");
+        assertFindings(BugPattern.DM_CONVERT_CASE,
+                "class A {\n  String f(String s) {\n    return s.toLowerCase(Locale.ROOT);\n  }\n}\n");
+    }
+
+    public static void testDefaultEncoding() {
+        assertFindings(BugPattern.DM_DEFAULT_ENCODING,
+                "class A {\n  byte[] f(String s) {\n    return s.getBytes();\n  }\n}\n",
+                "DM_DEFAULT_ENCODING 3-3 getBytes()");
+        assertFindings(BugPattern.DM_DEFAULT_ENCODING,
+                "class A {\n  byte[] f(String s) {\n    return s.getBytes(UTF_8);\n  }\n}\n");
+    }
+
+    public static void testShouldBeFinal() {
+        assertFindings(BugPattern.MS_SHOULD_BE_FINAL,
+                "class A {\n  public static int[] X = {};\n}\n",
+                "MS_SHOULD_BE_FINAL 2-2 A.X");
+        assertFindings(BugPattern.MS_SHOULD_BE_FINAL,
+                "class A {\n  public static final int[] X = {};\n  private static int y;\n}\n");
+    }
+
+    public static void testNoSerialVersionId() {
+        assertFindings(BugPattern.SE_NO_SERIALVERSIONID,
+                "class A implements Serializable {\n  int x;\n}\n",
+                "SE_NO_SERIALVERSIONID 1-3 A");
+        assertFindings(BugPattern.SE_NO_SERIALVERSIONID,
+                "class A implements Serializable {\n  private static final long serialVersionUID = 1L;\n}\n");
+    }
+
+    public static void testUnreadField() {
+        assertFindings(BugPattern.URF_UNREAD_FIELD,
+                "class A {\n  private int x;\n  void set(int v) {\n    x = v;\n  }\n}\n",
+                "URF_UNREAD_FIELD 4-4 A.x");
+        assertFindings(BugPattern.URF_UNREAD_FIELD,
+                "class A {\n  private int x;\n  void set(int v) {\n    x = v;\n  }\n"
+                        + "  int get() {\n    return x;\n  }\n}\n");
+    }
+
+    /** A local of one method does not hide the field from a later field initializer. */
+    public static void testLocalsEndWithTheirBody() {
+        assertFindings(BugPattern.URF_UNREAD_FIELD,
+                "class A {\n  private int x = 5;\n"
+                        + "  void m() { int x = 1; System.out.println(x); }\n"
+                        + "  private int y = x;\n  int z() { return y; }\n}\n");
+        assertFindings(BugPattern.URF_UNREAD_FIELD,
+                "class A {\n  private int x = 5;\n"
+                        + "  void m() { int x = 1; System.out.println(x); }\n"
+                        + "  int z() { return 0; }\n}\n",
+                "URF_UNREAD_FIELD 2-2 A.x");
+    }
+
+    public static void testNullDereference() {
+        assertFindings(BugPattern.NULL_DEREFERENCE,
+                "class A {\n  int f(Map<String, String> m) {\n    String v = m.get(\"k\");\n"
+                        + "    return v.length();\n  }\n}\n",
+                "NULL_DEREFERENCE 4-4 v");
+        assertFindings(BugPattern.NULL_DEREFERENCE,
+                "class A {\n  int f(Map<String, String> m) {\n    String v = m.get(\"k\");\n"
+                        + "    return v == null ? 0 : v.length();\n  }\n}\n");
+    }
+
+    public static void testOutOfBounds() {
+        assertFindings(BugPattern.OUT_OF_BOUNDS,
+                "class A {\n  int f(int[] a) {\n    return a[0];\n  }\n}\n",
+                "OUT_OF_BOUNDS 3-3 a");
+        assertFindings(BugPattern.OUT_OF_BOUNDS,
+                "class A {\n  int f(int[] a) {\n    return a.length > 0 ? a[0] : -1;\n  }\n}\n");
+    }
+
+    private static void assertFindings(BugPattern pattern, String source, String... expected) {
+        List<Finding> findings = new BugDetector(EnumSet.of(pattern))
+                .detect(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+        List<String> actual = new ArrayList<>();
+        for (Finding finding : findings) {
+            actual.add(finding.toString());
+        }
+        assertEquals(expected.length == 0 ? Collections.emptyList() : Arrays.asList(expected), actual, source);
+    }
+}
@@ -0,0 +1,80 @@
+package fixbench.diff;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.View;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class DiffWriterTest {
+
+    /** Adding the final newline is a change of the last line, as in FBViolation#59850. */
+    public static void testNewlineAtEndOfFile() {
+        String added = diff("class A {\n}", "class A {\n}\n");
+        assertTrue(added.endsWith("@@ -2 +2 @@ class A {\n-}\n\\ No newline at end of file\n+}\n"), added);
+        String removed = diff("class A {\n}\n", "class A {\n}");
+        assertTrue(removed.endsWith("@@ -2 +2 @@ class A {\n-}\n+}\n\\ No newline at end of file\n"), removed);
+        String appended = diff("a\nb", "a\nb\nc");
+        assertTrue(appended.endsWith("@@ -2 +2,2 @@ a\n-b\n\\ No newline at end of file\n+b\n+c\n"
+                + "\\ No newline at end of file\n"), appended);
+        assertTrue(!diff("a\n}", "a\n}").contains("@@"), "identical sources differ");
+    }
+
+    /** Blob ids are those of {@code git hash-object}; hunk ranges and labels follow {@code git diff -U0}. */
+    public static void testHeaderAndRanges() {
+        String diff = diff("package p;\n\nclass A {\n    int a;\n    int b;\n}\n",
+                "package p;\n\nclass A {\n    int b;\n    int c;\n}\n");
+        assertEquals("diff --git a/src/A.java b/src/A.java\n"
+                + "index 1ba6c82..cab0acf 100644\n"
+                + "--- a/src/A.java\n"
+                + "+++ b/src/A.java\n"
+                + "@@ -4 +3,0 @@ class A {\n"
+                + "-    int a;\n"
+                + "@@ -5,0 +5 @@ class A {\n"
+                + "+    int c;\n", diff);
+    }
+
+    /** The diff of every instance's sources applies to the old source and gives the new one exactly. */
+    public static void testCorpusRoundTrip() throws IOException {
+        int checked = 0;
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.of(View.ALL))) {
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instance.oldSource() == null || instance.newSource() == null
+                        || instance.content(MemberKind.DIFF) == null) {
+                    continue;
+                }
+                String path = UnifiedDiffParser.parse(instance.content(MemberKind.DIFF)).get(0).path();
+                ByteBuffer oldSource = instance.oldSource().content();
+                ByteBuffer newSource = instance.newSource().content();
+                assertRoundTrip(instance.key(), DiffWriter.write(path, oldSource, newSource), oldSource, newSource);
+                checked++;
+            }
+        }
+        assertTrue(checked > 600, "only " + checked + " instances checked");
+    }
+
+    /** Checks that {@code diff} is a diff of one file that turns {@code oldSource} into {@code newSource}. */
+    public static void assertRoundTrip(String name, ByteBuffer diff, ByteBuffer oldSource, ByteBuffer newSource) {
+        List<Hunk> hunks = UnifiedDiffParser.parse(diff);
+        assertEquals(newSource.duplicate(), Patch.apply(oldSource.duplicate(), hunks), name);
+        assertTrue(!oldSource.equals(newSource) || hunks.isEmpty(), name + ": hunks for identical sources");
+    }
+
+    private static String diff(String oldSource, String newSource) {
+        ByteBuffer diff = DiffWriter.write("src/A.java", ascii(oldSource), ascii(newSource));
+        assertRoundTrip(oldSource, diff, ascii(oldSource), ascii(newSource));
+        return StandardCharsets.US_ASCII.decode(diff).toString();
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,135 @@
+package fixbench.diff;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies the hunks of a diff to a source byte for byte, as {@code git apply} would with no
+ * context: removed lines must match the source exactly, including whether they end in a newline,
+ * which only {@code \ No newline at end of file} after a line denies. Some of the benchmark's
+ * diffs were taken with git's CRLF conversion or with whitespace ignored, so they only apply up to
+ * whitespace; {@link #words} compares sources that way.
+ */
+public final class Patch {
+
+    private Patch() {
+    }
+
+    /** The patched source; fails if a hunk does not match {@code source}. */
+    public static ByteBuffer apply(ByteBuffer source, List<Hunk> hunks) {
+        return apply(source, hunks, false);
+    }
+
+    /**
+     * The patched source; fails if a hunk does not match {@code source}, comparing lines without
+     * their whitespace if {@code ignoreWhitespace}.
+     */
+    public static ByteBuffer apply(ByteBuffer source, List<Hunk> hunks, boolean ignoreWhitespace) {
+        List<Line> lines = lines(source, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(source.remaining() + 256);
+        int next = 0;
+        for (Hunk hunk : hunks) {
+            int start = hunk.oldCount() == 0 ? hunk.oldStart() : hunk.oldStart() - 1;
+            if (start < next || start > lines.size()) {
+                throw new AssertionError(hunk + " starts at line " + (start + 1) + ", after line " + next);
+            }
+            while (next < start) {
+                lines.get(next++).write(out);
+            }
+            for (Line line : lines(hunk.body(), true)) {
+                byte marker = line.text.get(line.text.position());
+                Line text = new Line(line.text.duplicate().position(line.text.position() + 1), line.newline);
+                if (marker == '-' || marker == ' ') {
+                    if (next >= lines.size() || !(ignoreWhitespace
+                            ? stripped(lines.get(next).text).equals(stripped(text.text))
+                            : lines.get(next).equals(text))) {
+                        throw new AssertionError(hunk + " does not match line " + (next + 1));
+                    }
+                    next++;
+                }
+                if (marker == '+' || marker == ' ') {
+                    text.write(out);
+                }
+            }
+        }
+        while (next < lines.size()) {
+            lines.get(next++).write(out);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    /** The lines of {@code content}, each without its whitespace, as {@code git diff -w} compares them. */
+    public static List<String> words(ByteBuffer content) {
+        List<String> words = new ArrayList<>();
+        for (Line line : lines(content, false)) {
+            words.add(stripped(line.text));
+        }
+        return words;
+    }
+
+    private static String stripped(ByteBuffer line) {
+        StringBuilder word = new StringBuilder(line.remaining());
+        for (int k = line.position(); k < line.limit(); k++) {
+            if (line.get(k) > ' ') {
+                word.append((char) (line.get(k) & 0xff));
+            }
+        }
+        return word.toString();
+    }
+
+    /**
+     * Lines of a source, or of a diff {@code body}, where a line at the end of the buffer is taken
+     * to end in a newline unless a {@code \} line follows it.
+     */
+    private static List<Line> lines(ByteBuffer content, boolean body) {
+        List<Line> lines = new ArrayList<>();
+        int start = content.position();
+        while (start < content.limit()) {
+            int end = start;
+            while (end < content.limit() && content.get(end) != '\n') {
+                end++;
+            }
+            if (body && content.get(start) == '\\') {
+                if (!lines.isEmpty()) {
+                    lines.get(lines.size() - 1).newline = false;
+                }
+            } else {
+                lines.add(new Line(content.duplicate().position(start).limit(end), body || end < content.limit()));
+            }
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    private static final class Line {
+        final ByteBuffer text;
+        boolean newline;
+
+        Line(ByteBuffer text, boolean newline) {
+            this.text = text;
+            this.newline = newline;
+        }
+
+        void write(ByteArrayOutputStream out) {
+            ByteBuffer copy = text.duplicate();
+            byte[] bytes = new byte[copy.remaining()];
+            copy.get(bytes);
+            out.write(bytes, 0, bytes.length);
+            if (newline) {
+                out.write('\n');
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Line && text.equals(((Line) other).text) && newline == ((Line) other).newline;
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package fixbench.diff;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class UnifiedDiffParserTest {
+
+    /** Every diff of every tier, applied to its old source, yields the new source up to whitespace. */
+    public static void testEveryCorpusDiffApplies() throws IOException {
+        int checked = 0;
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.allOf(View.class),
+                EnumSet.allOf(Tier.class))) {
+            for (CorpusInstance instance : corpus.instances()) {
+                ByteBuffer diff = instance.content(MemberKind.DIFF);
+                if (diff == null || instance.oldSource() == null || instance.newSource() == null) {
+                    continue;
+                }
+                List<Hunk> hunks = UnifiedDiffParser.parse(diff);
+                assertTrue(!hunks.isEmpty(), instance.key() + " has no hunks");
+                assertEquals(hunks.size(), UnifiedDiffParser.count(diff), instance.key());
+                ByteBuffer patched = Patch.apply(instance.oldSource().content(), hunks, true);
+                assertEquals(Patch.words(instance.newSource().content()), Patch.words(patched), instance.key());
+                checked++;
+            }
+        }
+        assertTrue(checked > 1000, "only " + checked + " diffs checked");
+    }
+
+    public static void testHeaderForms() {
+        ByteBuffer diff = ascii("diff --git a/src/A.java b/src/A.java\n"
+                + "index 1111111..2222222 100644\n"
+                + "--- a/src/A.java\r\n"
+                + "+++ b/src/A.java\r\n"
+                + "@@ -3 +3 @@ class A {\n"
+                + "--- x;\n"
+                + "+++ x;\n"
+                + "@@ -7,2 +6,0 @@\n"
+                + "-a\n"
+                + "-@@ -1 +1 @@\n"
+                + "@@ -20,0 +19,2 @@ void f() {  \r\n"
+                + "+b\r\n"
+                + "+}\n"
+                + "\\ No newline at end of file\n");
+        List<Hunk> hunks = UnifiedDiffParser.parse(diff);
+        assertEquals(3, hunks.size());
+
+        Hunk first = hunks.get(0);
+        assertEquals("src/A.java", first.path());
+        assertEquals("class A {", first.label());
+        assertEquals(Arrays.asList(3, 1, 3, 1),
+                Arrays.asList(first.oldStart(), first.oldCount(), first.newStart(), first.newCount()));
+        assertEquals(Arrays.asList("-- x;"), first.removedLines());
+        assertEquals(Arrays.asList("++ x;"), first.addedLines());
+
+        Hunk second = hunks.get(1);
+        assertEquals("", second.label());
+        assertEquals(Arrays.asList(7, 2, 6, 0),
+                Arrays.asList(second.oldStart(), second.oldCount(), second.newStart(), second.newCount()));
+        assertEquals(Arrays.asList("a", "@@ -1 +1 @@"), second.removedLines());
+        assertEquals(6, second.newEnd());
+
+        Hunk third = hunks.get(2);
+        assertEquals("void f() {", third.label());
+        assertEquals(Arrays.asList("b", "}"), third.addedLines());
+        assertEquals("+b\r\n+}\n\\ No newline at end of file\n",
+                StandardCharsets.US_ASCII.decode(third.body()).toString());
+        assertEquals(0, diff.position(), "parse moved the position");
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,119 @@
+package fixbench.edit;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.Corpus;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.View;
+import fixbench.io.ByteSink;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.SyntaxTree;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class EditScriptStoreTest {
+    private static final int INSTANCES = 60;
+
+    /** Builds a store of real instances at a bare file name, as in the README, and reads it back. */
+    public static void testSaveAndLoad() throws IOException {
+        List<CorpusInstance> instances;
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(),
+                EnumSet.of(View.ALL, View.WITHIN_SINGLE_METHOD))) {
+            instances = sample(corpus.instances());
+        }
+        Corpus sample = () -> instances;
+        Path file = Paths.get("editscriptstoretest-" + System.nanoTime() + ".store");
+        try {
+            EditScriptStore.Stats stats = EditScriptStore.build(sample, file, null);
+            assertEquals(instances.size(), stats.instances);
+            assertTrue(stats.scripts < stats.instances, "instances in two views share a script");
+
+            EditScriptStore store = EditScriptStore.open(file);
+            assertEquals(instances.size(), store.size());
+            for (CorpusInstance instance : instances) {
+                EditScript expected = TreeDiff.diff(tree(instance.oldSource()), tree(instance.newSource()));
+                assertEquals(encoded(expected), encoded(store.get(instance)), instance.key());
+                assertEquals(encoded(expected), encoded(store.get(instance.key())), instance.key());
+            }
+            assertEquals(null, store.get("All/None/Nothing#0"));
+            assertEquals(null, store.get(swapped(instances.get(0))), "script served for other sources");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** The first instances with both sources, of the whole-file view and the single-method one. */
+    private static List<CorpusInstance> sample(List<CorpusInstance> all) {
+        List<CorpusInstance> sample = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (CorpusInstance instance : all) {
+            if (instance.view() == View.WITHIN_SINGLE_METHOD && instance.oldSource() != null
+                    && instance.newSource() != null && sample.size() < INSTANCES / 2) {
+                sample.add(instance);
+                names.add(instance.category() + '/' + instance.name());
+            }
+        }
+        for (CorpusInstance instance : all) {
+            if (instance.view() == View.ALL && names.contains(instance.category() + '/' + instance.name())) {
+                sample.add(instance);
+            }
+        }
+        return sample;
+    }
+
+    private static SyntaxTree tree(Member source) {
+        return SyntaxTree.of(DeclarationIndex.of(source.content()));
+    }
+
+    private static ByteBuffer encoded(EditScript script) {
+        if (script == null) {
+            return null;
+        }
+        ByteSink out = new ByteSink();
+        script.encode(out);
+        return out.toBuffer();
+    }
+
+    /** The instance with its old and new sources exchanged. */
+    private static CorpusInstance swapped(CorpusInstance instance) {
+        List<Member> members = new ArrayList<>();
+        members.add(new Member(MemberKind.OLD, instance.oldSource().name(),
+                instance.newSource().content()));
+        members.add(new Member(MemberKind.NEW, instance.newSource().name(),
+                instance.oldSource().content()));
+        return new CorpusInstance() {
+            @Override
+            public View view() {
+                return instance.view();
+            }
+
+            @Override
+            public String category() {
+                return instance.category();
+            }
+
+            @Override
+            public String name() {
+                return instance.name();
+            }
+
+            @Override
+            public List<Member> members() {
+                return members;
+            }
+        };
+    }
+}
@@ -0,0 +1,337 @@
+package fixbench.eval;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.Member;
+import fixbench.corpus.View;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class EvaluationHarnessTest {
+    private static final int PER_FOLDER = 8;
+
+    /** The oracle reproduces every instance and the identity baseline none. */
+    public static void testRun() throws IOException {
+        List<CorpusInstance> instances = sample(2 * PER_FOLDER);
+        Map<String, InstanceResult> results = Collections.synchronizedMap(new HashMap<>());
+        EvaluationHarness harness = new EvaluationHarness(4, Duration.ofSeconds(60));
+        EvaluationHarness.Summary summary = harness.run(instances, new OracleTool(),
+                result -> results.put(result.key(), result));
+        assertEquals(instances.size(), summary.total());
+        assertEquals(instances.size(), summary.count(Verdict.REPRODUCED));
+        for (CorpusInstance instance : instances) {
+            InstanceResult result = results.get(instance.key());
+            assertEquals("oracle", result.tool());
+            assertEquals(instance.newSource().content(), result.candidate(), instance.key());
+        }
+        summary = harness.run(instances, new IdentityTool(), result -> { });
+        assertEquals(instances.size(), summary.count(Verdict.DIFFERENT));
+    }
+
+    /** An instance whose fixed source, diff and candidate were verified before takes that verdict. */
+    public static void testVerdictReuse() throws IOException {
+        List<CorpusInstance> instances = sample(PER_FOLDER);
+        List<CorpusInstance> twice = new ArrayList<>(instances);
+        twice.addAll(instances);
+        AtomicInteger verified = new AtomicInteger();
+        Verifier counting = (instance, candidate) -> {
+            verified.incrementAndGet();
+            return Verifier.NORMALIZED.reproduces(instance, candidate);
+        };
+        EvaluationHarness harness = new EvaluationHarness(2, Duration.ofSeconds(60), counting);
+        EvaluationHarness.Summary summary = harness.run(twice, new OracleTool(), result -> { });
+        assertEquals(twice.size(), summary.count(Verdict.REPRODUCED));
+        assertEquals(instances.size(), verified.get());
+
+        summary = harness.run(instances, new IdentityTool(), result -> { });
+        assertEquals(instances.size(), summary.count(Verdict.DIFFERENT));
+        assertEquals(2 * instances.size(), verified.get());
+    }
+
+    /** A tool that overruns the timeout is interrupted, and the worker goes on with the next instance. */
+    public static void testTimeout() throws IOException {
+        List<CorpusInstance> instances = sample(4);
+        String slow = instances.get(1).key();
+        TransformationTool tool = new TransformationTool() {
+            @Override
+            public String name() {
+                return "slow";
+            }
+
+            @Override
+            public ByteBuffer apply(CorpusInstance target, List<CorpusInstance> examples) throws Exception {
+                if (target.key().equals(slow)) {
+                    Thread.sleep(60_000);
+                }
+                return target.newSource().content();
+            }
+        };
+        Map<String, InstanceResult> results = Collections.synchronizedMap(new HashMap<>());
+        long start = System.nanoTime();
+        EvaluationHarness.Summary summary = new EvaluationHarness(1, Duration.ofMillis(200))
+                .run(instances, tool, result -> results.put(result.key(), result));
+        assertTrue(System.nanoTime() - start < 30_000_000_000L, "timeout did not interrupt the tool");
+        assertEquals(1, summary.count(Verdict.TIMEOUT));
+        assertEquals(instances.size() - 1, summary.count(Verdict.REPRODUCED));
+        assertEquals(Verdict.TIMEOUT, results.get(slow).verdict());
+        assertTrue(!Thread.currentThread().isInterrupted(), "interrupt leaked");
+    }
+
+    /**
+     * Many instances that end right around the timeout: the interrupt of a timed-out instance never
+     * reaches the instance its worker loads next.
+     */
+    public static void testTimeoutBoundary() throws IOException {
+        AtomicInteger spurious = new AtomicInteger();
+        List<CorpusInstance> sample = sample(PER_FOLDER);
+        List<CorpusInstance> instances = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            for (CorpusInstance instance : sample) {
+                instances.add(new InterruptProbe(instance, spurious));
+            }
+        }
+        TransformationTool tool = new TransformationTool() {
+            @Override
+            public String name() {
+                return "boundary";
+            }
+
+            @Override
+            public ByteBuffer apply(CorpusInstance target, List<CorpusInstance> examples) {
+                // Spins without polling the interrupt, for half to one and a half times the timeout.
+                long end = System.nanoTime() + ThreadLocalRandom.current().nextLong(500_000, 1_500_000);
+                while (System.nanoTime() < end) {
+                    Thread.onSpinWait();
+                }
+                return null;
+            }
+        };
+        EvaluationHarness.Summary summary = new EvaluationHarness(4, Duration.ofMillis(1))
+                .run(instances, tool, result -> { });
+        assertEquals(instances.size(), summary.total());
+        assertEquals(instances.size(), summary.count(Verdict.TIMEOUT) + summary.count(Verdict.NO_OUTPUT));
+        assertTrue(summary.count(Verdict.TIMEOUT) > 0, "no instance timed out");
+        assertEquals(0, spurious.get(), "instances loaded with an interrupt pending");
+    }
+
+    /** An instance whose files cannot be read is an ERROR in both modes; the run goes on. */
+    public static void testLoadFailure() throws IOException {
+        List<CorpusInstance> instances = sample(PER_FOLDER);
+        CorpusInstance unreadable = new Unreadable(instances.get(3));
+        instances.set(3, unreadable);
+
+        Map<String, InstanceResult> results = Collections.synchronizedMap(new HashMap<>());
+        EvaluationHarness harness = new EvaluationHarness(1, Duration.ofSeconds(60));
+        EvaluationHarness.Summary summary = harness.run(instances, new OracleTool(),
+                result -> results.put(result.key(), result));
+        assertEquals(instances.size(), summary.total());
+        assertEquals(1, summary.count(Verdict.ERROR));
+        assertTrue(results.get(unreadable.key()).error().contains("unreadable"),
+                results.get(unreadable.key()).error());
+
+        results.clear();
+        summary = harness.runLeaveOneOut(instances, new FlakyTool("", "", ""),
+                result -> results.put(result.key(), result));
+        assertEquals(instances.size(), summary.total());
+        assertEquals(1, summary.count(Verdict.ERROR));
+        assertEquals(Verdict.ERROR, results.get(unreadable.key()).verdict());
+        // The other instances, before and after it, found the model intact.
+        assertEquals(instances.size() - 1, summary.count(Verdict.REPRODUCED));
+    }
+
+    /**
+     * Failures outside {@code apply} become ERROR verdicts of the instances they hit, and the
+     * remaining instances are still evaluated against an intact model.
+     */
+    public static void testLeaveOneOutFailures() throws IOException {
+        List<CorpusInstance> instances = new ArrayList<>();
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.of(View.ALL))) {
+            Map<String, Integer> perFolder = new HashMap<>();
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instance.oldSource() != null && instance.newSource() != null
+                        && perFolder.merge(instance.category(), 1, Integer::sum) <= PER_FOLDER
+                        && perFolder.size() <= 2) {
+                    instance.members();
+                    instances.add(instance);
+                }
+            }
+        }
+        assertEquals(2 * PER_FOLDER, instances.size());
+        String unlearnable = instances.get(0).category();
+        CorpusInstance badRemove = instances.get(PER_FOLDER + 2);
+        CorpusInstance badAdd = instances.get(PER_FOLDER + 5);
+        FlakyTool tool = new FlakyTool(unlearnable, badRemove.key(), badAdd.key());
+
+        Map<String, InstanceResult> results = Collections.synchronizedMap(new HashMap<>());
+        EvaluationHarness.Summary summary = new EvaluationHarness(1, Duration.ofSeconds(60))
+                .runLeaveOneOut(instances, tool, result -> results.put(result.key(), result));
+
+        assertEquals(instances.size(), summary.total());
+        assertEquals(PER_FOLDER + 2, summary.count(Verdict.ERROR));
+        assertEquals(PER_FOLDER - 2, summary.count(Verdict.REPRODUCED));
+        for (CorpusInstance instance : instances) {
+            InstanceResult result = results.get(instance.key());
+            boolean failing = instance.category().equals(unlearnable) || instance == badRemove || instance == badAdd;
+            assertEquals(failing ? Verdict.ERROR : Verdict.REPRODUCED, result.verdict(), instance.key());
+            assertTrue(!failing || result.error().contains("flaky"), String.valueOf(result.error()));
+        }
+        // One learn per folder, and one more after each of the failed remove and add.
+        assertEquals(4, tool.learns.get());
+    }
+
+    /** The first instances with both sources, at most {@link #PER_FOLDER} per bug folder. */
+    private static List<CorpusInstance> sample(int count) throws IOException {
+        List<CorpusInstance> instances = new ArrayList<>();
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.of(View.ALL))) {
+            Map<String, Integer> perFolder = new HashMap<>();
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instances.size() < count && instance.oldSource() != null && instance.newSource() != null
+                        && perFolder.merge(instance.category(), 1, Integer::sum) <= PER_FOLDER) {
+                    instance.members();
+                    instances.add(instance);
+                }
+            }
+        }
+        assertEquals(count, instances.size());
+        return instances;
+    }
+
+    /** An instance whose files fail to read, as a deleted or unreadable folder would. */
+    private static final class Unreadable implements CorpusInstance {
+        private final CorpusInstance instance;
+
+        Unreadable(CorpusInstance instance) {
+            this.instance = instance;
+        }
+
+        @Override
+        public View view() {
+            return instance.view();
+        }
+
+        @Override
+        public String category() {
+            return instance.category();
+        }
+
+        @Override
+        public String name() {
+            return instance.name();
+        }
+
+        @Override
+        public List<Member> members() {
+            throw new UncheckedIOException(new IOException("unreadable " + key()));
+        }
+    }
+
+    /**
+     * Counts the loads that find the thread interrupted. The harness loads an instance before
+     * arming its timeout, so such an interrupt was meant for an earlier instance.
+     */
+    private static final class InterruptProbe implements CorpusInstance {
+        private final CorpusInstance instance;
+        private final AtomicInteger spurious;
+
+        InterruptProbe(CorpusInstance instance, AtomicInteger spurious) {
+            this.instance = instance;
+            this.spurious = spurious;
+        }
+
+        @Override
+        public View view() {
+            return instance.view();
+        }
+
+        @Override
+        public String category() {
+            return instance.category();
+        }
+
+        @Override
+        public String name() {
+            return instance.name();
+        }
+
+        @Override
+        public List<Member> members() {
+            if (Thread.currentThread().isInterrupted()) {
+                spurious.incrementAndGet();
+            }
+            return instance.members();
+        }
+    }
+
+    /** Oracle tool whose model is the set of learned keys; fails where it is told to. */
+    private static final class FlakyTool implements IncrementalTool<Set<String>> {
+        private final String unlearnable;
+        private final String badRemove;
+        private final String badAdd;
+        private final Map<String, Integer> folderSizes = new HashMap<>();
+        final AtomicInteger learns = new AtomicInteger();
+
+        FlakyTool(String unlearnable, String badRemove, String badAdd) {
+            this.unlearnable = unlearnable;
+            this.badRemove = badRemove;
+            this.badAdd = badAdd;
+        }
+
+        @Override
+        public String name() {
+            return "flaky";
+        }
+
+        @Override
+        public Set<String> learn(List<CorpusInstance> examples) {
+            learns.incrementAndGet();
+            if (examples.get(0).category().equals(unlearnable)) {
+                throw new IllegalStateException("flaky learn");
+            }
+            Set<String> model = new HashSet<>();
+            for (CorpusInstance example : examples) {
+                model.add(example.key());
+            }
+            folderSizes.put(examples.get(0).category(), model.size());
+            return model;
+        }
+
+        @Override
+        public void remove(Set<String> model, CorpusInstance example) {
+            model.remove(example.key());
+            if (example.key().equals(badRemove)) {
+                throw new IllegalStateException("flaky remove");
+            }
+        }
+
+        @Override
+        public void add(Set<String> model, CorpusInstance example) {
+            if (example.key().equals(badAdd)) {
+                throw new IllegalStateException("flaky add");
+            }
+            model.add(example.key());
+        }
+
+        @Override
+        public ByteBuffer apply(Set<String> model, CorpusInstance target) {
+            boolean intact = !model.contains(target.key())
+                    && model.size() == folderSizes.get(target.category()) - 1;
+            return intact ? target.newSource().content() : null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package fixbench.eval;
+
+import static fixbench.Tests.assertTrue;
+
+import fixbench.diff.Hunk;
+import fixbench.diff.UnifiedDiffParser;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+public final class NormalizedVerifierTest {
+    /** One hunk over the first 100 lines, so that every method of the test sources is touched. */
+    private static final List<Hunk> HUNKS = UnifiedDiffParser.parse(ByteBuffer.wrap(
+            "--- a/A.java\n+++ b/A.java\n@@ -1,100 +1,100 @@\n".getBytes(StandardCharsets.US_ASCII)));
+
+    public static void testLayoutCommentsAndImports() {
+        assertEquivalent(
+                "package p;\nimport b.B;\nimport a.A;\nclass C {\n  long f() { return 1L; }\n}\n",
+                "package p; import a.A;\n// moved\nimport b.B;\nclass C { long f() {\n return /* one */ 1l;\n} }");
+    }
+
+    public static void testBracesAroundControlBodies() {
+        String fixed = "class C {\n  void f(int x) {\n"
+                + "    if (x > 0) { g(); } else { h(); }\n"
+                + "    for (int i = 0; i < x; i++) { g(); }\n"
+                + "    while (x-- > 0) { h(); }\n"
+                + "    do { g(); } while (x < 0);\n"
+                + "  }\n}\n";
+        String candidate = "class C {\n  void f(int x) {\n"
+                + "    if (x > 0) g(); else h();\n"
+                + "    for (int i = 0; i < x; i++) g();\n"
+                + "    while (x-- > 0) h();\n"
+                + "    do g(); while (x < 0);\n"
+                + "  }\n}\n";
+        assertEquivalent(fixed, candidate);
+    }
+
+    public static void testRedundantParentheses() {
+        assertEquivalent("class C {\n  boolean f(int x) {\n    return (x > 0);\n  }\n}\n",
+                "class C {\n  boolean f(int x) {\n    return ((x > 0));\n  }\n}\n");
+    }
+
+    public static void testDifferentTokens() {
+        assertDifferent("class C {\n  int f() {\n    return 1;\n  }\n}\n",
+                "class C {\n  int f() {\n    return 2;\n  }\n}\n");
+        assertDifferent("import a.A;\nclass C {}\n", "import a.B;\nclass C {}\n");
+    }
+
+    /** Braces that are not a control-statement body are significant, even around one element. */
+    public static void testBracesOutsideControlBodies() {
+        assertDifferent("class C {\n  void f() {\n    int[] q = { 1 };\n  }\n}\n",
+                "class C {\n  void f() {\n    int[] q = 1;\n  }\n}\n");
+        assertDifferent("class C {\n  void f() {\n    synchronized (this) { g(); }\n  }\n}\n",
+                "class C {\n  void f() {\n    synchronized (this) g();\n  }\n}\n");
+        assertDifferent("class C {\n  void f(int x) {\n    switch (x) { default: }\n  }\n}\n",
+                "class C {\n  void f(int x) {\n    switch (x) default: ;\n  }\n}\n");
+        assertDifferent("class C {\n  Runnable f() {\n    return () -> { g(); };\n  }\n}\n",
+                "class C {\n  Runnable f() {\n    return () -> g();\n  }\n}\n");
+    }
+
+    /** Braces that keep an else from the nested if are significant. */
+    public static void testDanglingElse() {
+        assertDifferent("class C {\n  void f(int x) {\n    if (x > 0) { if (x > 1) g(); } else h();\n  }\n}\n",
+                "class C {\n  void f(int x) {\n    if (x > 0) if (x > 1) g(); else h();\n  }\n}\n");
+    }
+
+    /** A method difference outside every hunk is not normalized. */
+    public static void testOutsideHunks() {
+        String fixed = "class C {\n  void f(int x) {\n    if (x > 0) { g(); }\n  }\n}\n";
+        String candidate = "class C {\n  void f(int x) {\n    if (x > 0) g();\n  }\n}\n";
+        assertTrue(!NormalizedVerifier.equivalent(ascii(fixed), ascii(candidate), Collections.emptyList()),
+                "equivalent without hunks");
+    }
+
+    private static void assertEquivalent(String fixed, String candidate) {
+        assertTrue(NormalizedVerifier.equivalent(ascii(fixed), ascii(candidate), HUNKS),
+                "not equivalent:\n" + fixed + "\n" + candidate);
+    }
+
+    private static void assertDifferent(String fixed, String candidate) {
+        assertTrue(!NormalizedVerifier.equivalent(ascii(fixed), ascii(candidate), HUNKS),
+                "equivalent:\n" + fixed + "\n" + candidate);
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
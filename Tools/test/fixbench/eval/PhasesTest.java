@@ -0,0 +1,90 @@
+package fixbench.eval;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import java.util.List;
+
+public final class PhasesTest {
+
+    /** Nested spans count towards their own phase but not again towards the instance total. */
+    public static void testNestedSpans() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        Phases.enter(metrics, "Genesis-NP/Genesis#1", "Genesis-NP", "a#lib", "tool");
+        Phases.Span apply;
+        Phases.Span firstParse;
+        Phases.Span secondParse;
+        Phases.Span verify;
+        try {
+            apply = Phases.start(Phase.APPLY);
+            firstParse = Phases.start(Phase.PARSE);
+            work();
+            firstParse.close();
+            secondParse = Phases.start(Phase.PARSE);
+            work();
+            secondParse.close();
+            apply.close();
+            apply.close();
+            verify = Phases.start(Phase.VERIFY);
+            work();
+            verify.close();
+        } finally {
+            Phases.exit();
+        }
+        long parse = firstParse.nanos() + secondParse.nanos();
+        assertTrue(parse <= apply.nanos(), parse + " ns nested in " + apply.nanos() + " ns");
+
+        PerformanceMetrics.Stats instance = metrics.slowestInstances(10).get(0);
+        assertEquals("Genesis-NP/Genesis#1", instance.name());
+        assertEquals(2, instance.count());
+        assertEquals(apply.nanos() + verify.nanos(), instance.nanos());
+        assertEquals(Math.max(apply.nanos(), verify.nanos()), instance.maxNanos());
+        assertEquals(apply.nanos(), instance.nanos(Phase.APPLY));
+        assertEquals(parse, instance.nanos(Phase.PARSE));
+        assertEquals(verify.nanos(), instance.nanos(Phase.VERIFY));
+        assertEquals(0L, instance.nanos(Phase.LEARN));
+
+        PerformanceMetrics.Stats repository = metrics.slowestRepositories(10).get(0);
+        assertEquals("a#lib", repository.name());
+        assertEquals(2, repository.count());
+        assertEquals(instance.nanos(), repository.nanos());
+
+        assertEquals(1, metrics.phase(Phase.APPLY).count());
+        assertEquals(apply.nanos(), metrics.phase(Phase.APPLY).nanos());
+        assertEquals(2, metrics.phase(Phase.PARSE).count());
+        assertEquals(parse, metrics.phase(Phase.PARSE).nanos());
+        assertEquals(Math.max(firstParse.nanos(), secondParse.nanos()),
+                metrics.phase(Phase.PARSE).maxNanos());
+        assertEquals(0, metrics.phase(Phase.LOAD).count());
+        assertTrue(metrics.report(10).contains("\nparse\t2\t"), metrics.report(10));
+    }
+
+    /** Folder-level spans count for the repository only; spans outside a context are not recorded. */
+    public static void testContexts() {
+        PerformanceMetrics metrics = new PerformanceMetrics();
+        Phases.enter(metrics, null, "Genesis-NP", "a#lib", "tool");
+        Phases.Span learn;
+        try {
+            learn = Phases.start(Phase.LEARN);
+            work();
+            learn.close();
+        } finally {
+            Phases.exit();
+        }
+        Phases.Span outside = Phases.start(Phase.PARSE);
+        outside.close();
+        assertTrue(outside.nanos() >= 0, "span not closed");
+
+        assertEquals(List.of(), metrics.slowestInstances(10));
+        assertEquals(learn.nanos(), metrics.slowestRepositories(10).get(0).nanos(Phase.LEARN));
+        assertEquals(1, metrics.phase(Phase.LEARN).count());
+        assertEquals(0, metrics.phase(Phase.PARSE).count());
+    }
+
+    private static void work() {
+        long end = System.nanoTime() + 1_000_000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
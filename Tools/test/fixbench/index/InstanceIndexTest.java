@@ -0,0 +1,125 @@
+package fixbench.index;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.CleaningLog;
+import fixbench.corpus.SampleTree;
+import fixbench.corpus.Tier;
+import fixbench.corpus.View;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public final class InstanceIndexTest {
+
+    public static void testQueries() throws IOException {
+        Path root = Files.createTempDirectory("instanceindextest");
+        try {
+            sample(root);
+            InstanceIndex index = new IndexBuilder(root).build();
+            assertEquals(List.of("Genesis-NP/Genesis#1", "Genesis-NP/Genesis#2", "Genesis-OOB/Genesis#3",
+                    "Genesis-NP/Genesis#4"), keys(index.find(Query.all())));
+            assertEquals(List.of("a#lib", "b#app"), index.repos());
+
+            BitSet repo = index.select(Query.all().repo("a#lib"));
+            assertEquals(3, repo.cardinality());
+            BitSet both = index.select(Query.all().repo("a#lib").category("Genesis-NP"));
+            assertEquals(List.of("Genesis-NP/Genesis#1", "Genesis-NP/Genesis#2"),
+                    keys(index.find(Query.all().repo("a#lib").category("Genesis-NP"))));
+            BitSet expected = (BitSet) repo.clone();
+            expected.and(index.select(Query.all().category("Genesis-NP")));
+            assertEquals(expected, both);
+            assertEquals(List.of("Genesis-OOB/Genesis#3"),
+                    keys(index.find(Query.all().path("src/Util.java"))));
+            assertEquals(0, index.select(Query.all().repo("c#none")).cardinality());
+
+            assertEquals(List.of("Genesis-NP/Genesis#1", "Genesis-NP/Genesis#4"),
+                    keys(index.find(Query.all().view(View.WITHIN_SINGLE_METHOD))));
+            assertEquals(List.of("Genesis-NP/Genesis#4"),
+                    keys(index.find(Query.all().tier(Tier.EXCLUDED_MULTI_FIX))));
+            assertEquals(3, index.count(Tier.CLEAN));
+
+            assertEquals(List.of("Genesis-NP/Genesis#2", "Genesis-OOB/Genesis#3"),
+                    keys(index.find(Query.all().hunks(2, 3))));
+            assertEquals(List.of("Genesis-NP/Genesis#2"),
+                    keys(index.find(Query.all().hunks(2, 3).oldLines(0, 20))));
+            assertEquals(List.of("Genesis-OOB/Genesis#3"),
+                    keys(index.find(Query.all().repo("a#lib").oldLines(21, Integer.MAX_VALUE))));
+
+            Path saved = root.resolve("index.bin");
+            index.save(saved);
+            InstanceIndex loaded = InstanceIndex.load(saved);
+            assertEquals(keys(index.entries()), keys(loaded.entries()));
+            assertEquals(index.select(Query.all().repo("a#lib").hunks(2, 3)),
+                    loaded.select(Query.all().repo("a#lib").hunks(2, 3)));
+        } finally {
+            Tests.delete(root);
+        }
+    }
+
+    /** Only the instance whose file names, sizes or modification times changed is read again. */
+    public static void testIncrementalRebuild() throws IOException {
+        Path root = Files.createTempDirectory("instanceindextest");
+        try {
+            sample(root);
+            IndexBuilder builder = new IndexBuilder(root);
+            InstanceIndex first = builder.build();
+            assertEquals(0, builder.reused());
+            assertEquals(4, builder.rebuilt());
+
+            InstanceIndex second = builder.build(first);
+            assertEquals(4, builder.reused());
+            assertEquals(0, builder.rebuilt());
+
+            Path source = root.resolve("All/Genesis-NP/Genesis#2/old/Main.java");
+            Files.setLastModifiedTime(source,
+                    FileTime.fromMillis(Files.getLastModifiedTime(source).toMillis() - 60_000));
+            InstanceIndex touched = builder.build(second);
+            assertEquals(3, builder.reused());
+            assertEquals(1, builder.rebuilt());
+            assertEquals(keys(second.entries()), keys(touched.entries()));
+
+            SampleTree.instance(root, "All/Genesis-OOB/Genesis#3", "a#lib", "src/Util.java", 1, 30);
+            InstanceIndex resized = builder.build(touched);
+            assertEquals(3, builder.reused());
+            assertEquals(1, builder.rebuilt());
+            assertEquals(List.of("Genesis-OOB/Genesis#3"), keys(resized.find(Query.all().hunks(1, 1)
+                    .category("Genesis-OOB"))));
+
+            SampleTree.write(root.resolve("All/Genesis-NP/Genesis#1/notes.txt"), "");
+            builder.build(resized);
+            assertEquals(1, builder.rebuilt());
+        } finally {
+            Tests.delete(root);
+        }
+    }
+
+    /**
+     * Four instances: #1 in two views, #2 and #3 with several hunks and different old sizes, #4
+     * removed by the cleaning log but still on disk.
+     */
+    private static void sample(Path root) throws IOException {
+        SampleTree.instance(root, "All/Genesis-NP/Genesis#1", "a#lib", "src/Main.java", 1, 10);
+        SampleTree.instance(root, "WithinSingleMethod/Genesis-NP/Genesis#1", "a#lib", "src/Main.java", 1, 10);
+        SampleTree.instance(root, "All/Genesis-NP/Genesis#2", "a#lib", "src/Main.java", 2, 20);
+        SampleTree.instance(root, "All/Genesis-OOB/Genesis#3", "a#lib", "src/Util.java", 3, 40);
+        SampleTree.instance(root, "WithinSingleMethod/Genesis-NP/Genesis#4", "b#app", "src/App.java", 1, 5);
+        SampleTree.write(root.resolve(CleaningLog.FILE), "Comment 1.2: one commit fixes several warnings\n"
+                + "List:\nGenesis-NP:\nWithinSingleMethod/Genesis-NP/Genesis#4\n");
+        assertTrue(CleaningLog.read(root).isExcluded("Genesis-NP", "Genesis#4"), "log not parsed");
+    }
+
+    private static List<String> keys(List<IndexEntry> entries) {
+        List<String> keys = new ArrayList<>();
+        for (IndexEntry entry : entries) {
+            keys.add(entry.category() + '/' + entry.name());
+        }
+        return keys;
+    }
+}
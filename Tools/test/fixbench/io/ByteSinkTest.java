@@ -0,0 +1,90 @@
+package fixbench.io;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+public final class ByteSinkTest {
+
+    public static void testVarintsAndStrings() {
+        ByteSink sink = new ByteSink(16);
+        sink.putVarint(0).putVarint(300).putVarint(-1).putVarlong(Long.MAX_VALUE).putString("h\u00e9llo");
+        ByteBuffer in = sink.toBuffer();
+        assertEquals(0, ByteSink.readVarint(in));
+        assertEquals(300, ByteSink.readVarint(in));
+        assertEquals(-1, ByteSink.readVarint(in));
+        assertEquals(Long.MAX_VALUE, ByteSink.readVarlong(in));
+        assertEquals("h\u00e9llo", ByteSink.readString(in));
+        assertEquals(0, in.remaining());
+    }
+
+    public static void testWriteAtomicallyToBareFileName() throws IOException {
+        Path file = Paths.get("bytesinktest-" + System.nanoTime() + ".bin");
+        assertEquals(null, file.getParent());
+        try {
+            new ByteSink().putInt(42).writeAtomically(file);
+            assertTrue(Arrays.equals(new byte[] {0, 0, 0, 42}, Files.readAllBytes(file)), "first write");
+            new ByteSink().putInt(7).putInt(8).writeAtomically(file);
+            assertEquals(8L, Files.size(file));
+            assertEquals(0L, leftovers(file), "temporary files left behind");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    public static void testWriteAtomicallyWithBody() throws IOException {
+        Path dir = Files.createTempDirectory("bytesinktest");
+        Path file = dir.resolve("body.bin");
+        try {
+            ByteSink.writeAtomically(file, stream -> new DataOutputStream(stream).writeUTF("body"));
+            assertEquals(6L, Files.size(file));
+            try {
+                ByteSink.writeAtomically(file, stream -> {
+                    stream.write(1);
+                    throw new IOException("failed");
+                });
+                throw new AssertionError("exception swallowed");
+            } catch (IOException expected) {
+                assertEquals(6L, Files.size(file), "a failed write replaced the file");
+            }
+            assertEquals(0L, leftovers(file), "temporary files left behind");
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    /** The written file gets the same permissions as one created directly, not owner-only ones. */
+    public static void testWriteAtomicallyPermissions() throws IOException {
+        Path dir = Files.createTempDirectory("bytesinktest");
+        try {
+            if (!Files.getFileStore(dir).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                return;
+            }
+            Path plain = Files.write(dir.resolve("plain.bin"), new byte[] {1});
+            Path atomic = dir.resolve("atomic.bin");
+            new ByteSink().putInt(1).writeAtomically(atomic);
+            assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(atomic));
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    private static long leftovers(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        String prefix = absolute.getFileName().toString();
+        try (Stream<Path> siblings = Files.list(absolute.getParent())) {
+            return siblings.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(".tmp")).count();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package fixbench.java;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class SyntaxTreeCacheTest {
+    private static final String SOURCE = "package p;\n"
+            + "\n"
+            + "import java.util.List;\n"
+            + "\n"
+            + "public class Outer {\n"
+            + "    private int size = 3;\n"
+            + "    static {\n"
+            + "        System.out.println(\"init\");\n"
+            + "    }\n"
+            + "\n"
+            + "    int sum(List<Integer> values) {\n"
+            + "        int total = 0;\n"
+            + "        for (int v : values) {\n"
+            + "            if (v > 0) { total += v; }\n"
+            + "        }\n"
+            + "        return total;\n"
+            + "    }\n"
+            + "\n"
+            + "    Runnable task() {\n"
+            + "        return new Runnable() {\n"
+            + "            public void run() {\n"
+            + "                size++;\n"
+            + "            }\n"
+            + "        };\n"
+            + "    }\n"
+            + "\n"
+            + "    interface Inner {\n"
+            + "        void go();\n"
+            + "    }\n"
+            + "}\n";
+
+    /** A cached tree, whole or per method, equals the parsed one; later requests are hits. */
+    public static void testRoundTrip() throws IOException {
+        Path dir = Files.createTempDirectory("syntaxtreecachetest");
+        try {
+            ByteBuffer source = ByteBuffer.wrap(SOURCE.getBytes(StandardCharsets.UTF_8));
+            SyntaxTree parsed = SyntaxTree.of(DeclarationIndex.of(source));
+
+            SyntaxTreeCache cache = new SyntaxTreeCache(dir);
+            CachedSyntaxTree cached = cache.get(source);
+            assertEquals(0L, cache.hits());
+            assertEquals(1L, cache.misses());
+            assertSameTree(parsed, 0, cached.tree());
+
+            assertTrue(cached.methodCount() >= 3, "only " + cached.methodCount() + " methods");
+            for (int i = 0; i < cached.methodCount(); i++) {
+                SyntaxTree method = cached.method(i);
+                int node = parsed.nodeOfToken(method.firstToken(0));
+                while (parsed.firstToken(node) != method.firstToken(0) || parsed.kind(node) != method.kind(0)) {
+                    node = parsed.parent(node);
+                }
+                assertSameTree(parsed, node, method);
+            }
+
+            assertTrue(cache.get(source) == cached, "second get decoded the entry again");
+            assertEquals(1L, cache.hits());
+            assertEquals(1L, cache.misses());
+
+            SyntaxTreeCache reopened = new SyntaxTreeCache(dir);
+            assertSameTree(parsed, 0, reopened.get(source).tree());
+            assertEquals(1L, reopened.hits());
+            assertEquals(0L, reopened.misses());
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    /** Compares the subtree of {@code root} with a tree rooted at node 0, node by node in preorder. */
+    private static void assertSameTree(SyntaxTree expected, int root, SyntaxTree actual) {
+        assertEquals(expected.subtreeSize(root), actual.size(), "node count");
+        for (int node = 0; node < actual.size(); node++) {
+            int original = root + node;
+            String at = "node " + node + " (" + expected.kind(original) + ")";
+            assertEquals(expected.kind(original), actual.kind(node), at);
+            assertEquals(node == 0 ? -1 : expected.parent(original) - root, actual.parent(node), at);
+            assertEquals(expected.firstToken(original), actual.firstToken(node), at);
+            assertEquals(expected.lastToken(original), actual.lastToken(node), at);
+            assertEquals(expected.name(original), actual.name(node), at);
+            assertEquals(expected.label(original), actual.label(node), at);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package fixbench.results;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.Corpus;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.SampleTree;
+import fixbench.eval.InstanceResult;
+import fixbench.eval.Verdict;
+import fixbench.results.ResultsStore.Column;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+public final class ResultsStoreTest {
+    private static final Verdict[] VERDICTS = Verdict.values();
+
+    /** Groups over dictionary-coded columns and verdicts match a row-by-row count of what was written. */
+    public static void testGroupBy() throws IOException {
+        Path root = Files.createTempDirectory("resultsstoretest");
+        try {
+            for (int i = 0; i < 12; i++) {
+                SampleTree.instance(root, key(i), i % 3 == 0 ? "b#app" : "a#lib", "src/Main.java", 1, 1);
+            }
+            List<Row> rows = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                for (String tool : new String[] {"oracle", "rewrite"}) {
+                    for (String configuration : new String[] {"base", "tuned"}) {
+                        int n = rows.size();
+                        rows.add(new Row(new InstanceResult(key(i), category(i), tool, VERDICTS[n * 7 % 5],
+                                1000 + n, n % 4 == 0 ? -1 : 64 * n, null, null), configuration,
+                                i % 3 == 0 ? "b#app" : "a#lib"));
+                    }
+                }
+            }
+            try (DirectoryCorpus corpus = DirectoryCorpus.open(root)) {
+                ResultsStore store = write(corpus, rows, root.resolve("runs.fxres"));
+                assertEquals(rows.size(), store.size());
+
+                Map<String, ResultsStore.Group> byCategory = store.groupBy(Column.CATEGORY);
+                assertEquals(expected(rows, row -> row.result.category()), summary(byCategory));
+                assertEquals(List.of("Genesis-NP", "Genesis-OOB"), new ArrayList<>(byCategory.keySet()));
+
+                assertEquals(expected(rows, row -> row.result.category() + '\t' + row.result.tool() + '\t'
+                        + row.configuration), summary(store.groupBy(Column.CATEGORY, Column.TOOL,
+                        Column.CONFIGURATION)));
+                assertEquals(expected(rows, row -> row.repository + '\t' + row.result.verdict()),
+                        summary(store.groupBy(Column.REPOSITORY, Column.VERDICT)));
+                assertEquals(expected(rows, row -> row.result.verdict().name() + '\t' + row.configuration),
+                        summary(store.groupBy(Column.VERDICT, Column.CONFIGURATION)));
+                assertTrue(!store.loadedColumns().contains(Column.CANDIDATE), "candidates inflated");
+                try {
+                    store.groupBy(Column.KEY);
+                    throw new AssertionError("grouped by key");
+                } catch (IllegalArgumentException expected) {
+                    assertTrue(expected.getMessage().contains("KEY"), expected.getMessage());
+                }
+            }
+        } finally {
+            Tests.delete(root);
+        }
+    }
+
+    /** More combinations than the dense table holds switches to a map with the same aggregates. */
+    public static void testGroupBySparse() throws IOException {
+        Corpus empty = Collections::emptyList;
+        List<Row> rows = new ArrayList<>();
+        for (int n = 0; n < 400; n++) {
+            String category = "C" + n % 10;
+            rows.add(new Row(new InstanceResult("All/" + category + "/Genesis#" + n, category, "t" + n % 40,
+                    VERDICTS[n % 5], n, n, null, null), "c" + n * 7 % 40, ""));
+        }
+        Path dir = Files.createTempDirectory("resultsstoretest");
+        try {
+            ResultsStore store = write(empty, rows, dir.resolve("runs.fxres"));
+            // 10 categories, 40 tools, 40 configurations and 5 verdicts: 80000 possible groups.
+            assertEquals(expected(rows, row -> row.result.category() + '\t' + row.result.tool() + '\t'
+                    + row.configuration + '\t' + row.result.verdict()), summary(store.groupBy(Column.CATEGORY,
+                    Column.TOOL, Column.CONFIGURATION, Column.VERDICT)));
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    private static ResultsStore write(Corpus corpus, List<Row> rows, Path file) throws IOException {
+        ResultsWriter writer = new ResultsWriter(corpus, "base");
+        for (Row row : rows) {
+            writer.add(row.result, row.configuration);
+        }
+        writer.write(file);
+        return ResultsStore.open(file);
+    }
+
+    private static String key(int i) {
+        return "All/" + category(i) + "/Genesis#" + (i + 1);
+    }
+
+    private static String category(int i) {
+        return i < 8 ? "Genesis-NP" : "Genesis-OOB";
+    }
+
+    /** Group name, row count, verdict counts, wall time and allocation, counted row by row. */
+    private static Map<String, String> expected(List<Row> rows, Function<Row, String> name) {
+        Map<String, long[]> totals = new TreeMap<>();
+        for (Row row : rows) {
+            long[] total = totals.computeIfAbsent(name.apply(row), k -> new long[VERDICTS.length + 3]);
+            total[row.result.verdict().ordinal()]++;
+            total[VERDICTS.length]++;
+            total[VERDICTS.length + 1] += row.result.wallNanos();
+            total[VERDICTS.length + 2] += Math.max(0, row.result.allocatedBytes());
+        }
+        Map<String, String> expected = new TreeMap<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            StringBuilder line = new StringBuilder();
+            for (long value : entry.getValue()) {
+                line.append(value).append(' ');
+            }
+            expected.put(entry.getKey(), line.toString().trim());
+        }
+        return expected;
+    }
+
+    private static Map<String, String> summary(Map<String, ResultsStore.Group> groups) {
+        Map<String, String> summary = new TreeMap<>();
+        for (Map.Entry<String, ResultsStore.Group> entry : groups.entrySet()) {
+            ResultsStore.Group group = entry.getValue();
+            assertEquals(entry.getKey(), group.name());
+            StringBuilder line = new StringBuilder();
+            for (Verdict verdict : VERDICTS) {
+                line.append(group.count(verdict)).append(' ');
+            }
+            line.append(group.rows()).append(' ').append(group.wallNanos()).append(' ')
+                    .append(group.allocatedBytes());
+            summary.put(entry.getKey(), line.toString());
+        }
+        return summary;
+    }
+
+    /** A result with the configuration it is written under and the repository its instance has. */
+    private static final class Row {
+        final InstanceResult result;
+        final String configuration;
+        final String repository;
+
+        Row(InstanceResult result, String configuration, String repository) {
+            this.result = result;
+            this.configuration = configuration;
+            this.repository = repository;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package fixbench.results;
+
+import static fixbench.Tests.assertEquals;
+
+import fixbench.corpus.Corpus;
+import fixbench.eval.InstanceResult;
+import fixbench.eval.Verdict;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+public final class ResultsWriterTest {
+
+    /** The README's {@code eval ... runs.fxres} names the store with a bare file name. */
+    public static void testWriteToRelativePath() throws IOException {
+        Corpus empty = Collections::emptyList;
+        ResultsWriter writer = new ResultsWriter(empty, "base");
+        writer.accept(new InstanceResult("All/C/a", "C", "oracle", Verdict.REPRODUCED, 1000, 64,
+                ByteBuffer.wrap("class A {}\n".getBytes(StandardCharsets.UTF_8)), null));
+        writer.accept(new InstanceResult("All/C/b", "C", "oracle", Verdict.ERROR, 2000, -1, null, "boom"));
+        Path file = Paths.get("resultswritertest-" + System.nanoTime() + ".fxres");
+        try {
+            long bytes = writer.write(file);
+            assertEquals(bytes, Files.size(file));
+            ResultsStore store = ResultsStore.open(file);
+            assertEquals(2, store.size());
+            int a = store.find("All/C/a", "oracle", "base");
+            int b = store.find("All/C/b", "oracle", "base");
+            assertEquals(Verdict.REPRODUCED, store.verdict(a));
+            assertEquals("class A {}\n", StandardCharsets.UTF_8.decode(store.candidate(a)).toString());
+            assertEquals(Verdict.ERROR, store.verdict(b));
+            assertEquals("boom", store.error(b));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
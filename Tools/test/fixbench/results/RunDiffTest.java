@@ -0,0 +1,82 @@
+package fixbench.results;
+
+import static fixbench.Tests.assertEquals;
+
+import fixbench.Tests;
+import fixbench.corpus.Corpus;
+import fixbench.eval.InstanceResult;
+import fixbench.eval.Verdict;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class RunDiffTest {
+    private static final Corpus EMPTY = Collections::emptyList;
+
+    public static void testChanges() throws IOException {
+        Path dir = Files.createTempDirectory("rundifftest");
+        try {
+            ResultsWriter before = new ResultsWriter(EMPTY, "base");
+            before.accept(result("All/C/Genesis#1", "oracle", Verdict.REPRODUCED, "class A {}\n"));
+            before.accept(result("All/C/Genesis#2", "oracle", Verdict.REPRODUCED, "class B {}\n"));
+            before.accept(result("All/C/Genesis#3", "oracle", Verdict.DIFFERENT, "class C {}\n"));
+            before.accept(result("All/C/Genesis#4", "oracle", Verdict.DIFFERENT, "class D {}\n"));
+            before.accept(result("All/C/Genesis#5", "oracle", Verdict.NO_OUTPUT, null));
+            before.add(result("All/C/Genesis#5", "oracle", Verdict.DIFFERENT, "class E {}\n"), "tuned");
+            ResultsWriter after = new ResultsWriter(EMPTY, "base");
+            after.accept(result("All/C/Genesis#1", "oracle", Verdict.REPRODUCED, "class A {}\n"));
+            after.accept(result("All/C/Genesis#2", "oracle", Verdict.DIFFERENT, "class B2 {}\n"));
+            after.accept(result("All/C/Genesis#3", "oracle", Verdict.REPRODUCED, "class C {}\n"));
+            after.accept(result("All/C/Genesis#4", "oracle", Verdict.DIFFERENT, "class D2 {}\n"));
+            after.accept(result("All/C/Genesis#5", "oracle", Verdict.NO_OUTPUT, null));
+            after.accept(result("All/C/Genesis#6", "oracle", Verdict.REPRODUCED, "class F {}\n"));
+            after.accept(result("All/C/Genesis#1", "rewrite", Verdict.TIMEOUT, null));
+
+            Path first = dir.resolve("before.fxres");
+            Path second = dir.resolve("after.fxres");
+            before.write(first);
+            after.write(second);
+            RunDiff diff = RunDiff.of(ResultsStore.open(first), ResultsStore.open(second));
+            assertEquals(List.of(
+                    "All/C/Genesis#1\trewrite\tbase\t-\tTIMEOUT",
+                    "All/C/Genesis#2\toracle\tbase\tREPRODUCED\tDIFFERENT",
+                    "All/C/Genesis#3\toracle\tbase\tDIFFERENT\tREPRODUCED",
+                    "All/C/Genesis#4\toracle\tbase\tDIFFERENT\tDIFFERENT\tcandidate",
+                    "All/C/Genesis#5\toracle\ttuned\tDIFFERENT\t-",
+                    "All/C/Genesis#6\toracle\tbase\t-\tREPRODUCED"), lines(diff));
+            assertEquals(2, diff.unchanged());
+            assertEquals(1, diff.regressions());
+            assertEquals(1, diff.improvements());
+            assertEquals("6 changed, 2 unchanged, 1 newly reproduced, 1 no longer reproduced",
+                    diff.toString());
+
+            // A store compared with itself has no changes; with an empty one, every row is added.
+            assertEquals(List.of(), lines(RunDiff.of(ResultsStore.open(second), ResultsStore.open(second))));
+            Path none = dir.resolve("none.fxres");
+            new ResultsWriter(EMPTY, "base").write(none);
+            RunDiff added = RunDiff.of(ResultsStore.open(none), ResultsStore.open(second));
+            assertEquals(7, added.changes().size());
+            assertEquals(0, added.improvements());
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    private static InstanceResult result(String key, String tool, Verdict verdict, String candidate) {
+        return new InstanceResult(key, "C", tool, verdict, 1000, -1,
+                candidate == null ? null : ByteBuffer.wrap(candidate.getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private static List<String> lines(RunDiff diff) {
+        List<String> lines = new ArrayList<>();
+        for (RunDiff.Change change : diff.changes()) {
+            lines.add(change.toString());
+        }
+        return lines;
+    }
+}
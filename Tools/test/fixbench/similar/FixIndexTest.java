@@ -0,0 +1,123 @@
+package fixbench.similar;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.edit.TreeDiff;
+import fixbench.java.DeclarationIndex;
+import fixbench.java.SyntaxTree;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class FixIndexTest {
+
+    /** Two null guards around different calls on different variables are each other's nearest fix. */
+    public static void testGuardsRankFirst() {
+        FixIndex index = FixIndex.of(sample());
+        FixFingerprint first = index.get("Genesis-NP", "Genesis#1");
+        FixFingerprint second = index.get("Genesis-NP", "Genesis#2");
+        FixFingerprint rewrite = index.get("Genesis-NP", "Genesis#3");
+        assertTrue(first.jaccard(second) > first.jaccard(rewrite),
+                first.jaccard(second) + " vs " + first.jaccard(rewrite));
+
+        List<FixIndex.Neighbor> nearest = index.nearest(first, 2, fix -> true);
+        assertEquals("Genesis-NP/Genesis#2", nearest.get(0).fix().id());
+        assertEquals("Genesis-NP/Genesis#1", index.nearest(second, 1, fix -> true).get(0).fix().id());
+        assertTrue(nearest.get(0).similarity() > nearest.get(1).similarity(), nearest.toString());
+    }
+
+    /** The query is never its own neighbour, and the full scan makes up whatever the bands miss. */
+    public static void testNearestFillsUpToK() {
+        List<FixFingerprint> fixes = sample();
+        FixIndex index = FixIndex.of(fixes);
+        for (FixFingerprint query : fixes) {
+            List<FixIndex.Neighbor> all = index.nearest(query, fixes.size(), fix -> true);
+            assertEquals(fixes.size() - 1, all.size(), query.id());
+            for (int i = 0; i < all.size(); i++) {
+                assertTrue(!all.get(i).fix().id().equals(query.id()), "query returned for " + query.id());
+                assertTrue(i == 0 || all.get(i - 1).compareTo(all.get(i)) < 0, all.toString());
+            }
+            assertEquals(3, index.nearest(query, 3, fix -> true).size(), query.id());
+
+            List<FixIndex.Neighbor> category = index.nearestInCategory(query, fixes.size());
+            long same = fixes.stream().filter(fix -> fix.category().equals(query.category())).count();
+            assertEquals((int) same - 1, category.size(), query.id());
+            for (FixIndex.Neighbor neighbor : category) {
+                assertEquals(query.category(), neighbor.fix().category());
+            }
+        }
+    }
+
+    public static void testSaveAndLoad() throws IOException {
+        FixIndex index = FixIndex.of(sample());
+        Path dir = Files.createTempDirectory("fixindextest");
+        try {
+            Path file = dir.resolve("fixes.idx");
+            index.save(file);
+            FixIndex loaded = FixIndex.load(file);
+            assertEquals(index.size(), loaded.size());
+            for (FixFingerprint fix : index.fixes()) {
+                FixFingerprint copy = loaded.get(fix.category(), fix.name());
+                assertTrue(Arrays.equals(fix.features(), copy.features()), fix.id());
+                assertTrue(Arrays.equals(fix.signature(), copy.signature()), fix.id());
+                assertEquals(names(index.nearest(fix, 4, other -> true)),
+                        names(loaded.nearest(copy, 4, other -> true)));
+                assertEquals(names(index.nearestInCategory(fix, 4)),
+                        names(loaded.nearestInCategory(copy, 4)));
+            }
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    /** Two null guards, an unrelated rewrite in the same category and three fixes of another one. */
+    private static List<FixFingerprint> sample() {
+        List<FixFingerprint> fixes = new ArrayList<>();
+        fixes.add(fix("Genesis-NP", "Genesis#1",
+                "class A {\n  void f(Runnable task) {\n    task.run();\n  }\n}\n",
+                "class A {\n  void f(Runnable task) {\n    if (task != null) {\n      task.run();\n    }\n"
+                        + "  }\n}\n"));
+        fixes.add(fix("Genesis-NP", "Genesis#2",
+                "class B {\n  int g(List<String> names) {\n    names.clear();\n    return 0;\n  }\n}\n",
+                "class B {\n  int g(List<String> names) {\n    if (names != null) {\n      names.clear();\n"
+                        + "    }\n    return 0;\n  }\n}\n"));
+        fixes.add(fix("Genesis-NP", "Genesis#3",
+                "class C {\n  String h(String s) {\n    return s.toLowerCase();\n  }\n}\n",
+                "class C {\n  String h(String s) {\n    return s.toLowerCase(Locale.ROOT);\n  }\n}\n"));
+        fixes.add(fix("Genesis-OOB", "Genesis#4",
+                "class D {\n  int get(int[] a, int i) {\n    return a[i];\n  }\n}\n",
+                "class D {\n  int get(int[] a, int i) {\n    return i < a.length ? a[i] : -1;\n  }\n}\n"));
+        fixes.add(fix("Genesis-OOB", "Genesis#5",
+                "class E {\n  char first(String s) {\n    return s.charAt(0);\n  }\n}\n",
+                "class E {\n  char first(String s) {\n    return s.isEmpty() ? 0 : s.charAt(0);\n  }\n}\n"));
+        fixes.add(fix("Genesis-OOB", "Genesis#6",
+                "class F {\n  void loop(int n) {\n    for (int i = 0; i <= n; i++) {\n    }\n  }\n}\n",
+                "class F {\n  void loop(int n) {\n    for (int i = 0; i < n; i++) {\n    }\n  }\n}\n"));
+        return fixes;
+    }
+
+    private static FixFingerprint fix(String category, String name, String before, String after) {
+        SyntaxTree src = tree(before);
+        SyntaxTree dst = tree(after);
+        return FixFingerprint.of(category, name, TreeDiff.diff(src, dst), src, dst);
+    }
+
+    private static SyntaxTree tree(String source) {
+        return SyntaxTree.of(DeclarationIndex.of(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static List<String> names(List<FixIndex.Neighbor> neighbors) {
+        List<String> names = new ArrayList<>();
+        for (FixIndex.Neighbor neighbor : neighbors) {
+            names.add(neighbor.toString());
+        }
+        return names;
+    }
+}
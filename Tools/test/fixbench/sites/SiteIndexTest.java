@@ -0,0 +1,106 @@
+package fixbench.sites;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.SampleTree;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public final class SiteIndexTest {
+    private static final String FIRST = "class A {\n"
+            + "  private String[] names = new String[4];\n"
+            + "  String f(String s) {\n"
+            + "    String lower = s.toLowerCase();\n"
+            + "    String root = s.toLowerCase(Locale.ROOT);\n"
+            + "    return names[0] + lower + root;\n"
+            + "  }\n"
+            + "}\n";
+    private static final String SECOND = "class B {\n"
+            + "  String g(byte[] b) {\n"
+            + "    String s = new String(b);\n"
+            + "    String t = new String(b, UTF_8);\n"
+            + "    if (b.length > 0) {\n"
+            + "      t = t.trim().toLowerCase();\n"
+            + "    }\n"
+            + "    return s + t;\n"
+            + "  }\n"
+            + "}\n";
+
+    public static void testPatternFeatures() {
+        assertEquals(Set.of(SiteFeatures.call("toLowerCase")),
+                TokenPattern.of("$s.toLowerCase()").features());
+        assertEquals(Set.of(SiteFeatures.creation("String")),
+                TokenPattern.of("new String($b)").features());
+        assertEquals(Set.of(SiteFeatures.creation("Locale")),
+                TokenPattern.of("new java.util.Locale($l)").features());
+        assertEquals(Set.of(SiteFeatures.INDEX), TokenPattern.of("$a[0]").features());
+        assertEquals(Set.of(SiteFeatures.call("trim"), SiteFeatures.call("toLowerCase")),
+                TokenPattern.of("$s.trim().toLowerCase()").features());
+        try {
+            TokenPattern.of("$a + $b");
+            throw new AssertionError("pattern without features accepted");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("$a + $b"), expected.getMessage());
+        }
+    }
+
+    public static void testSearch() throws IOException {
+        Path root = Files.createTempDirectory("siteindextest");
+        try {
+            source(root, "All/Genesis-NP/Genesis#1", "A.java", FIRST);
+            source(root, "All/Genesis-NP/Genesis#2", "B.java", SECOND);
+            source(root, "WithinSingleMethod/Genesis-NP/Genesis#2", "B.java", SECOND);
+            try (DirectoryCorpus corpus = DirectoryCorpus.open(root)) {
+                SiteIndex index = SiteIndex.build(corpus.instances(), null);
+                assertEquals(2, index.files().size());
+                assertEquals(2, index.files().get(1).instances().size());
+                assertEquals(3, index.count(SiteFeatures.call("toLowerCase")));
+                assertEquals(3, index.count(SiteFeatures.creation("String")));
+                assertEquals(1, index.count(SiteFeatures.INDEX));
+                assertEquals(0, index.count(SiteFeatures.call("toUpperCase")));
+
+                // The Locale.ROOT call has the feature but not the empty argument list.
+                SiteIndex.Result lower = index.search(TokenPattern.of("$s.toLowerCase()"));
+                assertEquals(3, lower.candidates());
+                assertEquals(List.of("All/Genesis-NP/Genesis#1:4-4", "All/Genesis-NP/Genesis#2:6-6"),
+                        sites(lower));
+
+                // The second creation has the feature but a second argument.
+                SiteIndex.Result creation = index.search(TokenPattern.of("new String($b)"));
+                assertEquals(3, creation.candidates());
+                assertEquals(List.of("All/Genesis-NP/Genesis#2:3-3"), sites(creation));
+
+                // The array creation is not an access; only the return statement is a candidate.
+                SiteIndex.Result access = index.search(TokenPattern.of("$a[0]"));
+                assertEquals(List.of("All/Genesis-NP/Genesis#1:6-6"), sites(access));
+
+                assertEquals(List.of("All/Genesis-NP/Genesis#2:6-6"),
+                        sites(index.search(TokenPattern.of("$s.trim().toLowerCase()"))));
+                assertEquals(0, index.search(TokenPattern.of("$s.toUpperCase()")).candidates());
+            }
+        } finally {
+            Tests.delete(root);
+        }
+    }
+
+    /** Writes an instance whose buggy source is {@code content}. */
+    private static void source(Path root, String key, String file, String content) throws IOException {
+        Path dir = SampleTree.instance(root, key, "a#lib", "src/" + file, 1, 1);
+        SampleTree.write(dir.resolve("old").resolve(file), content);
+    }
+
+    private static List<String> sites(SiteIndex.Result result) {
+        List<String> sites = new ArrayList<>();
+        for (SiteIndex.Site site : result.matches()) {
+            sites.add(site.toString());
+        }
+        return sites;
+    }
+}
@@ -0,0 +1,122 @@
+package fixbench.slice;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.Member;
+import fixbench.corpus.MemberKind;
+import fixbench.corpus.View;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class MethodSliceTableTest {
+    private static final int INSTANCES = 40;
+
+    /** A saved table reads back slice for slice and yields the same method bytes. */
+    public static void testSaveAndLoad() throws IOException {
+        List<CorpusInstance> instances = sample();
+        MethodSliceTable table = MethodSliceTable.build(instances);
+        assertTrue(table.size() > INSTANCES / 2, table.size() + " of " + INSTANCES + " sliced");
+        Path file = Paths.get("methodslicetabletest-" + System.nanoTime() + ".bin");
+        try {
+            table.save(file);
+            MethodSliceTable loaded = MethodSliceTable.load(file);
+            assertEquals(table.size(), loaded.size());
+            for (CorpusInstance instance : instances) {
+                MethodSlice expected = table.get(instance);
+                MethodSlice actual = loaded.get(instance);
+                if (expected == null) {
+                    assertEquals(null, actual, instance.key());
+                    continue;
+                }
+                assertEquals(expected.toString(), actual.toString());
+                assertEquals(expected.oldStart(), actual.oldStart(), instance.key());
+                assertEquals(expected.newEnd(), actual.newEnd(), instance.key());
+                assertTrue(Arrays.equals(expected.oldSourceHash(), actual.oldSourceHash()), instance.key());
+                assertTrue(Arrays.equals(expected.newSourceHash(), actual.newSourceHash()), instance.key());
+                assertEquals(expected.oldMethod(instance), actual.oldMethod(instance), instance.key());
+                assertEquals(expected.newMethod(instance), actual.newMethod(instance), instance.key());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** A source edited in place, keeping its length, is no longer sliced. */
+    public static void testStaleSourceOfSameLength() throws IOException {
+        for (CorpusInstance instance : sample()) {
+            MethodSlice slice = MethodSlicer.slice(instance);
+            if (slice == null) {
+                continue;
+            }
+            CorpusInstance edited = withOldSource(instance, edited(instance.oldSource().content(), slice.oldStart()));
+            assertEquals(instance.oldSource().size(), edited.oldSource().size());
+            assertEquals(slice.newMethod(instance), slice.newMethod(edited));
+            try {
+                slice.oldMethod(edited);
+                throw new AssertionError("stale source of " + instance.key() + " sliced");
+            } catch (IllegalStateException expected) {
+                // the hash no longer matches
+            }
+        }
+    }
+
+    private static List<CorpusInstance> sample() throws IOException {
+        List<CorpusInstance> sample = new ArrayList<>();
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot(), EnumSet.of(View.WITHIN_SINGLE_METHOD))) {
+            for (CorpusInstance instance : corpus.instances()) {
+                if (instance.oldSource() != null && instance.newSource() != null && sample.size() < INSTANCES) {
+                    instance.members();
+                    sample.add(instance);
+                }
+            }
+        }
+        return sample;
+    }
+
+    /** A copy of {@code content} with the byte at {@code at} changed. */
+    private static ByteBuffer edited(ByteBuffer content, int at) {
+        byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        bytes[at] = (byte) (bytes[at] == 'x' ? 'y' : 'x');
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static CorpusInstance withOldSource(CorpusInstance instance, ByteBuffer content) {
+        List<Member> members = new ArrayList<>();
+        for (Member member : instance.members()) {
+            members.add(member.kind() == MemberKind.OLD ? new Member(MemberKind.OLD, member.name(), content) : member);
+        }
+        return new CorpusInstance() {
+            @Override
+            public View view() {
+                return instance.view();
+            }
+
+            @Override
+            public String category() {
+                return instance.category();
+            }
+
+            @Override
+            public String name() {
+                return instance.name();
+            }
+
+            @Override
+            public List<Member> members() {
+                return members;
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package fixbench.synth;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.corpus.CorpusInstance;
+import fixbench.corpus.DirectoryCorpus;
+import fixbench.corpus.MemberKind;
+import fixbench.diff.DiffWriterTest;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+public final class AmplifierTest {
+
+    /** Every emitted diff turns the variant's old source into its new one, twice over the sources. */
+    public static void testVariantDiffsRoundTrip() throws IOException {
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot())) {
+            Amplifier amplifier = new Amplifier(corpus.instances(), EnumSet.allOf(Mutation.class), 1);
+            int count = 2 * amplifier.sources().size();
+            List<CorpusInstance> variants = amplifier.corpus(count).instances();
+            int checked = 0;
+            for (CorpusInstance variant : variants) {
+                DiffWriterTest.assertRoundTrip(variant.key(), variant.content(MemberKind.DIFF),
+                        variant.oldSource().content(), variant.newSource().content());
+                checked++;
+            }
+            assertEquals(count, checked);
+            for (Mutation mutation : Mutation.values()) {
+                assertTrue(amplifier.applied(mutation) > 0, mutation.label() + " never applied");
+            }
+        }
+    }
+
+    /** A variant depends on the seed and its number only. */
+    public static void testReproducible() throws IOException {
+        try (DirectoryCorpus corpus = DirectoryCorpus.open(Tests.corpusRoot())) {
+            Amplifier amplifier = new Amplifier(corpus.instances(), EnumSet.allOf(Mutation.class), 7);
+            List<CorpusInstance> variants = amplifier.corpus(40).instances();
+            Amplifier other = new Amplifier(corpus.instances(), EnumSet.allOf(Mutation.class), 7);
+            for (int n : new int[] {39, 0, 13}) {
+                CorpusInstance streamed = variants.get(n);
+                CorpusInstance again = other.variant(n);
+                assertEquals(streamed.key(), again.key());
+                assertEquals(streamed.members().size(), again.members().size(), streamed.key());
+                for (int m = 0; m < streamed.members().size(); m++) {
+                    assertEquals(streamed.members().get(m).content(), again.members().get(m).content(),
+                            streamed.members().get(m).name());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package fixbench.synth;
+
+import static fixbench.Tests.assertEquals;
+import static fixbench.Tests.assertTrue;
+
+import fixbench.Tests;
+import fixbench.diff.DiffWriter;
+import fixbench.diff.Hunk;
+import fixbench.diff.UnifiedDiffParser;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+public final class MutatorTest {
+    private static final int SEEDS = 64;
+
+    /**
+     * A fix whose names shadow fields, are used before a shadowing declaration and are hidden by an
+     * anonymous class's inherited field, and whose checks call methods with side effects.
+     */
+    private static final String OLD = "public class Sample {\n"
+            + "    static int count = 10;\n"
+            + "    static int calls;\n"
+            + "    static int total;\n"
+            + "\n"
+            + "    abstract static class Base {\n"
+            + "        int x = 7;\n"
+            + "\n"
+            + "        abstract void go();\n"
+            + "    }\n"
+            + "\n"
+            + "    static int next() {\n"
+            + "        return ++calls;\n"
+            + "    }\n"
+            + "\n"
+            + "    static int twice(int count) {\n"
+            + "        return 2 * count;\n"
+            + "    }\n"
+            + "\n"
+            + "    public static String run() {\n"
+            + "        StringBuilder out = new StringBuilder();\n"
+            + "        int[] values = {3, 1, 2};\n"
+            + "        count++;\n"
+            + "        if (values.length > 0) {\n"
+            + "            int count = values[0];\n"
+            + "            out.append(count);\n"
+            + "        }\n"
+            + "        out.append(count);\n"
+            + "        total = 5;\n"
+            + "        int total = 2;\n"
+            + "        out.append(total).append(Sample.total);\n"
+            + "        int x = 1;\n"
+            + "        new Base() {\n"
+            + "            void go() {\n"
+            + "                out.append(x);\n"
+            + "            }\n"
+            + "        }.go();\n"
+            + "        out.append(x).append(twice(count));\n"
+            + "        for (int i = 0; i < values.length; i++) {\n"
+            + "            out.append(values[i]);\n"
+            + "        }\n"
+            + "        for (int i = values.length; i > 0; i--) {\n"
+            + "            out.append(i);\n"
+            + "        }\n"
+            + "        return out.toString();\n"
+            + "    }\n"
+            + "}\n";
+    private static final String NEW = OLD.replace("        return out.toString();\n",
+            "        if (values != null && calls < next()) {\n"
+            + "            out.append('n');\n"
+            + "        }\n"
+            + "        if (String.valueOf(next()) != null && values.length >= 1) {\n"
+            + "            out.append(calls);\n"
+            + "        }\n"
+            + "        return out.toString();\n");
+
+    /** Every mutation at every site leaves both sources computing what they did. */
+    public static void testMutationsPreserveBehaviour() throws Exception {
+        Path dir = Files.createTempDirectory("mutatortest");
+        try {
+            String expectedOld = run(OLD, dir);
+            String expectedNew = run(NEW, dir);
+            assertEquals("311257122312321", expectedOld);
+            assertEquals(expectedOld + "n2", expectedNew);
+            List<Hunk> hunks = UnifiedDiffParser.parse(DiffWriter.write("Sample.java", utf8(OLD), utf8(NEW)));
+            Map<Mutation, Integer> applied = new EnumMap<>(Mutation.class);
+            Set<String> checked = new HashSet<>();
+            boolean renamedLocalCount = false;
+            for (Mutation mutation : Mutation.values()) {
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    Mutator mutator = new Mutator(OLD.getBytes(StandardCharsets.UTF_8),
+                            NEW.getBytes(StandardCharsets.UTF_8), hunks, 0, 0, new SplittableRandom(seed));
+                    if (!mutator.apply(mutation)) {
+                        continue;
+                    }
+                    applied.merge(mutation, 1, Integer::sum);
+                    String oldSource = new String(mutator.oldSource(), StandardCharsets.UTF_8);
+                    String newSource = new String(mutator.newSource(), StandardCharsets.UTF_8);
+                    if (checked.add(oldSource)) {
+                        assertEquals(expectedOld, run(oldSource, dir), mutation.label() + " " + seed + '\n' + oldSource);
+                    }
+                    if (checked.add(newSource)) {
+                        assertEquals(expectedNew, run(newSource, dir), mutation.label() + " " + seed + '\n' + newSource);
+                    }
+                    renamedLocalCount |= !oldSource.contains("int count = values[0];");
+                }
+            }
+            for (Mutation mutation : Mutation.values()) {
+                assertTrue(applied.containsKey(mutation), mutation.label() + " never applied");
+            }
+            assertTrue(renamedLocalCount, "the local shadowing a field was never renamed");
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    /** Locals with non-ASCII names are renamed like any other, in every use and at their byte length. */
+    public static void testNonAsciiLocals() throws Exception {
+        String old = "public class Sample {\n"
+                + "    public static String run() {\n"
+                + "        int gr\u00f6\u00dfe = 3;\n"
+                + "        String \u00e9 = \"x\";\n"
+                + "        return \u00e9 + gr\u00f6\u00dfe + (gr\u00f6\u00dfe + 1);\n"
+                + "    }\n"
+                + "}\n";
+        String fixed = old.replace("(gr\u00f6\u00dfe + 1)", "(gr\u00f6\u00dfe - 1)");
+        Path dir = Files.createTempDirectory("mutatortest");
+        try {
+            List<Hunk> hunks = UnifiedDiffParser.parse(DiffWriter.write("Sample.java", utf8(old), utf8(fixed)));
+            Set<String> renamed = new HashSet<>();
+            for (int seed = 0; seed < 8; seed++) {
+                Mutator mutator = new Mutator(old.getBytes(StandardCharsets.UTF_8),
+                        fixed.getBytes(StandardCharsets.UTF_8), hunks, 0, 0, new SplittableRandom(seed));
+                assertTrue(mutator.apply(Mutation.RENAME), "no rename with seed " + seed);
+                String oldSource = new String(mutator.oldSource(), StandardCharsets.UTF_8);
+                String newSource = new String(mutator.newSource(), StandardCharsets.UTF_8);
+                if (renamed.add(oldSource.contains("int gr\u00f6\u00dfe =") ? "\u00e9" : "gr\u00f6\u00dfe")) {
+                    assertEquals("x34", run(oldSource, dir), oldSource);
+                    assertEquals("x32", run(newSource, dir), newSource);
+                }
+            }
+            assertEquals(2, renamed.size());
+        } finally {
+            Tests.delete(dir);
+        }
+    }
+
+    /** Compiles {@code source} into a fresh folder under {@code dir} and returns {@code Sample.run()}. */
+    private static String run(String source, Path dir) throws Exception {
+        Path out = Files.createTempDirectory(dir, "run");
+        Path file = out.resolve("Sample.java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac.run(null, null, null, "-encoding", "UTF-8", "-d", out.toString(), file.toString()) != 0) {
+            throw new AssertionError("does not compile:\n" + source);
+        }
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {out.toUri().toURL()}, null)) {
+            return (String) loader.loadClass("Sample").getMethod("run").invoke(null);
+        }
+    }
+
+    private static ByteBuffer utf8(String text) throws IOException {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}